@@ -0,0 +1,14 @@
+package de.dennisguse.opentracks;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks long running benchmarks (see {@link BenchmarkUtil}); they are only run if requested (see {@link TestRunner}).
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.TYPE, ElementType.METHOD})
+public @interface Benchmark {
+}
@@ -0,0 +1,63 @@
+package de.dennisguse.opentracks;
+
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import java.time.Duration;
+
+/**
+ * Minimal on-device benchmark helper: measures wall time and allocations of the current thread.
+ * Results are logged (see logcat with tag BenchmarkUtil).
+ */
+public class BenchmarkUtil {
+
+    private static final String TAG = BenchmarkUtil.class.getSimpleName();
+
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    /**
+     * @param name  the name of the benchmark (for logging)
+     * @param items number of processed items (e.g., TrackPoints)
+     */
+    @SuppressWarnings("deprecation")
+    public static Result run(@NonNull String name, long items, @NonNull Task task) throws Exception {
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        long start = System.nanoTime();
+        try {
+            task.run();
+        } finally {
+            Debug.stopAllocCounting();
+        }
+        Duration duration = Duration.ofNanos(System.nanoTime() - start);
+
+        Result result = new Result(name, items, duration, Debug.getThreadAllocCount(), Debug.getThreadAllocSize());
+        Log.i(TAG, result.toString());
+        return result;
+    }
+
+    public record Result(String name, long items, Duration duration, long allocations, long allocatedBytes) {
+
+        public double allocationsPerItem() {
+            return (double) allocations / items;
+        }
+
+        public double itemsPerSecond() {
+            return items / (duration.toNanos() / 1_000_000_000d);
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + ": " + items + " items in " + duration.toMillis() + "ms"
+                    + " (" + Math.round(itemsPerSecond()) + " items/s)"
+                    + "; allocations: " + allocations + " (" + String.format("%.1f", allocationsPerItem()) + "/item)"
+                    + "; allocated bytes: " + allocatedBytes;
+        }
+    }
+}
@@ -2,10 +2,29 @@ package de.dennisguse.opentracks;
 
 import android.app.Application;
 import android.content.Context;
+import android.os.Bundle;
 
 import androidx.test.runner.AndroidJUnitRunner;
 
 public class TestRunner extends AndroidJUnitRunner {
+
+    /**
+     * Runs only the {@link Benchmark}s if true; otherwise they are skipped.
+     * ./gradlew connectedAndroidTest -Pandroid.testInstrumentationRunnerArguments.benchmark=true
+     */
+    private static final String ARGUMENT_BENCHMARK = "benchmark";
+
+    private static final String ARGUMENT_ANNOTATION = "annotation";
+    private static final String ARGUMENT_NOT_ANNOTATION = "notAnnotation";
+
+    @Override
+    public void onCreate(Bundle arguments) {
+        String argument = Boolean.parseBoolean(arguments.getString(ARGUMENT_BENCHMARK)) ? ARGUMENT_ANNOTATION : ARGUMENT_NOT_ANNOTATION;
+        String annotations = arguments.getString(argument);
+        arguments.putString(argument, annotations == null ? Benchmark.class.getName() : annotations + "," + Benchmark.class.getName());
+        super.onCreate(arguments);
+    }
+
     @Override
     public Application newApplication(ClassLoader cl, String className, Context context) throws ClassNotFoundException, IllegalAccessException, InstantiationException {
         return super.newApplication(cl, TestApplication.class.getName(), context);
@@ -19,6 +19,8 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import android.graphics.RectF;
+
 import androidx.annotation.NonNull;
 import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
@@ -119,6 +121,66 @@ public class ChartValueSeriesTest {
         assertEquals(700, series.getMaxMarkerValue());
     }
 
+    @Test
+    public void testUpdate_onlyValidDataIsStored() {
+        // when
+        series.update(new ChartPoint(1, 100d, null, null, null, null, null));
+        series.update(new ChartPoint(2, null, null, null, null, null, null));
+        series.update(new ChartPoint(3, 300d, null, null, null, null, null));
+
+        // then
+        assertEquals(2, series.size());
+        assertEquals(3, series.getX(1), 0.01);
+        assertEquals(300, series.getY(1), 0.01);
+    }
+
+    @Test
+    public void testUpdatePath() {
+        // given
+        series.update(new ChartPoint(1, 100d, null, null, null, null, null));
+        series.update(new ChartPoint(3, 300d, null, null, null, null, null));
+
+        // when
+        series.updatePath(10, 5, -1, 400, 500, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 100);
+
+        // then
+        RectF bounds = new RectF();
+        series.getPath().computeBounds(bounds, true);
+        assertEquals(new RectF(15, 100, 35, 500), bounds);
+    }
+
+    @Test
+    public void testUpdatePath_onlyVisibleData() {
+        // given
+        for (int i = 0; i < 100; i++) {
+            series.update(new ChartPoint(i, (double) i, null, null, null, null, null));
+        }
+
+        // when
+        series.updatePath(1, 0, 1, 0, 0, 10, 20, 100);
+
+        // then: 10..20 plus the neighbours
+        RectF bounds = new RectF();
+        series.getPath().computeBounds(bounds, true);
+        assertEquals(new RectF(9, 0, 21, 21), bounds);
+    }
+
+    @Test
+    public void testReset() {
+        // given
+        series.update(withAltitude(220));
+        series.update(withAltitude(250));
+
+        // when
+        series.reset();
+        series.updatePath(1, 0, 1, 0, 0, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, 100);
+
+        // then
+        assertEquals(0, series.size());
+        assertFalse(series.hasData());
+        assertTrue(series.getPath().isEmpty());
+    }
+
     static ChartPoint withAltitude(double altitude) {
         return new ChartPoint(
                 0,
@@ -0,0 +1,127 @@
+package de.dennisguse.opentracks.chart;
+
+import static org.junit.Assert.assertEquals;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+@RunWith(AndroidJUnit4.class)
+public class MinMaxPyramidTest {
+
+    @Test
+    public void add_buildsLevels() {
+        // given
+        MinMaxPyramid pyramid = new MinMaxPyramid();
+
+        // when
+        double[] values = {3, 1, 4, 1, 5, 9, 2, 6, 5};
+        for (double value : values) {
+            pyramid.add(value);
+        }
+
+        // then
+        assertEquals(9, pyramid.size());
+        assertEquals(4, pyramid.getLevels());
+
+        assertEquals(5, pyramid.get(8), 0.01);
+
+        assertEquals(1, pyramid.getMin(1, 0), 0.01);
+        assertEquals(3, pyramid.getMax(1, 0), 0.01);
+        assertEquals(5, pyramid.getMin(1, 2), 0.01);
+        assertEquals(9, pyramid.getMax(1, 2), 0.01);
+
+        assertEquals(2, pyramid.getMin(2, 1), 0.01);
+        assertEquals(9, pyramid.getMax(2, 1), 0.01);
+        // incomplete bucket
+        assertEquals(5, pyramid.getMin(2, 2), 0.01);
+        assertEquals(5, pyramid.getMax(2, 2), 0.01);
+
+        assertEquals(1, pyramid.getMin(3, 0), 0.01);
+        assertEquals(9, pyramid.getMax(3, 0), 0.01);
+        assertEquals(5, pyramid.getMin(3, 1), 0.01);
+    }
+
+    @Test
+    public void add_matchesBruteForce() {
+        // given
+        MinMaxPyramid pyramid = new MinMaxPyramid();
+        int size = 5000;
+
+        // when
+        for (int i = 0; i < size; i++) {
+            pyramid.add(Math.sin(i * 0.1) * i);
+        }
+
+        // then
+        for (int level = 1; level < pyramid.getLevels(); level++) {
+            for (int bucket = 0; bucket << level < size; bucket++) {
+                double min = Double.POSITIVE_INFINITY;
+                double max = Double.NEGATIVE_INFINITY;
+                for (int i = bucket << level; i < Math.min((bucket + 1) << level, size); i++) {
+                    min = Math.min(min, pyramid.get(i));
+                    max = Math.max(max, pyramid.get(i));
+                }
+                assertEquals(min, pyramid.getMin(level, bucket), 0);
+                assertEquals(max, pyramid.getMax(level, bucket), 0);
+            }
+        }
+    }
+
+    @Test
+    public void getMinIndexAndMaxIndex_inOrderOfValues() {
+        // given
+        MinMaxPyramid pyramid = new MinMaxPyramid();
+
+        // when
+        double[] values = {3, 9, 4, 1, 5, 1, 2, 6};
+        for (double value : values) {
+            pyramid.add(value);
+        }
+
+        // then
+        assertEquals(1, pyramid.getMaxIndex(2, 0));
+        assertEquals(3, pyramid.getMinIndex(2, 0));
+        assertEquals(5, pyramid.getMinIndex(1, 2));
+        // first of equal values
+        assertEquals(3, pyramid.getMinIndex(3, 0));
+        assertEquals(1, pyramid.getMaxIndex(3, 0));
+        assertEquals(7, pyramid.getMaxIndex(2, 1));
+    }
+
+    @Test
+    public void getLevel() {
+        // given
+        MinMaxPyramid pyramid = new MinMaxPyramid();
+        for (int i = 0; i < 10000; i++) {
+            pyramid.add(i);
+        }
+
+        // then
+        assertEquals(0, pyramid.getLevel(1000, 1000));
+        assertEquals(1, pyramid.getLevel(2000, 1000));
+        assertEquals(2, pyramid.getLevel(2001, 1000));
+        assertEquals(4, pyramid.getLevel(10000, 1000));
+        // limited by available levels
+        assertEquals(pyramid.getLevels() - 1, pyramid.getLevel(10000, 1));
+    }
+
+    @Test
+    public void clear() {
+        // given
+        MinMaxPyramid pyramid = new MinMaxPyramid();
+        for (int i = 0; i < 100; i++) {
+            pyramid.add(i);
+        }
+
+        // when
+        pyramid.clear();
+        pyramid.add(42);
+
+        // then
+        assertEquals(1, pyramid.size());
+        assertEquals(1, pyramid.getLevels());
+        assertEquals(42, pyramid.get(0), 0.01);
+    }
+}
@@ -17,8 +17,10 @@ package de.dennisguse.opentracks.data;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.when;
 
@@ -28,6 +30,7 @@ import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.location.Location;
+import android.net.Uri;
 import android.util.Pair;
 
 import androidx.test.core.app.ApplicationProvider;
@@ -44,6 +47,7 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Random;
 import java.util.UUID;
@@ -333,6 +337,33 @@ public class CustomContentProviderUtilsTest {
         assertTrue(dir2.exists());
     }
 
+    /**
+     * Tests the method {@link ContentProviderUtils#deleteIncompleteTracks(Context, Instant)}.
+     */
+    @Test
+    public void testDeleteIncompleteTracks() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        contentProviderUtils.insertIncompleteTrack();
+        assertCount(2, 10, 0);
+
+        // when: inserted within the grace period
+        int deleted = contentProviderUtils.deleteIncompleteTracks(context, Instant.now().minus(Duration.ofDays(1)));
+
+        // then
+        assertEquals(0, deleted);
+        assertCount(2, 10, 0);
+
+        // when: inserted before
+        deleted = contentProviderUtils.deleteIncompleteTracks(context, Instant.now().plusSeconds(1));
+
+        // then
+        assertEquals(1, deleted);
+        assertCount(1, 10, 0);
+        assertNotNull(contentProviderUtils.getTrack(trackId));
+    }
+
     /**
      * Tests the method {@link ContentProviderUtils#getTracks()}
      */
@@ -378,6 +409,102 @@ public class CustomContentProviderUtilsTest {
         assertNotNull(contentProviderUtils.getTrack(track.getUuid()));
     }
 
+    /**
+     * Tests the method {@link ContentProviderUtils#searchTracks(String, Instant, Track.Id, int, android.os.CancellationSignal)}
+     */
+    @Test
+    public void testSearchTracks_keysetPages() {
+        // given: tracks with equal start times and without start time
+        List<Track.Id> expected = new ArrayList<>();
+        for (int i = 1; i <= 25; i++) {
+            Track track = TestDataUtil.createTrack(new Track.Id(i));
+            if (i > 3) {
+                track.getTrackStatistics().setStartTime(Instant.ofEpochMilli(1_000_000L + (i / 2) * 1000L));
+            }
+            contentProviderUtils.insertTrack(track);
+        }
+        for (int i = 1; i <= 25; i++) {
+            expected.add(new Track.Id(i));
+        }
+        // Ordered by start time and id descending; tracks without start time are last.
+        expected.sort((a, b) -> {
+            long startA = a.id() > 3 ? a.id() / 2 : -1;
+            long startB = b.id() > 3 ? b.id() / 2 : -1;
+            return startA != startB ? Long.compare(startB, startA) : Long.compare(b.id(), a.id());
+        });
+
+        // when
+        List<Track.Id> actual = new ArrayList<>();
+        Instant afterStartTime = null;
+        Track.Id afterTrackId = null;
+        int pages = 0;
+        while (true) {
+            int pageSize = 0;
+            try (Cursor cursor = contentProviderUtils.searchTracks(null, afterStartTime, afterTrackId, 10, null)) {
+                int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
+                int startTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME);
+                while (cursor.moveToNext()) {
+                    afterTrackId = new Track.Id(cursor.getLong(idIndex));
+                    afterStartTime = cursor.isNull(startTimeIndex) ? null : Instant.ofEpochMilli(cursor.getLong(startTimeIndex));
+                    actual.add(afterTrackId);
+                    pageSize++;
+                }
+            }
+            if (pageSize == 0) {
+                break;
+            }
+            pages++;
+        }
+
+        // then
+        assertEquals(3, pages);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testToSearchIndexQuery() {
+        assertNull(ContentProviderUtils.toSearchIndexQuery(null));
+        assertNull(ContentProviderUtils.toSearchIndexQuery(" - "));
+        assertEquals("Köln* 2024*", ContentProviderUtils.toSearchIndexQuery("Köln 2024"));
+        assertEquals("morning* ride*", ContentProviderUtils.toSearchIndexQuery(" morning-ride\""));
+        assertEquals("OR* NOT*", ContentProviderUtils.toSearchIndexQuery("OR NOT"));
+    }
+
+    @Test
+    public void testSearchTracks_query() {
+        // given
+        Track track1 = TestDataUtil.createTrack(new Track.Id(1));
+        track1.setName("Morning ride");
+        track1.setDescription("Köln");
+        contentProviderUtils.insertTrack(track1);
+        Track track2 = TestDataUtil.createTrack(new Track.Id(2));
+        track2.setName("Evening run");
+        contentProviderUtils.insertTrack(track2);
+
+        // when / then
+        assertEquals(List.of(new Track.Id(1)), searchTrackIds("mor"));
+        assertEquals(List.of(new Track.Id(1)), searchTrackIds("koln RIDE"));
+        assertEquals(List.of(), searchTrackIds("ride run"));
+        assertEquals(List.of(new Track.Id(2), new Track.Id(1)), searchTrackIds(null));
+
+        // when: renamed
+        track2.setName("Morning run");
+        contentProviderUtils.updateTrack(track2);
+
+        // then
+        assertEquals(List.of(new Track.Id(2), new Track.Id(1)), searchTrackIds("morning"));
+    }
+
+    private List<Track.Id> searchTrackIds(String query) {
+        List<Track.Id> trackIds = new ArrayList<>();
+        try (Cursor cursor = contentProviderUtils.searchTracks(query, null, null, 0, null)) {
+            while (cursor.moveToNext()) {
+                trackIds.add(new Track.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TracksColumns._ID))));
+            }
+        }
+        return trackIds;
+    }
+
     /**
      * Tests the method {@link ContentProviderUtils#updateTrack(Track)}
      */
@@ -563,6 +690,32 @@ public class CustomContentProviderUtilsTest {
      * Tests the method {@link ContentProviderUtils#insertMarker(Marker)} and
      * {@link ContentProviderUtils#getMarker(Marker.Id)}.
      */
+    @Test
+    public void testSearchMarkers_nameMatchesFirst() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+
+        Marker marker1 = new Marker(trackId, contentProviderUtils.getLastValidTrackPoint(trackId));
+        marker1.setName("Lake");
+        marker1.setDescription("View of the summit");
+        Marker.Id markerId1 = contentProviderUtils.insertMarker(marker1);
+
+        Marker marker2 = new Marker(trackId, contentProviderUtils.getLastValidTrackPoint(trackId));
+        marker2.setName("Summit");
+        Marker.Id markerId2 = contentProviderUtils.insertMarker(marker2);
+
+        Marker marker3 = new Marker(trackId, contentProviderUtils.getLastValidTrackPoint(trackId));
+        marker3.setName("Hut");
+        contentProviderUtils.insertMarker(marker3);
+
+        // when
+        List<Marker> markers = contentProviderUtils.searchMarkers(null, "sum");
+
+        // then
+        assertEquals(List.of(markerId2, markerId1), markers.stream().map(Marker::getId).collect(Collectors.toList()));
+    }
+
     @Test
     public void testInsertAndGetMarker() {
         Track.Id trackId = new Track.Id(System.currentTimeMillis());
@@ -868,6 +1021,234 @@ public class CustomContentProviderUtilsTest {
         assertFalse(trackPointIterator.hasNext());
     }
 
+    @Test
+    public void testGetTrackPointIterator_fields() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+
+        // when / then
+        assertOnlyFieldsLoaded(trackId);
+    }
+
+    @Test
+    public void testGetTrackPointIterator_fields_archived() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        contentProviderUtils.archiveTrackPoints(trackId);
+
+        // when / then
+        assertOnlyFieldsLoaded(trackId);
+    }
+
+    private void assertOnlyFieldsLoaded(Track.Id trackId) {
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, null, EnumSet.of(TrackPointIterator.Field.LOCATION, TrackPointIterator.Field.HEART_RATE))) {
+            for (int i = 0; i < 10; i++) {
+                assertTrue(trackPointIterator.hasNext());
+                TrackPoint trackPoint = trackPointIterator.next();
+                assertEquals(TrackPoint.Type.TRACKPOINT, trackPoint.getType());
+                assertEquals(Instant.ofEpochSecond(i), trackPoint.getTime());
+                checkLocation(i, trackPoint.getLocation());
+                assertEquals(HeartRate.of(100f + i), trackPoint.getHeartRate());
+
+                assertFalse(trackPoint.hasHorizontalAccuracy());
+                assertFalse(trackPoint.hasAltitude());
+                assertFalse(trackPoint.hasSpeed());
+                assertFalse(trackPoint.hasCadence());
+                assertFalse(trackPoint.hasPower());
+                assertFalse(trackPoint.hasAltitudeGain());
+                assertFalse(trackPoint.hasAltitudeLoss());
+            }
+            assertFalse(trackPointIterator.hasNext());
+        }
+    }
+
+    @Test
+    public void testArchiveTrackPoints() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        int numPoints = TrackPointBlock.CAPACITY + 10;
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, numPoints);
+        List<String> expected = getTrackPointsAsString(trackId, null);
+        SensorStatistics expectedSensorStatistics = contentProviderUtils.getSensorStats(trackId);
+
+        // when
+        int count = contentProviderUtils.archiveTrackPoints(trackId);
+
+        // then
+        assertEquals(numPoints, count);
+        try (Cursor cursor = context.getContentResolver().query(TrackPointsColumns.CONTENT_URI_BY_ID, null, TrackPointsColumns.TRACKID + "=?", new String[]{Long.toString(trackId.id())}, null)) {
+            assertEquals(0, cursor.getCount());
+        }
+        assertEquals(expected, getTrackPointsAsString(trackId, null));
+        assertEquals(expectedSensorStatistics, contentProviderUtils.getSensorStats(trackId));
+
+        TrackPoint.Id startTrackPointId = new TrackPoint.Id(contentProviderUtils.getLastTrackPointId(trackId).id() - 5);
+        List<String> expectedFromStart = expected.subList(numPoints - 6, numPoints);
+        assertEquals(expectedFromStart, getTrackPointsAsString(trackId, startTrackPointId));
+    }
+
+    @Test
+    public void testRestoreTrackPoints() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        List<String> expected = getTrackPointsAsString(trackId, null);
+        contentProviderUtils.archiveTrackPoints(trackId);
+
+        // when
+        int count = contentProviderUtils.restoreTrackPoints(trackId);
+
+        // then
+        assertEquals(10, count);
+        try (Cursor cursor = context.getContentResolver().query(TrackPointsColumns.CONTENT_URI_BY_ID, null, TrackPointsColumns.TRACKID + "=?", new String[]{Long.toString(trackId.id())}, null)) {
+            assertEquals(10, cursor.getCount());
+        }
+        assertEquals(expected, getTrackPointsAsString(trackId, null));
+        assertEquals(0, contentProviderUtils.restoreTrackPoints(trackId));
+    }
+
+    @Test
+    public void testArchiveTrackPoints_skippedAfterRestore() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        contentProviderUtils.archiveTrackPoints(trackId);
+        contentProviderUtils.restoreTrackPoints(trackId);
+
+        // when
+        int count = contentProviderUtils.archiveTrackPoints(trackId);
+
+        // then
+        assertEquals(0, count);
+        try (Cursor cursor = context.getContentResolver().query(TrackPointsColumns.CONTENT_URI_BY_ID, null, TrackPointsColumns.TRACKID + "=?", new String[]{Long.toString(trackId.id())}, null)) {
+            assertEquals(10, cursor.getCount());
+        }
+    }
+
+    @Test
+    public void testArchiveTrackPoints_readWithoutRestore() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 10);
+        TrackPoint expectedLastTrackPoint = contentProviderUtils.getLastValidTrackPoint(trackId);
+        List<String> expected;
+        try (Cursor cursor = contentProviderUtils.getTrackPointCursor(trackId, null)) {
+            expected = getCursorAsString(cursor);
+        }
+        contentProviderUtils.archiveTrackPoints(trackId);
+
+        // when
+        List<String> actual;
+        try (Cursor cursor = contentProviderUtils.getTrackPointCursor(trackId, null)) {
+            actual = getCursorAsString(cursor);
+        }
+        TrackPoint lastTrackPoint = contentProviderUtils.getLastValidTrackPoint(trackId);
+        TrackPoint.Id trackPointId = contentProviderUtils.getTrackPointId(trackId, lastTrackPoint.getPosition());
+
+        // then
+        assertEquals(expected, actual);
+        assertEquals(expectedLastTrackPoint.toString(), lastTrackPoint.toString());
+        assertEquals(expectedLastTrackPoint.getId(), trackPointId);
+
+        // still archived
+        assertEquals(10, contentProviderUtils.restoreTrackPoints(trackId));
+    }
+
+    @Test
+    public void testArchiveTrackPoints_queryByTrackId() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        int numPoints = TrackPointBlock.CAPACITY + 10;
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, numPoints);
+        Uri uri = Uri.withAppendedPath(TrackPointsColumns.CONTENT_URI_BY_TRACKID, ContentProviderUtils.formatIdListForUri(trackId));
+        String[] projection = {TrackPointsColumns._ID, TrackPointsColumns.TRACKID, TrackPointsColumns.TIME, TrackPointsColumns.SENSOR_HEARTRATE};
+        String selection = TrackPointsColumns._ID + " > ?";
+        String[] selectionArgs = {Long.toString(contentProviderUtils.getLastTrackPointId(trackId).id() - 20)};
+        List<String> expected;
+        List<String> expectedDescending;
+        try (Cursor cursor = context.getContentResolver().query(uri, projection, selection, selectionArgs, null)) {
+            expected = getCursorAsString(cursor);
+        }
+        try (Cursor cursor = context.getContentResolver().query(uri, projection, null, null, TrackPointsColumns._ID + " DESC")) {
+            expectedDescending = getCursorAsString(cursor);
+        }
+        contentProviderUtils.archiveTrackPoints(trackId);
+
+        // when
+        List<String> actual;
+        List<String> actualDescending;
+        try (Cursor cursor = context.getContentResolver().query(uri, projection, selection, selectionArgs, null)) {
+            actual = getCursorAsString(cursor);
+        }
+        try (Cursor cursor = context.getContentResolver().query(uri, projection, null, null, TrackPointsColumns._ID + " DESC")) {
+            actualDescending = getCursorAsString(cursor);
+        }
+
+        // then
+        assertEquals(20, actual.size());
+        assertEquals(expected, actual);
+        assertEquals(numPoints, actualDescending.size());
+        assertEquals(expectedDescending, actualDescending);
+        assertThrows(IllegalArgumentException.class, () -> context.getContentResolver().query(uri, projection, TrackPointsColumns.TIME + "=?", new String[]{"0"}, null));
+    }
+
+    @Test
+    public void testComputeFingerprint() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 100);
+
+        // when
+        long fingerprint = contentProviderUtils.computeFingerprint(trackId);
+        contentProviderUtils.archiveTrackPoints(trackId);
+        long archivedFingerprint = contentProviderUtils.computeFingerprint(trackId);
+
+        // then
+        assertNotEquals(TrackFingerprint.NONE, fingerprint);
+        assertEquals(fingerprint, archivedFingerprint);
+    }
+
+    @Test
+    public void testComputeFingerprint_noLocations() {
+        // given
+        Track.Id trackId = new Track.Id(System.currentTimeMillis());
+        Track track = new Track();
+        track.setId(trackId);
+        contentProviderUtils.insertTrack(track);
+        contentProviderUtils.insertTrackPoint(new TrackPoint(TrackPoint.Type.SEGMENT_START_MANUAL, Instant.ofEpochSecond(1)), trackId);
+
+        // when
+        long fingerprint = contentProviderUtils.computeFingerprint(trackId);
+
+        // then
+        assertEquals(TrackFingerprint.NONE, fingerprint);
+    }
+
+    private static List<String> getCursorAsString(Cursor cursor) {
+        List<String> rows = new ArrayList<>();
+        while (cursor.moveToNext()) {
+            StringBuilder row = new StringBuilder();
+            for (int i = 0; i < cursor.getColumnCount(); i++) {
+                Object value = cursor.getType(i) == Cursor.FIELD_TYPE_FLOAT ? cursor.getDouble(i) : cursor.getString(i);
+                row.append(cursor.getColumnName(i)).append('=').append(value).append(';');
+            }
+            rows.add(row.toString());
+        }
+        return rows;
+    }
+
+    private List<String> getTrackPointsAsString(Track.Id trackId, TrackPoint.Id startTrackPointId) {
+        List<String> trackPoints = new ArrayList<>();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, startTrackPointId)) {
+            while (trackPointIterator.hasNext()) {
+                trackPoints.add(trackPointIterator.next().toString());
+            }
+        }
+        return trackPoints;
+    }
+
     /**
      * Checks the value of a location.
      *
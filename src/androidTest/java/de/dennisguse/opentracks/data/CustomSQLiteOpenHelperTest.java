@@ -4,6 +4,7 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import android.content.ContentValues;
 import android.content.Context;
 import android.database.Cursor;
 import android.database.sqlite.SQLiteConstraintException;
@@ -23,8 +24,12 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Random;
 
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.SearchIndexColumns;
+import de.dennisguse.opentracks.data.tables.SensorStatsColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointBlocksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 
@@ -37,6 +42,18 @@ public class CustomSQLiteOpenHelperTest {
 
     private static final String DATABASE_NAME = "test.db";
 
+    // Computation of the sensor statistics until version 38
+    private static final String SENSOR_STATS_QUERY_V38 = "WITH time_select as (SELECT t1.time * (t1.type NOT IN (-2)) time_value FROM trackpoints t1 WHERE t1._id > t._id AND t1.trackid = ? ORDER BY _id LIMIT 1) "
+            + "SELECT SUM(t.sensor_heartrate * (COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time)) / SUM(COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time) avg_hr, "
+            + "MAX(t.sensor_heartrate) max_hr, "
+            + "SUM(t.sensor_cadence * (COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time)) / SUM(COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time) avg_cadence, "
+            + "MAX(t.sensor_cadence) max_cadence, "
+            + "SUM(t.sensor_power * (COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time)) / SUM(COALESCE(MAX(t.time, (SELECT time_value FROM time_select)), t.time) - t.time) avg_power, "
+            + "MAX(t.sensor_power) max_power "
+            + "FROM trackpoints t WHERE t.trackid = ? AND t.type NOT IN (-2)";
+
+    private static final String SENSOR_STATS_QUERY = "SELECT heartrate_sum / duration, heartrate_max, cadence_sum / duration, cadence_max, power_sum / duration, power_max FROM sensorstats WHERE trackid = ?";
+
     private final Context context = ApplicationProvider.getApplicationContext();
 
     /**
@@ -86,12 +103,32 @@ public class CustomSQLiteOpenHelperTest {
     public void onCreate() {
         try (SQLiteDatabase db = new CustomSQLiteOpenHelper(context, DATABASE_NAME).getWritableDatabase()) {
             assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_STARTTIME_INDEX));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_FINGERPRINT_INDEX));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TRIGGER_FINGERPRINT_RESET));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TRIGGER_MARKER_INSERT));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TRIGGER_MARKER_DELETE));
+            assertTrue(hasSqlCreate(db, TracksColumns.CREATE_TRIGGER_MARKER_UPDATE));
 
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, TrackPointsColumns.CREATE_TABLE_INDEX));
 
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE));
             assertTrue(hasSqlCreate(db, MarkerColumns.CREATE_TABLE_INDEX));
+
+            assertTrue(hasSqlCreate(db, SensorStatsColumns.CREATE_TABLE));
+            assertTrue(hasSqlCreate(db, SensorStatsColumns.CREATE_TRIGGER));
+
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_TRACKS_TABLE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_TRACKS_TRIGGER_INSERT));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_TRACKS_TRIGGER_DELETE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_TRACKS_TRIGGER_BEFORE_UPDATE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_TRACKS_TRIGGER_AFTER_UPDATE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_MARKERS_TABLE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_MARKERS_TRIGGER_INSERT));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_MARKERS_TRIGGER_DELETE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_MARKERS_TRIGGER_BEFORE_UPDATE));
+            assertTrue(hasSqlCreate(db, SearchIndexColumns.CREATE_MARKERS_TRIGGER_AFTER_UPDATE));
         } catch (Exception e) {
             fail("Database could not be created: " + e);
         }
@@ -120,16 +157,21 @@ public class CustomSQLiteOpenHelperTest {
 
 
         // then - verify table structure
-        int tableCount = 3 + 2; //Three with data tables + two SQLite
+        int tableCount = 5 + 2 + 2 * 5; //Five with data tables + two SQLite + two full-text search indices (with four shadow tables each)
         assertEquals(tableCount, tableByUpgrade.size());
         assertEquals(tableByUpgrade.size(), tablesByCreate.size());
 
         assertEquals(tablesByCreate.get(TracksColumns.TABLE_NAME), tableByUpgrade.get(TracksColumns.TABLE_NAME));
         assertEquals(tablesByCreate.get(TrackPointsColumns.TABLE_NAME), tableByUpgrade.get(TrackPointsColumns.TABLE_NAME));
         assertEquals(tablesByCreate.get(MarkerColumns.TABLE_NAME), tableByUpgrade.get(MarkerColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(SensorStatsColumns.TABLE_NAME), tableByUpgrade.get(SensorStatsColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(TrackPointBlocksColumns.TABLE_NAME), tableByUpgrade.get(TrackPointBlocksColumns.TABLE_NAME));
+        assertEquals(tablesByCreate.get(SearchIndexColumns.TRACKS_TABLE_NAME), tableByUpgrade.get(SearchIndexColumns.TRACKS_TABLE_NAME));
+        assertEquals(tablesByCreate.get(SearchIndexColumns.MARKERS_TABLE_NAME), tableByUpgrade.get(SearchIndexColumns.MARKERS_TABLE_NAME));
 
         // then - verify custom indices
-        assertEquals(3, indicesByCreate.size());
+        assertEquals(6 + 2, indicesByCreate.size()); // + primary key of the full-text search indices' segdir
+        assertEquals(indicesByCreate, indicesByUpgrade);
         assertEquals(indicesByUpgrade.get(TracksColumns.TABLE_NAME), indicesByCreate.get(TracksColumns.TABLE_NAME));
         assertEquals(indicesByUpgrade.get(TrackPointsColumns.TABLE_NAME), indicesByCreate.get(TrackPointsColumns.TABLE_NAME));
         assertEquals(indicesByUpgrade.get(MarkerColumns.TABLE_NAME), indicesByCreate.get(MarkerColumns.TABLE_NAME));
@@ -263,6 +305,189 @@ public class CustomSQLiteOpenHelperTest {
         }
     }
 
+    @Test
+    public void upgrade_data_to_39_sensorStatsEquivalentToQuery() {
+        // given: tracks with sensor data in version 38
+        createVersion23();
+        Random random = new Random(1);
+        int trackCount = 20;
+        try (SQLiteDatabase db38 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 38).getWritableDatabase()) {
+            db38.beginTransaction();
+            for (int trackId = 1; trackId <= trackCount; trackId++) {
+                db38.execSQL("INSERT INTO tracks (_id) VALUES (" + trackId + ")");
+                insertTrackPointsWithSensorData(db38, random, trackId, trackId - 1);
+            }
+            db38.setTransactionSuccessful();
+            db38.endTransaction();
+        }
+
+        // when
+        try (SQLiteDatabase db39 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 39).getWritableDatabase()) {
+            // then: backfilled
+            for (int trackId = 1; trackId <= trackCount; trackId++) {
+                assertSensorStatsEquivalent(db39, trackId);
+            }
+
+            // when: continue recording
+            for (int trackId = 1; trackId <= trackCount; trackId++) {
+                insertTrackPointsWithSensorData(db39, random, trackId, 10);
+            }
+
+            // then: maintained by trigger
+            for (int trackId = 1; trackId <= trackCount; trackId++) {
+                assertSensorStatsEquivalent(db39, trackId);
+            }
+        }
+    }
+
+    @Test
+    public void upgrade_data_to_40_markerCount() {
+        // given: tracks with markers in version 39
+        createVersion23();
+        try (SQLiteDatabase db39 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 39).getWritableDatabase()) {
+            for (int trackId = 1; trackId <= 3; trackId++) {
+                db39.execSQL("INSERT INTO tracks (_id) VALUES (" + trackId + ")");
+                for (int i = 0; i < trackId - 1; i++) {
+                    db39.execSQL("INSERT INTO markers (trackid) VALUES (" + trackId + ")");
+                }
+            }
+        }
+
+        // when
+        try (SQLiteDatabase db40 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 40).getWritableDatabase()) {
+            // then: backfilled
+            assertMarkerCount(db40, 1, 0);
+            assertMarkerCount(db40, 2, 1);
+            assertMarkerCount(db40, 3, 2);
+
+            // when: insert, move, and delete markers
+            db40.execSQL("INSERT INTO markers (trackid) VALUES (1)");
+            db40.execSQL("UPDATE markers SET trackid = 1 WHERE trackid = 3 AND _id = (SELECT MIN(_id) FROM markers WHERE trackid = 3)");
+            db40.execSQL("DELETE FROM markers WHERE trackid = 2");
+
+            // then: maintained by trigger
+            assertMarkerCount(db40, 1, 2);
+            assertMarkerCount(db40, 2, 0);
+            assertMarkerCount(db40, 3, 1);
+        }
+    }
+
+    @Test
+    public void upgrade_data_to_41_searchIndex() {
+        // given: tracks and markers in version 40
+        createVersion23();
+        try (SQLiteDatabase db40 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 40).getWritableDatabase()) {
+            db40.execSQL("INSERT INTO tracks (_id, name, description, category) VALUES (1, 'Morning ride', 'Along the river', 'Cycling')");
+            db40.execSQL("INSERT INTO tracks (_id, name, description, category) VALUES (2, 'Evening run', NULL, 'Running')");
+            db40.execSQL("INSERT INTO markers (_id, trackid, name, description, category) VALUES (1, 1, 'Bridge', 'Old stone bridge', 'Sight')");
+        }
+
+        // when
+        try (SQLiteDatabase db41 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 41).getWritableDatabase()) {
+            // then: built for existing data
+            assertSearchIndex(db41, SearchIndexColumns.TRACKS_SELECT_MATCHING_IDS, "rive*", 1);
+            assertSearchIndex(db41, SearchIndexColumns.TRACKS_SELECT_MATCHING_IDS, "run*", 2);
+            assertSearchIndex(db41, SearchIndexColumns.MARKERS_SELECT_MATCHING_IDS, "ston*", 1);
+
+            // when: insert, update, and delete
+            db41.execSQL("INSERT INTO tracks (_id, name) VALUES (3, 'Hike')");
+            db41.execSQL("UPDATE tracks SET name = 'Night run' WHERE _id = 1");
+            db41.execSQL("UPDATE tracks SET totaldistance = 1 WHERE _id = 1");
+            db41.execSQL("DELETE FROM tracks WHERE _id = 2");
+            db41.execSQL("UPDATE markers SET name = 'Tower' WHERE _id = 1");
+
+            // then: maintained by trigger
+            assertSearchIndex(db41, SearchIndexColumns.TRACKS_SELECT_MATCHING_IDS, "hik*", 3);
+            assertSearchIndex(db41, SearchIndexColumns.TRACKS_SELECT_MATCHING_IDS, "morning*");
+            assertSearchIndex(db41, SearchIndexColumns.TRACKS_SELECT_MATCHING_IDS, "run*", 1);
+            assertSearchIndex(db41, SearchIndexColumns.MARKERS_SELECT_MATCHING_IDS, "brid*");
+            assertSearchIndex(db41, SearchIndexColumns.MARKERS_SELECT_MATCHING_IDS, "tow*", 1);
+        }
+    }
+
+    @Test
+    public void upgrade_data_to_42_fingerprintResetByTrackPoint() {
+        // given
+        createVersion23();
+        new CustomSQLiteOpenHelper(context, DATABASE_NAME, 41).getWritableDatabase().close();
+
+        try (SQLiteDatabase db42 = new CustomSQLiteOpenHelper(context, DATABASE_NAME, 42).getWritableDatabase()) {
+            db42.execSQL("INSERT INTO tracks (_id, fingerprint) VALUES (1, 42)");
+            db42.execSQL("INSERT INTO tracks (_id, fingerprint) VALUES (2, 43)");
+
+            // when
+            db42.execSQL("INSERT INTO trackpoints (trackid, time) VALUES (1, 0)");
+
+            // then
+            try (Cursor cursor = db42.rawQuery("SELECT fingerprint FROM tracks ORDER BY _id", null)) {
+                assertTrue(cursor.moveToNext());
+                assertTrue(cursor.isNull(0));
+                assertTrue(cursor.moveToNext());
+                assertEquals(43, cursor.getLong(0));
+            }
+        }
+    }
+
+    private static void assertSearchIndex(SQLiteDatabase db, String selectMatchingIds, String query, long... expectedIds) {
+        List<Long> actual = new ArrayList<>();
+        try (Cursor cursor = db.rawQuery(selectMatchingIds + " ORDER BY " + SearchIndexColumns.DOCID, new String[]{query})) {
+            while (cursor.moveToNext()) {
+                actual.add(cursor.getLong(0));
+            }
+        }
+        List<Long> expected = new ArrayList<>();
+        for (long id : expectedIds) {
+            expected.add(id);
+        }
+        assertEquals(query, expected, actual);
+    }
+
+    private static void assertMarkerCount(SQLiteDatabase db, int trackId, int expected) {
+        try (Cursor cursor = db.rawQuery("SELECT markercount, (SELECT COUNT(*) FROM markers WHERE trackid = tracks._id) FROM tracks WHERE _id = ?", new String[]{String.valueOf(trackId)})) {
+            assertTrue(cursor.moveToFirst());
+            assertEquals(expected, cursor.getInt(1));
+            assertEquals(expected, cursor.getInt(0));
+        }
+    }
+
+    private static void insertTrackPointsWithSensorData(SQLiteDatabase db, Random random, int trackId, int count) {
+        int[] types = {-2, -1, 0, 0, 0, 1};
+        long time = 1_000_000 + trackId * 1_000_000L;
+        for (int i = 0; i < count; i++) {
+            time += random.nextInt(5) * 1000;
+            ContentValues values = new ContentValues();
+            values.put("trackid", trackId);
+            values.put("time", time);
+            values.put("type", types[random.nextInt(types.length)]);
+            values.put("sensor_heartrate", random.nextBoolean() ? 100f + random.nextInt(80) : null);
+            values.put("sensor_cadence", random.nextBoolean() ? 60f + random.nextInt(40) : null);
+            values.put("sensor_power", random.nextBoolean() ? 100f + random.nextInt(300) : null);
+            db.insertOrThrow("trackpoints", null, values);
+        }
+    }
+
+    private static void assertSensorStatsEquivalent(SQLiteDatabase db, int trackId) {
+        String id = String.valueOf(trackId);
+        try (Cursor expected = db.rawQuery(SENSOR_STATS_QUERY_V38, new String[]{id, id});
+             Cursor actual = db.rawQuery(SENSOR_STATS_QUERY, new String[]{id})) {
+            assertTrue(expected.moveToFirst());
+            if (!actual.moveToFirst()) {
+                // Track without TrackPoints
+                for (int i = 0; i < expected.getColumnCount(); i++) {
+                    assertTrue(expected.isNull(i));
+                }
+                return;
+            }
+            for (int i = 0; i < expected.getColumnCount(); i++) {
+                String message = "track " + trackId + ", column " + expected.getColumnName(i);
+                assertEquals(message, expected.isNull(i), actual.isNull(i));
+                if (!expected.isNull(i)) {
+                    assertEquals(message, expected.getDouble(i), actual.getDouble(i), 0.0001);
+                }
+            }
+        }
+    }
+
     private void createVersion23() {
         // Manually create database schema with version 23 (base version)
         SQLiteDatabase dbBase = new SQLiteOpenHelper(context, DATABASE_NAME, null, 23) {
@@ -0,0 +1,126 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import de.dennisguse.opentracks.util.FileUtils;
+
+@RunWith(AndroidJUnit4.class)
+public class ShareFileCacheTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private final File directory = new File(context.getCacheDir(), "shareFileCacheTest");
+
+    @After
+    public void tearDown() {
+        FileUtils.deleteDirectoryRecurse(directory);
+    }
+
+    @Test
+    public void commitAndGet() throws IOException {
+        // given
+        ShareFileCache cache = new ShareFileCache(directory, 100);
+        assertNull(cache.get("key"));
+
+        // when
+        cache.commit(write(cache, 10), "key");
+
+        // then
+        File file = cache.get("key");
+        assertNotNull(file);
+        assertEquals(10, file.length());
+    }
+
+    @Test
+    public void commit_evictsLeastRecentlyUsed() throws IOException {
+        // given
+        ShareFileCache cache = new ShareFileCache(directory, 100);
+        cache.commit(write(cache, 40), "old");
+        cache.commit(write(cache, 40), "used");
+        cache.get("old").setLastModified(1000);
+        cache.get("used");
+
+        // when
+        cache.commit(write(cache, 40), "new");
+
+        // then
+        assertNull(cache.get("old"));
+        assertNotNull(cache.get("used"));
+        assertNotNull(cache.get("new"));
+    }
+
+    @Test
+    public void commit_keepsFileLargerThanMaxSize() throws IOException {
+        // given
+        ShareFileCache cache = new ShareFileCache(directory, 100);
+
+        // when
+        cache.commit(write(cache, 200), "large");
+
+        // then
+        assertNotNull(cache.get("large"));
+    }
+
+    @Test
+    public void create_deletesStaleTempFiles() throws IOException {
+        // given
+        ShareFileCache previous = new ShareFileCache(directory, 100);
+        previous.commit(write(previous, 10), "key");
+        File stale = write(previous, 10);
+
+        // when
+        ShareFileCache cache = new ShareFileCache(directory, 100);
+
+        // then
+        assertFalse(stale.exists());
+        assertNotNull(cache.get("key"));
+    }
+
+    @Test
+    public void teeOutputStream_primaryFails() throws IOException {
+        // given
+        ByteArrayOutputStream secondary = new ByteArrayOutputStream();
+        OutputStream primary = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        // when
+        try (OutputStream outputStream = new ShareFileCache.TeeOutputStream(primary, secondary)) {
+            outputStream.write(new byte[]{1, 2, 3});
+            outputStream.write(4);
+        }
+
+        // then
+        assertArrayEquals(new byte[]{1, 2, 3, 4}, secondary.toByteArray());
+    }
+
+    private static File write(ShareFileCache cache, int size) throws IOException {
+        File file = cache.createTempFile();
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            outputStream.write(new byte[size]);
+        }
+        return file;
+    }
+}
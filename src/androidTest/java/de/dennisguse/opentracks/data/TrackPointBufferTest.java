@@ -0,0 +1,140 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackPointBufferTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private Track.Id trackId;
+
+    @After
+    public void tearDown() {
+        if (trackId != null) {
+            contentProviderUtils.deleteTracks(context, List.of(trackId));
+        }
+    }
+
+    @Test
+    public void add_toTrackPoint() {
+        // given
+        TrackPointBuffer subject = new TrackPointBuffer(2);
+        TrackPoint trackPoint = TestDataUtil.createTrackPoint(5);
+        TrackPoint withoutData = new TrackPoint(TrackPoint.Type.SEGMENT_START_MANUAL, Instant.ofEpochMilli(1000));
+
+        // when
+        subject.add(trackPoint);
+        subject.add(withoutData);
+
+        // then
+        assertTrue(subject.isFull());
+        assertEquals(trackPoint.toString(), subject.toTrackPoint(0).toString());
+        assertEquals(withoutData.toString(), subject.toTrackPoint(1).toString());
+
+        assertTrue(subject.hasHeartRate(0));
+        assertEquals(trackPoint.getHeartRate().getBPM(), subject.getHeartRate_bpm(0), 0);
+        assertFalse(subject.hasLocation(1));
+        assertFalse(subject.hasHeartRate(1));
+        assertEquals(1000, subject.getTime_ms(1));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void add_full() {
+        TrackPointBuffer subject = new TrackPointBuffer(1);
+        subject.add(TestDataUtil.createTrackPoint(0));
+        subject.add(TestDataUtil.createTrackPoint(1));
+    }
+
+    @Test
+    public void next_sameAsIterator() {
+        // given
+        trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 25);
+
+        // then
+        assertEquals(getTrackPointsAsString(), getTrackPointsFromBufferAsString(10));
+    }
+
+    @Test
+    public void next_sameAsIterator_archived() {
+        // given
+        trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, TrackPointBlock.CAPACITY + 10);
+        contentProviderUtils.archiveTrackPoints(trackId);
+
+        // then
+        assertEquals(getTrackPointsAsString(), getTrackPointsFromBufferAsString(100));
+    }
+
+    @Test
+    public void trackStatisticsUpdater_sameAsTrackPoints() {
+        // given
+        trackId = new Track.Id(System.currentTimeMillis());
+        TestDataUtil.createTrackAndInsert(contentProviderUtils, trackId, 50);
+
+        TrackStatisticsUpdater expected = new TrackStatisticsUpdater();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.hasNext()) {
+                expected.addTrackPoint(trackPointIterator.next());
+            }
+        }
+
+        // when
+        TrackStatisticsUpdater subject = new TrackStatisticsUpdater();
+        TrackPointBuffer trackPoints = new TrackPointBuffer(16);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.next(trackPoints) > 0) {
+                subject.addTrackPoints(trackPoints);
+            }
+        }
+
+        // then
+        assertEquals(expected.getTrackStatistics(), subject.getTrackStatistics());
+    }
+
+    private List<String> getTrackPointsAsString() {
+        List<String> trackPoints = new ArrayList<>();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.hasNext()) {
+                trackPoints.add(trackPointIterator.next().toString());
+            }
+        }
+        return trackPoints;
+    }
+
+    private List<String> getTrackPointsFromBufferAsString(int capacity) {
+        List<String> trackPoints = new ArrayList<>();
+        TrackPointBuffer buffer = new TrackPointBuffer(capacity);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.next(buffer) > 0) {
+                for (int i = 0; i < buffer.size(); i++) {
+                    trackPoints.add(buffer.toTrackPoint(i).toString());
+                }
+            }
+            assertEquals(0, trackPointIterator.next(buffer));
+        }
+        return trackPoints;
+    }
+}
@@ -0,0 +1,167 @@
+package de.dennisguse.opentracks.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+import de.dennisguse.opentracks.ui.intervals.IntervalStatistics;
+
+/**
+ * Iterates a long track with all columns, with only the columns needed by the consumers, and from compact storage; reports TrackPoints per second (see {@link BenchmarkUtil}).
+ * Also compares loading into a {@link TrackPointBuffer} with creating a {@link TrackPoint} per row.
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TrackPointIteratorBenchmark {
+
+    private static final int NUM_TRACKPOINTS = 100_000;
+
+    private static final int BULK_INSERT_SIZE = 1_000;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private Track.Id trackId;
+
+    @Before
+    public void setUp() {
+        Track track = TestDataUtil.createTrack(new Track.Id(System.currentTimeMillis()));
+        trackId = contentProviderUtils.insertTrack(track);
+
+        List<TrackPoint> trackPoints = new ArrayList<>(BULK_INSERT_SIZE);
+        for (int i = 0; i < NUM_TRACKPOINTS; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i));
+            if (trackPoints.size() == BULK_INSERT_SIZE) {
+                contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+                trackPoints.clear();
+            }
+        }
+        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, List.of(trackId));
+    }
+
+    @Test
+    public void allFields() throws Exception {
+        iterate("all fields", EnumSet.allOf(TrackPointIterator.Field.class));
+    }
+
+    @Test
+    public void intervalStatistics() throws Exception {
+        iterate("interval statistics", IntervalStatistics.FIELDS);
+    }
+
+    @Test
+    public void timeOnly() throws Exception {
+        iterate("time only", EnumSet.noneOf(TrackPointIterator.Field.class));
+    }
+
+    @Test
+    public void archived() throws Exception {
+        contentProviderUtils.archiveTrackPoints(trackId);
+        iterate("archived", EnumSet.allOf(TrackPointIterator.Field.class));
+    }
+
+    @Test
+    public void buffer() throws Exception {
+        iterateBuffer("buffer", EnumSet.allOf(TrackPointIterator.Field.class));
+    }
+
+    @Test
+    public void archivedBuffer() throws Exception {
+        contentProviderUtils.archiveTrackPoints(trackId);
+        iterateBuffer("archived; buffer", EnumSet.allOf(TrackPointIterator.Field.class));
+    }
+
+    @Test
+    public void trackStatistics() throws Exception {
+        // given
+        Set<TrackPointIterator.Field> fields = EnumSet.allOf(TrackPointIterator.Field.class);
+
+        // when
+        TrackStatisticsUpdater trackPointUpdater = new TrackStatisticsUpdater();
+        BenchmarkUtil.Result trackPointResult = BenchmarkUtil.run("TrackStatistics of " + NUM_TRACKPOINTS + " TrackPoints (TrackPoint)", NUM_TRACKPOINTS, () -> {
+            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, null, fields)) {
+                while (trackPointIterator.hasNext()) {
+                    trackPointUpdater.addTrackPoint(trackPointIterator.next());
+                }
+            }
+        });
+
+        TrackStatisticsUpdater bufferUpdater = new TrackStatisticsUpdater();
+        TrackPointBuffer trackPoints = new TrackPointBuffer();
+        BenchmarkUtil.Result bufferResult = BenchmarkUtil.run("TrackStatistics of " + NUM_TRACKPOINTS + " TrackPoints (buffer)", NUM_TRACKPOINTS, () -> {
+            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, null, fields)) {
+                while (trackPointIterator.next(trackPoints) > 0) {
+                    bufferUpdater.addTrackPoints(trackPoints);
+                }
+            }
+        });
+
+        // then
+        assertEquals(trackPointUpdater.getTrackStatistics(), bufferUpdater.getTrackStatistics());
+        assertTrue(bufferResult.allocationsPerItem() < trackPointResult.allocationsPerItem());
+    }
+
+    private void iterateBuffer(String name, Set<TrackPointIterator.Field> fields) throws Exception {
+        // given
+        int[] count = {0};
+        TrackPointBuffer trackPoints = new TrackPointBuffer();
+
+        // when
+        BenchmarkUtil.run("Iterate " + NUM_TRACKPOINTS + " TrackPoints (" + name + ")", NUM_TRACKPOINTS, () -> {
+            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, null, fields)) {
+                int size;
+                while ((size = trackPointIterator.next(trackPoints)) > 0) {
+                    count[0] += size;
+                }
+            }
+        });
+
+        // then
+        assertEquals(NUM_TRACKPOINTS, count[0]);
+    }
+
+    private void iterate(String name, Set<TrackPointIterator.Field> fields) throws Exception {
+        // given
+        int[] count = {0};
+
+        // when
+        BenchmarkUtil.run("Iterate " + NUM_TRACKPOINTS + " TrackPoints (" + name + ")", NUM_TRACKPOINTS, () -> {
+            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, null, fields)) {
+                while (trackPointIterator.hasNext()) {
+                    trackPointIterator.next();
+                    count[0]++;
+                }
+            }
+        });
+
+        // then
+        assertEquals(NUM_TRACKPOINTS, count[0]);
+    }
+}
@@ -0,0 +1,97 @@
+package de.dennisguse.opentracks.data.model;
+
+import static org.junit.Assert.assertTrue;
+
+import android.location.Location;
+import android.util.Log;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Random;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.data.models.Geodesy;
+
+/**
+ * Compares throughput and accuracy of {@link Geodesy} with {@link Location#distanceTo(Location)} (incl. creating the Locations as TrackPoint did) for short hops between TrackPoints.
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class GeodesyBenchmark {
+
+    private static final String TAG = GeodesyBenchmark.class.getSimpleName();
+
+    private static final int NUM_DISTANCES = 100_000;
+
+    @Test
+    public void distances() throws Exception {
+        // given: hops of up to ~50m
+        Random random = new Random(0);
+        double[] latitudes = new double[NUM_DISTANCES + 1];
+        double[] longitudes = new double[NUM_DISTANCES + 1];
+        latitudes[0] = 45;
+        longitudes[0] = 35;
+        for (int i = 1; i <= NUM_DISTANCES; i++) {
+            latitudes[i] = latitudes[i - 1] + (random.nextDouble() - 0.5) * 0.0009;
+            longitudes[i] = longitudes[i - 1] + (random.nextDouble() - 0.5) * 0.0013;
+        }
+
+        double[] location = new double[NUM_DISTANCES];
+        double[] vincenty = new double[NUM_DISTANCES];
+        double[] haversine = new double[NUM_DISTANCES];
+        double[] equirectangular = new double[NUM_DISTANCES];
+
+        // when
+        BenchmarkUtil.Result resultLocation = BenchmarkUtil.run("Location.distanceTo()", NUM_DISTANCES, () -> {
+            for (int i = 0; i < NUM_DISTANCES; i++) {
+                Location start = new Location("");
+                start.setLatitude(latitudes[i]);
+                start.setLongitude(longitudes[i]);
+                Location end = new Location("");
+                end.setLatitude(latitudes[i + 1]);
+                end.setLongitude(longitudes[i + 1]);
+                location[i] = start.distanceTo(end);
+            }
+        });
+        BenchmarkUtil.Result resultVincenty = BenchmarkUtil.run("Geodesy.distance_m()", NUM_DISTANCES, () -> {
+            for (int i = 0; i < NUM_DISTANCES; i++) {
+                vincenty[i] = Geodesy.distance_m(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+            }
+        });
+        BenchmarkUtil.run("Geodesy.distanceHaversine_m()", NUM_DISTANCES, () -> {
+            for (int i = 0; i < NUM_DISTANCES; i++) {
+                haversine[i] = Geodesy.distanceHaversine_m(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+            }
+        });
+        BenchmarkUtil.run("Geodesy.distanceEquirectangular_m()", NUM_DISTANCES, () -> {
+            for (int i = 0; i < NUM_DISTANCES; i++) {
+                equirectangular[i] = Geodesy.distanceEquirectangular_m(latitudes[i], longitudes[i], latitudes[i + 1], longitudes[i + 1]);
+            }
+        });
+
+        // then
+        Log.i(TAG, "Max relative error to Location.distanceTo(): Vincenty " + maxRelativeError(location, vincenty)
+                + "; haversine " + maxRelativeError(location, haversine)
+                + "; equirectangular " + maxRelativeError(location, equirectangular));
+        assertTrue(maxRelativeError(location, vincenty) < 1e-6);
+        assertTrue(maxRelativeError(location, haversine) < 0.005);
+        assertTrue(maxRelativeError(location, equirectangular) < 0.005);
+        assertTrue(resultVincenty.allocations() < resultLocation.allocations());
+    }
+
+    private static double maxRelativeError(double[] expected, double[] actual) {
+        double max = 0;
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] > 0) {
+                max = Math.max(max, Math.abs(actual[i] - expected[i]) / expected[i]);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,104 @@
+package de.dennisguse.opentracks.data.model;
+
+import static org.junit.Assert.assertEquals;
+
+import android.location.Location;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import de.dennisguse.opentracks.data.models.Geodesy;
+
+@RunWith(AndroidJUnit4.class)
+public class GeodesyTest {
+
+    // latitude1, longitude1, latitude2, longitude2
+    private static final double[][] COORDINATES = {
+            {45.0, 35.0, 45.0001, 35.0},
+            {45.0, 35.0, 45.0, 35.0001},
+            {52.5200, 13.4050, 48.1351, 11.5820},
+            {-33.8688, 151.2093, -37.8136, 144.9631},
+            {0.0, 179.9999, 0.0, -179.9999},
+            {89.9, 0.0, 89.9, 180.0},
+            {10.0, 10.0, 10.0, 10.0},
+    };
+
+    private static Location createLocation(double latitude, double longitude) {
+        Location location = new Location("");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        return location;
+    }
+
+    @Test
+    public void distance_sameAsLocation() {
+        for (double[] c : COORDINATES) {
+            float expected = createLocation(c[0], c[1]).distanceTo(createLocation(c[2], c[3]));
+            assertEquals(expected, Geodesy.distance_m(c[0], c[1], c[2], c[3]), Math.max(0.001, expected * 1e-6));
+        }
+    }
+
+    @Test
+    public void bearing_sameAsLocation() {
+        for (double[] c : COORDINATES) {
+            float expected = createLocation(c[0], c[1]).bearingTo(createLocation(c[2], c[3]));
+            assertEquals(expected, Geodesy.bearing(c[0], c[1], c[2], c[3]), 0.0001);
+        }
+    }
+
+    @Test
+    public void distanceHaversine_withinErrorBound() {
+        for (double[] c : COORDINATES) {
+            double exact = Geodesy.distance_m(c[0], c[1], c[2], c[3]);
+            assertEquals(exact, Geodesy.distanceHaversine_m(c[0], c[1], c[2], c[3]), Math.max(0.001, exact * 0.005));
+        }
+    }
+
+    @Test
+    public void distanceEquirectangular_shortHops() {
+        // 10m in every direction
+        double[][] hops = {{0.00009, 0}, {0, 0.00013}, {0.00006, 0.00009}, {-0.00009, 0}, {0, -0.00013}};
+        for (double latitude : new double[]{-60, 0, 45, 70}) {
+            for (double[] hop : hops) {
+                double haversine = Geodesy.distanceHaversine_m(latitude, 35, latitude + hop[0], 35 + hop[1]);
+                assertEquals(haversine, Geodesy.distanceEquirectangular_m(latitude, 35, latitude + hop[0], 35 + hop[1]), haversine * 0.0001);
+            }
+        }
+    }
+
+    @Test
+    public void distanceEquirectangular_antimeridian() {
+        assertEquals(Geodesy.distanceHaversine_m(0, 179.9999, 0, -179.9999), Geodesy.distanceEquirectangular_m(0, 179.9999, 0, -179.9999), 0.001);
+    }
+
+    @Test
+    public void interpolate() {
+        double[] result = new double[2];
+
+        Geodesy.interpolate(45, 35, 46, 36, 0, result);
+        assertEquals(45, result[0], 1e-9);
+        assertEquals(35, result[1], 1e-9);
+
+        Geodesy.interpolate(45, 35, 46, 36, 1, result);
+        assertEquals(46, result[0], 1e-9);
+        assertEquals(36, result[1], 1e-9);
+
+        Geodesy.interpolate(0, 10, 0, 20, 0.5, result);
+        assertEquals(0, result[0], 1e-9);
+        assertEquals(15, result[1], 1e-9);
+
+        // Same distance to both ends.
+        Geodesy.interpolate(45, 35, 46, 36, 0.5, result);
+        assertEquals(Geodesy.distanceHaversine_m(45, 35, result[0], result[1]), Geodesy.distanceHaversine_m(result[0], result[1], 46, 36), 0.001);
+    }
+
+    @Test
+    public void interpolate_samePoint() {
+        double[] result = new double[2];
+        Geodesy.interpolate(45, 35, 45, 35, 0.5, result);
+        assertEquals(45, result[0], 1e-9);
+        assertEquals(35, result[1], 1e-9);
+    }
+}
@@ -0,0 +1,90 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+
+@RunWith(AndroidJUnit4.class)
+public class ExportManifestTest {
+
+    private static final TrackFileFormat FORMAT = TrackFileFormat.GPX;
+
+    @Test
+    public void isUpToDate() {
+        // given
+        Track track = TestDataUtil.createTrack(new Track.Id(1));
+        ExportManifest manifest = new ExportManifest();
+
+        // when
+        manifest.put(track, FORMAT, "track.gpx");
+
+        // then
+        assertTrue(manifest.isUpToDate(track, FORMAT, "track.gpx"));
+        assertFalse(manifest.isUpToDate(track, FORMAT, "renamed.gpx"));
+        assertFalse(manifest.isUpToDate(track, TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA, "track.gpx"));
+        assertFalse(manifest.isUpToDate(TestDataUtil.createTrack(new Track.Id(2)), FORMAT, "track.gpx"));
+    }
+
+    @Test
+    public void isUpToDate_changed() {
+        // given
+        Track track = TestDataUtil.createTrack(new Track.Id(1));
+        ExportManifest manifest = new ExportManifest();
+        manifest.put(track, FORMAT, "track.gpx");
+
+        // when
+        track.setDescription(track.getDescription() + " edited");
+
+        // then
+        assertFalse(manifest.isUpToDate(track, FORMAT, "track.gpx"));
+        assertEquals("track.gpx", manifest.getFilename(track));
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        // given
+        Track track1 = TestDataUtil.createTrack(new Track.Id(1));
+        Track track2 = TestDataUtil.createTrack(new Track.Id(2));
+        ExportManifest manifest = new ExportManifest();
+        manifest.put(track1, FORMAT, "track 1.gpx");
+        manifest.put(track2, FORMAT, "track\t2.gpx");
+
+        // when
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        manifest.write(outputStream);
+        ExportManifest read = ExportManifest.read(new ByteArrayInputStream(outputStream.toByteArray()));
+
+        // then
+        assertEquals(2, read.size());
+        assertTrue(read.isUpToDate(track1, FORMAT, "track 1.gpx"));
+        assertTrue(read.isUpToDate(track2, FORMAT, "track\t2.gpx"));
+    }
+
+    @Test
+    public void read_invalidLines() throws IOException {
+        // given
+        String content = "not a manifest\nalso\tnot\ta manifest\n";
+
+        // when
+        ExportManifest read = ExportManifest.read(new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8)));
+
+        // then
+        assertEquals(0, read.size());
+        assertNull(read.getFilename(TestDataUtil.createTrack(new Track.Id(1))));
+    }
+}
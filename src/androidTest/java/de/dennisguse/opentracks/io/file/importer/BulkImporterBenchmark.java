@@ -0,0 +1,103 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.documentfile.provider.DocumentFile;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.util.FileUtils;
+
+/**
+ * Imports a directory of synthetic GPX files with one and with multiple worker threads; reports files per second (see {@link BenchmarkUtil}).
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class BulkImporterBenchmark {
+
+    private static final int NUM_FILES = 200;
+    private static final int NUM_TRACKPOINTS = 2_000;
+
+    private static final Instant START = Instant.parse("2020-02-02T02:02:02Z");
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private File directory;
+    private final List<Track.Id> importTrackIds = Collections.synchronizedList(new ArrayList<>());
+
+    @Before
+    public void setUp() throws Exception {
+        directory = new File(context.getCacheDir(), "bulkImport");
+        directory.mkdirs();
+        for (int i = 0; i < NUM_FILES; i++) {
+            try (Writer writer = new BufferedWriter(new FileWriter(new File(directory, "track" + i + ".gpx")))) {
+                // Different start times: no file is detected as re-import.
+                XMLImporterBenchmark.writeGpx(writer, NUM_TRACKPOINTS, START.plus(Duration.ofDays(i)));
+            }
+        }
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, importTrackIds);
+        importTrackIds.clear();
+        FileUtils.deleteDirectoryRecurse(directory);
+    }
+
+    @Test
+    public void singleThread() throws Exception {
+        importDirectory(1);
+    }
+
+    @Test
+    public void workerPool() throws Exception {
+        importDirectory(Runtime.getRuntime().availableProcessors());
+    }
+
+    private void importDirectory(int numThreads) throws Exception {
+        // given
+        List<DocumentFile> files = FileUtils.getFiles(DocumentFile.fromFile(directory));
+        CountDownLatch done = new CountDownLatch(files.size());
+        List<BulkImporter.ResultCode> resultCodes = Collections.synchronizedList(new ArrayList<>());
+        BulkImporter bulkImporter = new BulkImporter(context, numThreads, (file, resultCode, trackIds, message) -> {
+            resultCodes.add(resultCode);
+            importTrackIds.addAll(trackIds);
+            done.countDown();
+        });
+
+        // when
+        BenchmarkUtil.run("Bulk import of " + NUM_FILES + " GPX files with " + numThreads + " threads", NUM_FILES, () -> {
+            bulkImporter.importFiles(files);
+            done.await();
+        });
+
+        // then
+        assertEquals(Collections.nCopies(NUM_FILES, BulkImporter.ResultCode.IMPORTED), resultCodes);
+        assertEquals(NUM_FILES, importTrackIds.size());
+    }
+}
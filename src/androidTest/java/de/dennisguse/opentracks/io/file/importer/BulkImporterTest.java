@@ -0,0 +1,156 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+
+import android.content.Context;
+
+import androidx.documentfile.provider.DocumentFile;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.settings.PreferencesUtils;
+import de.dennisguse.opentracks.util.FileUtils;
+
+@RunWith(AndroidJUnit4.class)
+public class BulkImporterTest {
+
+    private static final Instant START = Instant.parse("2021-01-01T01:01:01Z");
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private File directory;
+    private final List<Track.Id> importTrackIds = Collections.synchronizedList(new ArrayList<>());
+    private final List<Result> results = Collections.synchronizedList(new ArrayList<>());
+
+    private record Result(String fileName, BulkImporter.ResultCode resultCode, String message) {
+    }
+
+    @Before
+    public void setUp() {
+        directory = new File(context.getCacheDir(), "bulkImporterTest");
+        directory.mkdirs();
+        PreferencesUtils.setBoolean(R.string.import_prevent_reimport_key, true);
+    }
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, importTrackIds);
+        FileUtils.deleteDirectoryRecurse(directory);
+    }
+
+    @Test
+    public void importFiles_error() throws Exception {
+        // given
+        DocumentFile unsupported = writeFile("track.txt", "not a track");
+        DocumentFile invalid = writeFile("invalid.gpx", "<gpx><trk><trkseg><trkpt lat=\"invalid\"");
+
+        // when
+        importFiles(new BulkImporter(context, 1, this::onFileImported), List.of(unsupported, invalid));
+
+        // then
+        assertEquals(2, results.size());
+        assertEquals(new Result("track.txt", BulkImporter.ResultCode.ERROR, context.getString(R.string.import_unsupported_format)), results.get(0));
+        assertEquals("invalid.gpx", results.get(1).fileName());
+        assertEquals(BulkImporter.ResultCode.ERROR, results.get(1).resultCode());
+        assertNotNull(results.get(1).message());
+        assertEquals(0, importTrackIds.size());
+    }
+
+    @Test
+    public void importFiles_alreadyExists() throws Exception {
+        // given
+        DocumentFile file = writeGpx("track.gpx", START);
+        importFiles(new BulkImporter(context, 1, this::onFileImported), List.of(file));
+        assertEquals(BulkImporter.ResultCode.IMPORTED, results.get(0).resultCode());
+
+        // when
+        importFiles(new BulkImporter(context, 1, this::onFileImported), List.of(file));
+
+        // then
+        assertEquals(new Result("track.gpx", BulkImporter.ResultCode.ALREADY_EXISTS, context.getString(R.string.import_prevent_reimport)), results.get(1));
+        assertEquals(1, importTrackIds.size());
+    }
+
+    @Test
+    public void cancel_skipsFilesNotStarted() throws Exception {
+        // given
+        List<DocumentFile> files = List.of(
+                writeGpx("track0.gpx", START),
+                writeGpx("track1.gpx", START.plus(Duration.ofDays(1))),
+                writeGpx("track2.gpx", START.plus(Duration.ofDays(2))));
+
+        CountDownLatch firstImported = new CountDownLatch(1);
+        CountDownLatch cancelled = new CountDownLatch(1);
+        BulkImporter bulkImporter = new BulkImporter(context, 1, (file, resultCode, trackIds, message) -> {
+            onFileImported(file, resultCode, trackIds, message);
+            firstImported.countDown();
+            try {
+                // Blocks the only worker: the other files are not started.
+                cancelled.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        bulkImporter.importFiles(files);
+        firstImported.await();
+
+        // when
+        List<DocumentFile> skippedFiles = bulkImporter.cancel();
+        cancelled.countDown();
+        bulkImporter.awaitTermination();
+
+        // then
+        assertEquals(files.subList(1, 3), skippedFiles);
+        assertEquals(1, results.size());
+        assertEquals(new Result("track0.gpx", BulkImporter.ResultCode.IMPORTED, null), results.get(0));
+        assertEquals(1, importTrackIds.size());
+    }
+
+    private void onFileImported(DocumentFile file, BulkImporter.ResultCode resultCode, List<Track.Id> trackIds, String message) {
+        results.add(new Result(file.getName(), resultCode, message));
+        importTrackIds.addAll(trackIds);
+    }
+
+    private static void importFiles(BulkImporter bulkImporter, List<DocumentFile> files) throws InterruptedException {
+        bulkImporter.importFiles(files);
+        bulkImporter.awaitTermination();
+    }
+
+    private DocumentFile writeGpx(String fileName, Instant start) throws IOException {
+        File file = new File(directory, fileName);
+        try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+            XMLImporterBenchmark.writeGpx(writer, 10, start);
+        }
+        return DocumentFile.fromFile(file);
+    }
+
+    private DocumentFile writeFile(String fileName, String content) throws IOException {
+        File file = new File(directory, fileName);
+        try (Writer writer = new FileWriter(file)) {
+            writer.write(content);
+        }
+        return DocumentFile.fromFile(file);
+    }
+}
@@ -0,0 +1,85 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Locale;
+import java.util.Random;
+
+import de.dennisguse.opentracks.util.StringUtils;
+
+@RunWith(AndroidJUnit4.class)
+public class CharSequenceParserTest {
+
+    @Test
+    public void parseDouble() {
+        assertEquals(49.123456789, CharSequenceParser.parseDouble("49.123456789"), 0);
+        assertEquals(-8.5, CharSequenceParser.parseDouble("-8.5"), 0);
+        assertEquals(0.5, CharSequenceParser.parseDouble(".5"), 0);
+        assertEquals(1, CharSequenceParser.parseDouble("1."), 0);
+        // Fallback
+        assertEquals(100000, CharSequenceParser.parseDouble("1e5"), 0);
+        assertEquals(Double.NaN, CharSequenceParser.parseDouble("NaN"), 0);
+        assertThrows(NumberFormatException.class, () -> CharSequenceParser.parseDouble(""));
+        assertThrows(NumberFormatException.class, () -> CharSequenceParser.parseDouble("1,5"));
+    }
+
+    @Test
+    public void parseDouble_sameAsDoubleParseDouble() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            String value = String.format(Locale.US, "%." + random.nextInt(16) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8)));
+            assertEquals(value, Double.parseDouble(value), CharSequenceParser.parseDouble(value), 0);
+        }
+    }
+
+    @Test
+    public void parseFloat_sameAsFloatParseFloat() {
+        Random random = new Random(1);
+        for (int i = 0; i < 100000; i++) {
+            String value = String.format(Locale.US, "%." + random.nextInt(10) + "f", (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(6)));
+            assertEquals(value, Float.parseFloat(value), CharSequenceParser.parseFloat(value, 0, value.length()), 0);
+        }
+    }
+
+    @Test
+    public void parseTime() {
+        assertEquals(Instant.ofEpochMilli(352), parseTime("1970-01-01T00:00:00.352Z"));
+        assertEquals(Instant.ofEpochMilli(352), parseTime("1970-01-01T00:00:00.352+00:00"));
+        assertEquals(Instant.ofEpochMilli(352), parseTime("1970-01-01T01:00:00.352+01:00"));
+        assertEquals(Instant.ofEpochMilli(352).plus(Duration.ofHours(1)), parseTime("1970-01-01T00:00:00.352-01:00"));
+        assertEquals(Instant.parse("2020-02-29T18:29:59.123456789Z"), parseTime("2020-02-29T23:59:59.123456789+05:30"));
+        // Fallback
+        assertEquals(Instant.ofEpochMilli(352), parseTime("1970-01-01T00:00:00.352"));
+        assertThrows(RuntimeException.class, () -> parseTime("2021-02-29T00:00:00Z"));
+    }
+
+    @Test
+    public void parseTime_sameAsStringUtils() {
+        Random random = new Random(1);
+        for (int i = 0; i < 10000; i++) {
+            Instant time = Instant.ofEpochSecond(random.nextInt(), random.nextInt(1_000_000_000));
+            ZoneOffset zoneOffset = ZoneOffset.ofTotalSeconds((random.nextInt(35) - 17) * 1800);
+            String value = time.atOffset(zoneOffset).toString();
+            assertEquals(value, StringUtils.parseTime(value).toInstant(), parseTime(value));
+        }
+    }
+
+    @Test
+    public void parseZoneOffset() {
+        String value = "2020-02-02T03:02:03+01:00";
+        assertEquals(ZoneOffset.ofHours(1), CharSequenceParser.parseZoneOffset(value, 0, value.length()));
+    }
+
+    private static Instant parseTime(String value) {
+        return CharSequenceParser.parseTime(value, 0, value.length());
+    }
+}
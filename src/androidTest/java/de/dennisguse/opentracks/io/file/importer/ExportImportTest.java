@@ -141,6 +141,7 @@ public class ExportImportTest {
     public void setUp() throws TimeoutException {
         TrackRecordingService service = ((TrackRecordingService.Binder) mServiceRule.bindService(new Intent(context, TrackRecordingService.class)))
                 .getService();
+        service.getTrackRecordingManager().setWriteBehind(1, Duration.ZERO);
 
         TrackPointCreator trackPointCreator = service.getTrackPointCreator();
 
@@ -15,6 +15,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.JUnit4;
 
+import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -334,4 +335,33 @@ public class GPXTrackImporterTest {
         // then
         assertEquals(new String(inputStreamExpected.readAllBytes(), StandardCharsets.UTF_8), outputStream.toString());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void gpx_ignores_values_outside_of_trackpoints() throws IOException {
+        // given
+        String gpx = """
+                <?xml version="1.0" encoding="UTF-8"?>
+                <gpx version="1.1" xmlns="http://www.topografix.com/GPX/1/1">
+                <metadata><time>yesterday</time></metadata>
+                <trk>
+                <name>outside</name>
+                <extensions><speed>fast</speed><ele>high</ele></extensions>
+                <trkseg>
+                <trkpt lat="3" lon="14"><ele>10</ele><time>2021-01-01T01:01:01Z</time><extensions><speed>2</speed></extensions></trkpt>
+                <trkpt lat="3.001" lon="14"><ele>11</ele><time>2021-01-01T01:01:11Z</time><extensions><speed>3</speed></extensions></trkpt>
+                </trkseg>
+                </trk>
+                </gpx>
+                """;
+        XMLImporter importer = new XMLImporter(new GPXTrackImporter(context, trackImporter));
+
+        // when
+        importTrackId = importer.importFile(new ByteArrayInputStream(gpx.getBytes(StandardCharsets.UTF_8))).get(0);
+
+        // then
+        List<TrackPoint> importedTrackPoints = TestDataUtil.getTrackPoints(contentProviderUtils, importTrackId);
+        assertEquals(2, importedTrackPoints.size());
+        assertEquals(Instant.parse("2021-01-01T01:01:01Z"), importedTrackPoints.get(0).getTime());
+        assertEquals(Speed.of(3), importedTrackPoints.get(1).getSpeed());
+    }
+}
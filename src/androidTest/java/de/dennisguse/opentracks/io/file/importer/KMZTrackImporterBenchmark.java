@@ -0,0 +1,111 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.net.Uri;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.Random;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Marker;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+import de.dennisguse.opentracks.io.file.exporter.TrackExporter;
+import de.dennisguse.opentracks.ui.markers.MarkerUtils;
+
+/**
+ * Imports a KMZ (exported by OpenTracks) with many photos; reports photos per second and allocated bytes (see {@link BenchmarkUtil}).
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class KMZTrackImporterBenchmark {
+
+    private static final int NUM_TRACKPOINTS = 10_000;
+    private static final int NUM_PHOTOS = 100;
+    private static final int PHOTO_SIZE = 200 * 1024;
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private File file;
+    private List<Track.Id> importTrackIds = List.of();
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, importTrackIds);
+        if (file != null) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void kmzWithPhotos() throws Exception {
+        // given
+        file = File.createTempFile("benchmark", ".kmz", context.getCacheDir());
+        writeKmz(file);
+
+        // when
+        TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), false);
+        KMZTrackImporter importer = new KMZTrackImporter(context, trackImporter);
+        BenchmarkUtil.run("KMZ import of " + NUM_PHOTOS + " photos and " + NUM_TRACKPOINTS + " TrackPoints (" + file.length() + " bytes)", NUM_PHOTOS,
+                () -> importTrackIds = importer.importFile(Uri.fromFile(file)));
+
+        // then
+        assertEquals(1, importTrackIds.size());
+        List<Marker> markers = contentProviderUtils.getMarkers(importTrackIds.get(0));
+        assertEquals(NUM_PHOTOS, markers.size());
+        for (Marker marker : markers) {
+            File photo = MarkerUtils.buildInternalPhotoFile(context, importTrackIds.get(0), marker.getPhotoUrl());
+            assertNotNull(photo);
+            assertTrue(photo.isFile());
+            assertEquals(PHOTO_SIZE, photo.length());
+        }
+    }
+
+    /**
+     * Exports a track with photos (random data; not compressible) and deletes it afterwards.
+     */
+    private void writeKmz(File file) throws IOException {
+        Track track = TestDataUtil.createTrackAndInsert(contentProviderUtils, new Track.Id(System.currentTimeMillis()), NUM_TRACKPOINTS);
+        try {
+            Random random = new Random(0);
+            byte[] data = new byte[PHOTO_SIZE];
+            for (int i = 0; i < NUM_PHOTOS; i++) {
+                Marker marker = TestDataUtil.createMarkerWithPhoto(context, track.getId(), TestDataUtil.createTrackPoint(i * (NUM_TRACKPOINTS / NUM_PHOTOS)));
+                random.nextBytes(data);
+                try (OutputStream outputStream = context.getContentResolver().openOutputStream(marker.getPhotoUrl())) {
+                    outputStream.write(data);
+                }
+                contentProviderUtils.insertMarker(marker);
+            }
+
+            TrackExporter trackExporter = TrackFileFormat.KMZ_WITH_TRACKDETAIL_AND_SENSORDATA_AND_PICTURES.createTrackExporter(context, contentProviderUtils);
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                trackExporter.writeTrack(List.of(track), outputStream);
+            }
+        } finally {
+            contentProviderUtils.deleteTrack(context, track.getId());
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertThrows;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.JUnit4;
+
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+@RunWith(JUnit4.class)
+public class TrackImporterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private TrackImporter trackImporter;
+
+    private int tracksBefore;
+
+    @Before
+    public void setUp() {
+        trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), true);
+        tracksBefore = contentProviderUtils.getTracks().size();
+    }
+
+    @After
+    public void tearDown() {
+        trackImporter.cleanImport();
+    }
+
+    @Test
+    public void import_multipleChunks() {
+        // given
+        int numberOfTrackPoints = TrackImporter.CHUNK_SIZE * 2 + 10;
+        String uuid = UUID.randomUUID().toString();
+
+        // when
+        trackImporter.newTrack();
+        for (int i = 0; i < numberOfTrackPoints; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", uuid, "description", null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+
+        // then
+        assertEquals(1, trackImporter.getTrackIds().size());
+        assertEquals(tracksBefore + 1, contentProviderUtils.getTracks().size());
+
+        Track.Id trackId = trackImporter.getTrackIds().get(0);
+        Track track = contentProviderUtils.getTrack(trackId);
+        assertEquals(UUID.fromString(uuid), track.getUuid());
+        assertEquals("name", track.getName());
+
+        List<TrackPoint> trackPoints = TestDataUtil.getTrackPoints(contentProviderUtils, trackId);
+        assertEquals(numberOfTrackPoints, trackPoints.size());
+        assertEquals(TestDataUtil.createTrackPoint(0).getTime(), track.getTrackStatistics().getStartTime());
+        assertEquals(TestDataUtil.createTrackPoint(numberOfTrackPoints - 1).getTime(), track.getTrackStatistics().getStopTime());
+    }
+
+    @Test
+    public void import_notOrderedByTime() {
+        // given
+        int numberOfTrackPoints = TrackImporter.CHUNK_SIZE + 10;
+        List<TrackPoint> trackPoints = new ArrayList<>();
+        for (int i = 0; i < numberOfTrackPoints; i++) {
+            trackPoints.add(TestDataUtil.createTrackPoint(i));
+        }
+        Collections.shuffle(trackPoints, new Random(1));
+
+        // when
+        trackImporter.newTrack();
+        trackImporter.addTrackPoints(trackPoints);
+        trackImporter.setTrack(context, "name", UUID.randomUUID().toString(), "description", null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+
+        // then
+        assertEquals(tracksBefore + 1, contentProviderUtils.getTracks().size());
+
+        Track.Id trackId = trackImporter.getTrackIds().get(0);
+        List<TrackPoint> importedTrackPoints = TestDataUtil.getTrackPoints(contentProviderUtils, trackId);
+        assertEquals(numberOfTrackPoints, importedTrackPoints.size());
+        for (int i = 1; i < importedTrackPoints.size(); i++) {
+            assertTrue(importedTrackPoints.get(i - 1).getTime().isBefore(importedTrackPoints.get(i).getTime()));
+        }
+        assertEquals(TestDataUtil.createTrackPoint(0).getTime(), contentProviderUtils.getTrack(trackId).getTrackStatistics().getStartTime());
+    }
+
+    @Test
+    public void import_preventReimport_noPartialTrack() {
+        // given
+        String uuid = UUID.randomUUID().toString();
+        trackImporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE + 10; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", uuid, "description", null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+
+        TrackImporter reimporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), true);
+
+        // when
+        reimporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE + 10; i++) {
+            reimporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        reimporter.setTrack(context, "name", uuid, "description", null, null, ZoneOffset.UTC);
+
+        // then
+        assertThrows(ImportAlreadyExistsException.class, reimporter::finish);
+        assertEquals(0, reimporter.getTrackIds().size());
+        assertEquals(tracksBefore + 1, contentProviderUtils.getTracks().size());
+    }
+
+    @Test
+    public void import_preventReimport_beforeTrackPointsAreStored() {
+        // given
+        String uuid = UUID.randomUUID().toString();
+        trackImporter.newTrack();
+        trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(0));
+        trackImporter.setTrack(context, "name", uuid, "description", null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+        int allTracksBefore = getAllTracksCount();
+
+        TrackImporter reimporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), true);
+
+        // when
+        reimporter.newTrack();
+
+        // then
+        assertThrows(ImportAlreadyExistsException.class, () -> reimporter.checkUuid(uuid));
+        assertEquals(allTracksBefore, getAllTracksCount());
+    }
+
+    @Test
+    public void import_incompleteTrack_isNotListed() {
+        // given
+        int allTracksBefore = getAllTracksCount();
+
+        // when
+        trackImporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+
+        // then
+        assertEquals(allTracksBefore + 1, getAllTracksCount());
+        assertEquals(tracksBefore, contentProviderUtils.getTracks().size());
+    }
+
+    private int getAllTracksCount() {
+        try (Cursor cursor = contentProviderUtils.getTrackCursor(null, null, null)) {
+            return cursor.getCount();
+        }
+    }
+
+    @Test
+    public void import_preventReimport_sameContentOtherUuid() {
+        // given
+        trackImporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE + 20; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.setTrack(context, "name", UUID.randomUUID().toString(), "description", null, null, ZoneOffset.UTC);
+        trackImporter.finish();
+
+        TrackImporter reimporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), true);
+
+        // when: e.g., exported by another app without UUID
+        reimporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE + 20; i++) {
+            reimporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        reimporter.setTrack(context, "other name", null, null, null, null, ZoneOffset.UTC);
+
+        // then
+        assertThrows(ImportAlreadyExistsException.class, reimporter::finish);
+        assertEquals(0, reimporter.getTrackIds().size());
+        assertEquals(tracksBefore + 1, contentProviderUtils.getTracks().size());
+    }
+
+    @Test
+    public void import_withoutTrack_isDiscarded() {
+        // when
+        trackImporter.newTrack();
+        for (int i = 0; i < TrackImporter.CHUNK_SIZE + 10; i++) {
+            trackImporter.addTrackPoint(TestDataUtil.createTrackPoint(i));
+        }
+        trackImporter.finish();
+
+        // then
+        assertEquals(0, trackImporter.getTrackIds().size());
+        assertEquals(tracksBefore, contentProviderUtils.getTracks().size());
+    }
+}
@@ -0,0 +1,155 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import static org.junit.Assert.assertEquals;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+
+/**
+ * Imports synthetic GPX and KML files; reports TrackPoints per second and allocated bytes (see {@link BenchmarkUtil}).
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class XMLImporterBenchmark {
+
+    private static final int[] NUM_TRACKPOINTS = {10_000, 100_000, 1_000_000};
+
+    private static final Instant START = Instant.parse("2020-02-02T02:02:02Z");
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private File file;
+    private List<Track.Id> importTrackIds = List.of();
+
+    @After
+    public void tearDown() {
+        contentProviderUtils.deleteTracks(context, importTrackIds);
+        importTrackIds = List.of();
+        if (file != null) {
+            file.delete();
+            file = null;
+        }
+    }
+
+    @Test
+    public void gpx() throws Exception {
+        for (int numTrackPoints : NUM_TRACKPOINTS) {
+            // given
+            file = File.createTempFile("benchmark", ".gpx", context.getCacheDir());
+            try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+                writeGpx(writer, numTrackPoints);
+            }
+
+            // when
+            TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), false);
+            XMLImporter importer = new XMLImporter(new GPXTrackImporter(context, trackImporter));
+            BenchmarkUtil.run("GPX import of " + numTrackPoints + " TrackPoints (" + file.length() + " bytes)", numTrackPoints, () -> {
+                try (InputStream inputStream = new FileInputStream(file)) {
+                    importTrackIds = importer.importFile(inputStream);
+                }
+            });
+
+            // then
+            assertEquals(1, importTrackIds.size());
+            tearDown();
+        }
+    }
+
+    @Test
+    public void kml() throws Exception {
+        for (int numTrackPoints : NUM_TRACKPOINTS) {
+            // given
+            file = File.createTempFile("benchmark", ".kml", context.getCacheDir());
+            try (Writer writer = new BufferedWriter(new FileWriter(file))) {
+                writeKml(writer, numTrackPoints);
+            }
+
+            // when
+            TrackImporter trackImporter = new TrackImporter(context, contentProviderUtils, Distance.of(200), false);
+            XMLImporter importer = new XMLImporter(new KMLTrackImporter(context, trackImporter));
+            BenchmarkUtil.run("KML import of " + numTrackPoints + " TrackPoints (" + file.length() + " bytes)", numTrackPoints, () -> {
+                try (InputStream inputStream = new FileInputStream(file)) {
+                    importTrackIds = importer.importFile(inputStream);
+                }
+            });
+
+            // then
+            assertEquals(1, importTrackIds.size());
+            tearDown();
+        }
+    }
+
+    private static void writeGpx(Writer writer, int numTrackPoints) throws IOException {
+        writeGpx(writer, numTrackPoints, START);
+    }
+
+    static void writeGpx(Writer writer, int numTrackPoints, Instant start) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<gpx version=\"1.1\" xmlns=\"http://www.topografix.com/GPX/1/1\" xmlns:gpxtpx=\"http://www.garmin.com/xmlschemas/TrackPointExtension/v2\">\n"
+                + "<trk>\n<name>benchmark</name>\n<trkseg>\n");
+        for (int i = 0; i < numTrackPoints; i++) {
+            writer.write(String.format(Locale.US, "<trkpt lat=\"%.7f\" lon=\"%.7f\">\n<ele>%.1f</ele>\n<time>%s</time>\n"
+                            + "<extensions><gpxtpx:TrackPointExtension><gpxtpx:speed>%.2f</gpxtpx:speed><gpxtpx:hr>%d</gpxtpx:hr></gpxtpx:TrackPointExtension></extensions>\n</trkpt>\n",
+                    latitude(i), longitude(i), altitude(i), start.plusSeconds(i), 5 + i % 10 / 10.0, 100 + i % 80));
+        }
+        writer.write("</trkseg>\n</trk>\n</gpx>\n");
+    }
+
+    private static void writeKml(Writer writer, int numTrackPoints) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<kml xmlns=\"http://www.opengis.net/kml/2.3\">\n<Document>\n<Placemark>\n<name>benchmark</name>\n<MultiTrack>\n<Track>\n");
+        for (int i = 0; i < numTrackPoints; i++) {
+            writer.write("<when>" + START.plusSeconds(i) + "</when>\n");
+        }
+        for (int i = 0; i < numTrackPoints; i++) {
+            writer.write(String.format(Locale.US, "<coord>%.7f %.7f %.1f</coord>\n", longitude(i), latitude(i), altitude(i)));
+        }
+        writer.write("<ExtendedData>\n<SchemaData>\n<SimpleArrayData name=\"speed\">\n");
+        for (int i = 0; i < numTrackPoints; i++) {
+            writer.write(String.format(Locale.US, "<value>%.2f</value>\n", 5 + i % 10 / 10.0));
+        }
+        writer.write("</SimpleArrayData>\n<SimpleArrayData name=\"heartrate\">\n");
+        for (int i = 0; i < numTrackPoints; i++) {
+            writer.write("<value>" + (100 + i % 80) + "</value>\n");
+        }
+        writer.write("</SimpleArrayData>\n</SchemaData>\n</ExtendedData>\n</Track>\n</MultiTrack>\n</Placemark>\n</Document>\n</kml>\n");
+    }
+
+    private static double latitude(int i) {
+        return 48 + i * 0.00001 % 1;
+    }
+
+    private static double longitude(int i) {
+        return 9 + i * 0.00001 % 1;
+    }
+
+    private static double altitude(int i) {
+        return 300 + i % 100;
+    }
+}
@@ -0,0 +1,78 @@
+package de.dennisguse.opentracks.sensors.sensorData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import de.dennisguse.opentracks.data.models.Power;
+import de.dennisguse.opentracks.sensors.BluetoothHandlerManagerCyclingPower;
+import de.dennisguse.opentracks.sensors.BluetoothRemoteSensorManager;
+
+public class AggregatorCyclingPowerTest {
+
+    private static final Instant START = Instant.parse("2020-02-02T02:02:02Z");
+
+    private static void addSensorValue(AggregatorCyclingPower aggregator, long time_ms, float power) {
+        aggregator.add(new Raw<>(START.plusMillis(time_ms), new BluetoothHandlerManagerCyclingPower.Data(Power.of(power), null)));
+    }
+
+    @Test
+    public void getAggregatedValue_timeWeightedMean() {
+        // given
+        AggregatorCyclingPower subject = new AggregatorCyclingPower("test", null);
+
+        // when
+        addSensorValue(subject, 0, 100);
+        addSensorValue(subject, 250, 200);
+        addSensorValue(subject, 500, 300);
+        addSensorValue(subject, 1500, 400);
+
+        // then
+        Assert.assertEquals((100 * 250 + 200 * 250 + 300 * 1000) / 1500f, subject.getAggregatedValue(START.plusMillis(1500)).getW(), 0.01);
+        // The last value is valid until now.
+        Assert.assertEquals((100 * 250 + 200 * 250 + 300 * 1000 + 400 * 500) / 2000f, subject.getAggregatedValue(START.plusMillis(2000)).getW(), 0.01);
+    }
+
+    @Test
+    public void getAggregatedValue_oneValue() {
+        // given
+        AggregatorCyclingPower subject = new AggregatorCyclingPower("test", null);
+
+        // when
+        addSensorValue(subject, 0, 100);
+
+        // then
+        Assert.assertEquals(100f, subject.getAggregatedValue(START).getW(), 0.01);
+        Assert.assertEquals(100f, subject.getAggregatedValue(START.plusMillis(500)).getW(), 0.01);
+    }
+
+    @Test
+    public void resetAggregated_startsNewInterval() {
+        // given
+        AggregatorCyclingPower subject = new AggregatorCyclingPower("test", null);
+        addSensorValue(subject, 0, 100);
+        addSensorValue(subject, 1000, 300);
+        Assert.assertEquals(150f, subject.getAggregatedValue(START.plusMillis(2000)).getW(), 0.01);
+
+        // when
+        subject.resetAggregated(START.plusMillis(2000));
+        addSensorValue(subject, 3000, 500);
+
+        // then: only since the reset
+        Assert.assertEquals((300 * 1000 + 500 * 1000) / 2000f, subject.getAggregatedValue(START.plusMillis(4000)).getW(), 0.01);
+    }
+
+    @Test
+    public void getAggregatedValue_outdated() {
+        // given
+        AggregatorCyclingPower subject = new AggregatorCyclingPower("test", null);
+        addSensorValue(subject, 0, 100);
+
+        // when
+        Power power = subject.getAggregatedValue(START.plus(BluetoothRemoteSensorManager.MAX_SENSOR_DATE_SET_AGE).plusSeconds(1));
+
+        // then
+        Assert.assertEquals(Power.of(0f), power);
+    }
+}
@@ -0,0 +1,58 @@
+package de.dennisguse.opentracks.sensors.sensorData;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import de.dennisguse.opentracks.data.models.HeartRate;
+
+public class AggregatorHeartRateTest {
+
+    private static final Instant START = Instant.parse("2020-02-02T02:02:02Z");
+
+    private static void addSensorValue(AggregatorHeartRate aggregator, long time_ms, float heartRate) {
+        aggregator.add(new Raw<>(START.plusMillis(time_ms), HeartRate.of(heartRate)));
+    }
+
+    @Test
+    public void getAggregatedValue_timeWeightedMean() {
+        // given
+        AggregatorHeartRate subject = new AggregatorHeartRate("test", null);
+
+        // when
+        addSensorValue(subject, 0, 120);
+        addSensorValue(subject, 3000, 150);
+        addSensorValue(subject, 4000, 160);
+
+        // then
+        Assert.assertEquals((120 * 3 + 150 + 160 * 2) / 6f, subject.getAggregatedValue(START.plusSeconds(6)).getBPM(), 0.01);
+    }
+
+    @Test
+    public void getAggregatedValue_sameTime() {
+        // given
+        AggregatorHeartRate subject = new AggregatorHeartRate("test", null);
+
+        // when
+        addSensorValue(subject, 0, 120);
+        addSensorValue(subject, 0, 130);
+
+        // then
+        Assert.assertEquals(130f, subject.getAggregatedValue(START).getBPM(), 0.01);
+    }
+
+    @Test
+    public void resetAggregated_keepsLastValue() {
+        // given
+        AggregatorHeartRate subject = new AggregatorHeartRate("test", null);
+        addSensorValue(subject, 0, 120);
+        addSensorValue(subject, 1000, 140);
+
+        // when
+        subject.resetAggregated(START.plusSeconds(2));
+
+        // then
+        Assert.assertEquals(140f, subject.getAggregatedValue(START.plusSeconds(3)).getBPM(), 0.01);
+    }
+}
@@ -44,6 +44,20 @@ public class SensorDataCyclingTest {
         assertEquals(33.53, current.getAggregatedValue(Instant.MIN).getRPM(), 0.01);
     }
 
+    @Test
+    public void compute_cadence_timeWeightedMean() {
+        AggregatorCyclingCadence current = new AggregatorCyclingCadence("", "");
+        Instant start = Instant.parse("2020-02-02T02:02:02Z");
+
+        // when
+        current.add(new Raw<>(start, new BluetoothHandlerCyclingCadence.CrankData(0, 0)));
+        current.add(new Raw<>(start.plusSeconds(1), new BluetoothHandlerCyclingCadence.CrankData(1, 1024)));
+        current.add(new Raw<>(start.plusSeconds(2), new BluetoothHandlerCyclingCadence.CrankData(3, 2048)));
+
+        // then
+        assertEquals(90, current.getAggregatedValue(start.plusSeconds(3)).getRPM(), 0.01);
+    }
+
     @Test
     public void compute_cadence_sameCount() {
         AggregatorCyclingCadence current = new AggregatorCyclingCadence("", "");
@@ -0,0 +1,145 @@
+package de.dennisguse.opentracks.services;
+
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.content.Intent;
+import android.os.Looper;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+import androidx.test.rule.GrantPermissionRule;
+import androidx.test.rule.ServiceTestRule;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.TestUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.HeartRate;
+import de.dennisguse.opentracks.data.models.Power;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.sensors.BluetoothHandlerCyclingCadence;
+import de.dennisguse.opentracks.sensors.BluetoothHandlerManagerCyclingPower;
+import de.dennisguse.opentracks.sensors.SensorManager;
+import de.dennisguse.opentracks.sensors.sensorData.AggregatorCyclingCadence;
+import de.dennisguse.opentracks.sensors.sensorData.AggregatorCyclingPower;
+import de.dennisguse.opentracks.sensors.sensorData.AggregatorHeartRate;
+import de.dennisguse.opentracks.sensors.sensorData.Raw;
+import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
+
+/**
+ * Simulates one minute of recording with a 4Hz power meter, a 2Hz cadence and a 1Hz heart rate sensor (no GPS).
+ * Compares the time to process all notifications if every notification is fused into a TrackPoint with fusing once per second (see {@link SensorManager}).
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class SensorFusionBenchmark {
+
+    private static final Duration RECORDING = Duration.ofMinutes(1);
+    private static final Duration NOTIFICATION_INTERVAL = Duration.ofMillis(250);
+    private static final int NOTIFICATIONS_PER_MINUTE = 60 * (4 + 2 + 1);
+
+    @Rule
+    public final ServiceTestRule mServiceRule = ServiceTestRule.withTimeout(5, TimeUnit.SECONDS);
+
+    @Rule
+    public GrantPermissionRule mGrantPermissionRule = TestUtil.createGrantPermissionRule();
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private TrackRecordingService service;
+    private Track.Id trackId;
+
+    @BeforeClass
+    public static void preSetUp() {
+        // Prepare looper for Android's message queue
+        if (Looper.myLooper() == null) Looper.prepare();
+    }
+
+    @AfterClass
+    public static void finalTearDown() {
+        if (Looper.myLooper() != null) Looper.myLooper().quit();
+    }
+
+    @Before
+    public void setUp() throws TimeoutException {
+        Intent startIntent = new Intent(context, TrackRecordingService.class);
+        service = ((TrackRecordingService.Binder) mServiceRule.bindService(startIntent)).getService();
+    }
+
+    @After
+    public void tearDown() {
+        if (service.isRecording()) {
+            service.endCurrentTrack();
+        }
+        if (trackId != null) {
+            contentProviderUtils.deleteTrack(context, trackId);
+        }
+    }
+
+    @Test
+    public void fusionPerNotification() throws Exception {
+        BenchmarkUtil.Result result = record("Fusion per notification", Duration.ZERO);
+        assertTrue(result.duration().toMillis() > 0);
+    }
+
+    @Test
+    public void fusionPerSecond() throws Exception {
+        BenchmarkUtil.Result result = record("Fusion per second", Duration.ofSeconds(1));
+        assertTrue(result.duration().toMillis() > 0);
+    }
+
+    /**
+     * @param fusionInterval zero: every notification is fused; otherwise: fused once per fusionInterval (triggered by the benchmark as it uses a simulated clock).
+     */
+    private BenchmarkUtil.Result record(String name, Duration fusionInterval) throws Exception {
+        TrackPointCreator trackPointCreator = service.getTrackPointCreator();
+        Instant start = Instant.parse("2020-02-02T02:02:02Z");
+        trackPointCreator.setClock(start.toString());
+        trackId = service.startNewTrack();
+
+        SensorManager sensorManager = trackPointCreator.getSensorManager();
+        // The fusion is triggered by the benchmark; the scheduled fusion should never run.
+        sensorManager.setFusionInterval(fusionInterval.isZero() ? Duration.ZERO : Duration.ofHours(1));
+        sensorManager.sensorDataSet.add(new AggregatorCyclingPower("", ""));
+        sensorManager.sensorDataSet.add(new AggregatorCyclingCadence("", ""));
+        sensorManager.sensorDataSet.add(new AggregatorHeartRate("", ""));
+
+        return BenchmarkUtil.run(name + " (" + RECORDING + " of recording)", NOTIFICATIONS_PER_MINUTE, () -> {
+            Instant lastFusion = start;
+            for (int i = 1; i <= RECORDING.dividedBy(NOTIFICATION_INTERVAL); i++) {
+                Instant now = start.plus(NOTIFICATION_INTERVAL.multipliedBy(i));
+                trackPointCreator.setClock(now.toString());
+
+                sensorManager.onChanged(new Raw<>(now, new BluetoothHandlerManagerCyclingPower.Data(Power.of(200), null)));
+                if (i % 2 == 0) {
+                    sensorManager.onChanged(new Raw<>(now, new BluetoothHandlerCyclingCadence.CrankData(i / 2, (i / 2 * 512) % 65536)));
+                }
+                if (i % 4 == 0) {
+                    sensorManager.onChanged(new Raw<>(now, HeartRate.of(140)));
+                }
+
+                if (!fusionInterval.isZero() && !now.isBefore(lastFusion.plus(fusionInterval))) {
+                    sensorManager.fuse();
+                    lastFusion = now;
+                }
+            }
+        });
+    }
+}
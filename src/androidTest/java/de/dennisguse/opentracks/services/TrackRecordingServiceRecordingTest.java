@@ -90,6 +90,8 @@ public class TrackRecordingServiceRecordingTest {
         PreferencesUtils.setString(R.string.idle_duration_key, R.string.idle_duration_default);
 
         service = startService();
+        service.getTrackRecordingManager().setWriteBehind(1, Duration.ZERO);
+        service.getTrackPointCreator().getSensorManager().setFusionInterval(Duration.ZERO);
     }
 
     @MediumTest
@@ -174,6 +176,35 @@ public class TrackRecordingServiceRecordingTest {
         ), TestDataUtil.getTrackPoints(contentProviderUtils, trackId));
     }
 
+    @MediumTest
+    @Test
+    public void recording_writeBehind_flushedOnEnd() {
+        // given
+        service.getTrackRecordingManager().setWriteBehind(10, Duration.ofMinutes(1));
+        TrackPointCreator trackPointCreator = service.getTrackPointCreator();
+        String startTime = "2020-02-02T02:02:02Z";
+        trackPointCreator.setClock(startTime);
+        Track.Id trackId = service.startNewTrack();
+
+        // when
+        String gps1 = "2020-02-02T02:02:03Z";
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, gps1, 45.0, 35.0, 1, 15);
+        String gps2 = "2020-02-02T02:02:04Z";
+        TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, gps2, 45.0, 35.0, 1, 15);
+
+        // then
+        assertEquals(1, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+
+        // when
+        String stopTime = "2020-02-02T02:02:05Z";
+        trackPointCreator.setClock(stopTime);
+        service.endCurrentTrack();
+
+        // then
+        assertEquals(4, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+        assertEquals(Instant.parse(stopTime), contentProviderUtils.getTrack(trackId).getTrackStatistics().getStopTime());
+    }
+
     @MediumTest
     @Test
     public void testRecording_startPauseResume() {
@@ -317,7 +348,57 @@ public class TrackRecordingServiceRecordingTest {
                 new TrackPoint(TrackPoint.Type.TRACKPOINT, Instant.parse(sensor3))
                         .setAltitudeGain(0f)
                         .setAltitudeLoss(0f)
-                        .setHeartRate(HeartRate.of(7)),
+                        .setHeartRate(HeartRate.of(5)), // time-weighted mean since sensor1
+                new TrackPoint(TrackPoint.Type.SEGMENT_END_MANUAL, Instant.parse(stopTime))
+                        .setAltitudeGain(0f)
+                        .setAltitudeLoss(0f)
+                        .setHeartRate(HeartRate.of(7))
+        ), TestDataUtil.getTrackPoints(contentProviderUtils, trackId));
+    }
+
+    @MediumTest
+    @Test
+    public void testRecording_blesensor_fusionInterval() {
+        // given
+        String startTime = "2020-02-02T02:02:02Z";
+        TrackPointCreator trackPointCreator = service.getTrackPointCreator();
+
+        trackPointCreator.setClock(startTime);
+        Track.Id trackId = service.startNewTrack();
+        mockAltitudeChange(trackPointCreator, 0);
+
+        SensorManager sensorManager = trackPointCreator.getSensorManager();
+        sensorManager.setFusionInterval(Duration.ofHours(1));
+        sensorManager.sensorDataSet.add(new AggregatorHeartRate("", ""));
+
+        // when
+        String sensor1 = "2020-02-02T02:02:12Z";
+        trackPointCreator.setClock(sensor1);
+        sensorManager.onChanged(new Raw<>(sensor1, HeartRate.of(5)));
+
+        String sensor2 = "2020-02-02T02:02:13Z";
+        trackPointCreator.setClock(sensor2);
+        sensorManager.onChanged(new Raw<>(sensor2, HeartRate.of(7)));
+
+        // then: notifications only update the sensor data
+        assertEquals(1, TestDataUtil.getTrackPoints(contentProviderUtils, trackId).size());
+
+        // when
+        String fusion = "2020-02-02T02:02:14Z";
+        trackPointCreator.setClock(fusion);
+        sensorManager.fuse();
+
+        String stopTime = "2020-02-02T02:02:15Z";
+        trackPointCreator.setClock(stopTime);
+        service.endCurrentTrack();
+
+        // then
+        new TrackPointAssert().assertEquals(List.of(
+                new TrackPoint(TrackPoint.Type.SEGMENT_START_MANUAL, Instant.parse(startTime)),
+                new TrackPoint(TrackPoint.Type.TRACKPOINT, Instant.parse(fusion))
+                        .setAltitudeGain(0f)
+                        .setAltitudeLoss(0f)
+                        .setHeartRate(HeartRate.of(6)), // time-weighted mean since sensor1
                 new TrackPoint(TrackPoint.Type.SEGMENT_END_MANUAL, Instant.parse(stopTime))
                         .setAltitudeGain(0f)
                         .setAltitudeLoss(0f)
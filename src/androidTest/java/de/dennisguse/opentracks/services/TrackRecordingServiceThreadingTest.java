@@ -0,0 +1,132 @@
+package de.dennisguse.opentracks.services;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import android.app.Instrumentation;
+import android.content.Context;
+import android.content.Intent;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.StrictMode;
+import android.os.strictmode.Violation;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.MediumTest;
+import androidx.test.filters.SdkSuppress;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.rule.GrantPermissionRule;
+import androidx.test.rule.ServiceTestRule;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.TestUtil;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
+import de.dennisguse.opentracks.settings.PreferencesUtils;
+
+/**
+ * Tests that the recording pipeline (sensor callbacks, TrackPoint fusion, and persistence) is not executed on the main thread.
+ */
+@RunWith(AndroidJUnit4.class)
+public class TrackRecordingServiceThreadingTest {
+
+    @Rule
+    public final ServiceTestRule mServiceRule = ServiceTestRule.withTimeout(5, TimeUnit.SECONDS);
+
+    @Rule
+    public GrantPermissionRule mGrantPermissionRule = TestUtil.createGrantPermissionRule();
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final Instrumentation instrumentation = InstrumentationRegistry.getInstrumentation();
+
+    private ContentProviderUtils contentProviderUtils;
+
+    private TrackRecordingService service;
+
+    @Before
+    public void setUp() throws TimeoutException {
+        contentProviderUtils = new ContentProviderUtils(context);
+
+        PreferencesUtils.setString(R.string.recording_distance_interval_key, R.string.recording_distance_interval_default);
+        PreferencesUtils.setString(R.string.idle_duration_key, R.string.idle_duration_default);
+
+        Intent startIntent = new Intent(context, TrackRecordingService.class);
+        service = ((TrackRecordingService.Binder) mServiceRule.bindService(startIntent)).getService();
+    }
+
+    @Test
+    public void recordingLooper_isNotMainLooper() {
+        assertNotNull(service.getRecordingLooper());
+        assertNotEquals(Looper.getMainLooper(), service.getRecordingLooper());
+    }
+
+    @SdkSuppress(minSdkVersion = Build.VERSION_CODES.P)
+    @MediumTest
+    @Test
+    public void recording_noDatabaseWriteOnMainThread() throws InterruptedException {
+        // given
+        List<Violation> violations = new CopyOnWriteArrayList<>();
+        AtomicReference<StrictMode.ThreadPolicy> previousPolicy = new AtomicReference<>();
+        instrumentation.runOnMainSync(() -> {
+            previousPolicy.set(StrictMode.getThreadPolicy());
+            StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder()
+                    .detectDiskWrites()
+                    .penaltyListener(Runnable::run, violations::add)
+                    .build());
+        });
+
+        TrackPointCreator trackPointCreator = service.getTrackPointCreator();
+        AtomicReference<Track.Id> trackId = new AtomicReference<>();
+        try {
+            // when
+            instrumentation.runOnMainSync(() -> {
+                trackPointCreator.setClock("2020-02-02T02:02:02Z");
+                trackId.set(service.startNewTrack());
+            });
+
+            // Deliver sensor data like the platform does: via the recording looper.
+            CountDownLatch done = new CountDownLatch(1);
+            new Handler(service.getRecordingLooper()).post(() -> {
+                TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, "2020-02-02T02:02:03Z", 45.0, 35.0, 1, 15);
+                TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, "2020-02-02T02:02:04Z", 45.0001, 35.0, 1, 15);
+                TrackRecordingServiceTestUtils.sendGPSLocation(trackPointCreator, "2020-02-02T02:02:05Z", 45.0002, 35.0, 1, 15);
+                done.countDown();
+            });
+            assertTrue(done.await(5, TimeUnit.SECONDS));
+
+            instrumentation.runOnMainSync(() -> {
+                assertNotNull(service.createMarker());
+
+                trackPointCreator.setClock("2020-02-02T02:02:06Z");
+                service.endCurrentTrack();
+            });
+            instrumentation.waitForIdleSync();
+        } finally {
+            instrumentation.runOnMainSync(() -> StrictMode.setThreadPolicy(previousPolicy.get()));
+        }
+
+        // then
+        assertEquals(List.of(), violations);
+        assertFalse(TestDataUtil.getTrackPoints(contentProviderUtils, trackId.get()).isEmpty());
+        assertEquals(1, contentProviderUtils.getMarkers(trackId.get()).size());
+    }
+}
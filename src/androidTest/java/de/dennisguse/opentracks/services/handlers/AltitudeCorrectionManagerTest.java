@@ -0,0 +1,76 @@
+package de.dennisguse.opentracks.services.handlers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Context;
+import android.location.Location;
+
+import androidx.core.location.LocationCompat;
+import androidx.core.location.altitude.AltitudeConverterCompat;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.time.Instant;
+
+import de.dennisguse.opentracks.data.models.Altitude;
+import de.dennisguse.opentracks.data.models.Position;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+@RunWith(AndroidJUnit4.class)
+public class AltitudeCorrectionManagerTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+
+    private static TrackPoint createTrackPoint(double latitude, double longitude, double altitude_m) {
+        return new TrackPoint(TrackPoint.Type.TRACKPOINT, new Position(Instant.ofEpochSecond(1), latitude, longitude, null, Altitude.WGS84.of(altitude_m), null, null, null));
+    }
+
+    @Test
+    public void correctAltitude_sameAsAltitudeConverter() throws IOException {
+        // given
+        TrackPoint trackPoint = createTrackPoint(47.3769, 8.5417, 500);
+
+        Location expected = trackPoint.getLocation();
+        AltitudeConverterCompat.addMslAltitudeToLocation(context, expected);
+
+        // when
+        new AltitudeCorrectionManager().correctAltitude(context, trackPoint);
+
+        // then
+        assertTrue(trackPoint.getAltitude() instanceof Altitude.EGM2008);
+        assertEquals(LocationCompat.getMslAltitudeMeters(expected), trackPoint.getAltitude().toM(), 0.5);
+    }
+
+    @Test
+    public void correctAltitude_sameCell() {
+        // given
+        TrackPoint trackPoint1 = createTrackPoint(47.3769, 8.5417, 500);
+        TrackPoint trackPoint2 = createTrackPoint(47.3770, 8.5418, 600);
+
+        // when
+        AltitudeCorrectionManager subject = new AltitudeCorrectionManager();
+        subject.correctAltitude(context, trackPoint1);
+        subject.correctAltitude(context, trackPoint2);
+
+        // then
+        assertEquals(100, trackPoint2.getAltitude().toM() - trackPoint1.getAltitude().toM(), 0.001);
+    }
+
+    @Test
+    public void correctAltitude_withoutAltitude() {
+        // given
+        TrackPoint trackPoint = new TrackPoint(TrackPoint.Type.TRACKPOINT, new Position(Instant.ofEpochSecond(1), 47.3769, 8.5417, null, null, null, null, null));
+
+        // when
+        new AltitudeCorrectionManager().correctAltitude(context, trackPoint);
+
+        // then
+        assertFalse(trackPoint.hasAltitude());
+    }
+}
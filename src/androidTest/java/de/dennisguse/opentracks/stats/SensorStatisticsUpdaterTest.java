@@ -0,0 +1,103 @@
+package de.dennisguse.opentracks.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import android.content.Context;
+
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.time.Instant;
+
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.content.data.TestSensorDataUtil;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * The in-memory computation must be the same as the database's (see {@link ContentProviderUtils#getSensorStats(Track.Id)}).
+ */
+@RunWith(AndroidJUnit4.class)
+public class SensorStatisticsUpdaterTest {
+
+    private final Context context = ApplicationProvider.getApplicationContext();
+    private final ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+
+    private Track.Id trackId;
+
+    @After
+    public void tearDown() {
+        if (trackId != null) {
+            contentProviderUtils.deleteTrack(context, trackId);
+        }
+    }
+
+    @Test
+    public void noTrackPoints() {
+        // when
+        SensorStatistics sensorStatistics = new SensorStatisticsUpdater().getSensorStatistics();
+
+        // then
+        assertFalse(sensorStatistics.hasHeartRate());
+        assertFalse(sensorStatistics.hasCadence());
+        assertFalse(sensorStatistics.hasPower());
+    }
+
+    @Test
+    public void oneTrackPoint() {
+        // given
+        Instant start = Instant.now();
+        TestSensorDataUtil sensorDataUtil = new TestSensorDataUtil();
+        sensorDataUtil.add(start, 140f, 90f, 300f, TrackPoint.Type.TRACKPOINT);
+
+        // when and then
+        assertSameAsDatabase(start, sensorDataUtil);
+    }
+
+    @Test
+    public void withPausesAndMissingValues() {
+        // given
+        /*
+         * time elapsed    hr      cadence     power       track type
+         * 0               140     NULL        NULL        SEGMENT_START_MANUAL
+         * 2               150     80          NULL        TRACKPOINT
+         * 3               NULL    90          250         TRACKPOINT
+         * 7               160     NULL        300         SEGMENT_END_MANUAL
+         * 20              120     70          100         SEGMENT_START_MANUAL
+         * 21              130     75          200         TRACKPOINT
+         * 25              NULL    NULL        NULL        IDLE
+         * 30              135     NULL        220         TRACKPOINT
+         * 31              140     85          230         SEGMENT_END_MANUAL
+         */
+        Instant start = Instant.now();
+        TestSensorDataUtil sensorDataUtil = new TestSensorDataUtil();
+        sensorDataUtil.add(start, 140f, null, null, TrackPoint.Type.SEGMENT_START_MANUAL);
+        sensorDataUtil.add(start.plusSeconds(2), 150f, 80f, null, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plusSeconds(3), null, 90f, 250f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plusSeconds(7), 160f, null, 300f, TrackPoint.Type.SEGMENT_END_MANUAL);
+        sensorDataUtil.add(start.plusSeconds(20), 120f, 70f, 100f, TrackPoint.Type.SEGMENT_START_MANUAL);
+        sensorDataUtil.add(start.plusSeconds(21), 130f, 75f, 200f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plusSeconds(25), null, null, null, TrackPoint.Type.IDLE);
+        sensorDataUtil.add(start.plusSeconds(30), 135f, null, 220f, TrackPoint.Type.TRACKPOINT);
+        sensorDataUtil.add(start.plusSeconds(31), 140f, 85f, 230f, TrackPoint.Type.SEGMENT_END_MANUAL);
+
+        // when and then
+        assertSameAsDatabase(start, sensorDataUtil);
+    }
+
+    private void assertSameAsDatabase(Instant start, TestSensorDataUtil sensorDataUtil) {
+        trackId = new Track.Id(start.toEpochMilli());
+        TestDataUtil.insertTrackWithLocations(contentProviderUtils, TestDataUtil.createTrack(trackId), sensorDataUtil.getTrackPointList());
+
+        SensorStatisticsUpdater sensorStatisticsUpdater = new SensorStatisticsUpdater();
+        sensorDataUtil.getTrackPointList().forEach(sensorStatisticsUpdater::addTrackPoint);
+
+        assertEquals(contentProviderUtils.getSensorStats(trackId), sensorStatisticsUpdater.getSensorStatistics());
+    }
+}
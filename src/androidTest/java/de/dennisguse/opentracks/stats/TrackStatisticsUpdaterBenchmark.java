@@ -0,0 +1,60 @@
+package de.dennisguse.opentracks.stats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.filters.LargeTest;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.List;
+
+import de.dennisguse.opentracks.Benchmark;
+import de.dennisguse.opentracks.BenchmarkUtil;
+import de.dennisguse.opentracks.content.data.TestDataUtil;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * Compares allocations per TrackPoint of {@link TrackStatisticsUpdater#getTrackStatistics()} (new snapshot per TrackPoint) with {@link TrackStatisticsUpdater#getTrackStatistics(TrackStatistics)} (re-used snapshot only for sampled in TrackPoints) as done by TrackDataHub.
+ */
+@Benchmark
+@LargeTest
+@RunWith(AndroidJUnit4.class)
+public class TrackStatisticsUpdaterBenchmark {
+
+    private static final int NUM_TRACKPOINTS = 50000;
+    private static final int SAMPLING_FREQUENCY = 10;
+
+    @Test
+    public void allocationsPerTrackPoint() throws Exception {
+        // given
+        List<TrackPoint> trackPoints = TestDataUtil.createTrack(new Track.Id(1), NUM_TRACKPOINTS).second;
+
+        // when
+        TrackStatisticsUpdater before = new TrackStatisticsUpdater();
+        BenchmarkUtil.Result resultBefore = BenchmarkUtil.run("TrackStatistics per TrackPoint", NUM_TRACKPOINTS, () -> {
+            for (TrackPoint trackPoint : trackPoints) {
+                before.addTrackPoint(trackPoint);
+                before.getTrackStatistics();
+            }
+        });
+
+        TrackStatisticsUpdater after = new TrackStatisticsUpdater();
+        TrackStatistics snapshot = new TrackStatistics();
+        BenchmarkUtil.Result resultAfter = BenchmarkUtil.run("TrackStatistics snapshot for sampled in TrackPoints", NUM_TRACKPOINTS, () -> {
+            for (int i = 0; i < trackPoints.size(); i++) {
+                after.addTrackPoint(trackPoints.get(i));
+                if (i % SAMPLING_FREQUENCY == 0) {
+                    after.getTrackStatistics(snapshot);
+                }
+            }
+        });
+
+        // then
+        assertEquals(before.getTrackStatistics(), after.getTrackStatistics(snapshot));
+        assertTrue(resultAfter.allocationsPerItem() < resultBefore.allocationsPerItem());
+    }
+}
@@ -99,6 +99,25 @@ public class TrackStatisticsUpdaterTest {
         assertEquals(106.834f, statistics.getAverageHeartRate().getBPM(), 0.01);
     }
 
+    @Test
+    public void getTrackStatistics_snapshot_TestingTrack() {
+        // given
+        TestDataUtil.TrackData data = TestDataUtil.createTestingTrack(new Track.Id(1));
+        TrackStatisticsUpdater subject = new TrackStatisticsUpdater();
+        TrackStatistics snapshot = new TrackStatistics();
+
+        // when
+        for (TrackPoint trackPoint : data.trackPoints()) {
+            subject.addTrackPoint(trackPoint);
+
+            // then
+            TrackStatistics expected = subject.getTrackStatistics();
+            assertEquals(expected, subject.getTrackStatistics(snapshot));
+            assertEquals(expected.getTotalDistance(), subject.getTotalDistance());
+            assertEquals(expected.getTotalTime(), subject.getTotalTime());
+        }
+    }
+
     @Test
     public void addTrackPoint_distance_from_GPS_moving() {
         // given
@@ -141,6 +141,123 @@ public class IntervalStatisticsTest {
         whenAndThen(trackWithStats, numberOfPoints, distanceInterval);
     }
 
+    @Test
+    public void testAddTrackPoint_sameAsAddTrackPoints() {
+        // given
+        Distance distanceInterval = Distance.of(1000);
+        Pair<Track.Id, TrackStatistics> trackWithStats = TestDataUtil.buildTrackWithTrackPoints(contentProviderUtils, 1000);
+        IntervalStatistics expected = new IntervalStatistics(distanceInterval);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackWithStats.first, null, IntervalStatistics.FIELDS)) {
+            expected.addTrackPoints(trackPointIterator);
+        }
+
+        // when
+        IntervalStatistics intervalStatistics = new IntervalStatistics(distanceInterval);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackWithStats.first, null, IntervalStatistics.FIELDS)) {
+            while (trackPointIterator.hasNext()) {
+                intervalStatistics.addTrackPoint(trackPointIterator.next());
+            }
+        }
+
+        // then
+        List<IntervalStatistics.Interval> expectedIntervals = expected.getIntervalList();
+        List<IntervalStatistics.Interval> intervals = intervalStatistics.getIntervalList();
+        assertEquals(expectedIntervals.size(), intervals.size());
+        // The last interval is not completed.
+        for (int i = 0; i < intervals.size() - 1; i++) {
+            assertEquals(expectedIntervals.get(i).getDistance().toM(), intervals.get(i).getDistance().toM(), 0.001);
+            assertEquals(expectedIntervals.get(i).getSpeed().toMPS(), intervals.get(i).getSpeed().toMPS(), 0.001);
+            assertEquals(expectedIntervals.get(i).getGain_m(), intervals.get(i).getGain_m());
+            assertEquals(expectedIntervals.get(i).getLoss_m(), intervals.get(i).getLoss_m());
+        }
+    }
+
+    @Test
+    public void testChangeDistanceInterval_sameAsNewIntervalStatistics() {
+        // given
+        Pair<Track.Id, TrackStatistics> trackWithStats = TestDataUtil.buildTrackWithTrackPoints(contentProviderUtils, 1000);
+        CumulativeTrackStatistics cumulativeTrackStatistics = new CumulativeTrackStatistics();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackWithStats.first, null, IntervalStatistics.FIELDS)) {
+            cumulativeTrackStatistics.addTrackPoints(trackPointIterator);
+        }
+
+        for (Distance distanceInterval : List.of(Distance.of(100), Distance.of(1000), Distance.of(5000))) {
+            IntervalStatistics expected = new IntervalStatistics(distanceInterval);
+            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackWithStats.first, null, IntervalStatistics.FIELDS)) {
+                expected.addTrackPoints(trackPointIterator);
+            }
+
+            // when
+            List<IntervalStatistics.Interval> intervals = new IntervalStatistics(cumulativeTrackStatistics, distanceInterval).getIntervalList();
+
+            // then
+            List<IntervalStatistics.Interval> expectedIntervals = expected.getIntervalList();
+            assertEquals(expectedIntervals.size(), intervals.size());
+            for (int i = 0; i < intervals.size(); i++) {
+                assertEquals(expectedIntervals.get(i).getDistance().toM(), intervals.get(i).getDistance().toM(), 0.001);
+                assertEquals(expectedIntervals.get(i).getSpeed().toMPS(), intervals.get(i).getSpeed().toMPS(), 0.001);
+            }
+        }
+    }
+
+    @Test
+    public void testAddNewTrackPoints_twice_sameAsLoadingOnce() {
+        // given
+        Distance distanceInterval = Distance.of(1000);
+        Pair<Track.Id, TrackStatistics> trackWithStats = TestDataUtil.buildTrackWithTrackPoints(contentProviderUtils, 500);
+        CumulativeTrackStatistics cumulativeTrackStatistics = new CumulativeTrackStatistics();
+        cumulativeTrackStatistics.addNewTrackPoints(contentProviderUtils, trackWithStats.first);
+
+        for (int i = 500; i < 1000; i++) {
+            contentProviderUtils.insertTrackPoint(TestDataUtil.createTrackPoint(i), trackWithStats.first);
+        }
+        IntervalStatistics expected = new IntervalStatistics(distanceInterval);
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackWithStats.first, null, IntervalStatistics.FIELDS)) {
+            expected.addTrackPoints(trackPointIterator);
+        }
+
+        // when
+        cumulativeTrackStatistics.addNewTrackPoints(contentProviderUtils, trackWithStats.first);
+        cumulativeTrackStatistics.addNewTrackPoints(contentProviderUtils, trackWithStats.first);
+
+        // then
+        List<IntervalStatistics.Interval> expectedIntervals = expected.getIntervalList();
+        List<IntervalStatistics.Interval> intervals = new IntervalStatistics(cumulativeTrackStatistics, distanceInterval).getIntervalList();
+        assertEquals(expectedIntervals.size(), intervals.size());
+        for (int i = 0; i < intervals.size(); i++) {
+            assertEquals(expectedIntervals.get(i).getDistance().toM(), intervals.get(i).getDistance().toM(), 0.001);
+            assertEquals(expectedIntervals.get(i).getSpeed().toMPS(), intervals.get(i).getSpeed().toMPS(), 0.001);
+            // A track point that is added twice, adds its gain twice.
+            assertEquals(expectedIntervals.get(i).getGain_m(), intervals.get(i).getGain_m(), 0.001);
+        }
+    }
+
+    @Test
+    public void testWithDistanceInterval_usesAddedTrackPoints() {
+        // given
+        Pair<Track.Id, TrackStatistics> trackWithStats = TestDataUtil.buildTrackWithTrackPoints(contentProviderUtils, 1000);
+        IntervalStatistics intervalStatistics = new IntervalStatistics(Distance.of(1000));
+        IntervalStatistics expected = new IntervalStatistics(Distance.of(100));
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackWithStats.first, null, IntervalStatistics.FIELDS)) {
+            while (trackPointIterator.hasNext()) {
+                TrackPoint trackPoint = trackPointIterator.next();
+                intervalStatistics.addTrackPoint(trackPoint);
+                expected.addTrackPoint(trackPoint);
+            }
+        }
+
+        // when
+        List<IntervalStatistics.Interval> intervals = intervalStatistics.withDistanceInterval(Distance.of(100)).getIntervalList();
+
+        // then
+        List<IntervalStatistics.Interval> expectedIntervals = expected.getIntervalList();
+        assertEquals(expectedIntervals.size(), intervals.size());
+        for (int i = 0; i < intervals.size(); i++) {
+            assertEquals(expectedIntervals.get(i).getDistance().toM(), intervals.get(i).getDistance().toM(), 0.001);
+            assertEquals(expectedIntervals.get(i).getSpeed().toMPS(), intervals.get(i).getSpeed().toMPS(), 0.001);
+        }
+    }
+
     private void whenAndThen(int numberOfPoints, float distanceInterval) {
         Pair<Track.Id, TrackStatistics> trackWithStats = TestDataUtil.buildTrackWithTrackPoints(contentProviderUtils, numberOfPoints);
         whenAndThen(trackWithStats, numberOfPoints, distanceInterval);
@@ -151,7 +268,7 @@ public class IntervalStatisticsTest {
         IntervalStatistics intervalStatistics = new IntervalStatistics(Distance.of(distanceInterval));
         Track.Id trackId = trackWithStats.first;
         TrackStatistics trackStatistics = trackWithStats.second;
-        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, null, IntervalStatistics.FIELDS)) {
             assertEquals(trackPointIterator.getCount(), numberOfPoints);
             intervalStatistics.addTrackPoints(trackPointIterator);
         }
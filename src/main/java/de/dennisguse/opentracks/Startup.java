@@ -8,6 +8,7 @@ import android.util.Log;
 
 import java.lang.reflect.Method;
 
+import de.dennisguse.opentracks.services.TrackCleanupService;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
 import de.dennisguse.opentracks.util.ExceptionHandler;
 
@@ -33,6 +34,10 @@ public class Startup extends Application {
         PreferencesUtils.resetPreferences(this, false);
         PreferencesUtils.applyDefaultUnit();
         PreferencesUtils.applyNightModeAndDynamicColors(this);
+
+        if (!isCrashReportingProcess()) {
+            TrackCleanupService.enqueue(this);
+        }
     }
 
     @Override
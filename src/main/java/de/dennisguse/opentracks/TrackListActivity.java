@@ -19,11 +19,12 @@ package de.dennisguse.opentracks;
 import android.content.Context;
 import android.content.Intent;
 import android.content.SharedPreferences.OnSharedPreferenceChangeListener;
-import android.database.Cursor;
 import android.graphics.drawable.AnimatedVectorDrawable;
 import android.location.LocationManager;
 import android.os.Bundle;
 import android.provider.Settings;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
@@ -34,6 +35,7 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.content.res.AppCompatResources;
 import androidx.core.content.ContextCompat;
+import androidx.lifecycle.ViewModelProvider;
 import androidx.recyclerview.widget.ItemTouchHelper;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
@@ -45,7 +47,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Objects;
 
-import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.databinding.TrackListBinding;
 import de.dennisguse.opentracks.sensors.GpsStatusValue;
@@ -58,6 +59,7 @@ import de.dennisguse.opentracks.settings.SettingsActivity;
 import de.dennisguse.opentracks.settings.UnitSystem;
 import de.dennisguse.opentracks.share.ShareUtils;
 import de.dennisguse.opentracks.ui.TrackListAdapter;
+import de.dennisguse.opentracks.ui.TrackListModel;
 import de.dennisguse.opentracks.ui.aggregatedStatistics.AggregatedStatisticsActivity;
 import de.dennisguse.opentracks.ui.aggregatedStatistics.ConfirmDeleteDialogFragment;
 import de.dennisguse.opentracks.ui.markers.MarkerListActivity;
@@ -79,6 +81,7 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
     // The following are set in onCreate
     private TrackRecordingServiceConnection recordingStatusConnection;
     private TrackListAdapter adapter;
+    private TrackListModel trackListModel;
 
     private TrackListBinding viewBinding;
 
@@ -129,9 +132,16 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         }
     };
 
-    // Menu items
-
-    private String searchQuery;
+    // Load the next page if the last loaded tracks become visible.
+    private final RecyclerView.OnScrollListener onScrollListener = new RecyclerView.OnScrollListener() {
+        @Override
+        public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+            LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+            if (layoutManager != null && layoutManager.findLastVisibleItemPosition() >= adapter.getItemCount() - TrackListModel.PAGE_SIZE / 4) {
+                trackListModel.loadMore();
+            }
+        }
+    };
 
     private final TrackRecordingServiceConnection.Callback bindChangedCallback = (service, unused) -> {
         service.getRecordingStatusObservable()
@@ -170,6 +180,10 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
         adapter = new TrackListAdapter(this, viewBinding.trackList, recordingStatus, unitSystem);
         viewBinding.trackList.setLayoutManager(layoutManager);
         viewBinding.trackList.setAdapter(adapter);
+        viewBinding.trackList.addOnScrollListener(onScrollListener);
+
+        trackListModel = new ViewModelProvider(this).get(TrackListModel.class);
+        trackListModel.getTracks().observe(this, tracks -> adapter.swapData(tracks));
 
         ItemTouchHelper itemTouchhelper = new ItemTouchHelper(new RecyclerViewSwipeDeleteCallback(this) {
             @Override
@@ -258,10 +272,26 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
     protected View createRootView() {
         viewBinding = TrackListBinding.inflate(getLayoutInflater());
 
+        viewBinding.trackListSearchView.getEditText().addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+            }
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                if (viewBinding.trackListSearchView.isShowing()) {
+                    trackListModel.search(s.toString());
+                }
+            }
+        });
         viewBinding.trackListSearchView.getEditText().setOnEditorActionListener((v, actionId, event) -> {
-            searchQuery = viewBinding.trackListSearchView.getEditText().getText().toString();
+            trackListModel.searchNow(viewBinding.trackListSearchView.getEditText().getText().toString());
             viewBinding.trackListSearchView.hide();
-            loadData();
+            updateToolbar();
             return true;
         });
 
@@ -307,13 +337,14 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
     }
 
     private void loadData() {
-        viewBinding.trackListToolbar.setText(searchQuery);
+        updateToolbar();
+        trackListModel.reload();
+    }
 
+    private void updateToolbar() {
+        String searchQuery = trackListModel.getSearchQuery();
+        viewBinding.trackListToolbar.setText(searchQuery);
         viewBinding.trackListToolbar.setTitle(Objects.requireNonNullElseGet(searchQuery, () -> getString(R.string.app_name)));
-
-        Cursor tracks = new ContentProviderUtils(this).searchTracks(searchQuery);
-
-        adapter.swapData(tracks);
     }
 
     @Override
@@ -329,7 +360,7 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
 
     @Override
     public void onDeleteFinished() {
-        // Do nothing
+        trackListModel.reload();
     }
 
     @Nullable
@@ -402,6 +433,7 @@ public class TrackListActivity extends AbstractTrackDeleteActivity implements Co
 
         if (itemId == R.id.list_context_menu_select_all) {
             adapter.setAllSelected(true);
+            trackListModel.loadAll();
             return false;
         }
 
@@ -270,7 +270,7 @@ public class TrackRecordingActivity extends AbstractActivity implements ChooseAc
         }
 
         if (item.getItemId() == R.id.track_detail_insert_marker) {
-            TrackPoint trackPoint = trackRecordingServiceConnection.getTrackRecordingService().getLastStoredTrackPointWithLocation();
+            TrackPoint trackPoint = trackRecordingServiceConnection.getTrackRecordingService().getTrackPointForMarker();
             if (trackPoint == null) {
                 return true;
             }
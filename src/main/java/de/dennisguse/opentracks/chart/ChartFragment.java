@@ -26,6 +26,7 @@ import android.view.ViewGroup;
 import androidx.annotation.NonNull;
 import androidx.fragment.app.Fragment;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -48,10 +49,13 @@ import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
  * @author Sandor Dornbush
  * @author Rodrigo Damazio
  */
-public class ChartFragment extends Fragment implements TrackDataHub.Listener {
+public class ChartFragment extends Fragment implements TrackDataHub.Listener, ChartView.ZoomListener {
 
     private static final String KEY_CHART_VIEW_BY_DISTANCE_KEY = "chartViewByDistance";
 
+    // Zooming in is done in steps; only load the details for the last one.
+    private static final Duration LOAD_DETAILS_DELAY = Duration.ofMillis(500);
+
     public static ChartFragment newInstance(boolean chartByDistance) {
         Bundle bundle = new Bundle();
         bundle.putBoolean(KEY_CHART_VIEW_BY_DISTANCE_KEY, chartByDistance);
@@ -70,6 +74,16 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
     // Modes of operation
     private boolean chartByDistance;
 
+    // Details loaded for zooming in; updated on the TrackDataHub's thread and the UI thread.
+    private volatile boolean hasSampledOutTrackPoints = false;
+    private volatile int detailsNumPoints = 0;
+    private final Runnable loadDetails = () -> {
+        TrackDataHub trackDataHub = getTrackDataHub();
+        if (trackDataHub != null) {
+            trackDataHub.loadTrackPoints(this, detailsNumPoints);
+        }
+    };
+
     private ChartBinding viewBinding;
 
     private final SharedPreferences.OnSharedPreferenceChangeListener sharedPreferenceChangeListener = new SharedPreferences.OnSharedPreferenceChangeListener() {
@@ -145,6 +159,7 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
     public View onCreateView(@NonNull LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         viewBinding = ChartBinding.inflate(inflater, container, false);
         viewBinding.chartView.setChartByDistance(chartByDistance);
+        viewBinding.chartView.setZoomListener(this);
         return viewBinding.getRoot();
     }
 
@@ -162,6 +177,7 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
     @Override
     public void onPause() {
         super.onPause();
+        viewBinding.chartView.removeCallbacks(loadDetails);
         pauseTrackDataHub();
         PreferencesUtils.unregisterOnSharedPreferenceChangeListener(sharedPreferenceChangeListener);
     }
@@ -193,6 +209,8 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
     public void clearTrackPoints() {
         if (isResumed()) {
             pendingPoints.clear();
+            hasSampledOutTrackPoints = false;
+            detailsNumPoints = 0;
             viewBinding.chartView.reset();
             runOnUiThread(() -> {
                 if (isResumed()) {
@@ -202,6 +220,31 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
         }
     }
 
+    @Override
+    public void clearTrackPointsForResampling() {
+        if (isResumed()) {
+            pendingPoints.clear();
+            hasSampledOutTrackPoints = false;
+            viewBinding.chartView.clearChartPoints();
+        }
+    }
+
+    @Override
+    public void onZoomIn(int targetNumPoints) {
+        // Without sampled out TrackPoints, all TrackPoints are already shown.
+        if (!hasSampledOutTrackPoints || targetNumPoints <= detailsNumPoints) {
+            return;
+        }
+        detailsNumPoints = targetNumPoints;
+        viewBinding.chartView.removeCallbacks(loadDetails);
+        viewBinding.chartView.postDelayed(loadDetails, LOAD_DETAILS_DELAY.toMillis());
+    }
+
+    @Override
+    public void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint) {
+        hasSampledOutTrackPoints = true;
+    }
+
     public void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
         if (isResumed()) {
             ChartPoint point = ChartPoint.create(trackStatistics, trackPoint, trackPoint.getSpeed(), chartByDistance, viewBinding.chartView.getUnitSystem());
@@ -278,6 +321,10 @@ public class ChartFragment extends Fragment implements TrackDataHub.Listener {
         return trackDataHub != null && trackDataHub.isSelectedTrackRecording();
     }
 
+    private synchronized TrackDataHub getTrackDataHub() {
+        return trackDataHub;
+    }
+
     /**
      * Runs a runnable on the UI thread if possible.
      *
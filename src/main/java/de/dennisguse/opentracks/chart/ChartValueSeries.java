@@ -27,6 +27,7 @@ import androidx.annotation.NonNull;
 import androidx.core.content.ContextCompat;
 
 import java.text.NumberFormat;
+import java.util.Arrays;
 
 import de.dennisguse.opentracks.settings.UnitSystem;
 import de.dennisguse.opentracks.stats.ExtremityMonitor;
@@ -40,6 +41,8 @@ abstract class ChartValueSeries {
 
     private static final float STROKE_WIDTH = 2f;
 
+    private static final int INITIAL_CAPACITY = 1024;
+
     private final int absoluteMin;
     private final int absoluteMax;
     private final int[] intervalValues;
@@ -52,6 +55,12 @@ abstract class ChartValueSeries {
     private final Paint markerPaint;
     private final ExtremityMonitor extremityMonitor = new ExtremityMonitor();
     private final NumberFormat numberFormat = NumberFormat.getIntegerInstance();
+
+    // Valid data of this series (in order of insertion).
+    private double[] xValues = new double[INITIAL_CAPACITY];
+    private final MinMaxPyramid yValues = new MinMaxPyramid();
+
+    // Path in view coordinates of the visible data; closed along the x-axis.
     private final Path path = new Path();
 
     private int interval = 1;
@@ -117,11 +126,108 @@ abstract class ChartValueSeries {
 
     /**
      * Updates the series with a new {@link ChartPoint}.
+     * Only extends the data; {@link #updatePath(float, float, float, float, float, double, double, int)} must be called afterwards.
      */
     void update(ChartPoint chartPoint) {
-        if (isChartPointValid(chartPoint)) {
-            extremityMonitor.update(extractDataFromChartPoint(chartPoint));
+        Double value = extractDataFromChartPoint(chartPoint);
+        if (value == null) {
+            return;
+        }
+
+        extremityMonitor.update(value);
+
+        int size = yValues.size();
+        if (size == xValues.length) {
+            xValues = Arrays.copyOf(xValues, size * 2);
+        }
+        xValues[size] = chartPoint.timeOrDistance();
+        yValues.add(value);
+    }
+
+    /**
+     * Clears all data.
+     */
+    void reset() {
+        extremityMonitor.reset();
+        yValues.clear();
+        path.rewind();
+    }
+
+    int size() {
+        return yValues.size();
+    }
+
+    double getX(int index) {
+        return xValues[index];
+    }
+
+    double getY(int index) {
+        return yValues.get(index);
+    }
+
+    /**
+     * Updates the path in view coordinates for the data within [xMin, xMax] (plus the neighbours to reach the borders).
+     * viewX = x * scaleX + translateX and viewY = y * scaleY + translateY.
+     * If there is more data than maxBuckets, the minimum and maximum of consecutive data is used (see {@link MinMaxPyramid}).
+     *
+     * @param yBottom    the view coordinate of the x-axis; the path is closed along it.
+     * @param maxBuckets usually the visible width in pixel.
+     */
+    void updatePath(float scaleX, float translateX, float scaleY, float translateY, float yBottom, double xMin, double xMax, int maxBuckets) {
+        path.rewind();
+        int size = yValues.size();
+        if (size == 0) {
+            return;
+        }
+
+        int from = Math.max(0, lowerBound(xMin, size) - 1);
+        int to = Math.min(size, lowerBound(Math.nextUp(xMax), size) + 1);
+        int level = yValues.getLevel(to - from, maxBuckets);
+        if (level > 0) {
+            from = (from >> level) << level;
+        }
+
+        float firstX = (float) (xValues[from] * scaleX + translateX);
+        float lastX = firstX;
+        path.moveTo(firstX, yBottom);
+        if (level == 0) {
+            for (int i = from; i < to; i++) {
+                lastX = (float) (xValues[i] * scaleX + translateX);
+                path.lineTo(lastX, (float) (yValues.get(i) * scaleY + translateY));
+            }
+        } else {
+            for (int bucket = from >> level; bucket <= (to - 1) >> level; bucket++) {
+                // Minimum and maximum in the order of the data; otherwise, the path jumps back and forth.
+                int minIndex = yValues.getMinIndex(level, bucket);
+                int maxIndex = yValues.getMaxIndex(level, bucket);
+                int first = Math.min(minIndex, maxIndex);
+                int second = Math.max(minIndex, maxIndex);
+                path.lineTo((float) (xValues[first] * scaleX + translateX), (float) (yValues.get(first) * scaleY + translateY));
+                lastX = (float) (xValues[second] * scaleX + translateX);
+                path.lineTo(lastX, (float) (yValues.get(second) * scaleY + translateY));
+            }
+        }
+
+        // Close the path: lower right corner, back to lower left corner
+        path.lineTo(lastX, yBottom);
+        path.close();
+    }
+
+    /**
+     * @return index of the first x-value that is not smaller than x (or size)
+     */
+    private int lowerBound(double x, int size) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (xValues[mid] < x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
         }
+        return low;
     }
 
     abstract Double extractDataFromChartPoint(@NonNull ChartPoint chartPoint);
@@ -23,7 +23,6 @@ import android.graphics.DashPathEffect;
 import android.graphics.Paint;
 import android.graphics.Paint.Align;
 import android.graphics.Paint.Style;
-import android.graphics.Path;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
 import android.util.AttributeSet;
@@ -91,7 +90,9 @@ public class ChartView extends View {
     private final ChartValueSeries paceSeries;
     private final ChartValueSeries heartRateSeries;
 
-    private final LinkedList<ChartPoint> chartPoints = new LinkedList<>();
+    // Guards the data of all ChartValueSeries; the data itself is stored in the ChartValueSeries.
+    private final Object chartPointsLock = new Object();
+    private ChartPoint lastChartPoint;
     private final List<Marker> markers = new LinkedList<>();
     private final ExtremityMonitor xExtremityMonitor = new ExtremityMonitor();
     private final int backgroundColor;
@@ -107,6 +108,10 @@ public class ChartView extends View {
     private double maxX = 1.0;
     private int zoomLevel = 1;
 
+    // The paths of the series only contain the visible data and are updated lazily in onDraw().
+    private boolean seriesOutdated = true;
+    private int seriesScrollX = 0;
+
     private int leftBorder = BORDER;
     private int topBorder = BORDER;
     private int bottomBorder = BORDER;
@@ -128,6 +133,8 @@ public class ChartView extends View {
     private boolean showPaceOrSpeed = true;
     private boolean showPointer = false;
 
+    private ZoomListener zoomListener;
+
     private final GestureDetectorCompat detectorScrollFlingTab = new GestureDetectorCompat(getContext(), new GestureDetector.SimpleOnGestureListener() {
 
         @Override
@@ -437,9 +444,9 @@ public class ChartView extends View {
     }
 
     public void addChartPoints(List<ChartPoint> dataPoints) {
-        synchronized (chartPoints) {
-            chartPoints.addAll(dataPoints);
+        synchronized (chartPointsLock) {
             for (ChartPoint dataPoint : dataPoints) {
+                lastChartPoint = dataPoint;
                 xExtremityMonitor.update(dataPoint.timeOrDistance());
                 for (ChartValueSeries i : seriesList) {
                     i.update(dataPoint);
@@ -454,14 +461,32 @@ public class ChartView extends View {
      * Clears all data.
      */
     public void reset() {
-        synchronized (chartPoints) {
-            chartPoints.clear();
+        synchronized (chartPointsLock) {
+            lastChartPoint = null;
+            seriesList.forEach(ChartValueSeries::reset);
             xExtremityMonitor.reset();
             zoomLevel = 1;
             updateDimensions();
         }
     }
 
+    /**
+     * Clears the data, but keeps zoom and scroll position (e.g., to load the data with more details).
+     */
+    public void clearChartPoints() {
+        synchronized (chartPointsLock) {
+            lastChartPoint = null;
+            seriesList.forEach(ChartValueSeries::reset);
+            xExtremityMonitor.reset();
+            updateDimensions();
+            updateSeries();
+        }
+    }
+
+    public void setZoomListener(ZoomListener zoomListener) {
+        this.zoomListener = zoomListener;
+    }
+
     /**
      * Resets scroll.
      * To be called on the UI thread.
@@ -495,6 +520,10 @@ public class ChartView extends View {
             zoomLevel++;
             updateSeries();
             invalidate();
+            if (zoomListener != null) {
+                // At most two values per pixel are drawn (see ChartValueSeries.updatePath()).
+                zoomListener.onZoomIn(2 * effectiveWidth * zoomLevel);
+            }
         }
     }
 
@@ -591,7 +620,13 @@ public class ChartView extends View {
 
     @Override
     protected void onDraw(Canvas canvas) {
-        synchronized (chartPoints) {
+        synchronized (chartPointsLock) {
+            if (seriesOutdated || seriesScrollX != getScrollX()) {
+                seriesScrollX = getScrollX();
+                seriesList.forEach(this::updateSerie);
+                seriesOutdated = false;
+            }
+
             canvas.save();
 
             canvas.drawColor(backgroundColor);
@@ -871,10 +906,10 @@ public class ChartView extends View {
     }
 
     private void drawPointer(Canvas canvas) {
-        if (chartPoints.isEmpty()) {
+        if (lastChartPoint == null) {
             return;
         }
-        ChartPoint last = chartPoints.getLast();
+        ChartPoint last = lastChartPoint;
 
         ChartValueSeries firstChartValueSeries = null;
         for (ChartValueSeries chartValueSeries : seriesList) {
@@ -883,7 +918,7 @@ public class ChartView extends View {
                 break;
             }
         }
-        if (firstChartValueSeries != null && chartPoints.size() > 0) {
+        if (firstChartValueSeries != null) {
             int dx = getX(maxX) - pointer.getIntrinsicWidth() / 2;
             double value = firstChartValueSeries.extractDataFromChartPoint(last);
             int dy = getY(firstChartValueSeries, value) - pointer.getIntrinsicHeight();
@@ -893,51 +928,31 @@ public class ChartView extends View {
     }
 
     /**
-     * The path needs to be updated any time after the data or the dimensions change.
+     * The path needs to be updated any time after the data, the zoom level, or the dimensions change.
+     * Scrolling is detected in onDraw().
      */
     private void updateSeries() {
-        synchronized (chartPoints) {
-            seriesList.stream().forEach(this::updateSerie);
+        synchronized (chartPointsLock) {
+            seriesOutdated = true;
         }
     }
 
+    /**
+     * Creates the series' path for the visible data in view coordinates (see {@link #getX(double)} and {@link #getY(ChartValueSeries, double)}).
+     * Draw cost is thus independent of the amount of data and the zoom level.
+     */
     private void updateSerie(ChartValueSeries series) {
         final int yCorner = topBorder + effectiveHeight;
-        final Path path = series.getPath();
-
-        boolean drawFirstPoint = false;
-        path.rewind();
-
-        Integer finalX = null;
-
-        for (ChartPoint point : chartPoints) {
-            if (!series.isChartPointValid(point)) {
-                continue;
-            }
-
-            double value = series.extractDataFromChartPoint(point);
-            int x = getX(point.timeOrDistance());
-            int y = getY(series, value);
-
-            // start from lower left corner
-            if (!drawFirstPoint) {
-                path.moveTo(x, yCorner);
-                drawFirstPoint = true;
-            }
-
-            // draw graph
-            path.lineTo(x, y);
+        double effectiveSpread = series.getInterval() * Y_AXIS_INTERVALS;
+        int rangeHeight = effectiveHeight - 2 * yAxisOffset;
 
-            finalX = x;
-        }
+        float scaleX = maxX > 0 ? (float) (effectiveWidth * zoomLevel / maxX) : 0;
+        float scaleY = (float) (-rangeHeight / effectiveSpread);
+        float translateY = (float) (topBorder + yAxisOffset + rangeHeight * (1 + series.getMinMarkerValue() / effectiveSpread));
 
-        // last point: move to lower right
-        if (finalX != null) {
-            path.lineTo(finalX, yCorner);
-        }
-
-        // back to lower left corner
-        path.close();
+        double visibleXMin = scaleX > 0 ? seriesScrollX / scaleX : Double.NEGATIVE_INFINITY;
+        double visibleXMax = scaleX > 0 ? (seriesScrollX + effectiveWidth) / scaleX : Double.POSITIVE_INFINITY;
+        series.updatePath(scaleX, leftBorder, scaleY, translateY, yCorner, visibleXMin, visibleXMax, effectiveWidth);
     }
 
     /// expected number of Y-axis markers on the first line if the Y-axis markers are split to two lines
@@ -1053,10 +1068,17 @@ public class ChartView extends View {
      * Returns true if the index is allowed when the chartData is empty.
      */
     private boolean allowIfEmpty(ChartValueSeries chartValueSeries) {
-        if (!chartPoints.isEmpty()) {
+        if (lastChartPoint != null) {
             return false;
         }
 
         return chartValueSeries.drawIfChartPointHasNoData();
     }
+
+    public interface ZoomListener {
+        /**
+         * @param targetNumPoints number of data points that provide all details at this zoom level.
+         */
+        void onZoomIn(int targetNumPoints);
+    }
 }
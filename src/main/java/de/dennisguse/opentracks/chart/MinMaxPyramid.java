@@ -0,0 +1,131 @@
+package de.dennisguse.opentracks.chart;
+
+import java.util.Arrays;
+
+/**
+ * Append-only series of values with the minimum and maximum of buckets of 2^level consecutive values.
+ * Level 0 are the values themselves; a new level is added once the previous level has two buckets.
+ * The positions of the minimum and maximum are kept, so they can be drawn in the order of the values.
+ * <p>
+ * Allows to draw any range of the series with about one bucket per pixel (like waveforms).
+ */
+class MinMaxPyramid {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private double[] values = new double[INITIAL_CAPACITY];
+    // Indexed by level (level 0 is not used); index of the minimum and maximum value of each bucket.
+    private int[][] minIndex = new int[1][];
+    private int[][] maxIndex = new int[1][];
+    private int levels = 1;
+    private int size = 0;
+
+    void add(double value) {
+        int index = size;
+        if (index == values.length) {
+            values = Arrays.copyOf(values, index * 2);
+        }
+        values[index] = value;
+        size++;
+
+        for (int level = 1; level < levels; level++) {
+            int bucket = index >> level;
+            if ((index & ((1 << level) - 1)) == 0) {
+                if (bucket == minIndex[level].length) {
+                    minIndex[level] = Arrays.copyOf(minIndex[level], bucket * 2);
+                    maxIndex[level] = Arrays.copyOf(maxIndex[level], bucket * 2);
+                }
+                minIndex[level][bucket] = index;
+                maxIndex[level][bucket] = index;
+            } else {
+                if (value < values[minIndex[level][bucket]]) {
+                    minIndex[level][bucket] = index;
+                }
+                if (value > values[maxIndex[level][bucket]]) {
+                    maxIndex[level][bucket] = index;
+                }
+            }
+        }
+
+        if (size == 1 << levels) {
+            addLevel();
+        }
+    }
+
+    /**
+     * The new level's first bucket covers all values: the two buckets of the previous level.
+     */
+    private void addLevel() {
+        int previous = levels - 1;
+        minIndex = Arrays.copyOf(minIndex, levels + 1);
+        maxIndex = Arrays.copyOf(maxIndex, levels + 1);
+        minIndex[levels] = new int[INITIAL_CAPACITY];
+        maxIndex[levels] = new int[INITIAL_CAPACITY];
+        int min0 = getMinIndex(previous, 0);
+        int min1 = getMinIndex(previous, 1);
+        int max0 = getMaxIndex(previous, 0);
+        int max1 = getMaxIndex(previous, 1);
+        minIndex[levels][0] = values[min1] < values[min0] ? min1 : min0;
+        maxIndex[levels][0] = values[max1] > values[max0] ? max1 : max0;
+        levels++;
+    }
+
+    void clear() {
+        minIndex = new int[1][];
+        maxIndex = new int[1][];
+        levels = 1;
+        size = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int getLevels() {
+        return levels;
+    }
+
+    double get(int index) {
+        return values[index];
+    }
+
+    /**
+     * @return index of the (first) minimum of the values [bucket * 2^level, (bucket + 1) * 2^level)
+     */
+    int getMinIndex(int level, int bucket) {
+        return level == 0 ? bucket : minIndex[level][bucket];
+    }
+
+    /**
+     * @return index of the (first) maximum of the values [bucket * 2^level, (bucket + 1) * 2^level)
+     */
+    int getMaxIndex(int level, int bucket) {
+        return level == 0 ? bucket : maxIndex[level][bucket];
+    }
+
+    /**
+     * @return minimum of the values [bucket * 2^level, (bucket + 1) * 2^level)
+     */
+    double getMin(int level, int bucket) {
+        return values[getMinIndex(level, bucket)];
+    }
+
+    /**
+     * @return maximum of the values [bucket * 2^level, (bucket + 1) * 2^level)
+     */
+    double getMax(int level, int bucket) {
+        return values[getMaxIndex(level, bucket)];
+    }
+
+    /**
+     * @return the lowest level for which the given number of values result in at most maxBuckets buckets.
+     */
+    int getLevel(int numberOfValues, int maxBuckets) {
+        if (maxBuckets <= 0) {
+            return levels - 1;
+        }
+        int bucketSize = (numberOfValues + maxBuckets - 1) / maxBuckets;
+        int level = bucketSize <= 1 ? 0 : 32 - Integer.numberOfLeadingZeros(bucketSize - 1);
+        return Math.min(level, levels - 1);
+    }
+}
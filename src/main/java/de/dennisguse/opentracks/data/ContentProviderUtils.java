@@ -16,12 +16,19 @@
 
 package de.dennisguse.opentracks.data;
 
+import android.content.ContentProviderOperation;
 import android.content.ContentResolver;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.sqlite.SQLiteException;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
+import android.os.RemoteException;
 import android.text.TextUtils;
 
 import androidx.annotation.NonNull;
@@ -36,6 +43,7 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 import de.dennisguse.opentracks.BuildConfig;
@@ -51,6 +59,8 @@ import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.SearchIndexColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointBlocksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.stats.SensorStatistics;
@@ -76,6 +86,17 @@ public class ContentProviderUtils {
 
     private static final String ID_SEPARATOR = ",";
 
+    // Excludes incomplete tracks (see insertIncompleteTrack()).
+    private static final String SELECTION_COMPLETE_TRACKS = TracksColumns.UUID + " IS NOT NULL";
+
+    // Query parameter to limit the number of returned rows (only for tracks).
+    public static final String QUERY_PARAMETER_LIMIT = "limit";
+
+    // Methods of the content provider (see ContentResolver.call()); the argument is the track id.
+    static final String METHOD_ARCHIVE_TRACKPOINTS = "archiveTrackPoints";
+    static final String METHOD_RESTORE_TRACKPOINTS = "restoreTrackPoints";
+    static final String RESULT_COUNT = "count";
+
     private final ContentResolver contentResolver;
 
     public interface ContentProviderSelectionInterface {
@@ -193,6 +214,26 @@ public class ContentProviderUtils {
         contentResolver.delete(TracksColumns.CONTENT_URI, whereClause, trackIds.stream().map(trackId -> Long.toString(trackId.id())).toArray(String[]::new));
     }
 
+    /**
+     * Deletes incomplete tracks (see {@link #insertIncompleteTrack()}), i.e., left over if the app was killed while importing.
+     * Tracks inserted since insertedBefore are kept as they might still be imported.
+     *
+     * @return the number of deleted tracks
+     */
+    public int deleteIncompleteTracks(Context context, @NonNull Instant insertedBefore) {
+        String selection = TracksColumns.UUID + " IS NULL AND (" + TracksColumns.STARTTIME + " IS NULL OR " + TracksColumns.STARTTIME + " < ?)";
+        List<Track.Id> trackIds = new ArrayList<>();
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, new String[]{TracksColumns._ID}, selection, new String[]{Long.toString(insertedBefore.toEpochMilli())}, null)) {
+            while (cursor != null && cursor.moveToNext()) {
+                trackIds.add(new Track.Id(cursor.getLong(0)));
+            }
+        }
+        if (!trackIds.isEmpty()) {
+            deleteTracks(context, trackIds);
+        }
+        return trackIds.size();
+    }
+
     public void deleteTrack(Context context, @NonNull Track.Id trackId) {
         // Delete track folder resources.
         FileUtils.deleteDirectoryRecurse(FileUtils.getPhotoDir(context, trackId));
@@ -203,7 +244,7 @@ public class ContentProviderUtils {
     @VisibleForTesting
     public List<Track> getTracks() {
         ArrayList<Track> tracks = new ArrayList<>();
-        try (Cursor cursor = getTrackCursor(null, null, TracksColumns._ID)) {
+        try (Cursor cursor = getTrackCursor(SELECTION_COMPLETE_TRACKS, null, TracksColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 tracks.ensureCapacity(cursor.getCount());
                 do {
@@ -217,7 +258,8 @@ public class ContentProviderUtils {
     public List<Track> getTracks(ContentProviderSelectionInterface selection) {
         SelectionData selectionData = selection.buildSelection();
         ArrayList<Track> tracks = new ArrayList<>();
-        try (Cursor cursor = getTrackCursor(selectionData.selection(), selectionData.selectionArgs(), TracksColumns._ID)) {
+        String trackSelection = selectionData.selection() != null ? "(" + selectionData.selection() + ") AND " + SELECTION_COMPLETE_TRACKS : SELECTION_COMPLETE_TRACKS;
+        try (Cursor cursor = getTrackCursor(trackSelection, selectionData.selectionArgs(), TracksColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 tracks.ensureCapacity(cursor.getCount());
                 do {
@@ -229,9 +271,17 @@ public class ContentProviderUtils {
         return tracks;
     }
 
-    public Cursor searchTracks(String searchQuery) {
-        // Needed, because MARKER_COUNT is a virtual column and has to be explicitly requested.
-        // Used only be TrackListAdapter
+    /**
+     * Searches tracks ordered by start time (newest first); used by TrackListModel.
+     * Pages are loaded via keyset pagination (i.e., the start time and id of the last row of the previous page), so loading the next page does not scan the already loaded rows.
+     *
+     * @param searchQuery        the search query (see {@link #toSearchIndexQuery(String)}); null for all tracks
+     * @param afterStartTime     start time of the last row of the previous page; null if the previous page ended with a track without start time.
+     * @param afterTrackId       id of the last row of the previous page; null for the first page
+     * @param limit              the maximal number of rows; 0 for no limit
+     * @param cancellationSignal to cancel a running query; can be null
+     */
+    public Cursor searchTracks(@Nullable String searchQuery, @Nullable Instant afterStartTime, @Nullable Track.Id afterTrackId, int limit, @Nullable CancellationSignal cancellationSignal) {
         final String[] PROJECTION = new String[]{
                 TracksColumns._ID,
                 TracksColumns.NAME,
@@ -245,18 +295,40 @@ public class ContentProviderUtils {
                 TracksColumns.MARKER_COUNT,
         };
 
-        String selection = null;
-        String[] selectionArgs = null;
-        final String sortOrder = TracksColumns.STARTTIME + " DESC";
+        // Same order as the keyset condition: SQLite sorts NULL as the smallest value.
+        final String sortOrder = TracksColumns.STARTTIME + " DESC, " + TracksColumns._ID + " DESC";
+
+        List<String> selections = new ArrayList<>();
+        List<String> selectionArgs = new ArrayList<>();
+        selections.add(SELECTION_COMPLETE_TRACKS);
+
+        String searchIndexQuery = toSearchIndexQuery(searchQuery);
+        if (searchIndexQuery != null) {
+            selections.add(TracksColumns._ID + " IN (" + SearchIndexColumns.TRACKS_SELECT_MATCHING_IDS + ")");
+            selectionArgs.add(searchIndexQuery);
+        }
+
+        if (afterTrackId != null) {
+            String trackId = Long.toString(afterTrackId.id());
+            if (afterStartTime != null) {
+                String startTime = Long.toString(afterStartTime.toEpochMilli());
+                selections.add("(" + TracksColumns.STARTTIME + " < ? OR (" + TracksColumns.STARTTIME + " = ? AND " + TracksColumns._ID + " < ?) OR " + TracksColumns.STARTTIME + " IS NULL)");
+                selectionArgs.add(startTime);
+                selectionArgs.add(startTime);
+                selectionArgs.add(trackId);
+            } else {
+                selections.add("(" + TracksColumns.STARTTIME + " IS NULL AND " + TracksColumns._ID + " < ?)");
+                selectionArgs.add(trackId);
+            }
+        }
 
-        if (searchQuery != null) {
-            selection = TracksColumns.NAME + " LIKE ? OR " +
-                    TracksColumns.DESCRIPTION + " LIKE ? OR " +
-                    TracksColumns.ACTIVITY_TYPE_LOCALIZED + " LIKE ?";
-            selectionArgs = new String[]{"%" + searchQuery + "%", "%" + searchQuery + "%", "%" + searchQuery + "%"};
+        Uri uri = TracksColumns.CONTENT_URI;
+        if (limit > 0) {
+            uri = uri.buildUpon().appendQueryParameter(QUERY_PARAMETER_LIMIT, Integer.toString(limit)).build();
         }
 
-        return contentResolver.query(TracksColumns.CONTENT_URI, PROJECTION, selection, selectionArgs, sortOrder);
+        String selection = TextUtils.join(" AND ", selections);
+        return contentResolver.query(uri, PROJECTION, selection, selectionArgs.toArray(new String[0]), sortOrder, cancellationSignal);
     }
 
     public Track getTrack(@NonNull Track.Id trackId) {
@@ -269,8 +341,8 @@ public class ContentProviderUtils {
     }
 
     public Track getTrack(@NonNull UUID trackUUID) {
-        String trackUUIDsearch = UUIDUtils.toHex(trackUUID);
-        try (Cursor cursor = getTrackCursor("hex(" + TracksColumns.UUID + ")=?", new String[]{trackUUIDsearch}, null)) {
+        // Selection arguments are always bound as TEXT; so, the UUID is compared as BLOB literal (uses tracks_uuid_index).
+        try (Cursor cursor = getTrackCursor(TracksColumns.UUID + "=X'" + UUIDUtils.toHex(trackUUID) + "'", null, null)) {
             if (cursor != null && cursor.moveToNext()) {
                 return createTrack(cursor);
             }
@@ -278,6 +350,156 @@ public class ContentProviderUtils {
         return null;
     }
 
+    /**
+     * @return the tracks with this fingerprint (see {@link TrackFingerprint}).
+     */
+    public List<Track.Id> getTrackIds(long fingerprint) {
+        List<Track.Id> trackIds = new ArrayList<>();
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, new String[]{TracksColumns._ID}, TracksColumns.FINGERPRINT + "=?", new String[]{Long.toString(fingerprint)}, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    trackIds.add(new Track.Id(cursor.getLong(0)));
+                }
+            }
+        }
+        return trackIds;
+    }
+
+    /**
+     * Computes the fingerprint from the stored TrackPoints; only the sampled locations are read.
+     *
+     * @return {@link TrackFingerprint#NONE} if the track has no locations.
+     */
+    public long computeFingerprint(@NonNull Track.Id trackId) {
+        if (isArchived(trackId)) {
+            return computeArchivedFingerprint(trackId);
+        }
+
+        String trackIdArg = Long.toString(trackId.id());
+        String locationSelection = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.LATITUDE + " IS NOT NULL AND " + TrackPointsColumns.LONGITUDE + " IS NOT NULL";
+
+        int count;
+        try (Cursor cursor = getTrackPointCursor(new String[]{"COUNT(*)"}, locationSelection, new String[]{trackIdArg}, null)) {
+            count = cursor != null && cursor.moveToFirst() ? cursor.getInt(0) : 0;
+        }
+        if (count == 0) {
+            return TrackFingerprint.NONE;
+        }
+
+        // One row per distinct position in ascending order.
+        int[] positions = TrackFingerprint.getSamplePositions(count);
+        String samplePosition = "SELECT " + TrackPointsColumns._ID + " FROM (SELECT " + TrackPointsColumns._ID + " FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + locationSelection + " ORDER BY " + TrackPointsColumns._ID + " LIMIT 1 OFFSET ?)";
+        String selection = TrackPointsColumns._ID + " IN (" + TextUtils.join(" UNION ALL ", Collections.nCopies(positions.length, samplePosition)) + ")";
+        String[] selectionArgs = new String[positions.length * 2];
+        for (int i = 0; i < positions.length; i++) {
+            selectionArgs[2 * i] = trackIdArg;
+            selectionArgs[2 * i + 1] = Integer.toString(positions[i]);
+        }
+
+        long startTime = 0;
+        int[] latitudes = new int[positions.length];
+        int[] longitudes = new int[positions.length];
+        try (Cursor cursor = getTrackPointCursor(TrackFingerprint.PROJECTION, selection, selectionArgs, TrackPointsColumns._ID)) {
+            for (int i = 0; i < positions.length; i++) {
+                if (i == 0 || positions[i] != positions[i - 1]) {
+                    cursor.moveToNext();
+                }
+                if (i == 0) {
+                    startTime = cursor.getLong(0);
+                }
+                latitudes[i] = cursor.getInt(1);
+                longitudes[i] = cursor.getInt(2);
+            }
+        }
+        return TrackFingerprint.compute(startTime, count, latitudes, longitudes);
+    }
+
+    /**
+     * Same as {@link #computeFingerprint(Track.Id)} for archived track points: decodes the track twice (counting, sampling).
+     * Only needed if the fingerprint was reset after archiving (e.g., stored before fingerprints were introduced).
+     */
+    private long computeArchivedFingerprint(@NonNull Track.Id trackId) {
+        int count = 0;
+        try (TrackPointIterator trackPointIterator = getTrackPointIterator(trackId, null, Set.of(TrackPointIterator.Field.LOCATION))) {
+            while (trackPointIterator.hasNext()) {
+                if (trackPointIterator.next().hasLocation()) {
+                    count++;
+                }
+            }
+        }
+        if (count == 0) {
+            return TrackFingerprint.NONE;
+        }
+
+        int[] positions = TrackFingerprint.getSamplePositions(count);
+        long startTime = 0;
+        int[] latitudes = new int[positions.length];
+        int[] longitudes = new int[positions.length];
+        try (TrackPointIterator trackPointIterator = getTrackPointIterator(trackId, null, Set.of(TrackPointIterator.Field.LOCATION))) {
+            int position = 0;
+            int sample = 0;
+            while (trackPointIterator.hasNext() && sample < positions.length) {
+                TrackPoint trackPoint = trackPointIterator.next();
+                if (!trackPoint.hasLocation()) {
+                    continue;
+                }
+                if (position == 0) {
+                    startTime = trackPoint.getTime().toEpochMilli();
+                }
+                while (sample < positions.length && positions[sample] == position) {
+                    latitudes[sample] = (int) Math.round(trackPoint.getPosition().latitude() * 1E6);
+                    longitudes[sample] = (int) Math.round(trackPoint.getPosition().longitude() * 1E6);
+                    sample++;
+                }
+                position++;
+            }
+        }
+        return TrackFingerprint.compute(startTime, count, latitudes, longitudes);
+    }
+
+    /**
+     * @return if the track points are archived (see {@link #archiveTrackPoints(Track.Id)}).
+     */
+    private boolean isArchived(@NonNull Track.Id trackId) {
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, new String[]{TracksColumns.ARCHIVED}, TracksColumns._ID + "=?", new String[]{Long.toString(trackId.id())}, null)) {
+            return cursor != null && cursor.moveToFirst() && cursor.getInt(0) == 1;
+        }
+    }
+
+    /**
+     * Stores the fingerprint; it is reset if further TrackPoints are inserted.
+     */
+    public void updateFingerprint(@NonNull Track.Id trackId, long fingerprint) {
+        ContentValues values = new ContentValues();
+        values.put(TracksColumns.FINGERPRINT, fingerprint);
+        contentResolver.update(TracksColumns.CONTENT_URI, values, TracksColumns._ID + "=?", new String[]{Long.toString(trackId.id())});
+    }
+
+    /**
+     * Computes the fingerprints of all tracks without one (i.e., tracks stored before fingerprints were introduced).
+     * Only slow once; afterwards only few tracks are missing a fingerprint.
+     * Tracks without locations store {@link TrackFingerprint#NONE}; recording and incomplete tracks are skipped.
+     *
+     * @param excludeTrackId a track that is still being modified; can be null
+     */
+    public void updateMissingFingerprints(@Nullable Track.Id excludeTrackId) {
+        List<Track.Id> trackIds = new ArrayList<>();
+        try (Cursor cursor = contentResolver.query(TracksColumns.CONTENT_URI, new String[]{TracksColumns._ID}, TracksColumns.FINGERPRINT + " IS NULL AND " + SELECTION_COMPLETE_TRACKS, null, null)) {
+            if (cursor != null) {
+                while (cursor.moveToNext()) {
+                    trackIds.add(new Track.Id(cursor.getLong(0)));
+                }
+            }
+        }
+
+        for (Track.Id trackId : trackIds) {
+            if (trackId.equals(excludeTrackId)) {
+                continue;
+            }
+            updateFingerprint(trackId, computeFingerprint(trackId));
+        }
+    }
+
     /**
      * Gets a track cursor.
      * The caller owns the returned cursor and is responsible for closing it.
@@ -302,6 +524,19 @@ public class ContentProviderUtils {
         return new Track.Id(ContentUris.parseId(uri));
     }
 
+    /**
+     * Inserts an empty track without UUID (e.g., while its TrackPoints are imported).
+     * It is not listed until it is stored via {@link #updateTrack(Track)}; if that never happens, it is deleted by {@link #deleteIncompleteTracks(Context, Instant)}.
+     * Until then, the start time is the time of insertion.
+     */
+    public Track.Id insertIncompleteTrack() {
+        ContentValues values = new ContentValues();
+        values.putNull(TracksColumns.UUID);
+        values.put(TracksColumns.STARTTIME, System.currentTimeMillis());
+        Uri uri = contentResolver.insert(TracksColumns.CONTENT_URI, values);
+        return new Track.Id(ContentUris.parseId(uri));
+    }
+
     /**
      * Updates a track.
      * NOTE: This doesn't update any trackPoints.
@@ -598,17 +833,19 @@ public class ContentProviderUtils {
         String[] selectionArgs = null;
         String sortOrder = null;
 
-        if (query == null) {
+        String searchIndexQuery = toSearchIndexQuery(query);
+        if (searchIndexQuery == null) {
             if (trackId != null) {
                 selection = MarkerColumns.TRACKID + " = ?";
                 selectionArgs = new String[]{Long.toString(trackId.id())};
             }
         } else {
-            selection = MarkerColumns.NAME + " LIKE ? OR " +
-                    MarkerColumns.DESCRIPTION + " LIKE ? OR " +
-                    MarkerColumns.CATEGORY + " LIKE ?";
-            selectionArgs = new String[]{"%" + query + "%", "%" + query + "%", "%" + query + "%"};
-            sortOrder = MarkerColumns.DEFAULT_SORT_ORDER + " DESC";
+            selection = MarkerColumns._ID + " IN (" + SearchIndexColumns.MARKERS_SELECT_MATCHING_IDS + ")";
+            selectionArgs = new String[]{searchIndexQuery};
+            // Ranking: markers whose name matches first.
+            String nameQuery = DatabaseUtils.sqlEscapeString(toSearchIndexQuery(query, MarkerColumns.NAME));
+            sortOrder = MarkerColumns._ID + " IN (SELECT " + SearchIndexColumns.DOCID + " FROM " + SearchIndexColumns.MARKERS_TABLE_NAME + " WHERE " + SearchIndexColumns.MARKERS_TABLE_NAME + " MATCH " + nameQuery + ") DESC, "
+                    + MarkerColumns.DEFAULT_SORT_ORDER + " DESC";
         }
 
         ArrayList<Marker> markers = new ArrayList<>();
@@ -622,8 +859,47 @@ public class ContentProviderUtils {
         return markers;
     }
 
+    /**
+     * Creates a query for the full-text search index: every word of the search query must be a prefix of a word of the name, description, or activity type / category (case-insensitive and ignoring diacritics).
+     * Only letters and digits are used; everything else separates words.
+     *
+     * @return null if the search query does not contain any word.
+     */
+    @VisibleForTesting
+    @Nullable
+    static String toSearchIndexQuery(@Nullable String searchQuery) {
+        return toSearchIndexQuery(searchQuery, null);
+    }
+
+    /**
+     * @param column only match this column; null for all columns.
+     */
+    @Nullable
+    private static String toSearchIndexQuery(@Nullable String searchQuery, @Nullable String column) {
+        if (searchQuery == null) {
+            return null;
+        }
+
+        StringBuilder query = new StringBuilder();
+        for (String word : searchQuery.split("[^\\p{L}\\p{N}]+")) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            if (column != null) {
+                query.append(column).append(':');
+            }
+            // With *, words like OR, AND, NOT, or NEAR are not operators.
+            query.append(word).append('*');
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
     /**
      * Fills a {@link TrackPoint} from a cursor.
+     * Columns that are not part of the cursor's projection are not set.
      *
      * @param cursor  the cursor pointing to a trackPoint.
      * @param indexes the cached trackPoints indexes
@@ -634,32 +910,32 @@ public class ContentProviderUtils {
                 TrackPoint.Type.getById(cursor.getInt(indexes.typeIndex)),
                 new Position(
                         Instant.ofEpochMilli(cursor.getLong(indexes.timeIndex)),
-                        !cursor.isNull(indexes.latitudeIndex) ? ((double) cursor.getInt(indexes.latitudeIndex)) / 1E6 : null,
-                        !cursor.isNull(indexes.longitudeIndex) ? ((double) cursor.getInt(indexes.longitudeIndex)) / 1E6 : null,
-                        !cursor.isNull(indexes.accuracyIndex) ? Distance.of(cursor.getFloat(indexes.accuracyIndex)) : null,
-                        !cursor.isNull(indexes.altitudeIndex) ? Altitude.WGS84.of(cursor.getFloat(indexes.altitudeIndex)) : null,
-                        !cursor.isNull(indexes.accuracyVerticalIndex) ? Distance.of(cursor.getFloat(indexes.accuracyVerticalIndex)) : null,
-                        !cursor.isNull(indexes.bearingIndex) ? cursor.getFloat(indexes.bearingIndex) : null,
-                        !cursor.isNull(indexes.speedIndex) ? Speed.of(cursor.getFloat(indexes.speedIndex)) : null
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.latitudeIndex) ? ((double) cursor.getInt(indexes.latitudeIndex)) / 1E6 : null,
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.longitudeIndex) ? ((double) cursor.getInt(indexes.longitudeIndex)) / 1E6 : null,
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.accuracyIndex) ? Distance.of(cursor.getFloat(indexes.accuracyIndex)) : null,
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.altitudeIndex) ? Altitude.WGS84.of(cursor.getFloat(indexes.altitudeIndex)) : null,
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.accuracyVerticalIndex) ? Distance.of(cursor.getFloat(indexes.accuracyVerticalIndex)) : null,
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.bearingIndex) ? cursor.getFloat(indexes.bearingIndex) : null,
+                        !CachedTrackPointsIndexes.isNull(cursor, indexes.speedIndex) ? Speed.of(cursor.getFloat(indexes.speedIndex)) : null
                 ));
 
-        if (!cursor.isNull(indexes.sensorHeartRateIndex)) {
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorHeartRateIndex)) {
             trackPoint.setHeartRate(cursor.getFloat(indexes.sensorHeartRateIndex));
         }
-        if (!cursor.isNull(indexes.sensorCadenceIndex)) {
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorCadenceIndex)) {
             trackPoint.setCadence(cursor.getFloat(indexes.sensorCadenceIndex));
         }
-        if (!cursor.isNull(indexes.sensorDistanceIndex)) {
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorDistanceIndex)) {
             trackPoint.setSensorDistance(Distance.of(cursor.getFloat(indexes.sensorDistanceIndex)));
         }
-        if (!cursor.isNull(indexes.sensorPowerIndex)) {
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorPowerIndex)) {
             trackPoint.setPower(cursor.getFloat(indexes.sensorPowerIndex));
         }
 
-        if (!cursor.isNull(indexes.altitudeGainIndex)) {
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.altitudeGainIndex)) {
             trackPoint.setAltitudeGain(cursor.getFloat(indexes.altitudeGainIndex));
         }
-        if (!cursor.isNull(indexes.altitudeLossIndex)) {
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.altitudeLossIndex)) {
             trackPoint.setAltitudeLoss(cursor.getFloat(indexes.altitudeLossIndex));
         }
 
@@ -693,8 +969,17 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint.Id getLastTrackPointId(@NonNull Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
         String[] selectionArgs = new String[]{Long.toString(trackId.id())};
+        if (isArchived(trackId)) {
+            try (Cursor cursor = contentResolver.query(TrackPointBlocksColumns.CONTENT_URI, new String[]{TrackPointBlocksColumns.LAST_ID}, TrackPointBlocksColumns.TRACKID + "=?", selectionArgs, TrackPointBlocksColumns._ID + " DESC")) {
+                if (cursor != null && cursor.moveToFirst()) {
+                    return new TrackPoint.Id(cursor.getLong(0));
+                }
+            }
+            return null;
+        }
+
+        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") from " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=?)";
         try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
@@ -708,9 +993,21 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint.Id getTrackPointId(Track.Id trackId, Position position) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TIME + "=?)";
-        String[] selectionArgs = new String[]{Long.toString(trackId.id()), Long.toString(position.time().toEpochMilli())};
-        try (Cursor cursor = getTrackPointCursor(new String[]{TrackPointsColumns._ID}, selection, selectionArgs, TrackPointsColumns._ID)) {
+        if (isArchived(trackId)) {
+            // Archived track points do not support a selection: reads backwards until found.
+            try (Cursor cursor = contentResolver.query(getTrackPointsUri(trackId), new String[]{TrackPointsColumns._ID, TrackPointsColumns.TIME}, null, null, TrackPointsColumns._ID + " DESC")) {
+                while (cursor != null && cursor.moveToNext()) {
+                    if (cursor.getLong(1) == position.time().toEpochMilli()) {
+                        return new TrackPoint.Id(cursor.getLong(0));
+                    }
+                }
+            }
+            return null;
+        }
+
+        String selection = TrackPointsColumns.TIME + "=?";
+        String[] selectionArgs = new String[]{Long.toString(position.time().toEpochMilli())};
+        try (Cursor cursor = getLastTrackPointCursor(trackId, new String[]{TrackPointsColumns._ID}, selection, selectionArgs)) {
             if (cursor != null && cursor.moveToFirst()) {
                 return new TrackPoint.Id(cursor.getLong(cursor.getColumnIndexOrThrow(TrackPointsColumns._ID)));
             }
@@ -735,17 +1032,51 @@ public class ContentProviderUtils {
      */
     @NonNull
     public Cursor getTrackPointCursor(@NonNull Track.Id trackId, TrackPoint.Id startTrackPointId) {
-        String selection;
-        String[] selectionArgs;
+        return getTrackPointCursor(trackId, startTrackPointId, null);
+    }
+
+    /**
+     * @param projection the columns to load; `null` for all
+     */
+    @NonNull
+    private Cursor getTrackPointCursor(@NonNull Track.Id trackId, TrackPoint.Id startTrackPointId, @Nullable String[] projection) {
+        String selection = null;
+        String[] selectionArgs = null;
         if (startTrackPointId != null) {
-            selection = TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns._ID + ">=?";
-            selectionArgs = new String[]{Long.toString(trackId.id()), Long.toString(startTrackPointId.id())};
-        } else {
-            selection = TrackPointsColumns.TRACKID + "=?";
-            selectionArgs = new String[]{Long.toString(trackId.id())};
+            selection = TrackPointsColumns._ID + ">=?";
+            selectionArgs = new String[]{Long.toString(startTrackPointId.id())};
         }
 
-        return getTrackPointCursor(null, selection, selectionArgs, TrackPointsColumns.DEFAULT_SORT_ORDER);
+        return contentResolver.query(getTrackPointsUri(trackId), projection, selection, selectionArgs, TrackPointsColumns.DEFAULT_SORT_ORDER);
+    }
+
+    /**
+     * @return the cursor with the track's last track point matching the selection.
+     */
+    private Cursor getLastTrackPointCursor(@NonNull Track.Id trackId, @Nullable String[] projection, @NonNull String selection, @Nullable String[] selectionArgs) {
+        Uri uri = getTrackPointsUri(trackId).buildUpon().appendQueryParameter(QUERY_PARAMETER_LIMIT, "1").build();
+        return contentResolver.query(uri, projection, selection, selectionArgs, TrackPointsColumns._ID + " DESC");
+    }
+
+    /**
+     * Also reads the archived track points of the track (see {@link #archiveTrackPoints(Track.Id)}); these only support some selections (see {@link TrackPointArchive#query}).
+     */
+    private static Uri getTrackPointsUri(@NonNull Track.Id trackId) {
+        return Uri.withAppendedPath(TrackPointsColumns.CONTENT_URI_BY_TRACKID, formatIdListForUri(trackId));
+    }
+
+    /**
+     * Creates a new read-only iterator over a given track's points ordered by time (and then by insertion order).
+     * When done with iteration, {@link TrackPointIterator#close()} must be called.
+     *
+     * @param trackId the track id
+     */
+    public TrackPointIterator getTrackPointIteratorOrderedByTime(@NonNull Track.Id trackId) {
+        if (isArchived(trackId)) {
+            // Only recorded tracks are archived; their track points are ordered by time.
+            return getTrackPointIterator(trackId, null, (String[]) null);
+        }
+        return new TrackPointIterator(contentResolver.query(getTrackPointsUri(trackId), null, null, null, TrackPointsColumns.TIME + "," + TrackPointsColumns._ID));
     }
 
     /**
@@ -756,9 +1087,26 @@ public class ContentProviderUtils {
      */
     @Deprecated
     public TrackPoint getLastValidTrackPoint(Track.Id trackId) {
-        String selection = TrackPointsColumns._ID + "=(SELECT MAX(" + TrackPointsColumns._ID + ") FROM " + TrackPointsColumns.TABLE_NAME + " WHERE " + TrackPointsColumns.TRACKID + "=? AND " + TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + "))";
-        String[] selectionArgs = new String[]{Long.toString(trackId.id())};
-        return findTrackPointBy(selection, selectionArgs);
+        if (isArchived(trackId)) {
+            // Archived track points do not support a selection: reads backwards until found.
+            try (Cursor cursor = contentResolver.query(getTrackPointsUri(trackId), null, null, null, TrackPointsColumns._ID + " DESC")) {
+                while (cursor != null && cursor.moveToNext()) {
+                    TrackPoint trackPoint = createTrackPoint(cursor);
+                    if (trackPoint.getType() == TrackPoint.Type.SEGMENT_START_AUTOMATIC || trackPoint.getType() == TrackPoint.Type.TRACKPOINT) {
+                        return trackPoint;
+                    }
+                }
+            }
+            return null;
+        }
+
+        String selection = TrackPointsColumns.TYPE + " IN (" + TrackPoint.Type.SEGMENT_START_AUTOMATIC.type_db + "," + TrackPoint.Type.TRACKPOINT.type_db + ")";
+        try (Cursor cursor = getLastTrackPointCursor(trackId, null, selection, null)) {
+            if (cursor != null && cursor.moveToNext()) {
+                return createTrackPoint(cursor);
+            }
+        }
+        return null;
     }
 
     /**
@@ -772,6 +1120,36 @@ public class ContentProviderUtils {
         return contentResolver.insert(TrackPointsColumns.CONTENT_URI_BY_ID, createContentValues(trackPoint, trackId));
     }
 
+    /**
+     * Inserts trackPoints and updates the track's statistics in one transaction; used while recording.
+     * Observers are notified only once.
+     * The track is marked as recording (see {@link TrackFingerprint#RECORDING}).
+     *
+     * @param trackPoints     the trackPoints
+     * @param trackId         the track id
+     * @param trackStatistics the statistics of the track including trackPoints
+     */
+    public void insertTrackPoints(@NonNull List<TrackPoint> trackPoints, @NonNull Track.Id trackId, @NonNull TrackStatistics trackStatistics) {
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>(trackPoints.size() + 1);
+        for (TrackPoint trackPoint : trackPoints) {
+            operations.add(ContentProviderOperation.newInsert(TrackPointsColumns.CONTENT_URI_BY_ID)
+                    .withValues(createContentValues(trackPoint, trackId))
+                    .build());
+        }
+        ContentValues trackValues = createContentValues(trackStatistics);
+        trackValues.put(TracksColumns.FINGERPRINT, TrackFingerprint.RECORDING);
+        operations.add(ContentProviderOperation.newUpdate(TracksColumns.CONTENT_URI)
+                .withValues(trackValues)
+                .withSelection(TracksColumns._ID + "=?", new String[]{Long.toString(trackId.id())})
+                .build());
+
+        try {
+            contentResolver.applyBatch(AUTHORITY_PACKAGE, operations);
+        } catch (RemoteException | OperationApplicationException e) {
+            throw new SQLiteException("Failed to insert trackPoints for track " + trackId.id(), e);
+        }
+    }
+
     /**
      * Creates the {@link ContentValues} for a {@link TrackPoint}.
      *
@@ -835,17 +1213,59 @@ public class ContentProviderUtils {
      * @param startTrackPointId the starting trackPoint id. `null` to ignore
      */
     public TrackPointIterator getTrackPointLocationIterator(final Track.Id trackId, final TrackPoint.Id startTrackPointId) {
-        return new TrackPointIterator(this, trackId, startTrackPointId);
+        return getTrackPointIterator(trackId, startTrackPointId, (String[]) null);
     }
 
-    @Deprecated
-    private TrackPoint findTrackPointBy(String selection, String[] selectionArgs) {
-        try (Cursor cursor = getTrackPointCursor(null, selection, selectionArgs, TrackPointsColumns._ID)) {
-            if (cursor != null && cursor.moveToNext()) {
-                return createTrackPoint(cursor);
-            }
+    /**
+     * Like {@link #getTrackPointLocationIterator(Track.Id, TrackPoint.Id)}, but only loads the requested data.
+     * Cheaper for long tracks as fewer columns are read and fewer objects are created per {@link TrackPoint}.
+     *
+     * @param fields the data to load besides id, type, and time
+     */
+    public TrackPointIterator getTrackPointIterator(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, @NonNull Set<TrackPointIterator.Field> fields) {
+        return getTrackPointIterator(trackId, startTrackPointId, TrackPointIterator.Field.toProjection(fields));
+    }
+
+    /**
+     * Reads the archived track points if the track was archived; only the columns of the projection are decoded.
+     */
+    private TrackPointIterator getTrackPointIterator(@NonNull Track.Id trackId, @Nullable TrackPoint.Id startTrackPointId, @Nullable String[] projection) {
+        if (!isArchived(trackId)) {
+            return new TrackPointIterator(getTrackPointCursor(trackId, startTrackPointId, projection));
         }
-        return null;
+
+        String selection = TrackPointBlocksColumns.TRACKID + "=?";
+        String[] selectionArgs = new String[]{Long.toString(trackId.id())};
+        if (startTrackPointId != null) {
+            selection += " AND " + TrackPointBlocksColumns.LAST_ID + ">=?";
+            selectionArgs = new String[]{Long.toString(trackId.id()), Long.toString(startTrackPointId.id())};
+        }
+
+        Cursor blocksCursor = contentResolver.query(TrackPointBlocksColumns.CONTENT_URI, new String[]{TrackPointBlocksColumns.DATA, TrackPointBlocksColumns.NUMPOINTS}, selection, selectionArgs, TrackPointBlocksColumns._ID);
+        return new TrackPointIterator(blocksCursor, startTrackPointId, projection);
+    }
+
+    /**
+     * Stores the track points of a finished track compactly (see {@link TrackPointBlock}); skipped if the track is recording (see {@link TrackFingerprint#RECORDING}).
+     * The track points are still available via {@link TrackPointIterator} and the other methods (slower, as the whole track is decoded).
+     * May take a while for long tracks; not to be called on the main thread.
+     *
+     * @return the number of archived track points.
+     */
+    public int archiveTrackPoints(@NonNull Track.Id trackId) {
+        Bundle result = contentResolver.call(TrackPointBlocksColumns.CONTENT_URI, METHOD_ARCHIVE_TRACKPOINTS, Long.toString(trackId.id()), null);
+        return result != null ? result.getInt(RESULT_COUNT) : 0;
+    }
+
+    /**
+     * Moves archived track points back to the track points table to continue recording.
+     * The track is marked as recording (see {@link TrackFingerprint#RECORDING}), so it is not archived meanwhile.
+     *
+     * @return the number of restored track points (0 if the track was not archived).
+     */
+    public int restoreTrackPoints(@NonNull Track.Id trackId) {
+        Bundle result = contentResolver.call(TrackPointBlocksColumns.CONTENT_URI, METHOD_RESTORE_TRACKPOINTS, Long.toString(trackId.id()), null);
+        return result != null ? result.getInt(RESULT_COUNT) : 0;
     }
 
     /**
@@ -890,10 +1310,16 @@ public class ContentProviderUtils {
         return TextUtils.split(url.getLastPathSegment(), ID_SEPARATOR);
     }
 
+    /**
+     * The statistics are maintained while inserting TrackPoints, so this is cheap.
+     */
     public SensorStatistics getSensorStats(@NonNull Track.Id trackId) {
         SensorStatistics sensorStatistics = null;
         try (Cursor cursor = contentResolver.query(ContentUris.withAppendedId(TracksColumns.CONTENT_URI_SENSOR_STATS, trackId.id()), null, null, null, null)) {
-            if (cursor != null && cursor.moveToFirst()) {
+            if (cursor != null && !cursor.moveToFirst()) {
+                // Track without TrackPoints
+                sensorStatistics = new SensorStatistics(null, null, null, null, null, null);
+            } else if (cursor != null) {
                 final int MAX_HR_INDEX = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALIAS_MAX_HR);
                 final int AVG_HR_INDEX = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALIAS_AVG_HR);
                 final int MAX_CADENCE_INDEX = cursor.getColumnIndexOrThrow(TrackPointsColumns.ALIAS_MAX_CADENCE);
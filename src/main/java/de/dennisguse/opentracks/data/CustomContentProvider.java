@@ -17,26 +17,39 @@
 package de.dennisguse.opentracks.data;
 
 import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.content.UriMatcher;
 import android.database.Cursor;
+import android.database.DatabaseUtils;
 import android.database.SQLException;
 import android.database.sqlite.SQLiteDatabase;
 import android.database.sqlite.SQLiteException;
 import android.database.sqlite.SQLiteQueryBuilder;
+import android.database.sqlite.SQLiteStatement;
 import android.net.Uri;
+import android.os.Bundle;
+import android.os.CancellationSignal;
 import android.text.TextUtils;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
-import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.SensorStatsColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointBlocksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
@@ -60,45 +73,56 @@ public class CustomContentProvider extends ContentProvider {
 
     private SQLiteDatabase db;
 
+    /**
+     * Change notifications are collected while {@link #applyBatch(ArrayList)} is running on the current thread and are sent once after commit.
+     */
+    private final ThreadLocal<Set<Uri>> pendingNotifications = new ThreadLocal<>();
+
     /**
      * The string representing the query that compute sensor stats from trackpoints table.
      * It computes the average for heart rate, cadence and power (duration-based average) and the maximum for heart rate, cadence and power.
      * Finally, it ignores manual pause (SEGMENT_START_MANUAL).
      */
-    private final String SENSOR_STATS_QUERY =
-            "WITH time_select as " +
-                "(SELECT t1." + TrackPointsColumns.TIME + " * (t1." + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ")) time_value " +
-                "FROM " + TrackPointsColumns.TABLE_NAME + " t1 " +
-                "WHERE t1." + TrackPointsColumns._ID + " > t." + TrackPointsColumns._ID + " AND t1." + TrackPointsColumns.TRACKID + " = ? ORDER BY _id LIMIT 1) " +
-
+    private static final String SENSOR_STATS_QUERY =
             "SELECT " +
-                "SUM(t." + TrackPointsColumns.SENSOR_HEARTRATE + " * (COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ")) " +
-                "/ " +
-                "SUM(COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ") " + TrackPointsColumns.ALIAS_AVG_HR + ", " +
-
-                "MAX(t." + TrackPointsColumns.SENSOR_HEARTRATE + ") " + TrackPointsColumns.ALIAS_MAX_HR + ", " +
-
-                "SUM(t." + TrackPointsColumns.SENSOR_CADENCE + " * (COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ")) " +
-                "/ " +
-                "SUM(COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ") " + TrackPointsColumns.ALIAS_AVG_CADENCE + ", " +
-
-                "MAX(t." + TrackPointsColumns.SENSOR_CADENCE + ") " + TrackPointsColumns.ALIAS_MAX_CADENCE + ", " +
-
-                "SUM(t." + TrackPointsColumns.SENSOR_POWER + " * (COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ")) " +
-                "/ " +
-                "SUM(COALESCE(MAX(t." + TrackPointsColumns.TIME + ", (SELECT time_value FROM time_select)), t." + TrackPointsColumns.TIME + ") - t." + TrackPointsColumns.TIME + ") " + TrackPointsColumns.ALIAS_AVG_POWER + ", " +
-
-                "MAX(t." + TrackPointsColumns.SENSOR_POWER + ") " + TrackPointsColumns.ALIAS_MAX_POWER + " " +
-
-            "FROM " + TrackPointsColumns.TABLE_NAME + " t " +
-            "WHERE t." + TrackPointsColumns.TRACKID + " = ? " +
-            "AND t." + TrackPointsColumns.TYPE + " NOT IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ")";
+                SensorStatsColumns.HEARTRATE_SUM + " / " + SensorStatsColumns.DURATION + " " + TrackPointsColumns.ALIAS_AVG_HR + ", " +
+                SensorStatsColumns.HEARTRATE_MAX + " " + TrackPointsColumns.ALIAS_MAX_HR + ", " +
+                SensorStatsColumns.CADENCE_SUM + " / " + SensorStatsColumns.DURATION + " " + TrackPointsColumns.ALIAS_AVG_CADENCE + ", " +
+                SensorStatsColumns.CADENCE_MAX + " " + TrackPointsColumns.ALIAS_MAX_CADENCE + ", " +
+                SensorStatsColumns.POWER_SUM + " / " + SensorStatsColumns.DURATION + " " + TrackPointsColumns.ALIAS_AVG_POWER + ", " +
+                SensorStatsColumns.POWER_MAX + " " + TrackPointsColumns.ALIAS_MAX_POWER + " " +
+            "FROM " + SensorStatsColumns.TABLE_NAME + " " +
+            "WHERE " + SensorStatsColumns.TRACKID + " = ?";
+
+    private static final List<String> TRACKPOINTS_INSERT_COLUMNS = List.of(
+            TrackPointsColumns.TRACKID,
+            TrackPointsColumns.TYPE,
+            TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.LATITUDE,
+            TrackPointsColumns.TIME,
+            TrackPointsColumns.ALTITUDE,
+            TrackPointsColumns.HORIZONTAL_ACCURACY,
+            TrackPointsColumns.VERTICAL_ACCURACY,
+            TrackPointsColumns.SPEED,
+            TrackPointsColumns.BEARING,
+            TrackPointsColumns.SENSOR_HEARTRATE,
+            TrackPointsColumns.SENSOR_CADENCE,
+            TrackPointsColumns.SENSOR_DISTANCE,
+            TrackPointsColumns.SENSOR_POWER,
+            TrackPointsColumns.ALTITUDE_GAIN,
+            TrackPointsColumns.ALTITUDE_LOSS
+    );
+
+    private static final String TRACKPOINTS_INSERT = "INSERT INTO " + TrackPointsColumns.TABLE_NAME
+            + " (" + TextUtils.join(SQL_LIST_DELIMITER, TRACKPOINTS_INSERT_COLUMNS) + ")"
+            + " VALUES (" + TextUtils.join(SQL_LIST_DELIMITER, Collections.nCopies(TRACKPOINTS_INSERT_COLUMNS.size(), "?")) + ")";
 
     public CustomContentProvider() {
         uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackPointsColumns.CONTENT_URI_BY_ID.getPath(), UrlType.TRACKPOINTS.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackPointsColumns.CONTENT_URI_BY_ID.getPath() + "/#", UrlType.TRACKPOINTS_BY_ID.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackPointsColumns.CONTENT_URI_BY_TRACKID.getPath() + "/*", UrlType.TRACKPOINTS_BY_TRACKID.ordinal());
+        uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TrackPointBlocksColumns.CONTENT_URI.getPath(), UrlType.TRACKPOINT_BLOCKS.ordinal());
 
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.CONTENT_URI.getPath(), UrlType.TRACKS.ordinal());
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.CONTENT_URI_SENSOR_STATS.getPath() + "/#", UrlType.TRACKS_SENSOR_STATS.ordinal());
@@ -153,20 +177,81 @@ public class CustomContentProvider extends ContentProvider {
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(url);
 
         int totalChanges = getTotalChanges() - totalChangesBefore;
         Log.i(TAG, "Deleted " + totalChanges + " total rows from database");
+        vacuumIfNeeded(totalChanges);
+
+        return deletedRowsFromTable;
+    }
 
-        PreferencesUtils.addTotalRowsDeleted(totalChanges);
+    private void vacuumIfNeeded(int deletedRows) {
+        PreferencesUtils.addTotalRowsDeleted(deletedRows);
         int totalRowsDeleted = PreferencesUtils.getTotalRowsDeleted();
         if (totalRowsDeleted > TOTAL_DELETED_ROWS_VACUUM_THRESHOLD) {
             Log.i(TAG, "TotalRowsDeleted " + totalRowsDeleted + ", starting to vacuum the database.");
             db.execSQL("VACUUM");
             PreferencesUtils.resetTotalRowsDeleted();
         }
+    }
 
-        return deletedRowsFromTable;
+    /**
+     * Archives or restores the track points of a track (see {@link TrackPointArchive}).
+     * The data does not change, so observers are not notified.
+     */
+    @Nullable
+    @Override
+    public Bundle call(@NonNull String method, @Nullable String arg, @Nullable Bundle extras) {
+        int count;
+        switch (method) {
+            case ContentProviderUtils.METHOD_ARCHIVE_TRACKPOINTS -> {
+                count = TrackPointArchive.archive(db, Long.parseLong(arg));
+                vacuumIfNeeded(count);
+            }
+            case ContentProviderUtils.METHOD_RESTORE_TRACKPOINTS ->
+                    count = TrackPointArchive.restoreForRecording(db, Long.parseLong(arg));
+            default -> {
+                return super.call(method, arg, extras);
+            }
+        }
+
+        Bundle result = new Bundle();
+        result.putInt(ContentProviderUtils.RESULT_COUNT, count);
+        return result;
+    }
+
+    /**
+     * Applies all operations within one transaction; observers are notified once per URI after the commit.
+     */
+    @NonNull
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations) throws OperationApplicationException {
+        Set<Uri> urls = new LinkedHashSet<>();
+        ContentProviderResult[] results;
+        try {
+            pendingNotifications.set(urls);
+            db.beginTransaction();
+            results = super.applyBatch(operations);
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            pendingNotifications.remove();
+        }
+
+        for (Uri url : urls) {
+            notifyChange(url);
+        }
+        return results;
+    }
+
+    private void notifyChange(@NonNull Uri url) {
+        Set<Uri> urls = pendingNotifications.get();
+        if (urls != null) {
+            urls.add(url);
+            return;
+        }
+        getContext().getContentResolver().notifyChange(url, null, false);
     }
 
     private int getTotalChanges() {
@@ -204,7 +289,7 @@ public class CustomContentProvider extends ContentProvider {
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(url);
         return result;
     }
 
@@ -216,23 +301,35 @@ public class CustomContentProvider extends ContentProvider {
             db.beginTransaction();
 
             UrlType urlType = getUrlType(url);
-            for (numInserted = 0; numInserted < valuesBulk.length; numInserted++) {
-                ContentValues contentValues = valuesBulk[numInserted];
-                if (contentValues == null) {
-                    contentValues = new ContentValues();
+            if (urlType == UrlType.TRACKPOINTS) {
+                numInserted = bulkInsertTrackPoints(url, valuesBulk);
+            } else {
+                for (numInserted = 0; numInserted < valuesBulk.length; numInserted++) {
+                    ContentValues contentValues = valuesBulk[numInserted];
+                    if (contentValues == null) {
+                        contentValues = new ContentValues();
+                    }
+                    insertContentValues(url, urlType, contentValues);
                 }
-                insertContentValues(url, urlType, contentValues);
             }
             db.setTransactionSuccessful();
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(url);
         return numInserted;
     }
 
     @Override
     public Cursor query(@NonNull Uri url, String[] projection, String selection, String[] selectionArgs, String sort) {
+        return query(url, projection, selection, selectionArgs, sort, null);
+    }
+
+    /**
+     * Supports a LIMIT via query parameter {@link ContentProviderUtils#QUERY_PARAMETER_LIMIT}.
+     */
+    @Override
+    public Cursor query(@NonNull Uri url, String[] projection, String selection, String[] selectionArgs, String sort, CancellationSignal cancellationSignal) {
         SQLiteQueryBuilder queryBuilder = new SQLiteQueryBuilder();
         String sortOrder = null;
         switch (getUrlType(url)) {
@@ -245,15 +342,23 @@ public class CustomContentProvider extends ContentProvider {
                 queryBuilder.appendWhere(TrackPointsColumns._ID + "=" + ContentUris.parseId(url));
             }
             case TRACKPOINTS_BY_TRACKID -> {
+                String[] trackIds = ContentProviderUtils.parseTrackIdsFromUri(url);
+                // Public API: archived track points are read as if they were stored in the track points table.
+                Cursor archivedCursor = TrackPointArchive.query(db, trackIds, projection, selection, selectionArgs, sort, getLimit(url), cancellationSignal);
+                if (archivedCursor != null) {
+                    archivedCursor.setNotificationUri(getContext().getContentResolver(), url);
+                    return archivedCursor;
+                }
                 queryBuilder.setTables(TrackPointsColumns.TABLE_NAME);
-                queryBuilder.appendWhere(TrackPointsColumns.TRACKID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, ContentProviderUtils.parseTrackIdsFromUri(url)) + ")");
+                queryBuilder.appendWhere(TrackPointsColumns.TRACKID + " IN (" + TextUtils.join(SQL_LIST_DELIMITER, trackIds) + ")");
+                sortOrder = sort;
+            }
+            case TRACKPOINT_BLOCKS -> {
+                queryBuilder.setTables(TrackPointBlocksColumns.TABLE_NAME);
+                sortOrder = sort;
             }
             case TRACKS -> {
-                if (projection != null && Arrays.asList(projection).contains(TracksColumns.MARKER_COUNT)) {
-                    queryBuilder.setTables(TracksColumns.TABLE_NAME + " LEFT OUTER JOIN (SELECT " + MarkerColumns.TRACKID + " AS markerTrackId, COUNT(*) AS " + TracksColumns.MARKER_COUNT + " FROM " + MarkerColumns.TABLE_NAME + " GROUP BY " + MarkerColumns.TRACKID + ") ON (" + TracksColumns.TABLE_NAME + "." + TracksColumns._ID + "= markerTrackId)");
-                } else {
-                    queryBuilder.setTables(TracksColumns.TABLE_NAME);
-                }
+                queryBuilder.setTables(TracksColumns.TABLE_NAME);
                 sortOrder = sort != null ? sort : TracksColumns.DEFAULT_SORT_ORDER;
             }
             case TRACKS_BY_ID -> {
@@ -262,7 +367,7 @@ public class CustomContentProvider extends ContentProvider {
             }
             case TRACKS_SENSOR_STATS -> {
                 long trackId = ContentUris.parseId(url);
-                return db.rawQuery(SENSOR_STATS_QUERY, new String[]{String.valueOf(trackId), String.valueOf(trackId)});
+                return db.rawQuery(SENSOR_STATS_QUERY, new String[]{String.valueOf(trackId)});
             }
             case MARKERS -> {
                 queryBuilder.setTables(MarkerColumns.TABLE_NAME);
@@ -278,11 +383,20 @@ public class CustomContentProvider extends ContentProvider {
             }
             default -> throw new IllegalArgumentException("Unknown url " + url);
         }
-        Cursor cursor = queryBuilder.query(db, projection, selection, selectionArgs, null, null, sortOrder);
+        Cursor cursor = queryBuilder.query(db, projection, selection, selectionArgs, null, null, sortOrder, getLimit(url), cancellationSignal);
         cursor.setNotificationUri(getContext().getContentResolver(), url);
         return cursor;
     }
 
+    @Nullable
+    private static String getLimit(@NonNull Uri url) {
+        String limit = url.getQueryParameter(ContentProviderUtils.QUERY_PARAMETER_LIMIT);
+        if (limit != null) {
+            limit = String.valueOf(Integer.parseInt(limit));
+        }
+        return limit;
+    }
+
     @Override
     public int update(@NonNull Uri url, ContentValues values, String where, String[] selectionArgs) {
         // TODO Use SQLiteQueryBuilder
@@ -332,7 +446,7 @@ public class CustomContentProvider extends ContentProvider {
         } finally {
             db.endTransaction();
         }
-        getContext().getContentResolver().notifyChange(url, null, false);
+        notifyChange(url);
         return count;
     }
 
@@ -375,6 +489,32 @@ public class CustomContentProvider extends ContentProvider {
         throw new SQLiteException("Failed to insert a track point " + url);
     }
 
+    /**
+     * Inserts track points using one prepared statement (must be called within a transaction).
+     */
+    private int bulkInsertTrackPoints(Uri url, ContentValues[] valuesBulk) {
+        try (SQLiteStatement statement = db.compileStatement(TRACKPOINTS_INSERT)) {
+            for (ContentValues values : valuesBulk) {
+                if (values == null || !values.containsKey(TrackPointsColumns.TIME)) {
+                    throw new IllegalArgumentException("Time value is required.");
+                }
+                if (!TRACKPOINTS_INSERT_COLUMNS.containsAll(values.keySet())) {
+                    insertTrackPoint(url, values);
+                    continue;
+                }
+
+                statement.clearBindings();
+                for (int i = 0; i < TRACKPOINTS_INSERT_COLUMNS.size(); i++) {
+                    DatabaseUtils.bindObjectToProgram(statement, i + 1, values.get(TRACKPOINTS_INSERT_COLUMNS.get(i)));
+                }
+                if (statement.executeInsert() < 0) {
+                    throw new SQLiteException("Failed to insert a track point " + url);
+                }
+            }
+        }
+        return valuesBulk.length;
+    }
+
     private Uri insertTrack(Uri url, ContentValues contentValues) {
         long rowId = db.insert(TracksColumns.TABLE_NAME, TracksColumns._ID, contentValues);
         if (rowId >= 0) {
@@ -396,6 +536,7 @@ public class CustomContentProvider extends ContentProvider {
         TRACKPOINTS,
         TRACKPOINTS_BY_ID,
         TRACKPOINTS_BY_TRACKID,
+        TRACKPOINT_BLOCKS,
         TRACKS,
         TRACKS_BY_ID,
         TRACKS_SENSOR_STATS,
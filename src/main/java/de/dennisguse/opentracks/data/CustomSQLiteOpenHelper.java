@@ -19,6 +19,9 @@ import de.dennisguse.opentracks.Startup;
 import de.dennisguse.opentracks.data.models.ActivityType;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.tables.MarkerColumns;
+import de.dennisguse.opentracks.data.tables.SearchIndexColumns;
+import de.dennisguse.opentracks.data.tables.SensorStatsColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointBlocksColumns;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 
@@ -29,7 +32,7 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
 
     private static final String TAG = CustomSQLiteOpenHelper.class.getSimpleName();
 
-    private static final int DATABASE_VERSION = 38;
+    private static final int DATABASE_VERSION = 43;
 
     private final Context context;
 
@@ -56,9 +59,33 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
 
         db.execSQL(TracksColumns.CREATE_TABLE);
         db.execSQL(TracksColumns.CREATE_TABLE_INDEX);
+        db.execSQL(TracksColumns.CREATE_STARTTIME_INDEX);
+        db.execSQL(TracksColumns.CREATE_FINGERPRINT_INDEX);
+        db.execSQL(TracksColumns.CREATE_TRIGGER_FINGERPRINT_RESET);
 
         db.execSQL(MarkerColumns.CREATE_TABLE);
         db.execSQL(MarkerColumns.CREATE_TABLE_INDEX);
+        db.execSQL(TracksColumns.CREATE_TRIGGER_MARKER_INSERT);
+        db.execSQL(TracksColumns.CREATE_TRIGGER_MARKER_DELETE);
+        db.execSQL(TracksColumns.CREATE_TRIGGER_MARKER_UPDATE);
+
+        db.execSQL(SensorStatsColumns.CREATE_TABLE);
+        db.execSQL(SensorStatsColumns.CREATE_TRIGGER);
+
+        db.execSQL(TrackPointBlocksColumns.CREATE_TABLE);
+        db.execSQL(TrackPointBlocksColumns.CREATE_TABLE_INDEX);
+
+        db.execSQL(SearchIndexColumns.CREATE_TRACKS_TABLE);
+        db.execSQL(SearchIndexColumns.CREATE_TRACKS_TRIGGER_INSERT);
+        db.execSQL(SearchIndexColumns.CREATE_TRACKS_TRIGGER_DELETE);
+        db.execSQL(SearchIndexColumns.CREATE_TRACKS_TRIGGER_BEFORE_UPDATE);
+        db.execSQL(SearchIndexColumns.CREATE_TRACKS_TRIGGER_AFTER_UPDATE);
+
+        db.execSQL(SearchIndexColumns.CREATE_MARKERS_TABLE);
+        db.execSQL(SearchIndexColumns.CREATE_MARKERS_TRIGGER_INSERT);
+        db.execSQL(SearchIndexColumns.CREATE_MARKERS_TRIGGER_DELETE);
+        db.execSQL(SearchIndexColumns.CREATE_MARKERS_TRIGGER_BEFORE_UPDATE);
+        db.execSQL(SearchIndexColumns.CREATE_MARKERS_TRIGGER_AFTER_UPDATE);
     }
 
     @Override
@@ -82,6 +109,11 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 36 -> upgradeFrom35to36(db);
                 case 37 -> upgradeFrom36to37(db);
                 case 38 -> upgradeFrom37to38(db);
+                case 39 -> upgradeFrom38to39(db);
+                case 40 -> upgradeFrom39to40(db);
+                case 41 -> upgradeFrom40to41(db);
+                case 42 -> upgradeFrom41to42(db);
+                case 43 -> upgradeFrom42to43(db);
                 default -> throw new RuntimeException("Not implemented: upgrade to " + toVersion);
             }
         }
@@ -107,6 +139,11 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
                 case 35 -> downgradeFrom36to35(db);
                 case 36 -> downgradeFrom37to36(db);
                 case 37 -> downgradeFrom38to37(db);
+                case 38 -> downgradeFrom39to38(db);
+                case 39 -> downgradeFrom40to39(db);
+                case 40 -> downgradeFrom41to40(db);
+                case 41 -> downgradeFrom42to41(db);
+                case 42 -> downgradeFrom43to42(db);
                 default -> throw new RuntimeException("Not implemented: downgrade to " + toVersion);
             }
         }
@@ -670,4 +707,226 @@ class CustomSQLiteOpenHelper extends SQLiteOpenHelper {
         db.endTransaction();
     }
 
+    /**
+     * Add table sensorstats (incl. trigger) and compute the statistics of the existing tracks.
+     * The existing track points are passed in order through the trigger's statements via a temporary view.
+     */
+    private void upgradeFrom38to39(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL(SensorStatsColumns.CREATE_TABLE);
+        db.execSQL(SensorStatsColumns.CREATE_TRIGGER);
+
+        db.execSQL("CREATE TEMP VIEW sensorstats_backfill AS SELECT trackid, type, time, sensor_heartrate, sensor_cadence, sensor_power FROM trackpoints");
+        db.execSQL("CREATE TEMP TRIGGER sensorstats_backfill_trigger INSTEAD OF INSERT ON sensorstats_backfill BEGIN " + SensorStatsColumns.UPDATE_WITH_NEW_TRACKPOINT + " END");
+        db.execSQL("INSERT INTO sensorstats_backfill SELECT trackid, type, time, sensor_heartrate, sensor_cadence, sensor_power FROM trackpoints ORDER BY _id");
+        db.execSQL("DROP TRIGGER sensorstats_backfill_trigger");
+        db.execSQL("DROP VIEW sensorstats_backfill");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom39to38(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER trackpoints_sensorstats_trigger");
+        db.execSQL("DROP TABLE sensorstats");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Maintain the number of markers per track (instead of aggregating markers for the track list).
+     */
+    private void upgradeFrom39to40(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("ALTER TABLE tracks ADD COLUMN markercount INTEGER NOT NULL DEFAULT 0");
+        db.execSQL("UPDATE tracks SET markercount = (SELECT COUNT(*) FROM markers WHERE markers.trackid = tracks._id)");
+
+        db.execSQL("CREATE TRIGGER markers_markercount_insert_trigger AFTER INSERT ON markers BEGIN UPDATE tracks SET markercount = markercount + 1 WHERE _id = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_delete_trigger AFTER DELETE ON markers BEGIN UPDATE tracks SET markercount = markercount - 1 WHERE _id = OLD.trackid; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_update_trigger AFTER UPDATE OF trackid ON markers BEGIN UPDATE tracks SET markercount = markercount - 1 WHERE _id = OLD.trackid; UPDATE tracks SET markercount = markercount + 1 WHERE _id = NEW.trackid; END");
+
+        db.execSQL("CREATE INDEX tracks_starttime_index ON tracks(starttime)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom40to39(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER markers_markercount_insert_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_delete_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_update_trigger");
+
+        db.execSQL("DROP INDEX tracks_starttime_index");
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT, starttime_offset INTEGER, activity_type TEXT)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss, starttime_offset, activity_type FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Full-text search indices for tracks and markers; built for the existing data.
+     */
+    private void upgradeFrom40to41(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE VIRTUAL TABLE tracks_fts USING fts4(content=\"tracks\", name, description, category, tokenize=unicode61)");
+        db.execSQL("CREATE TRIGGER tracks_fts_insert_trigger AFTER INSERT ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER tracks_fts_delete_trigger BEFORE DELETE ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_before_update_trigger BEFORE UPDATE OF name, description, category ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_after_update_trigger AFTER UPDATE OF name, description, category ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("INSERT INTO tracks_fts (tracks_fts) VALUES ('rebuild')");
+
+        db.execSQL("CREATE VIRTUAL TABLE markers_fts USING fts4(content=\"markers\", name, description, category, tokenize=unicode61)");
+        db.execSQL("CREATE TRIGGER markers_fts_insert_trigger AFTER INSERT ON markers BEGIN INSERT INTO markers_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER markers_fts_delete_trigger BEFORE DELETE ON markers BEGIN DELETE FROM markers_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER markers_fts_before_update_trigger BEFORE UPDATE OF name, description, category ON markers BEGIN DELETE FROM markers_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER markers_fts_after_update_trigger AFTER UPDATE OF name, description, category ON markers BEGIN INSERT INTO markers_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("INSERT INTO markers_fts (markers_fts) VALUES ('rebuild')");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom41to40(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER tracks_fts_insert_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_delete_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_before_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_after_update_trigger");
+        db.execSQL("DROP TABLE tracks_fts");
+
+        db.execSQL("DROP TRIGGER markers_fts_insert_trigger");
+        db.execSQL("DROP TRIGGER markers_fts_delete_trigger");
+        db.execSQL("DROP TRIGGER markers_fts_before_update_trigger");
+        db.execSQL("DROP TRIGGER markers_fts_after_update_trigger");
+        db.execSQL("DROP TABLE markers_fts");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Content fingerprint to detect re-imports; computed on demand (see ContentProviderUtils.updateMissingFingerprints()).
+     */
+    private void upgradeFrom41to42(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("ALTER TABLE tracks ADD COLUMN fingerprint INTEGER");
+        db.execSQL("CREATE INDEX tracks_fingerprint_index ON tracks(fingerprint)");
+        db.execSQL("CREATE TRIGGER trackpoints_fingerprint_trigger AFTER INSERT ON trackpoints BEGIN UPDATE tracks SET fingerprint = NULL WHERE _id = NEW.trackid AND fingerprint IS NOT NULL; END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    private void downgradeFrom42to41(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("DROP TRIGGER trackpoints_fingerprint_trigger");
+        db.execSQL("DROP INDEX tracks_fingerprint_index");
+
+        // Re-created with the table
+        db.execSQL("DROP TRIGGER markers_markercount_insert_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_delete_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_insert_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_delete_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_before_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_after_update_trigger");
+        db.execSQL("DROP INDEX tracks_starttime_index");
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT, starttime_offset INTEGER, activity_type TEXT, markercount INTEGER NOT NULL DEFAULT 0)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss, starttime_offset, activity_type, markercount FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+        db.execSQL("CREATE INDEX tracks_starttime_index ON tracks(starttime)");
+        db.execSQL("CREATE TRIGGER markers_markercount_insert_trigger AFTER INSERT ON markers BEGIN UPDATE tracks SET markercount = markercount + 1 WHERE _id = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_delete_trigger AFTER DELETE ON markers BEGIN UPDATE tracks SET markercount = markercount - 1 WHERE _id = OLD.trackid; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_update_trigger AFTER UPDATE OF trackid ON markers BEGIN UPDATE tracks SET markercount = markercount - 1 WHERE _id = OLD.trackid; UPDATE tracks SET markercount = markercount + 1 WHERE _id = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_insert_trigger AFTER INSERT ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER tracks_fts_delete_trigger BEFORE DELETE ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_before_update_trigger BEFORE UPDATE OF name, description, category ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_after_update_trigger AFTER UPDATE OF name, description, category ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * Compact storage for the track points of finished tracks (see TrackPointArchive).
+     */
+    private void upgradeFrom42to43(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        db.execSQL("CREATE TABLE trackpointblocks (_id INTEGER PRIMARY KEY AUTOINCREMENT, trackid INTEGER NOT NULL, firstid INTEGER NOT NULL, lastid INTEGER NOT NULL, numpoints INTEGER NOT NULL, data BLOB NOT NULL, FOREIGN KEY (trackid) REFERENCES tracks(_id) ON UPDATE CASCADE ON DELETE CASCADE)");
+        db.execSQL("CREATE INDEX trackpointblocks_trackid_index ON trackpointblocks(trackid)");
+        db.execSQL("ALTER TABLE tracks ADD COLUMN archived INTEGER NOT NULL DEFAULT 0");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
+
+    /**
+     * The archived track points are moved back to the track points table.
+     * SQLite3 does not support drop columns; therefore the tracks table is re-created and data is copied.
+     */
+    private void downgradeFrom43to42(SQLiteDatabase db) {
+        db.beginTransaction();
+
+        TrackPointArchive.restoreAll(db);
+
+        db.execSQL("DROP INDEX trackpointblocks_trackid_index");
+        db.execSQL("DROP TABLE trackpointblocks");
+
+        // Re-created with the table
+        db.execSQL("DROP TRIGGER trackpoints_fingerprint_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_insert_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_delete_trigger");
+        db.execSQL("DROP TRIGGER markers_markercount_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_insert_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_delete_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_before_update_trigger");
+        db.execSQL("DROP TRIGGER tracks_fts_after_update_trigger");
+        db.execSQL("DROP INDEX tracks_fingerprint_index");
+        db.execSQL("DROP INDEX tracks_starttime_index");
+        db.execSQL("DROP INDEX tracks_uuid_index");
+
+        db.execSQL("ALTER TABLE tracks RENAME TO tracks_old");
+        db.execSQL("CREATE TABLE tracks (_id INTEGER PRIMARY KEY AUTOINCREMENT, name TEXT, description TEXT, category TEXT, starttime INTEGER, stoptime INTEGER, numpoints INTEGER, totaldistance FLOAT, totaltime INTEGER, movingtime INTEGER, avgspeed FLOAT, avgmovingspeed FLOAT, maxspeed FLOAT, minelevation FLOAT, maxelevation FLOAT, elevationgain FLOAT, icon TEXT, uuid BLOB, elevationloss FLOAT, starttime_offset INTEGER, activity_type TEXT, markercount INTEGER NOT NULL DEFAULT 0, fingerprint INTEGER)");
+        db.execSQL("INSERT INTO tracks SELECT _id, name, description, category, starttime, stoptime, numpoints, totaldistance, totaltime, movingtime, avgspeed, avgmovingspeed, maxspeed, minelevation, maxelevation, elevationgain, icon, uuid, elevationloss, starttime_offset, activity_type, markercount, fingerprint FROM tracks_old");
+        db.execSQL("DROP TABLE tracks_old");
+
+        db.execSQL("CREATE UNIQUE INDEX tracks_uuid_index ON tracks(uuid)");
+        db.execSQL("CREATE INDEX tracks_starttime_index ON tracks(starttime)");
+        db.execSQL("CREATE INDEX tracks_fingerprint_index ON tracks(fingerprint)");
+        db.execSQL("CREATE TRIGGER trackpoints_fingerprint_trigger AFTER INSERT ON trackpoints BEGIN UPDATE tracks SET fingerprint = NULL WHERE _id = NEW.trackid AND fingerprint IS NOT NULL; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_insert_trigger AFTER INSERT ON markers BEGIN UPDATE tracks SET markercount = markercount + 1 WHERE _id = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_delete_trigger AFTER DELETE ON markers BEGIN UPDATE tracks SET markercount = markercount - 1 WHERE _id = OLD.trackid; END");
+        db.execSQL("CREATE TRIGGER markers_markercount_update_trigger AFTER UPDATE OF trackid ON markers BEGIN UPDATE tracks SET markercount = markercount - 1 WHERE _id = OLD.trackid; UPDATE tracks SET markercount = markercount + 1 WHERE _id = NEW.trackid; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_insert_trigger AFTER INSERT ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+        db.execSQL("CREATE TRIGGER tracks_fts_delete_trigger BEFORE DELETE ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_before_update_trigger BEFORE UPDATE OF name, description, category ON tracks BEGIN DELETE FROM tracks_fts WHERE docid = OLD._id; END");
+        db.execSQL("CREATE TRIGGER tracks_fts_after_update_trigger AFTER UPDATE OF name, description, category ON tracks BEGIN INSERT INTO tracks_fts (docid, name, description, category) VALUES (NEW._id, NEW.name, NEW.description, NEW.category); END");
+
+        db.setTransactionSuccessful();
+        db.endTransaction();
+    }
 }
@@ -15,9 +15,15 @@ import android.util.Pair;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -27,6 +33,7 @@ import java.util.Set;
 import java.util.stream.Collectors;
 
 import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.tables.MarkerColumns;
 import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.io.file.TrackFileFormat;
 import de.dennisguse.opentracks.io.file.exporter.TrackExporter;
@@ -34,6 +41,7 @@ import de.dennisguse.opentracks.io.file.exporter.TrackExporter;
 /**
  * A content provider that mimics the behavior of {@link androidx.core.content.FileProvider}, which shares virtual (non-existing) KML-files.
  * The actual content of the virtual files is generated by using the functionality defined in {@link CustomContentProvider}.
+ * Generated files are cached until the data of the tracks changes (see {@link ShareFileCache}); so sharing a track again does not export it again and its size is known.
  * <p>
  * Moreover, it manages access to OpenTrack's database via {@link CustomContentProvider}.
  * <p>
@@ -59,6 +67,11 @@ public class ShareContentProvider extends CustomContentProvider {
     private static final UriMatcher uriMatcher = new UriMatcher(UriMatcher.NO_MATCH);
     private static final String TRACKID_DELIMITER = "_";
 
+    private static final String CACHE_DIRECTORY = "share";
+    private static final long CACHE_MAX_SIZE = 64 * 1024 * 1024;
+
+    private ShareFileCache shareFileCache;
+
     static {
         uriMatcher.addURI(ContentProviderUtils.AUTHORITY_PACKAGE, TracksColumns.TABLE_NAME + "/" + TrackFileFormat.GPX.getPreferenceId() + "/*/*", URI_GPX);
 
@@ -170,7 +183,7 @@ public class ShareContentProvider extends CustomContentProvider {
                 }
                 case OpenableColumns.SIZE -> {
                     cols[i] = OpenableColumns.SIZE;
-                    values[i++] = -1; //Report unknown size; if applications need to know, one need to generate the file here also (count bytes that are written to OutputStream.
+                    values[i++] = getSize(uri);
                 }
             }
         }
@@ -194,31 +207,116 @@ public class ShareContentProvider extends CustomContentProvider {
         return super.getType(uri);
     }
 
+    /**
+     * Only returns the size if the file is cached (e.g., shared before); generating it here would block the querying app.
+     * The cache is filled by {@link #openFile(Uri, String)}.
+     *
+     * @return -1 if unknown.
+     */
+    private long getSize(@NonNull Uri uri) {
+        File file = getShareFileCache().get(loadShareContent(uri).cacheKey());
+        return file != null ? file.length() : -1;
+    }
+
+    /**
+     * Serves the file from the cache; otherwise it is generated, streamed, and stored in the cache.
+     */
     @Nullable
     @Override
     public ParcelFileDescriptor openFile(@NonNull Uri uri, @NonNull String mode) throws FileNotFoundException {
+        ShareContent content = loadShareContent(uri);
+
+        File file = getShareFileCache().get(content.cacheKey());
+        if (file != null) {
+            try {
+                return ParcelFileDescriptor.open(file, ParcelFileDescriptor.MODE_READ_ONLY);
+            } catch (FileNotFoundException e) {
+                Log.d(TAG, "Cached file was evicted meanwhile; generating it again.");
+            }
+        }
+
+        PipeDataWriter<String> pipeDataWriter = (output, uri1, mimeType, opts, args) -> {
+            File tempFile = null;
+            try {
+                tempFile = getShareFileCache().createTempFile();
+                boolean success;
+                try (OutputStream outputStream = new ShareFileCache.TeeOutputStream(new FileOutputStream(output.getFileDescriptor()), new FileOutputStream(tempFile))) {
+                    // TODO handle failure (i.e., do not export an empty file)
+                    success = content.trackExporter().writeTrack(content.tracks(), outputStream);
+                }
+                if (success) {
+                    getShareFileCache().commit(tempFile, content.cacheKey());
+                } else {
+                    tempFile.delete();
+                }
+            } catch (IOException e) {
+                Log.w(TAG, "there occurred an error while sharing a file: " + e);
+                if (tempFile != null) {
+                    tempFile.delete();
+                }
+            }
+        };
+
+        return openPipeHelper(uri, getType(uri), null, null, pipeDataWriter);
+    }
+
+    private record ShareContent(List<Track> tracks, TrackExporter trackExporter, String cacheKey) {
+    }
+
+    /**
+     * Loads the tracks; the cache key is derived from the file format and the stored data of the tracks and their markers (i.e., changes if the data changes).
+     */
+    private ShareContent loadShareContent(@NonNull Uri uri) {
         Set<Track.Id> trackIds = parseURI(uri);
         final ArrayList<Track> tracks = new ArrayList<>();
         String[] trackIdsString = trackIds.stream().map(id -> String.valueOf(id.id())).toArray(String[]::new);
-        String whereClause = String.format(TracksColumns._ID + " IN (%s)", TextUtils.join(",", Collections.nCopies(trackIds.size(), "?")));
+        String inTrackIds = String.format(" IN (%s)", TextUtils.join(",", Collections.nCopies(trackIds.size(), "?")));
+
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available.
+            throw new RuntimeException(e);
+        }
+        TrackFileFormat trackFileFormat = getTrackFileFormat(uri);
+        digest.update(trackFileFormat.name().getBytes(StandardCharsets.UTF_8));
 
-        try (Cursor cursor = super.query(TracksColumns.CONTENT_URI, null, whereClause, trackIdsString, TracksColumns._ID)) {
+        try (Cursor cursor = super.query(TracksColumns.CONTENT_URI, null, TracksColumns._ID + inTrackIds, trackIdsString, TracksColumns._ID)) {
             while (cursor.moveToNext()) {
                 tracks.add(ContentProviderUtils.createTrack(cursor));
+                updateDigest(digest, cursor);
+            }
+        }
+        try (Cursor cursor = super.query(MarkerColumns.CONTENT_URI, null, MarkerColumns.TRACKID + inTrackIds, trackIdsString, MarkerColumns._ID)) {
+            while (cursor.moveToNext()) {
+                updateDigest(digest, cursor);
             }
         }
 
-        final TrackExporter trackExporter = getTrackFileFormat(uri).createTrackExporter(getContext(), new ContentProviderUtils(getContext()));
+        // The track ids are part of the digested data.
+        String cacheKey = new BigInteger(1, digest.digest()).toString(16) + "." + trackFileFormat.getExtension();
 
-        PipeDataWriter<String> pipeDataWriter = (output, uri1, mimeType, opts, args) -> {
-            try (FileOutputStream fileOutputStream = new FileOutputStream(output.getFileDescriptor())) {
-                // TODO handle failure (i.e., do not export an empty file)
-                trackExporter.writeTrack(tracks, fileOutputStream);
-            } catch (IOException e) {
-                Log.w(TAG, "there occurred an error while sharing a file: " + e);
+        TrackExporter trackExporter = trackFileFormat.createTrackExporter(getContext(), new ContentProviderUtils(getContext()));
+        return new ShareContent(tracks, trackExporter, cacheKey);
+    }
+
+    private static void updateDigest(MessageDigest digest, Cursor cursor) {
+        for (int i = 0; i < cursor.getColumnCount(); i++) {
+            if (cursor.getType(i) == Cursor.FIELD_TYPE_BLOB) {
+                digest.update(cursor.getBlob(i));
+            } else {
+                String value = cursor.getString(i);
+                digest.update(String.valueOf(value).getBytes(StandardCharsets.UTF_8));
             }
-        };
+            digest.update((byte) 0);
+        }
+    }
 
-        return openPipeHelper(uri, getType(uri), null, null, pipeDataWriter);
+    private synchronized ShareFileCache getShareFileCache() {
+        if (shareFileCache == null) {
+            shareFileCache = new ShareFileCache(new File(getContext().getCacheDir(), CACHE_DIRECTORY), CACHE_MAX_SIZE);
+        }
+        return shareFileCache;
     }
 }
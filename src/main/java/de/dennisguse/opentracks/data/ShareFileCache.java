@@ -0,0 +1,187 @@
+package de.dennisguse.opentracks.data;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/**
+ * Files generated for sharing (see {@link ShareContentProvider}) stored by a key that changes if the content changes.
+ * <p>
+ * If the cache exceeds its maximum size, the least recently used files are deleted.
+ */
+final class ShareFileCache {
+
+    private static final String TAG = ShareFileCache.class.getSimpleName();
+
+    private static final String TEMP_PREFIX = "tmp_";
+
+    private final File directory;
+    private final long maxSize;
+
+    /**
+     * Deletes temporary files left over (e.g., if the process was killed while writing); thus only one instance per directory must exist.
+     */
+    ShareFileCache(@NonNull File directory, long maxSize) {
+        this.directory = directory;
+        this.maxSize = maxSize;
+
+        File[] tempFiles = directory.listFiles(file -> file.isFile() && file.getName().startsWith(TEMP_PREFIX));
+        if (tempFiles != null) {
+            for (File file : tempFiles) {
+                if (file.delete()) {
+                    Log.d(TAG, "Deleted stale " + file.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the cached file; null if not cached.
+     */
+    @Nullable
+    synchronized File get(@NonNull String key) {
+        File file = new File(directory, key);
+        if (!file.isFile()) {
+            return null;
+        }
+        // Last access for LRU
+        file.setLastModified(System.currentTimeMillis());
+        return file;
+    }
+
+    /**
+     * @return a new file to write into; must be committed or deleted.
+     */
+    @NonNull
+    synchronized File createTempFile() throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Could not create directory " + directory);
+        }
+        return File.createTempFile(TEMP_PREFIX, null, directory);
+    }
+
+    /**
+     * Stores the completely written tempFile.
+     */
+    @NonNull
+    synchronized File commit(@NonNull File tempFile, @NonNull String key) throws IOException {
+        File file = new File(directory, key);
+        if (!tempFile.renameTo(file)) {
+            tempFile.delete();
+            throw new IOException("Could not rename " + tempFile + " to " + file);
+        }
+        trim(file);
+        return file;
+    }
+
+    /**
+     * Deletes the least recently used files (except keep) until the cache's size is below its maximum size.
+     */
+    private void trim(File keep) {
+        File[] files = directory.listFiles(file -> file.isFile() && !file.getName().startsWith(TEMP_PREFIX));
+        if (files == null) {
+            return;
+        }
+
+        long size = Arrays.stream(files).mapToLong(File::length).sum();
+        if (size <= maxSize) {
+            return;
+        }
+
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        for (File file : files) {
+            if (size <= maxSize) {
+                break;
+            }
+            if (file.equals(keep)) {
+                continue;
+            }
+            long length = file.length();
+            if (file.delete()) {
+                size -= length;
+                Log.d(TAG, "Evicted " + file.getName());
+            }
+        }
+    }
+
+    /**
+     * Writes to the primary (e.g., the pipe to a receiving app) and the secondary stream (e.g., a file).
+     * If the primary stream fails (e.g., the receiving app stopped reading), the data is still written to the secondary stream.
+     */
+    static class TeeOutputStream extends OutputStream {
+
+        private OutputStream primary;
+        private final OutputStream secondary;
+
+        TeeOutputStream(@NonNull OutputStream primary, @NonNull OutputStream secondary) {
+            this.primary = primary;
+            this.secondary = secondary;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            secondary.write(b);
+            if (primary != null) {
+                try {
+                    primary.write(b);
+                } catch (IOException e) {
+                    closePrimary(e);
+                }
+            }
+        }
+
+        @Override
+        public void write(@NonNull byte[] b, int off, int len) throws IOException {
+            secondary.write(b, off, len);
+            if (primary != null) {
+                try {
+                    primary.write(b, off, len);
+                } catch (IOException e) {
+                    closePrimary(e);
+                }
+            }
+        }
+
+        @Override
+        public void flush() throws IOException {
+            secondary.flush();
+            if (primary != null) {
+                try {
+                    primary.flush();
+                } catch (IOException e) {
+                    closePrimary(e);
+                }
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                secondary.close();
+            } finally {
+                if (primary != null) {
+                    closePrimary(null);
+                }
+            }
+        }
+
+        private void closePrimary(@Nullable IOException cause) {
+            if (cause != null) {
+                Log.d(TAG, "Primary stream failed; only writing to secondary: " + cause.getMessage());
+            }
+            try {
+                primary.close();
+            } catch (IOException e) {
+                // Ignore
+            }
+            primary = null;
+        }
+    }
+}
@@ -27,8 +27,10 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import de.dennisguse.opentracks.data.models.Marker;
@@ -57,9 +59,15 @@ public class TrackDataHub {
     /**
      * Target number of track points displayed by the diagrams (recommended).
      * We may display more than this number of points.
+     * More details can be loaded for a listener (see {@link #loadTrackPoints(Listener, int)}).
      */
     private static final int TARGET_DISPLAYED_TRACKPOINTS = 5000;
 
+    /**
+     * Maximum number of track points kept in memory while loading to provide more details (see {@link #loadTrackPoints(Listener, int)}).
+     */
+    private static final int MAX_DETAIL_TRACKPOINTS = 4 * TARGET_DISPLAYED_TRACKPOINTS;
+
     /**
      * Maximum number of markers to displayed in the diagrams.
      */
@@ -88,6 +96,11 @@ public class TrackDataHub {
     private TrackPoint.Id firstSeenTrackPointId;
     private TrackPoint.Id lastSeenTrackPointId;
     private TrackStatisticsUpdater trackStatisticsUpdater;
+    // Re-used for every sampled in TrackPoint; only to be used in the handler thread.
+    private final TrackStatistics trackStatisticsSnapshot = new TrackStatistics();
+    // Every detailSamplingFrequency-th loaded TrackPoint; only to be used in the handler thread.
+    private final List<DetailTrackPoint> detailTrackPoints = new ArrayList<>();
+    private int detailSamplingFrequency;
 
     // Registered listeners
     private ContentObserver tracksTableObserver;
@@ -197,6 +210,18 @@ public class TrackDataHub {
         handler.post(() -> listeners.remove(trackDataListener));
     }
 
+    /**
+     * Loads the track points of the selected track for one listener again with another target number of points (e.g., more details if a chart is zoomed in).
+     * Afterwards, new track points are provided with the common sampling.
+     */
+    public void loadTrackPoints(final Listener trackDataListener, int targetNumPoints) {
+        handler.post(() -> {
+            if (listeners.contains(trackDataListener)) {
+                resampleTrackPoints(trackDataListener, targetNumPoints);
+            }
+        });
+    }
+
     /**
      * Returns true if the selected track is recording.
      */
@@ -357,18 +382,27 @@ public class TrackDataHub {
                 if (samplingFrequency == -1) {
                     long numTotalPoints = Math.max(0L, lastTrackPointId.id() - localFirstSeenTrackPointId.id()); //TODO That is an assumption; should be derived from the DB.
                     samplingFrequency = 1 + (int) (numTotalPoints / targetNumPoints);
+                    if (updateSamplingState && detailSamplingFrequency == 0) {
+                        detailSamplingFrequency = 1 + (int) (numTotalPoints / MAX_DETAIL_TRACKPOINTS);
+                    }
                 }
 
                 currentUpdater.addTrackPoint(trackPoint);
 
+                boolean isLast = trackPointId.equals(lastTrackPointId) && !isSelectedTrackRecording();
+                if (updateSamplingState && (localNumLoadedTrackPoints % detailSamplingFrequency == 0 || isLast)) {
+                    detailTrackPoints.add(new DetailTrackPoint(trackPoint, currentUpdater.getTrackStatistics()));
+                }
+
                 // Also include the last point if the selected track is not recording.
-                if ((localNumLoadedTrackPoints % samplingFrequency == 0) || (trackPointId == lastTrackPointId && !isSelectedTrackRecording())) {
+                if ((localNumLoadedTrackPoints % samplingFrequency == 0) || isLast) {
+                    currentUpdater.getTrackStatistics(trackStatisticsSnapshot);
                     for (Listener trackDataListener : listeners) {
-                        trackDataListener.onSampledInTrackPoint(trackPoint, currentUpdater.getTrackStatistics());
+                        trackDataListener.onSampledInTrackPoint(trackPoint, trackStatisticsSnapshot);
                     }
                 } else {
                     for (Listener trackDataListener : listeners) {
-                        trackDataListener.onSampledOutTrackPoint(trackPoint, currentUpdater.getTrackStatistics());
+                        trackDataListener.onSampledOutTrackPoint(trackPoint);
                     }
                 }
 
@@ -389,7 +423,34 @@ public class TrackDataHub {
         listeners.stream().forEach(Listener::onNewTrackPointsDone);
     }
 
+    /**
+     * Sends the track points up to the last already sent one with another sampling; to be run in the {@link #handler} thread.
+     * The track points are taken from {@link #detailTrackPoints} (i.e., the track is not loaded again).
+     */
+    private void resampleTrackPoints(Listener trackDataListener, int targetNumPoints) {
+        if (detailTrackPoints.isEmpty()) {
+            return;
+        }
+
+        trackDataListener.clearTrackPointsForResampling();
+
+        int size = detailTrackPoints.size();
+        int samplingFrequency = 1 + (size - 1) / targetNumPoints;
+        for (int i = 0; i < size; i++) {
+            DetailTrackPoint detailTrackPoint = detailTrackPoints.get(i);
+            // Also include the last point if the selected track is not recording.
+            if (i % samplingFrequency == 0 || (i == size - 1 && !isSelectedTrackRecording())) {
+                trackDataListener.onSampledInTrackPoint(detailTrackPoint.trackPoint(), detailTrackPoint.trackStatistics());
+            } else {
+                trackDataListener.onSampledOutTrackPoint(detailTrackPoint.trackPoint());
+            }
+        }
+
+        trackDataListener.onNewTrackPointsDone();
+    }
 
+    private record DetailTrackPoint(TrackPoint trackPoint, TrackStatistics trackStatistics) {
+    }
 
     /**
      * Resets the track points sampling states.
@@ -399,6 +460,8 @@ public class TrackDataHub {
         firstSeenTrackPointId = null;
         lastSeenTrackPointId = null;
         trackStatisticsUpdater = new TrackStatisticsUpdater();
+        detailTrackPoints.clear();
+        detailSamplingFrequency = 0;
     }
 
     private boolean isStarted() {
@@ -423,10 +486,21 @@ public class TrackDataHub {
          */
         void clearTrackPoints();
 
+        /**
+         * Called to clear previously-sent track points as they are sent again with another sampling (see {@link #loadTrackPoints(Listener, int)}).
+         */
+        default void clearTrackPointsForResampling() {
+            clearTrackPoints();
+        }
+
         /**
          * Called when a sampled in track point is read.
+         * NOTE: trackStatistics is only valid during this call and must not be modified:
+         * while loading, it is a snapshot that is overwritten for the next track point; while resampling, it is the copy stored for this track point.
+         * Copy the needed values (e.g., into a ChartPoint) instead of keeping a reference.
          *
-         * @param trackPoint the trackPoint
+         * @param trackPoint      the trackPoint
+         * @param trackStatistics the statistics up to (incl.) trackPoint; only valid during this call
          */
         default void onSampledInTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
         }
@@ -436,7 +510,7 @@ public class TrackDataHub {
          *
          * @param trackPoint the trackPoint
          */
-        default void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint, @NonNull TrackStatistics trackStatistics) {
+        default void onSampledOutTrackPoint(@NonNull TrackPoint trackPoint) {
         }
 
         /**
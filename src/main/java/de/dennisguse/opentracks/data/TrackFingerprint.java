@@ -0,0 +1,79 @@
+package de.dennisguse.opentracks.data;
+
+import androidx.annotation.NonNull;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * A fingerprint of a track's content to detect re-imports of the same activity (e.g., exported by another app without or with a different UUID).
+ * <p>
+ * Hash of the start time (seconds), the number of locations, and a polyline of {@link #SAMPLES} equally spaced locations.
+ * Only data that survives an export is used: the time is truncated to seconds and the coordinates are rounded to 1E-4 degree (about 11m).
+ * <p>
+ * Besides a hash, the stored fingerprint is NULL (not yet computed or outdated), {@link #NONE}, or {@link #RECORDING}.
+ * A hash equal to one of these values is very unlikely (2^-63); such a track is just not detected as re-import.
+ */
+public final class TrackFingerprint {
+
+    /**
+     * The track has no locations; there is nothing to compare.
+     */
+    public static final long NONE = 0;
+
+    /**
+     * The track is recording; the fingerprint is computed when it is finished.
+     */
+    public static final long RECORDING = 1;
+
+    static final int SAMPLES = 16;
+
+    // in 1E-6 degree
+    private static final int COORDINATE_PRECISION = 100;
+
+    static final String[] PROJECTION = {TrackPointsColumns.TIME, TrackPointsColumns.LATITUDE, TrackPointsColumns.LONGITUDE};
+
+    private TrackFingerprint() {
+    }
+
+    /**
+     * @param count the number of locations (> 0)
+     * @return the (ascending) positions of the sampled locations; the first is the first location.
+     */
+    @NonNull
+    static int[] getSamplePositions(int count) {
+        int[] positions = new int[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) {
+            positions[i] = (int) ((long) i * (count - 1) / (SAMPLES - 1));
+        }
+        return positions;
+    }
+
+    /**
+     * @param startTime  time of the first location (epoch milliseconds)
+     * @param count      the number of locations
+     * @param latitudes  latitudes of the sampled locations (see {@link #getSamplePositions(int)}) in 1E-6 degree
+     * @param longitudes longitudes of the sampled locations in 1E-6 degree
+     */
+    static long compute(long startTime, int count, @NonNull int[] latitudes, @NonNull int[] longitudes) {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + SAMPLES * 2 * Integer.BYTES);
+
+        buffer.putLong(Math.floorDiv(startTime, 1000));
+        buffer.putInt(count);
+
+        for (int i = 0; i < SAMPLES; i++) {
+            buffer.putInt((int) Math.round(latitudes[i] / (double) COORDINATE_PRECISION));
+            buffer.putInt((int) Math.round(longitudes[i] / (double) COORDINATE_PRECISION));
+        }
+
+        try {
+            return ByteBuffer.wrap(MessageDigest.getInstance("SHA-256").digest(buffer.array())).getLong();
+        } catch (NoSuchAlgorithmException e) {
+            // SHA-256 is always available.
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,245 @@
+package de.dennisguse.opentracks.data;
+
+import android.content.ContentValues;
+import android.database.Cursor;
+import android.database.DatabaseUtils;
+import android.database.MergeCursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteStatement;
+import android.os.CancellationSignal;
+import android.text.TextUtils;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import de.dennisguse.opentracks.data.tables.SensorStatsColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointBlocksColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+import de.dennisguse.opentracks.data.tables.TracksColumns;
+
+/**
+ * Moves the track points of a finished track between the track points table (one row per track point) and the track point blocks table (see {@link TrackPointBlock}).
+ * <p>
+ * The ids of the track points are kept.
+ * The sensor statistics are kept while archived and re-computed by its trigger while restoring.
+ * Archived track points can be read without restoring them (see {@link #query(SQLiteDatabase, String[], String[], String, String[], String, String, CancellationSignal)}).
+ */
+final class TrackPointArchive {
+
+    private static final String TAG = TrackPointArchive.class.getSimpleName();
+
+    private static final String TRACKPOINTS_INSERT = createInsert(TrackPointsColumns.TABLE_NAME);
+
+    private TrackPointArchive() {
+    }
+
+    /**
+     * Skipped if the track is recording (again), i.e., its fingerprint is {@link TrackFingerprint#RECORDING}.
+     *
+     * @return the number of archived track points (i.e., deleted rows of the track points table).
+     */
+    static int archive(@NonNull SQLiteDatabase db, long trackId) {
+        String[] selectionArgs = {Long.toString(trackId)};
+
+        db.beginTransaction();
+        try {
+            if (DatabaseUtils.queryNumEntries(db, TracksColumns.TABLE_NAME, TracksColumns._ID + "=? AND " + TracksColumns.FINGERPRINT + "=" + TrackFingerprint.RECORDING, selectionArgs) > 0) {
+                Log.i(TAG, "Not archiving track " + trackId + " as it is recording.");
+                return 0;
+            }
+
+            // Should not happen, but the track points of a track must only be stored in one table.
+            restore(db, trackId);
+
+            TrackPointBlock block = new TrackPointBlock();
+            try (Cursor cursor = db.query(TrackPointsColumns.TABLE_NAME, TrackPointBlock.COLUMNS, TrackPointsColumns.TRACKID + "=?", selectionArgs, null, null, TrackPointsColumns._ID)) {
+                int[] columnIndexes = TrackPointBlock.getColumnIndexes(cursor);
+                while (cursor.moveToNext()) {
+                    block.add(cursor, columnIndexes);
+                    if (block.isFull()) {
+                        insert(db, trackId, block);
+                        block.clear();
+                    }
+                }
+            }
+            if (block.size() > 0) {
+                insert(db, trackId, block);
+            }
+
+            int count = db.delete(TrackPointsColumns.TABLE_NAME, TrackPointsColumns.TRACKID + "=?", selectionArgs);
+            setArchived(db, trackId, true);
+            db.setTransactionSuccessful();
+            Log.i(TAG, "Archived " + count + " track points of track " + trackId);
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * @return the number of restored track points (0 if not archived).
+     */
+    static int restore(@NonNull SQLiteDatabase db, long trackId) {
+        String[] selectionArgs = {Long.toString(trackId)};
+
+        if (DatabaseUtils.queryNumEntries(db, TrackPointBlocksColumns.TABLE_NAME, TrackPointBlocksColumns.TRACKID + "=?", selectionArgs) == 0) {
+            return 0;
+        }
+
+        db.beginTransaction();
+        try (Cursor cursor = db.query(TrackPointBlocksColumns.TABLE_NAME, new String[]{TrackPointBlocksColumns.DATA}, TrackPointBlocksColumns.TRACKID + "=?", selectionArgs, null, null, TrackPointBlocksColumns._ID)) {
+            // Re-computed by the trigger while inserting the track points in order.
+            db.delete(SensorStatsColumns.TABLE_NAME, SensorStatsColumns.TRACKID + "=?", selectionArgs);
+
+            int count = 0;
+            TrackPointBlock block = new TrackPointBlock();
+            try (SQLiteStatement statement = db.compileStatement(TRACKPOINTS_INSERT)) {
+                while (cursor.moveToNext()) {
+                    block.decode(cursor.getBlob(0));
+                    for (int i = 0; i < block.size(); i++) {
+                        block.bind(statement, trackId, i);
+                        statement.executeInsert();
+                    }
+                    count += block.size();
+                }
+            }
+
+            db.delete(TrackPointBlocksColumns.TABLE_NAME, TrackPointBlocksColumns.TRACKID + "=?", selectionArgs);
+            setArchived(db, trackId, false);
+            db.setTransactionSuccessful();
+            Log.i(TAG, "Restored " + count + " track points of track " + trackId);
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Restores the track points to continue recording.
+     * The track is marked as recording in the same transaction, so a pending {@link #archive(SQLiteDatabase, long)} skips it.
+     *
+     * @return the number of restored track points (0 if not archived).
+     */
+    static int restoreForRecording(@NonNull SQLiteDatabase db, long trackId) {
+        db.beginTransaction();
+        try {
+            int count = restore(db, trackId);
+
+            ContentValues values = new ContentValues();
+            values.put(TracksColumns.FINGERPRINT, TrackFingerprint.RECORDING);
+            db.update(TracksColumns.TABLE_NAME, values, TracksColumns._ID + "=?", new String[]{Long.toString(trackId)});
+
+            db.setTransactionSuccessful();
+            return count;
+        } finally {
+            db.endTransaction();
+        }
+    }
+
+    /**
+     * Reads the track points of the tracks (archived or not) without restoring them (see {@link TrackPointBlockCursor}).
+     * For archived track points, only a selection of the id's lower bound (i.e., `_id>?` or `_id>=?`) and ordering by id is supported.
+     * If only some of the tracks are archived, the archived track points come first (ascending) or last (descending); the limit applies to each part.
+     *
+     * @param trackIds the track ids
+     * @return null if none of the tracks is archived.
+     * @throws IllegalArgumentException if the selection, sort order, or projection is not supported for archived track points.
+     */
+    @Nullable
+    static Cursor query(@NonNull SQLiteDatabase db, @NonNull String[] trackIds, @Nullable String[] projection, @Nullable String selection, @Nullable String[] selectionArgs, @Nullable String sortOrder, @Nullable String limit, @Nullable CancellationSignal cancellationSignal) {
+        List<String> archivedTrackIds = new ArrayList<>();
+        List<String> otherTrackIds = new ArrayList<>();
+        try (Cursor cursor = db.query(TracksColumns.TABLE_NAME, new String[]{TracksColumns._ID, TracksColumns.ARCHIVED}, TracksColumns._ID + " IN (" + joinIds(trackIds) + ")", null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                (cursor.getInt(1) == 1 ? archivedTrackIds : otherTrackIds).add(cursor.getString(0));
+            }
+        }
+        if (archivedTrackIds.isEmpty()) {
+            return null;
+        }
+
+        Long minId = null;
+        if (selection != null) {
+            String normalized = selection.replace(" ", "");
+            if (selectionArgs == null || selectionArgs.length != 1) {
+                throw new IllegalArgumentException("Unsupported selection for archived track points: " + selection);
+            } else if (normalized.equals(TrackPointsColumns._ID + ">=?")) {
+                minId = Long.parseLong(selectionArgs[0]);
+            } else if (normalized.equals(TrackPointsColumns._ID + ">?")) {
+                minId = Long.parseLong(selectionArgs[0]) + 1;
+            } else {
+                throw new IllegalArgumentException("Unsupported selection for archived track points: " + selection);
+            }
+        }
+
+        boolean descending;
+        String normalizedSortOrder = sortOrder != null ? sortOrder.trim().toLowerCase(Locale.ROOT) : TrackPointsColumns.DEFAULT_SORT_ORDER;
+        if (normalizedSortOrder.equals(TrackPointsColumns._ID) || normalizedSortOrder.equals(TrackPointsColumns._ID + " asc")) {
+            descending = false;
+        } else if (normalizedSortOrder.equals(TrackPointsColumns._ID + " desc")) {
+            descending = true;
+        } else {
+            throw new IllegalArgumentException("Unsupported sort order for archived track points: " + sortOrder);
+        }
+
+        Cursor archivedCursor = new TrackPointBlockCursor(db, archivedTrackIds.toArray(new String[0]), projection, minId, descending, limit != null ? Integer.valueOf(limit) : null);
+        if (otherTrackIds.isEmpty()) {
+            return archivedCursor;
+        }
+
+        Cursor otherCursor = db.query(TrackPointsColumns.TABLE_NAME, projection, TrackPointsColumns.TRACKID + " IN (" + TextUtils.join(",", otherTrackIds) + ")" + (selection != null ? " AND (" + selection + ")" : ""), selectionArgs, null, null, sortOrder != null ? sortOrder : TrackPointsColumns.DEFAULT_SORT_ORDER, limit, cancellationSignal);
+        return new MergeCursor(descending ? new Cursor[]{otherCursor, archivedCursor} : new Cursor[]{archivedCursor, otherCursor});
+    }
+
+    private static String joinIds(String[] trackIds) {
+        List<Long> ids = new ArrayList<>();
+        for (String trackId : trackIds) {
+            ids.add(Long.parseLong(trackId));
+        }
+        return TextUtils.join(",", ids);
+    }
+
+    /**
+     * Restores the track points of all tracks (e.g., before downgrading the database).
+     */
+    static void restoreAll(@NonNull SQLiteDatabase db) {
+        List<Long> trackIds = new ArrayList<>();
+        try (Cursor cursor = db.query(true, TrackPointBlocksColumns.TABLE_NAME, new String[]{TrackPointBlocksColumns.TRACKID}, null, null, null, null, null, null)) {
+            while (cursor.moveToNext()) {
+                trackIds.add(cursor.getLong(0));
+            }
+        }
+
+        for (long trackId : trackIds) {
+            restore(db, trackId);
+        }
+    }
+
+    private static void setArchived(SQLiteDatabase db, long trackId, boolean archived) {
+        ContentValues values = new ContentValues();
+        values.put(TracksColumns.ARCHIVED, archived ? 1 : 0);
+        db.update(TracksColumns.TABLE_NAME, values, TracksColumns._ID + "=?", new String[]{Long.toString(trackId)});
+    }
+
+    private static String createInsert(String tableName) {
+        return "INSERT INTO " + tableName
+                + " (" + TrackPointsColumns.TRACKID + ", " + String.join(", ", TrackPointBlock.COLUMNS) + ")"
+                + " VALUES (" + TextUtils.join(", ", Collections.nCopies(TrackPointBlock.COLUMNS.length + 1, "?")) + ")";
+    }
+
+    private static void insert(SQLiteDatabase db, long trackId, TrackPointBlock block) {
+        ContentValues values = new ContentValues();
+        values.put(TrackPointBlocksColumns.TRACKID, trackId);
+        values.put(TrackPointBlocksColumns.FIRST_ID, block.getId(0));
+        values.put(TrackPointBlocksColumns.LAST_ID, block.getId(block.size() - 1));
+        values.put(TrackPointBlocksColumns.NUMPOINTS, block.size());
+        values.put(TrackPointBlocksColumns.DATA, block.encode());
+        db.insertOrThrow(TrackPointBlocksColumns.TABLE_NAME, null, values);
+    }
+}
@@ -0,0 +1,440 @@
+package de.dennisguse.opentracks.data;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.ByteArrayOutputStream;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.List;
+
+import de.dennisguse.opentracks.data.models.Altitude;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Position;
+import de.dennisguse.opentracks.data.models.Speed;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * Consecutive track points of one track stored column by column (struct of arrays) and their compact binary encoding.
+ * <p>
+ * Encoding: the number of track points followed by each column.
+ * A column starts with its null mode (all null, none null, or a bitmap of the non-null values) followed by the non-null values.
+ * Integer columns are stored as delta to the previous value (zigzag varint); usually 1-3 bytes instead of 8.
+ * Float columns are stored the same way if the value is a decimal with the column's precision (e.g., 0.01m for altitude); otherwise the raw bits are stored.
+ * The encoding is lossless.
+ * <p>
+ * Decoding re-uses the arrays, i.e., there is no allocation per track point; columns that are not needed are skipped (see {@link #setProjection(String[])}).
+ */
+final class TrackPointBlock {
+
+    static final int CAPACITY = 1024;
+
+    static final String[] COLUMNS = {
+            TrackPointsColumns._ID,
+            TrackPointsColumns.TYPE,
+            TrackPointsColumns.TIME,
+            TrackPointsColumns.LATITUDE,
+            TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.ALTITUDE,
+            TrackPointsColumns.HORIZONTAL_ACCURACY,
+            TrackPointsColumns.VERTICAL_ACCURACY,
+            TrackPointsColumns.SPEED,
+            TrackPointsColumns.BEARING,
+            TrackPointsColumns.SENSOR_HEARTRATE,
+            TrackPointsColumns.SENSOR_CADENCE,
+            TrackPointsColumns.SENSOR_POWER,
+            TrackPointsColumns.SENSOR_DISTANCE,
+            TrackPointsColumns.ALTITUDE_GAIN,
+            TrackPointsColumns.ALTITUDE_LOSS
+    };
+
+    // Indices into COLUMNS; the first INTEGER_COLUMNS are integers, the others are floats.
+    private static final int ID = 0;
+    private static final int TYPE = 1;
+    private static final int TIME = 2;
+    private static final int LATITUDE = 3;
+    private static final int LONGITUDE = 4;
+    private static final int INTEGER_COLUMNS = 5;
+    private static final int ALTITUDE = 5;
+    private static final int HORIZONTAL_ACCURACY = 6;
+    private static final int VERTICAL_ACCURACY = 7;
+    private static final int SPEED = 8;
+    private static final int BEARING = 9;
+    private static final int HEARTRATE = 10;
+    private static final int CADENCE = 11;
+    private static final int POWER = 12;
+    private static final int SENSOR_DISTANCE = 13;
+    private static final int ALTITUDE_GAIN = 14;
+    private static final int ALTITUDE_LOSS = 15;
+
+    // Precision of the float columns as decimal scale (e.g., 100 is 0.01).
+    private static final int[] FLOAT_SCALES = {100, 100, 100, 100, 100, 10, 10, 10, 100, 100, 100};
+
+    // Larger quantized values are stored as raw bits (prevents overflows of the delta).
+    private static final long MAX_QUANTIZED = 1L << 40;
+
+    private static final int NULL_MODE_ALL = 0;
+    private static final int NULL_MODE_NONE = 1;
+    private static final int NULL_MODE_BITMAP = 2;
+
+    private final long[][] integers = new long[INTEGER_COLUMNS][CAPACITY];
+    private final float[][] floats = new float[COLUMNS.length - INTEGER_COLUMNS][CAPACITY];
+    private final boolean[][] isNull = new boolean[COLUMNS.length][CAPACITY];
+    private int size;
+
+    // Columns that are not decoded (i.e., are null) as they are not part of the projection.
+    private final boolean[] skipped = new boolean[COLUMNS.length];
+
+    // Read position while decoding.
+    private byte[] data;
+    private int position;
+
+    int size() {
+        return size;
+    }
+
+    boolean isFull() {
+        return size == CAPACITY;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    long getId(int index) {
+        return integers[ID][index];
+    }
+
+    boolean isInteger(int column) {
+        return column < INTEGER_COLUMNS;
+    }
+
+    boolean isNull(int column, int index) {
+        return isNull[column][index];
+    }
+
+    long getLong(int column, int index) {
+        return column < INTEGER_COLUMNS ? integers[column][index] : (long) floats[column - INTEGER_COLUMNS][index];
+    }
+
+    double getDouble(int column, int index) {
+        return column < INTEGER_COLUMNS ? integers[column][index] : floats[column - INTEGER_COLUMNS][index];
+    }
+
+    /**
+     * Only the columns of the projection are decoded; the others are null.
+     * Id, type, and time are always decoded.
+     *
+     * @param projection the columns (see {@link TrackPointsColumns}); `null` for all
+     */
+    void setProjection(@Nullable String[] projection) {
+        List<String> columns = projection != null ? Arrays.asList(projection) : null;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            skipped[column] = columns != null && column > TIME && !columns.contains(COLUMNS[column]);
+        }
+    }
+
+    /**
+     * Adds the current row of the cursor.
+     *
+     * @param columnIndexes the indexes of {@link #COLUMNS} in the cursor.
+     */
+    void add(@NonNull Cursor cursor, @NonNull int[] columnIndexes) {
+        if (isFull()) {
+            throw new IllegalStateException("Block is full.");
+        }
+        for (int column = 0; column < COLUMNS.length; column++) {
+            int columnIndex = columnIndexes[column];
+            isNull[column][size] = cursor.isNull(columnIndex);
+            if (column < INTEGER_COLUMNS) {
+                integers[column][size] = cursor.getLong(columnIndex);
+            } else {
+                floats[column - INTEGER_COLUMNS][size] = cursor.getFloat(columnIndex);
+            }
+        }
+        size++;
+    }
+
+    static int[] getColumnIndexes(@NonNull Cursor cursor) {
+        int[] columnIndexes = new int[COLUMNS.length];
+        for (int column = 0; column < COLUMNS.length; column++) {
+            columnIndexes[column] = cursor.getColumnIndexOrThrow(COLUMNS[column]);
+        }
+        return columnIndexes;
+    }
+
+    /**
+     * Binds the track point to the statement; parameters are the trackId followed by {@link #COLUMNS}.
+     */
+    void bind(@NonNull SQLiteStatement statement, long trackId, int index) {
+        statement.clearBindings();
+        statement.bindLong(1, trackId);
+        for (int column = 0; column < COLUMNS.length; column++) {
+            if (isNull[column][index]) {
+                statement.bindNull(column + 2);
+            } else if (column < INTEGER_COLUMNS) {
+                statement.bindLong(column + 2, integers[column][index]);
+            } else {
+                statement.bindDouble(column + 2, floats[column - INTEGER_COLUMNS][index]);
+            }
+        }
+    }
+
+    /**
+     * Same as {@link ContentProviderUtils#fillTrackPoint(Cursor, CachedTrackPointsIndexes)}.
+     */
+    @NonNull
+    TrackPoint toTrackPoint(int index) {
+        TrackPoint trackPoint = new TrackPoint(
+                new TrackPoint.Id(integers[ID][index]),
+                TrackPoint.Type.getById((int) integers[TYPE][index]),
+                new Position(
+                        Instant.ofEpochMilli(integers[TIME][index]),
+                        !isNull[LATITUDE][index] ? ((double) integers[LATITUDE][index]) / 1E6 : null,
+                        !isNull[LONGITUDE][index] ? ((double) integers[LONGITUDE][index]) / 1E6 : null,
+                        !isNull[HORIZONTAL_ACCURACY][index] ? Distance.of(getFloat(HORIZONTAL_ACCURACY, index)) : null,
+                        !isNull[ALTITUDE][index] ? Altitude.WGS84.of(getFloat(ALTITUDE, index)) : null,
+                        !isNull[VERTICAL_ACCURACY][index] ? Distance.of(getFloat(VERTICAL_ACCURACY, index)) : null,
+                        !isNull[BEARING][index] ? getFloat(BEARING, index) : null,
+                        !isNull[SPEED][index] ? Speed.of(getFloat(SPEED, index)) : null
+                ));
+
+        if (!isNull[HEARTRATE][index]) {
+            trackPoint.setHeartRate(getFloat(HEARTRATE, index));
+        }
+        if (!isNull[CADENCE][index]) {
+            trackPoint.setCadence(getFloat(CADENCE, index));
+        }
+        if (!isNull[SENSOR_DISTANCE][index]) {
+            trackPoint.setSensorDistance(Distance.of(getFloat(SENSOR_DISTANCE, index)));
+        }
+        if (!isNull[POWER][index]) {
+            trackPoint.setPower(getFloat(POWER, index));
+        }
+
+        if (!isNull[ALTITUDE_GAIN][index]) {
+            trackPoint.setAltitudeGain(getFloat(ALTITUDE_GAIN, index));
+        }
+        if (!isNull[ALTITUDE_LOSS][index]) {
+            trackPoint.setAltitudeLoss(getFloat(ALTITUDE_LOSS, index));
+        }
+
+        return trackPoint;
+    }
+
+    /**
+     * Adds the track point to the buffer; same as {@link #toTrackPoint(int)} without allocation.
+     */
+    void copyTo(int index, @NonNull TrackPointBuffer buffer) {
+        int i = buffer.append(integers[ID][index], TrackPointBuffer.getType((int) integers[TYPE][index]), integers[TIME][index]);
+        if (!isNull[LATITUDE][index] && !isNull[LONGITUDE][index]) {
+            buffer.setLocation(i, integers[LATITUDE][index] / 1E6, integers[LONGITUDE][index] / 1E6);
+        }
+        if (!isNull[HORIZONTAL_ACCURACY][index]) {
+            buffer.setHorizontalAccuracy(i, getFloat(HORIZONTAL_ACCURACY, index));
+        }
+        if (!isNull[ALTITUDE][index]) {
+            buffer.setAltitude(i, getFloat(ALTITUDE, index));
+        }
+        if (!isNull[VERTICAL_ACCURACY][index]) {
+            buffer.setVerticalAccuracy(i, getFloat(VERTICAL_ACCURACY, index));
+        }
+        if (!isNull[SPEED][index]) {
+            buffer.setSpeed(i, getFloat(SPEED, index));
+        }
+        if (!isNull[BEARING][index]) {
+            buffer.setBearing(i, getFloat(BEARING, index));
+        }
+        if (!isNull[HEARTRATE][index]) {
+            buffer.setHeartRate(i, getFloat(HEARTRATE, index));
+        }
+        if (!isNull[CADENCE][index]) {
+            buffer.setCadence(i, getFloat(CADENCE, index));
+        }
+        if (!isNull[POWER][index]) {
+            buffer.setPower(i, getFloat(POWER, index));
+        }
+        if (!isNull[SENSOR_DISTANCE][index]) {
+            buffer.setSensorDistance(i, getFloat(SENSOR_DISTANCE, index));
+        }
+        if (!isNull[ALTITUDE_GAIN][index]) {
+            buffer.setAltitudeGain(i, getFloat(ALTITUDE_GAIN, index));
+        }
+        if (!isNull[ALTITUDE_LOSS][index]) {
+            buffer.setAltitudeLoss(i, getFloat(ALTITUDE_LOSS, index));
+        }
+    }
+
+    private float getFloat(int column, int index) {
+        return floats[column - INTEGER_COLUMNS][index];
+    }
+
+    @NonNull
+    byte[] encode() {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(size * 16);
+        writeVarLong(out, size);
+        for (int column = 0; column < COLUMNS.length; column++) {
+            encodeNulls(out, isNull[column]);
+
+            long previous = 0;
+            for (int i = 0; i < size; i++) {
+                if (isNull[column][i]) {
+                    continue;
+                }
+                if (column < INTEGER_COLUMNS) {
+                    long value = integers[column][i];
+                    writeVarLong(out, zigzag(value - previous));
+                    previous = value;
+                } else {
+                    float value = floats[column - INTEGER_COLUMNS][i];
+                    int scale = FLOAT_SCALES[column - INTEGER_COLUMNS];
+                    long quantized = Math.round(value * (double) scale);
+                    if (Math.abs(quantized) < MAX_QUANTIZED && Float.floatToRawIntBits(dequantize(quantized, scale)) == Float.floatToRawIntBits(value)) {
+                        writeVarLong(out, zigzag(quantized - previous) << 1);
+                        previous = quantized;
+                    } else {
+                        writeVarLong(out, (Float.floatToRawIntBits(value) & 0xFFFFFFFFL) << 1 | 1);
+                    }
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private void encodeNulls(ByteArrayOutputStream out, boolean[] columnIsNull) {
+        int nullCount = 0;
+        for (int i = 0; i < size; i++) {
+            if (columnIsNull[i]) {
+                nullCount++;
+            }
+        }
+
+        if (nullCount == size) {
+            out.write(NULL_MODE_ALL);
+        } else if (nullCount == 0) {
+            out.write(NULL_MODE_NONE);
+        } else {
+            out.write(NULL_MODE_BITMAP);
+            for (int i = 0; i < size; i += 8) {
+                int bits = 0;
+                for (int j = i; j < Math.min(i + 8, size); j++) {
+                    if (columnIsNull[j]) {
+                        bits |= 1 << (j - i);
+                    }
+                }
+                out.write(bits);
+            }
+        }
+    }
+
+    /**
+     * Replaces the content with the decoded data.
+     *
+     * @throws IllegalArgumentException if the data is corrupt.
+     */
+    void decode(@NonNull byte[] data) {
+        this.data = data;
+        this.position = 0;
+        try {
+            long count = readVarLong();
+            if (count < 0 || count > CAPACITY) {
+                throw new IllegalArgumentException("Invalid number of track points: " + count);
+            }
+            size = (int) count;
+
+            for (int column = 0; column < COLUMNS.length; column++) {
+                decodeNulls(isNull[column]);
+                if (skipped[column]) {
+                    skipValues(isNull[column]);
+                    continue;
+                }
+
+                long previous = 0;
+                for (int i = 0; i < size; i++) {
+                    if (isNull[column][i]) {
+                        continue;
+                    }
+                    long value = readVarLong();
+                    if (column < INTEGER_COLUMNS) {
+                        previous += unzigzag(value);
+                        integers[column][i] = previous;
+                    } else if ((value & 1) == 0) {
+                        previous += unzigzag(value >>> 1);
+                        floats[column - INTEGER_COLUMNS][i] = dequantize(previous, FLOAT_SCALES[column - INTEGER_COLUMNS]);
+                    } else {
+                        floats[column - INTEGER_COLUMNS][i] = Float.intBitsToFloat((int) (value >>> 1));
+                    }
+                }
+            }
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated data.", e);
+        } finally {
+            this.data = null;
+        }
+    }
+
+    private void decodeNulls(boolean[] columnIsNull) {
+        int mode = data[position++];
+        switch (mode) {
+            case NULL_MODE_ALL, NULL_MODE_NONE -> {
+                for (int i = 0; i < size; i++) {
+                    columnIsNull[i] = mode == NULL_MODE_ALL;
+                }
+            }
+            case NULL_MODE_BITMAP -> {
+                for (int i = 0; i < size; i += 8) {
+                    int bits = data[position++];
+                    for (int j = i; j < Math.min(i + 8, size); j++) {
+                        columnIsNull[j] = (bits & (1 << (j - i))) != 0;
+                    }
+                }
+            }
+            default -> throw new IllegalArgumentException("Invalid null mode: " + mode);
+        }
+    }
+
+    private void skipValues(boolean[] columnIsNull) {
+        for (int i = 0; i < size; i++) {
+            if (!columnIsNull[i]) {
+                readVarLong();
+                columnIsNull[i] = true;
+            }
+        }
+    }
+
+        private static float dequantize(long quantized, int scale) {
+        return (float) (quantized / (double) scale);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data[position++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Invalid varint.");
+    }
+}
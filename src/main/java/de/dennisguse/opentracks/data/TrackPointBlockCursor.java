@@ -0,0 +1,220 @@
+package de.dennisguse.opentracks.data;
+
+import android.database.AbstractCursor;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+
+import de.dennisguse.opentracks.data.tables.TrackPointBlocksColumns;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
+
+/**
+ * Read-only cursor over archived track points (see {@link TrackPointArchive}) with the columns of the track points table.
+ * <p>
+ * Only the index of the blocks is loaded upfront; a block is decoded once a track point of it is accessed.
+ * Thus, only one block is kept in memory.
+ * The track points are ordered by id (ascending or descending).
+ */
+final class TrackPointBlockCursor extends AbstractCursor {
+
+    // Same order as the track points table.
+    private static final String[] ALL_COLUMNS = {
+            TrackPointsColumns._ID,
+            TrackPointsColumns.TRACKID,
+            TrackPointsColumns.LONGITUDE,
+            TrackPointsColumns.LATITUDE,
+            TrackPointsColumns.TIME,
+            TrackPointsColumns.ALTITUDE,
+            TrackPointsColumns.HORIZONTAL_ACCURACY,
+            TrackPointsColumns.SPEED,
+            TrackPointsColumns.BEARING,
+            TrackPointsColumns.SENSOR_HEARTRATE,
+            TrackPointsColumns.SENSOR_CADENCE,
+            TrackPointsColumns.SENSOR_POWER,
+            TrackPointsColumns.ALTITUDE_GAIN,
+            TrackPointsColumns.ALTITUDE_LOSS,
+            TrackPointsColumns.TYPE,
+            TrackPointsColumns.SENSOR_DISTANCE,
+            TrackPointsColumns.VERTICAL_ACCURACY
+    };
+
+    private static final String SELECT_DATA = "SELECT " + TrackPointBlocksColumns.DATA + " FROM " + TrackPointBlocksColumns.TABLE_NAME + " WHERE " + TrackPointBlocksColumns._ID + "=?";
+
+    // Not stored in the blocks.
+    private static final int COLUMN_TRACKID = -1;
+
+    private final SQLiteDatabase db;
+
+    private final String[] columnNames;
+    // Per column: the column of the block or COLUMN_TRACKID.
+    private final int[] columns;
+
+    // Ordered by the id of their first track point.
+    private final long[] blockIds;
+    private final long[] blockTrackIds;
+    private final int[] blockStarts;
+
+    // Track points of the first block that are before the minimal id.
+    private final int skipped;
+    private final int available;
+    private final int count;
+    private final boolean descending;
+
+    private final TrackPointBlock block = new TrackPointBlock();
+    private int decodedBlock = -1;
+    private int index;
+
+    /**
+     * @param trackIds   the ids of archived tracks
+     * @param projection columns of the track points table; `null` for all
+     * @param minId      the minimal id (inclusive); `null` to ignore
+     * @param descending order by descending id
+     * @param limit      the maximal number of track points; `null` to ignore
+     * @throws IllegalArgumentException if the projection contains an unknown column
+     */
+    TrackPointBlockCursor(@NonNull SQLiteDatabase db, @NonNull String[] trackIds, @Nullable String[] projection, @Nullable Long minId, boolean descending, @Nullable Integer limit) {
+        this.db = db;
+        this.descending = descending;
+
+        columnNames = projection != null ? projection : ALL_COLUMNS;
+        columns = new int[columnNames.length];
+        for (int i = 0; i < columnNames.length; i++) {
+            if (TrackPointsColumns.TRACKID.equals(columnNames[i])) {
+                columns[i] = COLUMN_TRACKID;
+            } else {
+                columns[i] = Arrays.asList(TrackPointBlock.COLUMNS).indexOf(columnNames[i]);
+                if (columns[i] < 0) {
+                    throw new IllegalArgumentException("Unsupported column for archived track points: " + columnNames[i]);
+                }
+            }
+        }
+        block.setProjection(columnNames);
+
+        String selection = TrackPointBlocksColumns.TRACKID + " IN (" + String.join(",", trackIds) + ")";
+        String[] selectionArgs = null;
+        if (minId != null) {
+            selection += " AND " + TrackPointBlocksColumns.LAST_ID + ">=?";
+            selectionArgs = new String[]{Long.toString(minId)};
+        }
+        try (Cursor cursor = db.query(TrackPointBlocksColumns.TABLE_NAME, new String[]{TrackPointBlocksColumns._ID, TrackPointBlocksColumns.TRACKID, TrackPointBlocksColumns.NUMPOINTS}, selection, selectionArgs, null, null, TrackPointBlocksColumns.FIRST_ID)) {
+            blockIds = new long[cursor.getCount()];
+            blockTrackIds = new long[cursor.getCount()];
+            blockStarts = new int[cursor.getCount()];
+            int total = 0;
+            while (cursor.moveToNext()) {
+                blockIds[cursor.getPosition()] = cursor.getLong(0);
+                blockTrackIds[cursor.getPosition()] = cursor.getLong(1);
+                blockStarts[cursor.getPosition()] = total;
+                total += cursor.getInt(2);
+            }
+
+            int skip = 0;
+            if (minId != null && blockIds.length > 0) {
+                decode(0);
+                while (skip < block.size() && block.getId(skip) < minId) {
+                    skip++;
+                }
+            }
+            skipped = skip;
+            available = total - skipped;
+            count = limit != null ? Math.min(available, limit) : available;
+        }
+    }
+
+    @Override
+    public int getCount() {
+        return count;
+    }
+
+    @Override
+    public String[] getColumnNames() {
+        return columnNames;
+    }
+
+    @Override
+    public boolean onMove(int oldPosition, int newPosition) {
+        int position = skipped + (descending ? available - 1 - newPosition : newPosition);
+        int blockIndex = Arrays.binarySearch(blockStarts, position);
+        if (blockIndex < 0) {
+            blockIndex = -blockIndex - 2;
+        }
+        decode(blockIndex);
+        index = position - blockStarts[blockIndex];
+        return true;
+    }
+
+    private void decode(int blockIndex) {
+        if (blockIndex == decodedBlock) {
+            return;
+        }
+        block.decode(queryData(blockIds[blockIndex]));
+        decodedBlock = blockIndex;
+    }
+
+    @NonNull
+    private byte[] queryData(long blockId) {
+        try (Cursor cursor = db.rawQuery(SELECT_DATA, new String[]{Long.toString(blockId)})) {
+            if (!cursor.moveToFirst()) {
+                throw new IllegalStateException("Block " + blockId + " was removed.");
+            }
+            return cursor.getBlob(0);
+        }
+    }
+
+    @Override
+    public int getType(int column) {
+        if (isNull(column)) {
+            return Cursor.FIELD_TYPE_NULL;
+        }
+        return columns[column] == COLUMN_TRACKID || block.isInteger(columns[column]) ? Cursor.FIELD_TYPE_INTEGER : Cursor.FIELD_TYPE_FLOAT;
+    }
+
+    @Override
+    public boolean isNull(int column) {
+        return columns[column] != COLUMN_TRACKID && block.isNull(columns[column], index);
+    }
+
+    @Override
+    public long getLong(int column) {
+        if (columns[column] == COLUMN_TRACKID) {
+            return blockTrackIds[decodedBlock];
+        }
+        return block.getLong(columns[column], index);
+    }
+
+    @Override
+    public int getInt(int column) {
+        return (int) getLong(column);
+    }
+
+    @Override
+    public short getShort(int column) {
+        return (short) getLong(column);
+    }
+
+    @Override
+    public double getDouble(int column) {
+        if (columns[column] == COLUMN_TRACKID) {
+            return blockTrackIds[decodedBlock];
+        }
+        return block.getDouble(columns[column], index);
+    }
+
+    @Override
+    public float getFloat(int column) {
+        return (float) getDouble(column);
+    }
+
+    @Override
+    public String getString(int column) {
+        return switch (getType(column)) {
+            case Cursor.FIELD_TYPE_NULL -> null;
+            case Cursor.FIELD_TYPE_INTEGER -> Long.toString(getLong(column));
+            default -> Double.toString(getDouble(column));
+        };
+    }
+}
@@ -0,0 +1,430 @@
+package de.dennisguse.opentracks.data;
+
+import android.database.Cursor;
+
+import androidx.annotation.NonNull;
+
+import java.time.Instant;
+
+import de.dennisguse.opentracks.data.models.Altitude;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Position;
+import de.dennisguse.opentracks.data.models.Speed;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * A chunk of consecutive {@link TrackPoint}s stored column by column (struct of arrays) as primitives; filled by {@link TrackPointIterator#next(TrackPointBuffer)}.
+ * <p>
+ * For consumers that only need some values of many TrackPoints (e.g., statistics): there is no allocation per TrackPoint and the buffer is re-used for the next chunk.
+ * Which values are set is stored per TrackPoint as bitmap; the getters must only be called if the value is set (e.g., {@link #hasLocation(int)}).
+ * Coordinates are stored as double as TrackPoints from the database (1E-6 degree) and recorded TrackPoints are represented exactly.
+ */
+public final class TrackPointBuffer {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final TrackPoint.Type[] TYPES = TrackPoint.Type.values();
+
+    // Bits of the bitmap; set if the value is present.
+    private static final int LOCATION = 1;
+    private static final int HORIZONTAL_ACCURACY = 1 << 1;
+    private static final int ALTITUDE = 1 << 2;
+    private static final int VERTICAL_ACCURACY = 1 << 3;
+    private static final int SPEED = 1 << 4;
+    private static final int BEARING = 1 << 5;
+    private static final int HEART_RATE = 1 << 6;
+    private static final int CADENCE = 1 << 7;
+    private static final int POWER = 1 << 8;
+    private static final int SENSOR_DISTANCE = 1 << 9;
+    private static final int ALTITUDE_GAIN = 1 << 10;
+    private static final int ALTITUDE_LOSS = 1 << 11;
+
+    private final long[] id;
+    private final TrackPoint.Type[] type;
+    private final long[] time_ms;
+    private final double[] latitude;
+    private final double[] longitude;
+    private final double[] horizontalAccuracy_m;
+    private final double[] altitude_m;
+    private final double[] verticalAccuracy_m;
+    private final double[] speed_mps;
+    private final float[] bearing;
+    private final float[] heartRate_bpm;
+    private final float[] cadence_rpm;
+    private final float[] power_w;
+    private final double[] sensorDistance_m;
+    private final float[] altitudeGain_m;
+    private final float[] altitudeLoss_m;
+    private final int[] present;
+
+    private int size;
+
+    public TrackPointBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    public TrackPointBuffer(int capacity) {
+        id = new long[capacity];
+        type = new TrackPoint.Type[capacity];
+        time_ms = new long[capacity];
+        latitude = new double[capacity];
+        longitude = new double[capacity];
+        horizontalAccuracy_m = new double[capacity];
+        altitude_m = new double[capacity];
+        verticalAccuracy_m = new double[capacity];
+        speed_mps = new double[capacity];
+        bearing = new float[capacity];
+        heartRate_bpm = new float[capacity];
+        cadence_rpm = new float[capacity];
+        power_w = new float[capacity];
+        sensorDistance_m = new double[capacity];
+        altitudeGain_m = new float[capacity];
+        altitudeLoss_m = new float[capacity];
+        present = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return id.length;
+    }
+
+    public boolean isFull() {
+        return size == capacity();
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a TrackPoint (e.g., while recording).
+     */
+    public void add(@NonNull TrackPoint trackPoint) {
+        int index = append(trackPoint.getId() != null ? trackPoint.getId().id() : -1, trackPoint.getType(), trackPoint.getTime().toEpochMilli());
+        if (trackPoint.hasLocation()) {
+            setLocation(index, trackPoint.getPosition().latitude(), trackPoint.getPosition().longitude());
+        }
+        if (trackPoint.hasHorizontalAccuracy()) {
+            setHorizontalAccuracy(index, trackPoint.getHorizontalAccuracy().toM());
+        }
+        if (trackPoint.hasAltitude()) {
+            setAltitude(index, trackPoint.getAltitude().toM());
+        }
+        if (trackPoint.hasVerticalAccuracy()) {
+            setVerticalAccuracy(index, trackPoint.getVerticalAccuracy().toM());
+        }
+        if (trackPoint.hasSpeed()) {
+            setSpeed(index, trackPoint.getSpeed().toMPS());
+        }
+        if (trackPoint.hasBearing()) {
+            setBearing(index, trackPoint.getBearing());
+        }
+        if (trackPoint.hasHeartRate()) {
+            setHeartRate(index, trackPoint.getHeartRate().getBPM());
+        }
+        if (trackPoint.hasCadence()) {
+            setCadence(index, trackPoint.getCadence().getRPM());
+        }
+        if (trackPoint.hasPower()) {
+            setPower(index, trackPoint.getPower().getW());
+        }
+        if (trackPoint.hasSensorDistance()) {
+            setSensorDistance(index, trackPoint.getSensorDistance().toM());
+        }
+        if (trackPoint.hasAltitudeGain()) {
+            setAltitudeGain(index, trackPoint.getAltitudeGain());
+        }
+        if (trackPoint.hasAltitudeLoss()) {
+            setAltitudeLoss(index, trackPoint.getAltitudeLoss());
+        }
+    }
+
+    /**
+     * Adds the current row of the cursor; same as {@link ContentProviderUtils#fillTrackPoint(Cursor, CachedTrackPointsIndexes)}.
+     */
+    void add(@NonNull Cursor cursor, @NonNull CachedTrackPointsIndexes indexes) {
+        int index = append(cursor.getLong(indexes.idIndex), getType(cursor.getInt(indexes.typeIndex)), cursor.getLong(indexes.timeIndex));
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.latitudeIndex) && !CachedTrackPointsIndexes.isNull(cursor, indexes.longitudeIndex)) {
+            setLocation(index, cursor.getInt(indexes.latitudeIndex) / 1E6, cursor.getInt(indexes.longitudeIndex) / 1E6);
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.accuracyIndex)) {
+            setHorizontalAccuracy(index, cursor.getFloat(indexes.accuracyIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.altitudeIndex)) {
+            setAltitude(index, cursor.getFloat(indexes.altitudeIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.accuracyVerticalIndex)) {
+            setVerticalAccuracy(index, cursor.getFloat(indexes.accuracyVerticalIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.speedIndex)) {
+            setSpeed(index, cursor.getFloat(indexes.speedIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.bearingIndex)) {
+            setBearing(index, cursor.getFloat(indexes.bearingIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorHeartRateIndex)) {
+            setHeartRate(index, cursor.getFloat(indexes.sensorHeartRateIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorCadenceIndex)) {
+            setCadence(index, cursor.getFloat(indexes.sensorCadenceIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorPowerIndex)) {
+            setPower(index, cursor.getFloat(indexes.sensorPowerIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.sensorDistanceIndex)) {
+            setSensorDistance(index, cursor.getFloat(indexes.sensorDistanceIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.altitudeGainIndex)) {
+            setAltitudeGain(index, cursor.getFloat(indexes.altitudeGainIndex));
+        }
+        if (!CachedTrackPointsIndexes.isNull(cursor, indexes.altitudeLossIndex)) {
+            setAltitudeLoss(index, cursor.getFloat(indexes.altitudeLossIndex));
+        }
+    }
+
+    /**
+     * Adds a TrackPoint without values; values are set via the setters.
+     *
+     * @return the index of the TrackPoint
+     */
+    int append(long id, @NonNull TrackPoint.Type type, long time_ms) {
+        if (isFull()) {
+            throw new IllegalStateException("Buffer is full.");
+        }
+        int index = size++;
+        this.id[index] = id;
+        this.type[index] = type;
+        this.time_ms[index] = time_ms;
+        present[index] = 0;
+        return index;
+    }
+
+    void setLocation(int index, double latitude, double longitude) {
+        this.latitude[index] = latitude;
+        this.longitude[index] = longitude;
+        present[index] |= LOCATION;
+    }
+
+    void setHorizontalAccuracy(int index, double horizontalAccuracy_m) {
+        this.horizontalAccuracy_m[index] = horizontalAccuracy_m;
+        present[index] |= HORIZONTAL_ACCURACY;
+    }
+
+    void setAltitude(int index, double altitude_m) {
+        this.altitude_m[index] = altitude_m;
+        present[index] |= ALTITUDE;
+    }
+
+    void setVerticalAccuracy(int index, double verticalAccuracy_m) {
+        this.verticalAccuracy_m[index] = verticalAccuracy_m;
+        present[index] |= VERTICAL_ACCURACY;
+    }
+
+    void setSpeed(int index, double speed_mps) {
+        this.speed_mps[index] = speed_mps;
+        present[index] |= SPEED;
+    }
+
+    void setBearing(int index, float bearing) {
+        this.bearing[index] = bearing;
+        present[index] |= BEARING;
+    }
+
+    void setHeartRate(int index, float heartRate_bpm) {
+        this.heartRate_bpm[index] = heartRate_bpm;
+        present[index] |= HEART_RATE;
+    }
+
+    void setCadence(int index, float cadence_rpm) {
+        this.cadence_rpm[index] = cadence_rpm;
+        present[index] |= CADENCE;
+    }
+
+    void setPower(int index, float power_w) {
+        this.power_w[index] = power_w;
+        present[index] |= POWER;
+    }
+
+    void setSensorDistance(int index, double sensorDistance_m) {
+        this.sensorDistance_m[index] = sensorDistance_m;
+        present[index] |= SENSOR_DISTANCE;
+    }
+
+    void setAltitudeGain(int index, float altitudeGain_m) {
+        this.altitudeGain_m[index] = altitudeGain_m;
+        present[index] |= ALTITUDE_GAIN;
+    }
+
+    void setAltitudeLoss(int index, float altitudeLoss_m) {
+        this.altitudeLoss_m[index] = altitudeLoss_m;
+        present[index] |= ALTITUDE_LOSS;
+    }
+
+    /**
+     * Like {@link TrackPoint.Type#getById(int)}, but without copying all types.
+     */
+    static TrackPoint.Type getType(int type_db) {
+        for (TrackPoint.Type type : TYPES) {
+            if (type.type_db == type_db) {
+                return type;
+            }
+        }
+        return TrackPoint.Type.getById(type_db);
+    }
+
+    public long getId(int index) {
+        return id[index];
+    }
+
+    @NonNull
+    public TrackPoint.Type getType(int index) {
+        return type[index];
+    }
+
+    public long getTime_ms(int index) {
+        return time_ms[index];
+    }
+
+    public boolean hasLocation(int index) {
+        return (present[index] & LOCATION) != 0;
+    }
+
+    public double getLatitude(int index) {
+        return latitude[index];
+    }
+
+    public double getLongitude(int index) {
+        return longitude[index];
+    }
+
+    public boolean hasHorizontalAccuracy(int index) {
+        return (present[index] & HORIZONTAL_ACCURACY) != 0;
+    }
+
+    public double getHorizontalAccuracy_m(int index) {
+        return horizontalAccuracy_m[index];
+    }
+
+    public boolean hasAltitude(int index) {
+        return (present[index] & ALTITUDE) != 0;
+    }
+
+    public double getAltitude_m(int index) {
+        return altitude_m[index];
+    }
+
+    public boolean hasVerticalAccuracy(int index) {
+        return (present[index] & VERTICAL_ACCURACY) != 0;
+    }
+
+    public double getVerticalAccuracy_m(int index) {
+        return verticalAccuracy_m[index];
+    }
+
+    public boolean hasSpeed(int index) {
+        return (present[index] & SPEED) != 0;
+    }
+
+    public double getSpeed_mps(int index) {
+        return speed_mps[index];
+    }
+
+    public boolean hasBearing(int index) {
+        return (present[index] & BEARING) != 0;
+    }
+
+    public float getBearing(int index) {
+        return bearing[index];
+    }
+
+    public boolean hasHeartRate(int index) {
+        return (present[index] & HEART_RATE) != 0;
+    }
+
+    public float getHeartRate_bpm(int index) {
+        return heartRate_bpm[index];
+    }
+
+    public boolean hasCadence(int index) {
+        return (present[index] & CADENCE) != 0;
+    }
+
+    public float getCadence_rpm(int index) {
+        return cadence_rpm[index];
+    }
+
+    public boolean hasPower(int index) {
+        return (present[index] & POWER) != 0;
+    }
+
+    public float getPower_w(int index) {
+        return power_w[index];
+    }
+
+    public boolean hasSensorDistance(int index) {
+        return (present[index] & SENSOR_DISTANCE) != 0;
+    }
+
+    public double getSensorDistance_m(int index) {
+        return sensorDistance_m[index];
+    }
+
+    public boolean hasAltitudeGain(int index) {
+        return (present[index] & ALTITUDE_GAIN) != 0;
+    }
+
+    public float getAltitudeGain_m(int index) {
+        return altitudeGain_m[index];
+    }
+
+    public boolean hasAltitudeLoss(int index) {
+        return (present[index] & ALTITUDE_LOSS) != 0;
+    }
+
+    public float getAltitudeLoss_m(int index) {
+        return altitudeLoss_m[index];
+    }
+
+    /**
+     * Creates the TrackPoint (e.g., for consumers that were not migrated yet).
+     */
+    @NonNull
+    public TrackPoint toTrackPoint(int index) {
+        TrackPoint trackPoint = new TrackPoint(
+                id[index] != -1 ? new TrackPoint.Id(id[index]) : null,
+                type[index],
+                new Position(
+                        Instant.ofEpochMilli(time_ms[index]),
+                        hasLocation(index) ? latitude[index] : null,
+                        hasLocation(index) ? longitude[index] : null,
+                        hasHorizontalAccuracy(index) ? Distance.of(horizontalAccuracy_m[index]) : null,
+                        hasAltitude(index) ? Altitude.WGS84.of(altitude_m[index]) : null,
+                        hasVerticalAccuracy(index) ? Distance.of(verticalAccuracy_m[index]) : null,
+                        hasBearing(index) ? bearing[index] : null,
+                        hasSpeed(index) ? Speed.of(speed_mps[index]) : null
+                ));
+
+        if (hasHeartRate(index)) {
+            trackPoint.setHeartRate(heartRate_bpm[index]);
+        }
+        if (hasCadence(index)) {
+            trackPoint.setCadence(cadence_rpm[index]);
+        }
+        if (hasSensorDistance(index)) {
+            trackPoint.setSensorDistance(Distance.of(sensorDistance_m[index]));
+        }
+        if (hasPower(index)) {
+            trackPoint.setPower(power_w[index]);
+        }
+        if (hasAltitudeGain(index)) {
+            trackPoint.setAltitudeGain(altitudeGain_m[index]);
+        }
+        if (hasAltitudeLoss(index)) {
+            trackPoint.setAltitudeLoss(altitudeLoss_m[index]);
+        }
+        return trackPoint;
+    }
+}
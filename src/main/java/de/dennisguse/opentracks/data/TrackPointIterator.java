@@ -3,36 +3,97 @@ package de.dennisguse.opentracks.data;
 import android.database.Cursor;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Iterator;
+import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Set;
 
-import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 
 /**
  * A lightweight wrapper around the original {@link Cursor}.
+ * <p>
+ * Reads either the rows of the track points table or the archived track points (see {@link TrackPointArchive}).
+ * If only some {@link Field}s are requested, only those columns are loaded; the other data of the {@link TrackPoint}s may not be set.
  */
 public class TrackPointIterator implements Iterator<TrackPoint>, AutoCloseable {
 
     private static final String TAG = TrackPointIterator.class.getSimpleName();
 
-    private final ContentProviderUtils contentProviderUtils;
-    private final Track.Id trackId;
+    /**
+     * Optional data of a {@link TrackPoint}; id, type, and time are always loaded.
+     */
+    public enum Field {
+        LOCATION(TrackPointsColumns.LATITUDE, TrackPointsColumns.LONGITUDE),
+        ACCURACY(TrackPointsColumns.HORIZONTAL_ACCURACY),
+        ALTITUDE(TrackPointsColumns.ALTITUDE, TrackPointsColumns.VERTICAL_ACCURACY),
+        SPEED(TrackPointsColumns.SPEED),
+        BEARING(TrackPointsColumns.BEARING),
+        HEART_RATE(TrackPointsColumns.SENSOR_HEARTRATE),
+        CADENCE(TrackPointsColumns.SENSOR_CADENCE),
+        POWER(TrackPointsColumns.SENSOR_POWER),
+        SENSOR_DISTANCE(TrackPointsColumns.SENSOR_DISTANCE),
+        ALTITUDE_GAIN_LOSS(TrackPointsColumns.ALTITUDE_GAIN, TrackPointsColumns.ALTITUDE_LOSS);
+
+        private final String[] columns;
+
+        Field(String... columns) {
+            this.columns = columns;
+        }
+
+        /**
+         * @return the projection for the fields.
+         */
+        @NonNull
+        static String[] toProjection(@NonNull Set<Field> fields) {
+            List<String> projection = new ArrayList<>();
+            Collections.addAll(projection, TrackPointsColumns._ID, TrackPointsColumns.TYPE, TrackPointsColumns.TIME);
+            for (Field field : fields) {
+                Collections.addAll(projection, field.columns);
+            }
+            return projection.toArray(new String[0]);
+        }
+    }
+
     private final CachedTrackPointsIndexes indexes;
     private Cursor cursor;
 
-    public TrackPointIterator(ContentProviderUtils contentProviderUtils, Track.Id trackId, TrackPoint.Id startTrackPointId) {
-        this.contentProviderUtils = contentProviderUtils;
-        this.trackId = trackId;
+    // Only for archived track points: the decoded current block and the position of the next track point.
+    private final TrackPointBlock block;
+    private int blockPosition;
 
-        cursor = getCursor(startTrackPointId);
+    /**
+     * Iterates over the rows of the track points table.
+     */
+    TrackPointIterator(@NonNull Cursor cursor) {
+        this.cursor = cursor;
         indexes = new CachedTrackPointsIndexes(cursor);
+        block = null;
     }
 
-    private Cursor getCursor(TrackPoint.Id trackPointId) {
-        return contentProviderUtils.getTrackPointCursor(trackId, trackPointId);
+    /**
+     * Iterates over archived track points.
+     *
+     * @param blocksCursor      the track's blocks ordered by id with the columns data and numpoints (in that order)
+     * @param startTrackPointId the starting trackPoint id. `null` to ignore
+     * @param projection        the columns to decode (see {@link Field#toProjection(Set)}); `null` for all
+     */
+    TrackPointIterator(@NonNull Cursor blocksCursor, @Nullable TrackPoint.Id startTrackPointId, @Nullable String[] projection) {
+        cursor = blocksCursor;
+        indexes = null;
+        block = new TrackPointBlock();
+        block.setProjection(projection);
+        if (nextBlock() && startTrackPointId != null) {
+            while (blockPosition < block.size() && block.getId(blockPosition) < startTrackPointId.id()) {
+                blockPosition++;
+            }
+        }
     }
 
     @Override
@@ -40,21 +101,79 @@ public class TrackPointIterator implements Iterator<TrackPoint>, AutoCloseable {
         if (cursor == null) {
             return false;
         }
+        if (block != null && blockPosition < block.size()) {
+            return true;
+        }
         return !cursor.isLast() && !cursor.isAfterLast();
     }
 
     @Override
     @NonNull
     public TrackPoint next() {
-        if (cursor == null || !cursor.moveToNext()) {
+        if (cursor == null) {
+            throw new NoSuchElementException();
+        }
+        if (block != null) {
+            if (blockPosition == block.size() && !nextBlock()) {
+                throw new NoSuchElementException();
+            }
+            return block.toTrackPoint(blockPosition++);
+        }
+        if (!cursor.moveToNext()) {
             throw new NoSuchElementException();
         }
         return ContentProviderUtils.fillTrackPoint(cursor, indexes);
     }
 
+    /**
+     * Loads the next track points into the buffer (replacing its content); no allocation per track point.
+     *
+     * @return the number of loaded track points; 0 if there are no more.
+     */
+    public int next(@NonNull TrackPointBuffer buffer) {
+        buffer.clear();
+        if (cursor == null) {
+            return 0;
+        }
+        while (!buffer.isFull()) {
+            if (block != null) {
+                if (blockPosition == block.size() && !nextBlock()) {
+                    break;
+                }
+                block.copyTo(blockPosition++, buffer);
+            } else {
+                if (!cursor.moveToNext()) {
+                    break;
+                }
+                buffer.add(cursor, indexes);
+            }
+        }
+        return buffer.size();
+    }
+
+    private boolean nextBlock() {
+        blockPosition = 0;
+        if (!cursor.moveToNext()) {
+            block.clear();
+            return false;
+        }
+        block.decode(cursor.getBlob(0));
+        return true;
+    }
+
     @VisibleForTesting
     public int getCount() {
-        return cursor.getCount();
+        if (block == null) {
+            return cursor.getCount();
+        }
+
+        int count = block.size() - blockPosition;
+        int position = cursor.getPosition();
+        while (cursor.moveToNext()) {
+            count += cursor.getInt(1);
+        }
+        cursor.moveToPosition(position);
+        return count;
     }
 
     @Override
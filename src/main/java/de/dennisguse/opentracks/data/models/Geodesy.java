@@ -0,0 +1,155 @@
+package de.dennisguse.opentracks.data.models;
+
+/**
+ * Distance, bearing and interpolation between two coordinates (WGS84; degrees) without allocating.
+ * <p>
+ * Exact (ellipsoid): {@link #distance_m(double, double, double, double)} and {@link #bearing(double, double, double, double)} (Vincenty's inverse formula; same as {@link android.location.Location#distanceTo(android.location.Location)}).
+ * Error below 1mm; for nearly antipodal points the iteration may not converge (error then up to some meters).
+ * <p>
+ * Fast (sphere with mean earth radius): {@link #distanceHaversine_m(double, double, double, double)} and {@link #distanceEquirectangular_m(double, double, double, double)}.
+ * Error up to 0.5% compared to the ellipsoid (depends on latitude and direction).
+ * The equirectangular approximation adds less than 0.01% for distances below 10km (not close to the poles); for short hops (e.g., between two TrackPoints).
+ */
+public final class Geodesy {
+
+    private static final double WGS84_A = 6378137.0; // semi-major axis
+    private static final double WGS84_B = 6356752.3142; // semi-minor axis
+    private static final double WGS84_F = (WGS84_A - WGS84_B) / WGS84_A;
+
+    static final double MEAN_EARTH_RADIUS_M = 6371008.8;
+
+    private static final int MAX_ITERATIONS = 20;
+
+    private Geodesy() {
+    }
+
+    public static double distance_m(double latitude1, double longitude1, double latitude2, double longitude2) {
+        return vincenty(latitude1, longitude1, latitude2, longitude2, false);
+    }
+
+    /**
+     * @return initial bearing in degrees (-180 to 180; 0: north).
+     */
+    public static double bearing(double latitude1, double longitude1, double latitude2, double longitude2) {
+        return vincenty(latitude1, longitude1, latitude2, longitude2, true);
+    }
+
+    public static double distanceHaversine_m(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double phi1 = Math.toRadians(latitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double sinDeltaPhi = Math.sin((phi2 - phi1) / 2);
+        double sinDeltaLambda = Math.sin(Math.toRadians(longitude2 - longitude1) / 2);
+
+        double h = sinDeltaPhi * sinDeltaPhi + Math.cos(phi1) * Math.cos(phi2) * sinDeltaLambda * sinDeltaLambda;
+        return 2 * MEAN_EARTH_RADIUS_M * Math.asin(Math.min(1, Math.sqrt(h)));
+    }
+
+    public static double distanceEquirectangular_m(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double x = Math.toRadians(normalizeLongitudeDelta(longitude2 - longitude1)) * Math.cos(Math.toRadians((latitude1 + latitude2) / 2));
+        double y = Math.toRadians(latitude2 - latitude1);
+        return MEAN_EARTH_RADIUS_M * Math.sqrt(x * x + y * y);
+    }
+
+    /**
+     * Interpolates along the great circle (sphere).
+     *
+     * @param fraction 0: first coordinate; 1: second coordinate
+     * @param result   receives latitude (index 0) and longitude (index 1)
+     */
+    public static void interpolate(double latitude1, double longitude1, double latitude2, double longitude2, double fraction, double[] result) {
+        double phi1 = Math.toRadians(latitude1);
+        double lambda1 = Math.toRadians(longitude1);
+        double phi2 = Math.toRadians(latitude2);
+        double lambda2 = Math.toRadians(longitude2);
+
+        double delta = distanceHaversine_m(latitude1, longitude1, latitude2, longitude2) / MEAN_EARTH_RADIUS_M;
+        double sinDelta = Math.sin(delta);
+        if (sinDelta == 0) {
+            result[0] = latitude1 + fraction * (latitude2 - latitude1);
+            result[1] = longitude1 + fraction * normalizeLongitudeDelta(longitude2 - longitude1);
+            return;
+        }
+
+        double a = Math.sin((1 - fraction) * delta) / sinDelta;
+        double b = Math.sin(fraction * delta) / sinDelta;
+
+        double x = a * Math.cos(phi1) * Math.cos(lambda1) + b * Math.cos(phi2) * Math.cos(lambda2);
+        double y = a * Math.cos(phi1) * Math.sin(lambda1) + b * Math.cos(phi2) * Math.sin(lambda2);
+        double z = a * Math.sin(phi1) + b * Math.sin(phi2);
+
+        result[0] = Math.toDegrees(Math.atan2(z, Math.sqrt(x * x + y * y)));
+        result[1] = Math.toDegrees(Math.atan2(y, x));
+    }
+
+    private static double normalizeLongitudeDelta(double delta) {
+        if (delta > 180) {
+            return delta - 360;
+        }
+        if (delta < -180) {
+            return delta + 360;
+        }
+        return delta;
+    }
+
+    /**
+     * Vincenty's inverse formula (see https://www.ngs.noaa.gov/PUBS_LIB/inverse.pdf section 4).
+     *
+     * @return the distance (meter) or initial bearing (degree).
+     */
+    private static double vincenty(double latitude1, double longitude1, double latitude2, double longitude2, boolean bearing) {
+        double lat1 = Math.toRadians(latitude1);
+        double lat2 = Math.toRadians(latitude2);
+        double aSqMinusBSqOverBSq = (WGS84_A * WGS84_A - WGS84_B * WGS84_B) / (WGS84_B * WGS84_B);
+
+        double L = Math.toRadians(longitude2) - Math.toRadians(longitude1);
+        double U1 = Math.atan((1.0 - WGS84_F) * Math.tan(lat1));
+        double U2 = Math.atan((1.0 - WGS84_F) * Math.tan(lat2));
+
+        double cosU1 = Math.cos(U1);
+        double cosU2 = Math.cos(U2);
+        double sinU1 = Math.sin(U1);
+        double sinU2 = Math.sin(U2);
+        double cosU1cosU2 = cosU1 * cosU2;
+        double sinU1sinU2 = sinU1 * sinU2;
+
+        double A = 0.0;
+        double sigma = 0.0;
+        double deltaSigma = 0.0;
+        double cosLambda = 0.0;
+        double sinLambda = 0.0;
+
+        double lambda = L;
+        for (int i = 0; i < MAX_ITERATIONS; i++) {
+            double lambdaPrevious = lambda;
+            cosLambda = Math.cos(lambda);
+            sinLambda = Math.sin(lambda);
+            double t1 = cosU2 * sinLambda;
+            double t2 = cosU1 * sinU2 - sinU1 * cosU2 * cosLambda;
+            double sinSigma = Math.sqrt(t1 * t1 + t2 * t2);
+            double cosSigma = sinU1sinU2 + cosU1cosU2 * cosLambda;
+            sigma = Math.atan2(sinSigma, cosSigma);
+            double sinAlpha = sinSigma == 0 ? 0.0 : cosU1cosU2 * sinLambda / sinSigma;
+            double cosSqAlpha = 1.0 - sinAlpha * sinAlpha;
+            double cos2SM = cosSqAlpha == 0 ? 0.0 : cosSigma - 2.0 * sinU1sinU2 / cosSqAlpha;
+
+            double uSquared = cosSqAlpha * aSqMinusBSqOverBSq;
+            A = 1 + (uSquared / 16384.0) * (4096.0 + uSquared * (-768 + uSquared * (320.0 - 175.0 * uSquared)));
+            double B = (uSquared / 1024.0) * (256.0 + uSquared * (-128.0 + uSquared * (74.0 - 47.0 * uSquared)));
+            double C = (WGS84_F / 16.0) * cosSqAlpha * (4.0 + WGS84_F * (4.0 - 3.0 * cosSqAlpha));
+            double cos2SMSq = cos2SM * cos2SM;
+            deltaSigma = B * sinSigma * (cos2SM + (B / 4.0) * (cosSigma * (-1.0 + 2.0 * cos2SMSq) - (B / 6.0) * cos2SM * (-3.0 + 4.0 * sinSigma * sinSigma) * (-3.0 + 4.0 * cos2SMSq)));
+
+            lambda = L + (1.0 - C) * WGS84_F * sinAlpha * (sigma + C * sinSigma * (cos2SM + C * cosSigma * (-1.0 + 2.0 * cos2SM * cos2SM)));
+
+            // Relative change; also stops for lambda == 0 (same longitude).
+            if (Math.abs(lambda - lambdaPrevious) <= 1.0e-12 * Math.abs(lambda)) {
+                break;
+            }
+        }
+
+        if (bearing) {
+            return Math.toDegrees(Math.atan2(cosU2 * sinLambda, cosU1 * sinU2 - sinU1 * cosU2 * cosLambda));
+        }
+        return WGS84_B * A * (sigma - deltaSigma);
+    }
+}
@@ -278,7 +278,7 @@ public class TrackPoint {
             throw new RuntimeException("Cannot compute distance.");
         }
 
-        return Distance.of(getLocation().distanceTo(previous.getLocation()));
+        return Distance.of(Geodesy.distance_m(previous.position.latitude(), previous.position.longitude(), position.latitude(), position.longitude()));
     }
 
     public boolean fulfillsAccuracy(Distance thresholdHorizontalAccuracy) {
@@ -289,14 +289,14 @@ public class TrackPoint {
         if (!dest.hasLocation() || !hasLocation()) {
             return Optional.empty();
         }
-        return bearingTo(dest.toLocation());
+        return Optional.of((float) Geodesy.bearing(position.latitude(), position.longitude(), dest.latitude(), dest.longitude()));
     }
 
     public Optional<Float> bearingTo(@NonNull TrackPoint dest) {
         if (!dest.hasLocation() || !hasLocation()) {
             return Optional.empty();
         }
-        return bearingTo(dest.getLocation());
+        return bearingTo(dest.getPosition());
     }
 
     //TODO Bearing requires a location; what do we do if we don't have any?
@@ -0,0 +1,56 @@
+package de.dennisguse.opentracks.data.tables;
+
+import android.provider.BaseColumns;
+
+/**
+ * Constants for the full-text search indices of tracks and markers.
+ * <p>
+ * FTS4 tables with external content (i.e., the text is only stored in the tracks and markers table); kept in sync by triggers.
+ * The docid of the index is the _id of the track or marker.
+ * FTS5 is not available on Android's SQLite.
+ */
+public interface SearchIndexColumns {
+
+    String TRACKS_TABLE_NAME = TracksColumns.TABLE_NAME + "_fts";
+    String MARKERS_TABLE_NAME = MarkerColumns.TABLE_NAME + "_fts";
+
+    // Columns
+    String DOCID = "docid";
+
+    String[] TRACKS_COLUMNS = {TracksColumns.NAME, TracksColumns.DESCRIPTION, TracksColumns.ACTIVITY_TYPE_LOCALIZED};
+    String[] MARKERS_COLUMNS = {MarkerColumns.NAME, MarkerColumns.DESCRIPTION, MarkerColumns.CATEGORY};
+
+    String CREATE_TRACKS_TABLE = createTable(TRACKS_TABLE_NAME, TracksColumns.TABLE_NAME, TRACKS_COLUMNS);
+    String CREATE_MARKERS_TABLE = createTable(MARKERS_TABLE_NAME, MarkerColumns.TABLE_NAME, MARKERS_COLUMNS);
+
+    // Ids of the matching tracks / markers; requires the query as argument (see ContentProviderUtils.toSearchIndexQuery()).
+    String TRACKS_SELECT_MATCHING_IDS = "SELECT " + DOCID + " FROM " + TRACKS_TABLE_NAME + " WHERE " + TRACKS_TABLE_NAME + " MATCH ?";
+    String MARKERS_SELECT_MATCHING_IDS = "SELECT " + DOCID + " FROM " + MARKERS_TABLE_NAME + " WHERE " + MARKERS_TABLE_NAME + " MATCH ?";
+
+    String CREATE_TRACKS_TRIGGER_INSERT = createTrigger(TRACKS_TABLE_NAME, "insert", "AFTER INSERT ON " + TracksColumns.TABLE_NAME, insert(TRACKS_TABLE_NAME, TRACKS_COLUMNS));
+    String CREATE_TRACKS_TRIGGER_DELETE = createTrigger(TRACKS_TABLE_NAME, "delete", "BEFORE DELETE ON " + TracksColumns.TABLE_NAME, delete(TRACKS_TABLE_NAME));
+    String CREATE_TRACKS_TRIGGER_BEFORE_UPDATE = createTrigger(TRACKS_TABLE_NAME, "before_update", "BEFORE UPDATE OF " + String.join(", ", TRACKS_COLUMNS) + " ON " + TracksColumns.TABLE_NAME, delete(TRACKS_TABLE_NAME));
+    String CREATE_TRACKS_TRIGGER_AFTER_UPDATE = createTrigger(TRACKS_TABLE_NAME, "after_update", "AFTER UPDATE OF " + String.join(", ", TRACKS_COLUMNS) + " ON " + TracksColumns.TABLE_NAME, insert(TRACKS_TABLE_NAME, TRACKS_COLUMNS));
+
+    String CREATE_MARKERS_TRIGGER_INSERT = createTrigger(MARKERS_TABLE_NAME, "insert", "AFTER INSERT ON " + MarkerColumns.TABLE_NAME, insert(MARKERS_TABLE_NAME, MARKERS_COLUMNS));
+    String CREATE_MARKERS_TRIGGER_DELETE = createTrigger(MARKERS_TABLE_NAME, "delete", "BEFORE DELETE ON " + MarkerColumns.TABLE_NAME, delete(MARKERS_TABLE_NAME));
+    String CREATE_MARKERS_TRIGGER_BEFORE_UPDATE = createTrigger(MARKERS_TABLE_NAME, "before_update", "BEFORE UPDATE OF " + String.join(", ", MARKERS_COLUMNS) + " ON " + MarkerColumns.TABLE_NAME, delete(MARKERS_TABLE_NAME));
+    String CREATE_MARKERS_TRIGGER_AFTER_UPDATE = createTrigger(MARKERS_TABLE_NAME, "after_update", "AFTER UPDATE OF " + String.join(", ", MARKERS_COLUMNS) + " ON " + MarkerColumns.TABLE_NAME, insert(MARKERS_TABLE_NAME, MARKERS_COLUMNS));
+
+    // unicode61: case-insensitive and without diacritics for all scripts (default tokenizer is ASCII only).
+    private static String createTable(String tableName, String contentTableName, String[] columns) {
+        return "CREATE VIRTUAL TABLE " + tableName + " USING fts4(content=\"" + contentTableName + "\", " + String.join(", ", columns) + ", tokenize=unicode61)";
+    }
+
+    private static String createTrigger(String tableName, String name, String event, String statement) {
+        return "CREATE TRIGGER " + tableName + "_" + name + "_trigger " + event + " BEGIN " + statement + " END";
+    }
+
+    private static String insert(String tableName, String[] columns) {
+        return "INSERT INTO " + tableName + " (" + DOCID + ", " + String.join(", ", columns) + ") VALUES (NEW." + BaseColumns._ID + ", NEW." + String.join(", NEW.", columns) + ");";
+    }
+
+    private static String delete(String tableName) {
+        return "DELETE FROM " + tableName + " WHERE " + DOCID + " = OLD." + BaseColumns._ID + ";";
+    }
+}
@@ -0,0 +1,80 @@
+package de.dennisguse.opentracks.data.tables;
+
+import de.dennisguse.opentracks.data.models.TrackPoint;
+
+/**
+ * Constants for the sensor statistics table: time-weighted sums and maxima of the sensor data per track.
+ * <p>
+ * Maintained by a trigger on each inserted track point (track points are append-only).
+ * The value of a track point is weighted with the time until the next track point; track points of type {@link TrackPoint.Type#SEGMENT_START_MANUAL} are ignored.
+ */
+public interface SensorStatsColumns {
+
+    String TABLE_NAME = "sensorstats";
+
+    // Columns
+    String TRACKID = "trackid";
+    String DURATION = "duration"; // sum of weights (time between track points)
+    String HEARTRATE_SUM = "heartrate_sum"; // time-weighted sum
+    String HEARTRATE_MAX = "heartrate_max";
+    String CADENCE_SUM = "cadence_sum"; // time-weighted sum
+    String CADENCE_MAX = "cadence_max";
+    String POWER_SUM = "power_sum"; // time-weighted sum
+    String POWER_MAX = "power_max";
+    // Last inserted track point (required to weight its values once the next track point is inserted)
+    String LAST_TIME = "last_time"; // NULL if type is SEGMENT_START_MANUAL
+    String LAST_HEARTRATE = "last_heartrate";
+    String LAST_CADENCE = "last_cadence";
+    String LAST_POWER = "last_power";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + TRACKID + " INTEGER PRIMARY KEY, "
+            + DURATION + " INTEGER NOT NULL DEFAULT 0, "
+            + HEARTRATE_SUM + " FLOAT, "
+            + HEARTRATE_MAX + " FLOAT, "
+            + CADENCE_SUM + " FLOAT, "
+            + CADENCE_MAX + " FLOAT, "
+            + POWER_SUM + " FLOAT, "
+            + POWER_MAX + " FLOAT, "
+            + LAST_TIME + " INTEGER, "
+            + LAST_HEARTRATE + " FLOAT, "
+            + LAST_CADENCE + " FLOAT, "
+            + LAST_POWER + " FLOAT, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    // Type column has TEXT affinity.
+    String IS_SEGMENT_START_MANUAL = "CAST(NEW." + TrackPointsColumns.TYPE + " AS INTEGER) IN (" + TrackPoint.Type.SEGMENT_START_MANUAL.type_db + ")";
+
+    // Time between the last and the new track point.
+    String WEIGHT = "(CASE WHEN " + IS_SEGMENT_START_MANUAL + " THEN 0 ELSE COALESCE(MAX(NEW." + TrackPointsColumns.TIME + ", " + LAST_TIME + ") - " + LAST_TIME + ", 0) END)";
+
+    /**
+     * Statements to update the statistics with a new track point (NEW).
+     * Only requires the track point's columns trackid, type, time, and the sensor data.
+     */
+    String UPDATE_WITH_NEW_TRACKPOINT = "INSERT OR IGNORE INTO " + TABLE_NAME + " (" + TRACKID + ") VALUES (NEW." + TrackPointsColumns.TRACKID + "); "
+            + "UPDATE " + TABLE_NAME + " SET "
+            + DURATION + " = " + DURATION + " + " + WEIGHT + ", "
+            + updateSensor(HEARTRATE_SUM, HEARTRATE_MAX, LAST_HEARTRATE, TrackPointsColumns.SENSOR_HEARTRATE) + ", "
+            + updateSensor(CADENCE_SUM, CADENCE_MAX, LAST_CADENCE, TrackPointsColumns.SENSOR_CADENCE) + ", "
+            + updateSensor(POWER_SUM, POWER_MAX, LAST_POWER, TrackPointsColumns.SENSOR_POWER) + ", "
+            + LAST_TIME + " = (CASE WHEN " + IS_SEGMENT_START_MANUAL + " THEN NULL ELSE NEW." + TrackPointsColumns.TIME + " END), "
+            + LAST_HEARTRATE + " = NEW." + TrackPointsColumns.SENSOR_HEARTRATE + ", "
+            + LAST_CADENCE + " = NEW." + TrackPointsColumns.SENSOR_CADENCE + ", "
+            + LAST_POWER + " = NEW." + TrackPointsColumns.SENSOR_POWER + " "
+            + "WHERE " + TRACKID + " = NEW." + TrackPointsColumns.TRACKID + ";";
+
+    String CREATE_TRIGGER = "CREATE TRIGGER " + TrackPointsColumns.TABLE_NAME + "_" + TABLE_NAME + "_trigger AFTER INSERT ON " + TrackPointsColumns.TABLE_NAME
+            + " BEGIN " + UPDATE_WITH_NEW_TRACKPOINT + " END";
+
+    /**
+     * The sum is NULL until the first (not SEGMENT_START_MANUAL) track point with sensor data.
+     * MAX(a, b) is NULL if a or b is NULL.
+     */
+    private static String updateSensor(String sum, String max, String last, String trackPointColumn) {
+        return sum + " = (CASE WHEN NOT " + IS_SEGMENT_START_MANUAL + " AND NEW." + trackPointColumn + " IS NOT NULL THEN COALESCE(" + sum + ", 0) ELSE " + sum + " END)"
+                + " + COALESCE(" + last + " * " + WEIGHT + ", 0), "
+                + max + " = (CASE WHEN " + IS_SEGMENT_START_MANUAL + " THEN " + max + " ELSE COALESCE(MAX(" + max + ", NEW." + trackPointColumn + "), " + max + ", NEW." + trackPointColumn + ") END)";
+    }
+}
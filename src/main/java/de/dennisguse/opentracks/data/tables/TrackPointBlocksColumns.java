@@ -0,0 +1,37 @@
+package de.dennisguse.opentracks.data.tables;
+
+import android.net.Uri;
+import android.provider.BaseColumns;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+
+/**
+ * Constants for the track point blocks table: compact storage of the track points of finished tracks.
+ * <p>
+ * Each block contains up to a fixed number of consecutive track points encoded column by column (see TrackPointBlock).
+ * The track points of a track are either stored in the track points table or in this table.
+ */
+public interface TrackPointBlocksColumns extends BaseColumns {
+
+    String TABLE_NAME = "trackpointblocks";
+    Uri CONTENT_URI = Uri.parse(ContentProviderUtils.CONTENT_BASE_URI + "/" + TABLE_NAME);
+
+    // Columns
+    String TRACKID = "trackid";
+    String FIRST_ID = "firstid"; // _id of the first track point
+    String LAST_ID = "lastid"; // _id of the last track point
+    String NUMPOINTS = "numpoints";
+    String DATA = "data";
+
+    String CREATE_TABLE = "CREATE TABLE " + TABLE_NAME + " ("
+            + _ID + " INTEGER PRIMARY KEY AUTOINCREMENT, "
+            + TRACKID + " INTEGER NOT NULL, "
+            + FIRST_ID + " INTEGER NOT NULL, "
+            + LAST_ID + " INTEGER NOT NULL, "
+            + NUMPOINTS + " INTEGER NOT NULL, "
+            + DATA + " BLOB NOT NULL, "
+            + "FOREIGN KEY (" + TRACKID + ") REFERENCES " + TracksColumns.TABLE_NAME + "(" + TracksColumns._ID + ") ON UPDATE CASCADE ON DELETE CASCADE"
+            + ")";
+
+    String CREATE_TABLE_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + TRACKID + "_index ON " + TABLE_NAME + "(" + TRACKID + ")";
+}
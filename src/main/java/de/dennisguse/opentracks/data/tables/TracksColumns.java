@@ -47,7 +47,9 @@ public interface TracksColumns extends BaseColumns {
     String STARTTIME = "starttime"; // track start time
     String STARTTIME_OFFSET = "starttime_offset"; // in plus/minus in seconds
     String STOPTIME = "stoptime"; // track stop time
-    String MARKER_COUNT = "markerCount"; // the numbers of markers (virtual column)
+    String MARKER_COUNT = "markercount"; // the numbers of markers (maintained by triggers on markers)
+    String FINGERPRINT = "fingerprint"; // see TrackFingerprint (including its sentinel values); NULL if not yet computed or outdated (reset by trigger on trackpoints)
+    String ARCHIVED = "archived"; // 1 if the track points are stored in the track point blocks table (see TrackPointBlocksColumns)
     @Deprecated
     String NUMPOINTS = "numpoints"; // number of track points //TODO UNUSED
     String TOTALDISTANCE = "totaldistance"; // total distance
@@ -83,8 +85,30 @@ public interface TracksColumns extends BaseColumns {
             + UUID + " BLOB, "
             + ALTITUDE_LOSS + " FLOAT, "
             + STARTTIME_OFFSET + " INTEGER, "
-            + ACTIVITY_TYPE + " TEXT)";
+            + ACTIVITY_TYPE + " TEXT, "
+            + MARKER_COUNT + " INTEGER NOT NULL DEFAULT 0, "
+            + FINGERPRINT + " INTEGER, "
+            + ARCHIVED + " INTEGER NOT NULL DEFAULT 0)";
 
     String CREATE_TABLE_INDEX = "CREATE UNIQUE INDEX " + TABLE_NAME + "_" + UUID + "_index ON " + TABLE_NAME + "(" + UUID + ")";
 
+    // For the track list: ordered by start time (keyset pagination).
+    String CREATE_STARTTIME_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + STARTTIME + "_index ON " + TABLE_NAME + "(" + STARTTIME + ")";
+
+    // To detect re-imports.
+    String CREATE_FINGERPRINT_INDEX = "CREATE INDEX " + TABLE_NAME + "_" + FINGERPRINT + "_index ON " + TABLE_NAME + "(" + FINGERPRINT + ")";
+
+    String CREATE_TRIGGER_FINGERPRINT_RESET = "CREATE TRIGGER " + TrackPointsColumns.TABLE_NAME + "_" + FINGERPRINT + "_trigger AFTER INSERT ON " + TrackPointsColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + FINGERPRINT + " = NULL WHERE " + _ID + " = NEW." + TrackPointsColumns.TRACKID + " AND " + FINGERPRINT + " IS NOT NULL; END";
+
+    String CREATE_TRIGGER_MARKER_INSERT = "CREATE TRIGGER " + MarkerColumns.TABLE_NAME + "_" + MARKER_COUNT + "_insert_trigger AFTER INSERT ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = " + MARKER_COUNT + " + 1 WHERE " + _ID + " = NEW." + MarkerColumns.TRACKID + "; END";
+
+    String CREATE_TRIGGER_MARKER_DELETE = "CREATE TRIGGER " + MarkerColumns.TABLE_NAME + "_" + MARKER_COUNT + "_delete_trigger AFTER DELETE ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = " + MARKER_COUNT + " - 1 WHERE " + _ID + " = OLD." + MarkerColumns.TRACKID + "; END";
+
+    String CREATE_TRIGGER_MARKER_UPDATE = "CREATE TRIGGER " + MarkerColumns.TABLE_NAME + "_" + MARKER_COUNT + "_update_trigger AFTER UPDATE OF " + MarkerColumns.TRACKID + " ON " + MarkerColumns.TABLE_NAME
+            + " BEGIN UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = " + MARKER_COUNT + " - 1 WHERE " + _ID + " = OLD." + MarkerColumns.TRACKID + ";"
+            + " UPDATE " + TABLE_NAME + " SET " + MARKER_COUNT + " = " + MARKER_COUNT + " + 1 WHERE " + _ID + " = NEW." + MarkerColumns.TRACKID + "; END";
+
 }
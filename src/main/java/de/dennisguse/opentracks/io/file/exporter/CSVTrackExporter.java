@@ -23,13 +23,15 @@ import androidx.annotation.NonNull;
 import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.text.NumberFormat;
+import java.time.Instant;
 import java.util.List;
 import java.util.Locale;
-import java.util.function.Function;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.TrackPointBuffer;
 import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.Marker;
+import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.util.StringUtils;
@@ -90,20 +92,20 @@ public class CSVTrackExporter implements TrackExporter {
     public boolean writeTrack(@NonNull List<Track> tracks, @NonNull OutputStream outputStream) {
         List<Column> columns = List.of(
                 new Column("time", null),
-                new Column("trackpoint_type", t -> quote(t.getType().name())),
-                new Column("latitude", t -> t.hasLocation() ? COORDINATE_FORMAT.format(t.getPosition().latitude()) : ""),
-                new Column("longitude", t -> t.hasLocation() ? COORDINATE_FORMAT.format(t.getPosition().longitude()) : ""),
-                new Column("altitude", t -> t.hasAltitude() ? ALTITUDE_FORMAT.format(t.getAltitude().toM()) : ""),
-                new Column("accuracy_horizontal", t -> t.hasHorizontalAccuracy() ? DISTANCE_FORMAT.format(t.getHorizontalAccuracy().toM()) : ""),
-                new Column("accuracy_vertical", t -> t.hasVerticalAccuracy() ? DISTANCE_FORMAT.format(t.getVerticalAccuracy().toM()) : ""),
-
-                new Column("speed", t -> t.hasSpeed() ? SPEED_FORMAT.format(t.getSpeed().toKMH()) : ""),
-                new Column("altitude_gain", t -> t.hasAltitudeGain() ? ALTITUDE_FORMAT.format(t.getAltitudeGain()) : ""),
-                new Column("altitude_loss", t -> t.hasAltitudeLoss() ? ALTITUDE_FORMAT.format(t.getAltitudeLoss()) : ""),
-                new Column("sensor_distance", t -> t.hasSensorDistance() ? DISTANCE_FORMAT.format(t.getSensorDistance().toM()) : ""),
-                new Column("heartrate", t -> t.hasHeartRate() ? HEARTRATE_FORMAT.format(t.getHeartRate().getBPM()) : ""),
-                new Column("cadence", t -> t.hasCadence() ? CADENCE_FORMAT.format(t.getCadence().getRPM()) : ""),
-                new Column("power", t -> t.hasPower() ? POWER_FORMAT.format(t.getPower().getW()) : ""));
+                new Column("trackpoint_type", (t, i) -> quote(t.getType(i).name())),
+                new Column("latitude", (t, i) -> t.hasLocation(i) ? COORDINATE_FORMAT.format(t.getLatitude(i)) : ""),
+                new Column("longitude", (t, i) -> t.hasLocation(i) ? COORDINATE_FORMAT.format(t.getLongitude(i)) : ""),
+                new Column("altitude", (t, i) -> t.hasAltitude(i) ? ALTITUDE_FORMAT.format(t.getAltitude_m(i)) : ""),
+                new Column("accuracy_horizontal", (t, i) -> t.hasHorizontalAccuracy(i) ? DISTANCE_FORMAT.format(t.getHorizontalAccuracy_m(i)) : ""),
+                new Column("accuracy_vertical", (t, i) -> t.hasVerticalAccuracy(i) ? DISTANCE_FORMAT.format(t.getVerticalAccuracy_m(i)) : ""),
+
+                new Column("speed", (t, i) -> t.hasSpeed(i) ? SPEED_FORMAT.format(Speed.of(t.getSpeed_mps(i)).toKMH()) : ""),
+                new Column("altitude_gain", (t, i) -> t.hasAltitudeGain(i) ? ALTITUDE_FORMAT.format(t.getAltitudeGain_m(i)) : ""),
+                new Column("altitude_loss", (t, i) -> t.hasAltitudeLoss(i) ? ALTITUDE_FORMAT.format(t.getAltitudeLoss_m(i)) : ""),
+                new Column("sensor_distance", (t, i) -> t.hasSensorDistance(i) ? DISTANCE_FORMAT.format(t.getSensorDistance_m(i)) : ""),
+                new Column("heartrate", (t, i) -> t.hasHeartRate(i) ? HEARTRATE_FORMAT.format(t.getHeartRate_bpm(i)) : ""),
+                new Column("cadence", (t, i) -> t.hasCadence(i) ? CADENCE_FORMAT.format(t.getCadence_rpm(i)) : ""),
+                new Column("power", (t, i) -> t.hasPower(i) ? POWER_FORMAT.format(t.getPower_w(i)) : ""));
 
         try {
             prepare(outputStream);
@@ -111,7 +113,7 @@ public class CSVTrackExporter implements TrackExporter {
             boolean headerWritten = false;
 
             for (Track track : tracks) {
-                columns.get(0).extractor = t -> quote(StringUtils.formatDateTimeIso8601(t.getTime(), track.getZoneOffset()));
+                columns.get(0).extractor = (t, i) -> quote(StringUtils.formatDateTimeIso8601(Instant.ofEpochMilli(t.getTime_ms(i)), track.getZoneOffset()));
 
                 if (!headerWritten) {
                     writeHeader(columns);
@@ -132,10 +134,13 @@ public class CSVTrackExporter implements TrackExporter {
 
     private void writeTrackPoints(List<Column> columns, Track track) throws InterruptedException {
         try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(track.getId(), null)) {
-            while (trackPointIterator.hasNext()) {
+            TrackPointBuffer trackPoints = new TrackPointBuffer();
+            while (trackPointIterator.next(trackPoints) > 0) {
                 if (Thread.interrupted()) throw new InterruptedException();
 
-                writeTrackPoint(columns, trackPointIterator.next());
+                for (int i = 0; i < trackPoints.size(); i++) {
+                    writeTrackPoint(columns, trackPoints, i);
+                }
             }
         }
     }
@@ -154,21 +159,25 @@ public class CSVTrackExporter implements TrackExporter {
         printWriter.println("#" + columnNames);
     }
 
-    public void writeTrackPoint(List<Column> columns, TrackPoint trackPoint) {
-        String columnNames = columns.stream().map(c -> c.extractor.apply(trackPoint)).reduce((s, s2) -> s + "," + s2).orElseThrow(() -> new RuntimeException("No columns defined"));
+    public void writeTrackPoint(List<Column> columns, TrackPointBuffer trackPoints, int index) {
+        String columnNames = columns.stream().map(c -> c.extractor.apply(trackPoints, index)).reduce((s, s2) -> s + "," + s2).orElseThrow(() -> new RuntimeException("No columns defined"));
         printWriter.println(columnNames);
     }
 
     private static class Column {
         final String columnName;
-        Function<TrackPoint, String> extractor;
+        Extractor extractor;
 
-        Column(String columnName, Function<TrackPoint, String> extractor) {
+        Column(String columnName, Extractor extractor) {
             this.columnName = columnName;
             this.extractor = extractor;
         }
     }
 
+    private interface Extractor {
+        String apply(TrackPointBuffer trackPoints, int index);
+    }
+
     private static String quote(String content) {
         return '"' + content + '"';
     }
@@ -16,6 +16,7 @@
 
 package de.dennisguse.opentracks.io.file.exporter;
 
+import android.content.Context;
 import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
@@ -28,8 +29,15 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.content.ContextCompat;
 import androidx.documentfile.provider.DocumentFile;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
 
@@ -39,8 +47,6 @@ import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.databinding.ExportActivityBinding;
 import de.dennisguse.opentracks.io.file.ErrorListDialog;
 import de.dennisguse.opentracks.io.file.TrackFileFormat;
-import de.dennisguse.opentracks.io.file.TrackFilenameGenerator;
-import de.dennisguse.opentracks.settings.PreferencesUtils;
 import de.dennisguse.opentracks.util.ExportUtils;
 import de.dennisguse.opentracks.util.FileUtils;
 
@@ -63,6 +69,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     public static final String EXTRA_DIRECTORY_URI_KEY = "directory_uri";
     public static final String EXTRA_ONE_FILE_KEY = "one_file";
     public static final String EXTRA_TRACKFILEFORMAT_KEY = "trackfileformat";
+    public static final String EXTRA_INCREMENTAL_KEY = "incremental";
 
     private static final String BUNDLE_AUTO_CONFLICT = "auto_conflict";
     private static final String BUNDLE_SUCCESS_COUNT = "track_export_success_count";
@@ -71,6 +78,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     private static final String BUNDLE_SKIPPED_COUNT = "track_export_skipped_count";
     private static final String BUNDLE_TOTAL_COUNT = "track_export_total_count";
     private static final String BUNDLE_DIRECTORY_FILES = "track_directory_files";
+    private static final String BUNDLE_DIRECTORY_FILE_URIS = "track_directory_file_uris";
     private static final String BUNDLE_TRACK_ERRORS = "track_errors";
 
     private static final String BUNDLE_EXPORT_TASKS = "export_tasks";
@@ -86,7 +94,12 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
 
     private ExportService.ExportServiceResultReceiver resultReceiver;
 
-    private List<String> directoryFiles;
+    // Files in the directory by name; listed once and updated with the exported files; only accessed on the UI thread.
+    private Map<String, Uri> directoryFiles;
+
+    // Only if incremental: tracks exported before; written when done.
+    private ExportManifest exportManifest;
+    private boolean exportManifestChanged;
 
     private int trackExportSuccessCount;
     private int trackExportErrorCount;
@@ -105,6 +118,9 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     // List of tracks to be exported.
     private ArrayList<ExportTask> exportTasks;
 
+    // Directory listing and export manifest I/O; in order (e.g., the manifest written by the destroyed activity is read by the re-created one).
+    private static final ExecutorService BACKGROUND = Executors.newSingleThreadExecutor();
+
     private final LinkedBlockingQueue<PendingConflict> conflictsQueue = new LinkedBlockingQueue<>();
     private final Handler conflictsHandler = new Handler();
 
@@ -155,6 +171,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         directoryUri = getIntent().getParcelableExtra(EXTRA_DIRECTORY_URI_KEY);
         trackFileFormat = (TrackFileFormat) getIntent().getSerializableExtra(EXTRA_TRACKFILEFORMAT_KEY);
         boolean allInOneFile = getIntent().getBooleanExtra(EXTRA_ONE_FILE_KEY, false);
+        boolean incremental = !allInOneFile && getIntent().getBooleanExtra(EXTRA_INCREMENTAL_KEY, false);
 
         contentProviderUtils = new ContentProviderUtils(this);
 
@@ -166,13 +183,17 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         if (savedInstanceState == null) {
             autoConflict = ConflictResolutionStrategy.CONFLICT_NONE;
             setProgress();
-            new Thread(() -> {
-                directoryFiles = ExportUtils.getAllFiles(ExportActivity.this, documentFile.getUri());
+            BACKGROUND.execute(() -> {
+                Map<String, Uri> files = ExportUtils.getAllFiles(ExportActivity.this, documentFile.getUri());
+                ExportManifest manifest = incremental ? readExportManifest(files) : null;
+                List<Track> tracks = contentProviderUtils.getTracks();
                 runOnUiThread(() -> {
-                    createExportTasks(allInOneFile);
+                    directoryFiles = files;
+                    exportManifest = manifest;
+                    createExportTasks(tracks, allInOneFile);
                     nextExport(null);
                 });
-            }).start();
+            });
         } else {
             autoConflict = ConflictResolutionStrategy.valueOf(savedInstanceState.getString(BUNDLE_AUTO_CONFLICT));
             trackExportSuccessCount = savedInstanceState.getInt(BUNDLE_SUCCESS_COUNT);
@@ -180,11 +201,29 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
             trackExportOverwrittenCount = savedInstanceState.getInt(BUNDLE_OVERWRITTEN_COUNT);
             trackExportSkippedCount = savedInstanceState.getInt(BUNDLE_SKIPPED_COUNT);
             trackExportTotalCount = savedInstanceState.getInt(BUNDLE_TOTAL_COUNT);
-            directoryFiles = savedInstanceState.getStringArrayList(BUNDLE_DIRECTORY_FILES);
+            List<String> directoryFileNames = savedInstanceState.getStringArrayList(BUNDLE_DIRECTORY_FILES);
+            List<Uri> directoryFileUris = savedInstanceState.getParcelableArrayList(BUNDLE_DIRECTORY_FILE_URIS);
             trackErrors = savedInstanceState.getStringArrayList(BUNDLE_TRACK_ERRORS);
             exportTasks = new ArrayList<>(savedInstanceState.getParcelableArrayList(BUNDLE_EXPORT_TASKS));
             setProgress();
-            nextExport(null);
+            if (incremental || directoryFileNames == null) {
+                // Manifest is written by onDestroy(); maybe created.
+                BACKGROUND.execute(() -> {
+                    Map<String, Uri> files = ExportUtils.getAllFiles(ExportActivity.this, documentFile.getUri());
+                    ExportManifest manifest = incremental ? readExportManifest(files) : null;
+                    runOnUiThread(() -> {
+                        directoryFiles = files;
+                        exportManifest = manifest;
+                        nextExport(null);
+                    });
+                });
+            } else {
+                directoryFiles = new HashMap<>();
+                for (int i = 0; i < directoryFileNames.size(); i++) {
+                    directoryFiles.put(directoryFileNames.get(i), directoryFileUris.get(i));
+                }
+                nextExport(null);
+            }
         }
 
         viewBinding.exportActivityToolbar.setTitle(getString(R.string.export_progress_message, directoryDisplayName));
@@ -199,7 +238,16 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         outState.putInt(BUNDLE_OVERWRITTEN_COUNT, trackExportOverwrittenCount);
         outState.putInt(BUNDLE_SKIPPED_COUNT, trackExportSkippedCount);
         outState.putInt(BUNDLE_TOTAL_COUNT, trackExportTotalCount);
-        outState.putStringArrayList(BUNDLE_DIRECTORY_FILES, (ArrayList<String>) directoryFiles);
+        if (directoryFiles != null) {
+            ArrayList<String> directoryFileNames = new ArrayList<>(directoryFiles.size());
+            ArrayList<Uri> directoryFileUris = new ArrayList<>(directoryFiles.size());
+            directoryFiles.forEach((name, uri) -> {
+                directoryFileNames.add(name);
+                directoryFileUris.add(uri);
+            });
+            outState.putStringArrayList(BUNDLE_DIRECTORY_FILES, directoryFileNames);
+            outState.putParcelableArrayList(BUNDLE_DIRECTORY_FILE_URIS, directoryFileUris);
+        }
         outState.putStringArrayList(BUNDLE_TRACK_ERRORS, trackErrors);
         outState.putParcelableArrayList(BUNDLE_EXPORT_TASKS, exportTasks);
     }
@@ -208,26 +256,97 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     protected void onDestroy() {
         super.onDestroy();
         conflictsQueue.clear();
-        exportTasks.clear();
+        if (exportTasks != null) {
+            exportTasks.clear();
+        }
+        writeExportManifest();
     }
 
-    private void createExportTasks(boolean allInOneFile) {
-        List<Track> tracks = contentProviderUtils.getTracks();
+    private void createExportTasks(List<Track> tracks, boolean allInOneFile) {
         exportTasks = new ArrayList<>();
         if (allInOneFile) {
             String filename = "OpenTracks-Backup";
             exportTasks.add(new ExportTask(filename, trackFileFormat, tracks.stream().map(Track::getId).collect(Collectors.toList())));
         } else {
-            exportTasks.addAll(tracks.stream().map(it -> new ExportTask(null, trackFileFormat, List.of(it.getId()))).collect(Collectors.toList()));
+            for (Track track : tracks) {
+                if (exportManifest != null) {
+                    String filename = exportManifest.getFilename(track);
+                    if (filename != null && directoryFiles.containsKey(filename) && exportManifest.isUpToDate(track, trackFileFormat, filename)) {
+                        trackExportSkippedCount++;
+                        continue;
+                    }
+                }
+                exportTasks.add(new ExportTask(null, trackFileFormat, List.of(track.getId())));
+            }
+        }
+        trackExportTotalCount = exportTasks.size() + trackExportSkippedCount;
+    }
+
+    /**
+     * Reads the manifest from the directory; empty if there is none or it cannot be read.
+     *
+     * @param files the files of the directory by name
+     */
+    @NonNull
+    private ExportManifest readExportManifest(Map<String, Uri> files) {
+        Uri manifestUri = files.get(ExportManifest.FILENAME);
+        if (manifestUri != null) {
+            try (InputStream inputStream = getContentResolver().openInputStream(manifestUri)) {
+                return ExportManifest.read(inputStream);
+            } catch (IOException | SecurityException e) {
+                Log.w(TAG, "Unable to read export manifest; exporting all tracks.", e);
+            }
+        }
+        return new ExportManifest();
+    }
+
+    private void writeExportManifest() {
+        if (exportManifest == null || !exportManifestChanged) {
+            return;
         }
-        trackExportTotalCount = exportTasks.size();
+        exportManifestChanged = false;
+
+        Context context = getApplicationContext();
+        ExportManifest manifest = exportManifest;
+        Map<String, Uri> files = directoryFiles;
+        Uri manifestUri = files.get(ExportManifest.FILENAME);
+        BACKGROUND.execute(() -> {
+            Uri uri = manifestUri;
+            if (uri == null) {
+                DocumentFile file = DocumentFile.fromTreeUri(context, directoryUri).createFile(ExportManifest.MIME_TYPE, ExportManifest.FILENAME);
+                if (file == null) {
+                    Log.e(TAG, "Unable to create export manifest.");
+                    return;
+                }
+                uri = file.getUri();
+                Uri createdUri = uri;
+                runOnUiThread(() -> files.put(ExportManifest.FILENAME, createdUri));
+            }
+            try (OutputStream outputStream = context.getContentResolver().openOutputStream(uri, "wt")) {
+                manifest.write(outputStream);
+            } catch (IOException | SecurityException e) {
+                Log.e(TAG, "Unable to write export manifest.", e);
+            }
+        });
     }
 
     /**
      * Enqueue track identified by UUID to be exported if not exported already or there is a conflict resolution.
      */
     private void export(ExportTask exportTask, ConflictResolutionStrategy conflictResolution) {
-        boolean fileExists = exportFileExists(exportTask);
+        if (exportManifest != null) {
+            String previousFilename = exportManifest.getFilename(contentProviderUtils.getTrack(exportTask.getTrackIds().get(0)));
+            Uri previousFileUri = previousFilename != null ? directoryFiles.get(previousFilename) : null;
+            if (previousFileUri != null) {
+                // Previous export of the same track: changed since.
+                ExportService.enqueue(this, resultReceiver, exportTask, directoryUri, previousFileUri);
+                return;
+            }
+        }
+
+        String filename = ExportUtils.getExportFilename(contentProviderUtils, exportTask);
+        Uri fileUri = directoryFiles.get(filename);
+        boolean fileExists = fileUri != null;
 
         if (fileExists && conflictResolution == ConflictResolutionStrategy.CONFLICT_NONE) {
             conflict(exportTask);
@@ -235,7 +354,7 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
             trackExportSkippedCount++;
             nextExport(exportTask);
         } else {
-            ExportService.enqueue(this, resultReceiver, exportTask, directoryUri);
+            ExportService.enqueue(this, resultReceiver, exportTask, directoryUri, fileUri);
         }
     }
 
@@ -243,18 +362,6 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
         export(exportTask, autoConflict);
     }
 
-    @Deprecated //TODO Check should be done in ExportService
-    private boolean exportFileExists(ExportTask exportTask) {
-        String filename;
-        if (exportTask.isMultiExport()) {
-            filename = TrackFilenameGenerator.format(exportTask.getFilename(), exportTask.getTrackFileFormat());
-        } else {
-            Track track = contentProviderUtils.getTrack(exportTask.getTrackIds().get(0));
-            filename = PreferencesUtils.getTrackFileformatGenerator().format(track, trackFileFormat);
-        }
-        return directoryFiles.stream().anyMatch(filename::equals);
-    }
-
     private void setConflictVisibility(int visibility) {
         viewBinding.exportProgressAlertIcon.setVisibility(visibility);
         viewBinding.exportProgressAlertMsg.setVisibility(visibility);
@@ -294,6 +401,8 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     }
 
     private void onExportEnded() {
+        writeExportManifest();
+
         viewBinding.exportProgressRightButton.setVisibility(View.VISIBLE);
         viewBinding.exportProgressRightButton.setText(getString(android.R.string.ok));
         viewBinding.exportProgressRightButton.setOnClickListener((view) -> finish());
@@ -315,11 +424,19 @@ public class ExportActivity extends AppCompatActivity implements ExportService.E
     }
 
     @Override
-    public void onExportSuccess(ExportTask exportTask) {
-        if (exportFileExists(exportTask)) {
+    public void onExportSuccess(ExportTask exportTask, Uri fileUri, String filename) {
+        if (directoryFiles.containsKey(filename)) {
             trackExportOverwrittenCount++;
         } else {
             trackExportSuccessCount++;
+            directoryFiles.put(filename, fileUri);
+        }
+
+        if (exportManifest != null) {
+            // The storage provider may have chosen another name (e.g., "name (1).gpx" if the name was taken).
+            Track track = contentProviderUtils.getTrack(exportTask.getTrackIds().get(0));
+            exportManifest.put(track, trackFileFormat, filename);
+            exportManifestChanged = true;
         }
 
         nextExport(exportTask);
@@ -0,0 +1,118 @@
+package de.dennisguse.opentracks.io.file.exporter;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+import de.dennisguse.opentracks.stats.TrackStatistics;
+
+/**
+ * Remembers which tracks were exported into a directory (one file per track) to only export new and changed tracks.
+ * <p>
+ * Stored in the directory as text file: one line per track with UUID, version, and file name (tab separated).
+ * The version is a hash of the exported format, the track's metadata, and its statistics (changes if TrackPoints are added).
+ * Changes of markers are not detected.
+ */
+public class ExportManifest {
+
+    private static final String TAG = ExportManifest.class.getSimpleName();
+
+    public static final String FILENAME = "OpenTracks-export-manifest.txt";
+    public static final String MIME_TYPE = "text/plain";
+
+    private static final String SEPARATOR = "\t";
+
+    private record Entry(long version, String filename) {
+    }
+
+    private final Map<UUID, Entry> entries = new HashMap<>();
+
+    public static ExportManifest read(@NonNull InputStream inputStream) throws IOException {
+        ExportManifest manifest = new ExportManifest();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] values = line.split(SEPARATOR, 3);
+            if (values.length != 3) {
+                continue;
+            }
+            try {
+                manifest.entries.put(UUID.fromString(values[0]), new Entry(Long.parseLong(values[1]), values[2]));
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Ignoring invalid line: " + line);
+            }
+        }
+        return manifest;
+    }
+
+    public void write(@NonNull OutputStream outputStream) throws IOException {
+        Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+        for (Map.Entry<UUID, Entry> entry : entries.entrySet()) {
+            writer.write(entry.getKey() + SEPARATOR + entry.getValue().version() + SEPARATOR + entry.getValue().filename() + "\n");
+        }
+        writer.flush();
+    }
+
+    /**
+     * @return true if the track was exported to filename and was not changed since.
+     */
+    public boolean isUpToDate(@NonNull Track track, @NonNull TrackFileFormat trackFileFormat, @NonNull String filename) {
+        Entry entry = entries.get(track.getUuid());
+        return entry != null && entry.version() == version(track, trackFileFormat) && entry.filename().equals(filename);
+    }
+
+    /**
+     * @return the file the track was exported to; null if never exported.
+     */
+    @Nullable
+    public String getFilename(@NonNull Track track) {
+        Entry entry = entries.get(track.getUuid());
+        return entry != null ? entry.filename() : null;
+    }
+
+    public void put(@NonNull Track track, @NonNull TrackFileFormat trackFileFormat, @NonNull String filename) {
+        entries.put(track.getUuid(), new Entry(version(track, trackFileFormat), filename));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    static long version(@NonNull Track track, @NonNull TrackFileFormat trackFileFormat) {
+        TrackStatistics statistics = track.getTrackStatistics();
+        String content = trackFileFormat.name()
+                + SEPARATOR + track.getName()
+                + SEPARATOR + track.getDescription()
+                + SEPARATOR + track.getActivityTypeLocalized()
+                + SEPARATOR + track.getActivityType()
+                + SEPARATOR + track.getZoneOffset()
+                + SEPARATOR + statistics.getStartTime()
+                + SEPARATOR + statistics.getStopTime()
+                + SEPARATOR + statistics.getTotalDistance()
+                + SEPARATOR + statistics.getTotalTime()
+                + SEPARATOR + statistics.getMovingTime();
+
+        // FNV-1a; stable across app versions (unlike String.hashCode() it is 64 bit).
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : content.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
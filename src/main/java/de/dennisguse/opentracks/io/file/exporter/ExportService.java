@@ -10,10 +10,12 @@ import android.os.ResultReceiver;
 import android.util.Log;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.core.app.JobIntentService;
 import androidx.documentfile.provider.DocumentFile;
 
 import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.util.ExportUtils;
 
 public class ExportService extends JobIntentService {
@@ -25,6 +27,7 @@ public class ExportService extends JobIntentService {
     private static final String EXTRA_RECEIVER = "extra_receiver";
     private static final String EXTRA_EXPORT_TASK = "export_task";
     private static final String EXTRA_DIRECTORY_URI = "extra_directory_uri";
+    private static final String EXTRA_FILE_URI = "extra_file_uri";
 
     public static void enqueue(Context context, ExportServiceResultReceiver receiver, ExportTask exportTask, Uri directoryUri) {
         Intent intent = new Intent(context, JobService.class);
@@ -34,6 +37,20 @@ public class ExportService extends JobIntentService {
         enqueueWork(context, ExportService.class, JOB_ID, intent);
     }
 
+    /**
+     * Like {@link #enqueue(Context, ExportServiceResultReceiver, ExportTask, Uri)}, but the directory is not searched for the file (see {@link ExportUtils#getAllFiles(Context, Uri)}).
+     *
+     * @param fileUri the file to overwrite; null to create a new file.
+     */
+    public static void enqueue(Context context, ExportServiceResultReceiver receiver, ExportTask exportTask, Uri directoryUri, @Nullable Uri fileUri) {
+        Intent intent = new Intent(context, JobService.class);
+        intent.putExtra(EXTRA_RECEIVER, receiver);
+        intent.putExtra(EXTRA_EXPORT_TASK, exportTask);
+        intent.putExtra(EXTRA_DIRECTORY_URI, directoryUri);
+        intent.putExtra(EXTRA_FILE_URI, fileUri);
+        enqueueWork(context, ExportService.class, JOB_ID, intent);
+    }
+
     @Override
     protected void onHandleWork(@NonNull Intent intent) {
         // Get all data.
@@ -55,7 +72,15 @@ public class ExportService extends JobIntentService {
 
         // Export and send result
         try {
-            ExportUtils.exportTrack(this, directoryFile, exportTask);
+            Uri fileUri;
+            if (intent.hasExtra(EXTRA_FILE_URI)) {
+                fileUri = ExportUtils.exportTrack(this, directoryFile, exportTask, intent.getParcelableExtra(EXTRA_FILE_URI));
+            } else {
+                fileUri = ExportUtils.exportTrack(this, directoryFile, exportTask);
+            }
+            bundle.putParcelable(ExportServiceResultReceiver.RESULT_EXTRA_FILE_URI, fileUri);
+            String filename = DocumentFile.fromSingleUri(this, fileUri).getName();
+            bundle.putString(ExportServiceResultReceiver.RESULT_EXTRA_FILENAME, filename != null ? filename : ExportUtils.getExportFilename(new ContentProviderUtils(this), exportTask));
             resultReceiver.send(ExportServiceResultReceiver.RESULT_CODE_SUCCESS, bundle);
         } catch (Exception e) {
             Log.e(TAG, "Export failed: " + e);
@@ -72,6 +97,8 @@ public class ExportService extends JobIntentService {
         public static final int RESULT_CODE_ERROR = 0;
 
         public static final String RESULT_EXTRA_EXPORT_TASK = "result_extra_export_task";
+        public static final String RESULT_EXTRA_FILE_URI = "result_extra_file_uri";
+        public static final String RESULT_EXTRA_FILENAME = "result_extra_filename";
 
         public static final String EXTRA_EXPORT_ERROR_MESSAGE = "extra_export_error_message";
 
@@ -86,14 +113,18 @@ public class ExportService extends JobIntentService {
         protected void onReceiveResult(int resultCode, Bundle resultData) {
             ExportTask exportTask = resultData.getParcelable(RESULT_EXTRA_EXPORT_TASK);
             switch (resultCode) {
-                case RESULT_CODE_SUCCESS -> receiver.onExportSuccess(exportTask);
+                case RESULT_CODE_SUCCESS -> receiver.onExportSuccess(exportTask, resultData.getParcelable(RESULT_EXTRA_FILE_URI), resultData.getString(RESULT_EXTRA_FILENAME));
                 case RESULT_CODE_ERROR -> receiver.onExportError(exportTask, resultData.getString(EXTRA_EXPORT_ERROR_MESSAGE));
                 default -> throw new RuntimeException("Unknown resultCode.");
             }
         }
 
         public interface Receiver {
-            default void onExportSuccess(ExportTask exportTask) {
+            /**
+             * @param fileUri  the written file
+             * @param filename the name of the written file (as created by the storage provider)
+             */
+            default void onExportSuccess(ExportTask exportTask, Uri fileUri, String filename) {
             }
 
             default void onExportError(ExportTask exportTask, String errorMessage) {
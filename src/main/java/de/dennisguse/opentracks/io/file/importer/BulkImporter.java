@@ -0,0 +1,164 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import android.content.Context;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.documentfile.provider.DocumentFile;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.io.file.TrackFileFormat;
+import de.dennisguse.opentracks.settings.PreferencesUtils;
+import de.dennisguse.opentracks.util.FileUtils;
+
+/**
+ * Imports files concurrently on a bounded pool of worker threads.
+ * <p>
+ * Each worker parses a file, adjusts its TrackPoints, and computes the statistics (see {@link TrackImporter}).
+ * Writes to the database are serialized: the TrackPoints are stored in chunks (one transaction each) by the database's single writer connection and the re-import detection and storing of a finished track is done by one worker at a time.
+ * <p>
+ * The result of each file is reported on the worker thread that imported it (see {@link ImportService}).
+ * Cancelling skips the files that were not started yet; files being imported are finished.
+ */
+public class BulkImporter {
+
+    private static final String TAG = BulkImporter.class.getSimpleName();
+
+    // Parsing is CPU bound, but the database writes are serialized.
+    private static final int MAX_THREADS = 4;
+
+    public enum ResultCode {
+        IMPORTED,
+        ALREADY_EXISTS,
+        ERROR
+    }
+
+    public interface Listener {
+        /**
+         * Called concurrently by the worker threads.
+         *
+         * @param trackIds the imported tracks; empty if not {@link ResultCode#IMPORTED}.
+         * @param message  the error message; null if {@link ResultCode#IMPORTED}.
+         */
+        void onFileImported(@NonNull DocumentFile file, @NonNull ResultCode resultCode, @NonNull List<Track.Id> trackIds, @Nullable String message);
+    }
+
+    private final Context context;
+    private final ThreadPoolExecutor executor;
+    private final Listener listener;
+
+    private final Distance maxRecordingDistance;
+    private final boolean preventReimport;
+
+    public BulkImporter(@NonNull Context context, @NonNull Listener listener) {
+        this(context, Math.min(Runtime.getRuntime().availableProcessors(), MAX_THREADS), listener);
+    }
+
+    public BulkImporter(@NonNull Context context, int numThreads, @NonNull Listener listener) {
+        this.context = context.getApplicationContext();
+        this.executor = new ThreadPoolExecutor(numThreads, numThreads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+        this.listener = listener;
+
+        this.maxRecordingDistance = PreferencesUtils.getMaxRecordingDistance();
+        this.preventReimport = PreferencesUtils.getPreventReimportTracks();
+    }
+
+    public void importFiles(@NonNull List<DocumentFile> files) {
+        for (DocumentFile file : files) {
+            executor.execute(new ImportTask(file));
+        }
+    }
+
+    /**
+     * Skips the files that were not started yet; files being imported are finished (not interrupted, so no partially imported track remains).
+     * No more files can be imported afterwards.
+     *
+     * @return the skipped files; their results are not reported.
+     */
+    @NonNull
+    public List<DocumentFile> cancel() {
+        executor.shutdown();
+        List<Runnable> skippedTasks = new ArrayList<>();
+        executor.getQueue().drainTo(skippedTasks);
+        return skippedTasks.stream()
+                .map(task -> ((ImportTask) task).file)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Waits until all started files are imported; no more files can be imported afterwards.
+     */
+    public void awaitTermination() throws InterruptedException {
+        executor.shutdown();
+        executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+    }
+
+    private void importFile(DocumentFile file) {
+        String fileExtension = FileUtils.getExtension(file);
+        try {
+            TrackImporter trackImporter = new TrackImporter(context, new ContentProviderUtils(context), maxRecordingDistance, preventReimport);
+
+            List<Track.Id> trackIds = new ArrayList<>();
+            if (TrackFileFormat.GPX.getExtension().equals(fileExtension)) {
+                trackIds.addAll(new XMLImporter(new GPXTrackImporter(context, trackImporter)).importFile(context, file.getUri()));
+            } else if (TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA.getExtension().equals(fileExtension)) {
+                trackIds.addAll(new XMLImporter(new KMLTrackImporter(context, trackImporter)).importFile(context, file.getUri()));
+            } else if (TrackFileFormat.KMZ_WITH_TRACKDETAIL_AND_SENSORDATA_AND_PICTURES.getExtension().equals(fileExtension)) {
+                trackIds.addAll(new KMZTrackImporter(context, trackImporter).importFile(file.getUri()));
+            } else {
+                Log.d(TAG, "Unsupported file format.");
+                sendResult(file, ResultCode.ERROR, List.of(), context.getString(R.string.import_unsupported_format));
+                return;
+            }
+
+            if (!trackIds.isEmpty()) {
+                sendResult(file, ResultCode.IMPORTED, trackIds, null);
+            } else {
+                sendResult(file, ResultCode.ERROR, trackIds, context.getString(R.string.import_unable_to_import_file, file.getName()));
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Unable to import file", e);
+            sendResult(file, ResultCode.ERROR, List.of(), context.getString(R.string.import_unable_to_import_file, e.getMessage()));
+        } catch (ImportParserException e) {
+            Log.d(TAG, "Parser error: " + e.getMessage(), e);
+            sendResult(file, ResultCode.ERROR, List.of(), context.getString(R.string.import_parser_error, e.getMessage()));
+        } catch (ImportAlreadyExistsException e) {
+            Log.d(TAG, "Track already exists: " + e.getMessage(), e);
+            sendResult(file, ResultCode.ALREADY_EXISTS, List.of(), e.getMessage());
+        } catch (RuntimeException e) {
+            // Would otherwise be swallowed by the executor and the import would never finish.
+            Log.e(TAG, "Unable to import file", e);
+            sendResult(file, ResultCode.ERROR, List.of(), context.getString(R.string.import_unable_to_import_file, e.getMessage()));
+        }
+    }
+
+    private void sendResult(DocumentFile file, ResultCode resultCode, List<Track.Id> trackIds, String message) {
+        listener.onFileImported(file, resultCode, trackIds, message);
+    }
+
+    private class ImportTask implements Runnable {
+
+        private final DocumentFile file;
+
+        private ImportTask(DocumentFile file) {
+            this.file = file;
+        }
+
+        @Override
+        public void run() {
+            importFile(file);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Instant;
+import java.time.Year;
+import java.time.ZoneOffset;
+
+import de.dennisguse.opentracks.util.StringUtils;
+
+/**
+ * Parses numbers and XML dateTimes directly from a range of a {@link CharSequence} without creating intermediate Strings.
+ * <p>
+ * Only the common cases are handled directly (e.g., coordinates and times as written by OpenTracks and most GPS devices).
+ * Everything else is delegated to {@link Double#parseDouble(String)}, {@link Float#parseFloat(String)}, and {@link StringUtils#parseTime(String)}, so the results are always the same.
+ */
+final class CharSequenceParser {
+
+    // Largest integer so that every smaller integer is exactly representable.
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+    private static final long MAX_EXACT_FLOAT = 1L << 24;
+
+    // Powers of ten that are exactly representable.
+    private static final double[] DOUBLE_POW10 = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final float[] FLOAT_POW10 = {1e0f, 1e1f, 1e2f, 1e3f, 1e4f, 1e5f, 1e6f, 1e7f, 1e8f, 1e9f, 1e10f};
+
+    // Encoding of the result of parseDecimal().
+    private static final int FRACTION_DIGITS_BITS = 5;
+    private static final int FRACTION_DIGITS_MASK = (1 << FRACTION_DIGITS_BITS) - 1;
+
+    private static final int[] NANOS_FACTOR = {0, 100_000_000, 10_000_000, 1_000_000, 100_000, 10_000, 1_000, 100, 10, 1};
+
+    private CharSequenceParser() {
+    }
+
+    static double parseDouble(@NonNull String value) {
+        return parseDouble(value, 0, value.length());
+    }
+
+    /**
+     * @throws NumberFormatException like {@link Double#parseDouble(String)}
+     */
+    static double parseDouble(@NonNull CharSequence value, int start, int end) {
+        long decimal = parseDecimal(value, start, end, MAX_EXACT_DOUBLE);
+        if (decimal >= 0 && fractionDigits(decimal) < DOUBLE_POW10.length) {
+            // Both are exactly representable: the division is correctly rounded.
+            double result = mantissa(decimal) / DOUBLE_POW10[fractionDigits(decimal)];
+            return value.charAt(start) == '-' ? -result : result;
+        }
+        return Double.parseDouble(value.subSequence(start, end).toString());
+    }
+
+    /**
+     * @throws NumberFormatException like {@link Float#parseFloat(String)}
+     */
+    static float parseFloat(@NonNull CharSequence value, int start, int end) {
+        long decimal = parseDecimal(value, start, end, MAX_EXACT_FLOAT);
+        if (decimal >= 0 && fractionDigits(decimal) < FLOAT_POW10.length) {
+            float result = mantissa(decimal) / FLOAT_POW10[fractionDigits(decimal)];
+            return value.charAt(start) == '-' ? -result : result;
+        }
+        return Float.parseFloat(value.subSequence(start, end).toString());
+    }
+
+    /**
+     * Parses [+-]digits[.digits].
+     *
+     * @return the mantissa and the number of fraction digits (see {@link #mantissa(long)} and {@link #fractionDigits(long)}) or -1 if not a plain decimal or the mantissa exceeds maxMantissa.
+     */
+    private static long parseDecimal(CharSequence value, int start, int end, long maxMantissa) {
+        int i = start;
+        if (i < end && (value.charAt(i) == '-' || value.charAt(i) == '+')) {
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean fraction = false;
+        for (; i < end; i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                if (mantissa > maxMantissa) {
+                    return -1;
+                }
+                digits++;
+                if (fraction) {
+                    fractionDigits++;
+                }
+            } else if (c == '.' && !fraction) {
+                fraction = true;
+            } else {
+                return -1;
+            }
+        }
+
+        if (digits == 0 || fractionDigits > FRACTION_DIGITS_MASK) {
+            return -1;
+        }
+        return mantissa << FRACTION_DIGITS_BITS | fractionDigits;
+    }
+
+    private static long mantissa(long decimal) {
+        return decimal >>> FRACTION_DIGITS_BITS;
+    }
+
+    private static int fractionDigits(long decimal) {
+        return (int) (decimal & FRACTION_DIGITS_MASK);
+    }
+
+    /**
+     * Parses an XML dateTime (ISO 8601).
+     *
+     * @throws RuntimeException like {@link StringUtils#parseTime(String)}
+     */
+    @NonNull
+    static Instant parseTime(@NonNull CharSequence value, int start, int end) {
+        Instant time = parseTimeWithOffset(value, start, end);
+        if (time != null) {
+            return time;
+        }
+        return StringUtils.parseTime(value.subSequence(start, end).toString()).toInstant();
+    }
+
+    /**
+     * @return the offset of an XML dateTime (ISO 8601); UTC if not present.
+     */
+    @NonNull
+    static ZoneOffset parseZoneOffset(@NonNull CharSequence value, int start, int end) {
+        return StringUtils.parseTime(value.subSequence(start, end).toString()).getOffset();
+    }
+
+    /**
+     * Handles yyyy-MM-ddTHH:mm:ss[.S{1,9}](Z|+HH:mm|-HH:mm).
+     *
+     * @return null if not in this format.
+     */
+    @Nullable
+    private static Instant parseTimeWithOffset(CharSequence value, int start, int end) {
+        if (end - start < 20
+                || value.charAt(start + 4) != '-' || value.charAt(start + 7) != '-' || value.charAt(start + 10) != 'T'
+                || value.charAt(start + 13) != ':' || value.charAt(start + 16) != ':') {
+            return null;
+        }
+
+        int year = parseDigits(value, start, 4);
+        int month = parseDigits(value, start + 5, 2);
+        int day = parseDigits(value, start + 8, 2);
+        int hour = parseDigits(value, start + 11, 2);
+        int minute = parseDigits(value, start + 14, 2);
+        int second = parseDigits(value, start + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            return null;
+        }
+
+        int i = start + 19;
+        int nanos = 0;
+        if (value.charAt(i) == '.') {
+            int fractionStart = ++i;
+            while (i < end && value.charAt(i) >= '0' && value.charAt(i) <= '9') {
+                i++;
+            }
+            int fractionDigits = i - fractionStart;
+            if (fractionDigits < 1 || fractionDigits > 9) {
+                return null;
+            }
+            nanos = parseDigits(value, fractionStart, fractionDigits) * NANOS_FACTOR[fractionDigits];
+        }
+
+        int offsetSeconds;
+        if (i == end - 1 && value.charAt(i) == 'Z') {
+            offsetSeconds = 0;
+        } else if (i == end - 6 && (value.charAt(i) == '+' || value.charAt(i) == '-') && value.charAt(i + 3) == ':') {
+            int offsetHours = parseDigits(value, i + 1, 2);
+            int offsetMinutes = parseDigits(value, i + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59 || (offsetHours == 18 && offsetMinutes > 0)) {
+                return null;
+            }
+            offsetSeconds = (offsetHours * 60 + offsetMinutes) * 60;
+            if (value.charAt(i) == '-') {
+                offsetSeconds = -offsetSeconds;
+            }
+        } else {
+            // Without offset or unusual format.
+            return null;
+        }
+
+        long epochSecond = epochDay(year, month, day) * 86400 + hour * 3600 + minute * 60 + second - offsetSeconds;
+        return Instant.ofEpochSecond(epochSecond, nanos);
+    }
+
+    /**
+     * @return the value or -1 if not only digits.
+     */
+    private static int parseDigits(CharSequence value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        return switch (month) {
+            case 2 -> Year.isLeap(year) ? 29 : 28;
+            case 4, 6, 9, 11 -> 30;
+            default -> 31;
+        };
+    }
+
+    /**
+     * Days since 1970-01-01 in the proleptic Gregorian calendar.
+     */
+    private static long epochDay(int year, int month, int day) {
+        long y = month <= 2 ? year - 1 : year;
+        long era = Math.floorDiv(y, 400);
+        long yearOfEra = y - era * 400;
+        long dayOfYear = (153L * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        long dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+}
@@ -0,0 +1,133 @@
+package de.dennisguse.opentracks.io.file.importer;
+
+import androidx.annotation.NonNull;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+
+/**
+ * Re-usable buffer for the content of the current XML element.
+ * <p>
+ * SAX may report the content of one element via several calls of characters(); appending to a String is quadratic and creates a String per call.
+ * Values are parsed from the trimmed content directly (see {@link CharSequenceParser}).
+ */
+class ContentBuffer implements CharSequence {
+
+    private char[] buffer = new char[256];
+    private int length = 0;
+
+    void append(char[] ch, int start, int length) {
+        if (this.length + length > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, this.length + length));
+        }
+        System.arraycopy(ch, start, buffer, this.length, length);
+        this.length += length;
+    }
+
+    void clear() {
+        length = 0;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return buffer[index];
+    }
+
+    @NonNull
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new String(buffer, start, end - start);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return new String(buffer, 0, length);
+    }
+
+    boolean isBlank() {
+        return trimmedStart() == length;
+    }
+
+    /**
+     * Same as {@link String#trim()}.
+     */
+    @NonNull
+    String toTrimmedString() {
+        int start = trimmedStart();
+        return new String(buffer, start, trimmedEnd(start) - start);
+    }
+
+    double parseDouble() {
+        int start = trimmedStart();
+        return CharSequenceParser.parseDouble(this, start, trimmedEnd(start));
+    }
+
+    float parseFloat() {
+        int start = trimmedStart();
+        return CharSequenceParser.parseFloat(this, start, trimmedEnd(start));
+    }
+
+    @NonNull
+    Instant parseTime() {
+        int start = trimmedStart();
+        return CharSequenceParser.parseTime(this, start, trimmedEnd(start));
+    }
+
+    @NonNull
+    ZoneOffset parseZoneOffset() {
+        int start = trimmedStart();
+        return CharSequenceParser.parseZoneOffset(this, start, trimmedEnd(start));
+    }
+
+    /**
+     * Splits the trimmed content like {@link String#split(String)} with a single character (i.e., trailing empty tokens are removed).
+     *
+     * @param bounds start (inclusive) and end (exclusive) of the tokens are stored pairwise; only as many as fit.
+     * @return the number of tokens
+     */
+    int split(char separator, int[] bounds) {
+        int start = trimmedStart();
+        int end = trimmedEnd(start);
+
+        int count = 0;
+        int countNonEmpty = 0;
+        int tokenStart = start;
+        for (int i = start; i <= end; i++) {
+            if (i == end || buffer[i] == separator) {
+                if (2 * count + 1 < bounds.length) {
+                    bounds[2 * count] = tokenStart;
+                    bounds[2 * count + 1] = i;
+                }
+                count++;
+                if (i > tokenStart) {
+                    countNonEmpty = count;
+                }
+                tokenStart = i + 1;
+            }
+        }
+        return countNonEmpty;
+    }
+
+    private int trimmedStart() {
+        int start = 0;
+        while (start < length && buffer[start] <= ' ') {
+            start++;
+        }
+        return start;
+    }
+
+    private int trimmedEnd(int start) {
+        int end = length;
+        while (end > start && buffer[end - 1] <= ' ') {
+            end--;
+        }
+        return end;
+    }
+}
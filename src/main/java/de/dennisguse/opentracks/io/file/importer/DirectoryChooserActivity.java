@@ -101,6 +101,15 @@ public abstract class DirectoryChooserActivity extends AppCompatActivity {
         }
     }
 
+    public static class ExportDirectoryChooserIncrementalActivity extends ExportDirectoryChooserActivity {
+
+        @Override
+        protected Intent createNextActivityIntent(Uri directoryUri) {
+            return super.createNextActivityIntent(directoryUri)
+                    .putExtra(ExportActivity.EXTRA_INCREMENTAL_KEY, true);
+        }
+    }
+
     public static class ExportDirectoryChooserOneFileActivity extends DirectoryChooserActivity {
 
         @Override
@@ -24,10 +24,9 @@ import org.xml.sax.Attributes;
 import org.xml.sax.Locator;
 import org.xml.sax.helpers.DefaultHandler;
 
-import java.time.OffsetDateTime;
+import java.time.Instant;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 
@@ -38,7 +37,6 @@ import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
-import de.dennisguse.opentracks.util.StringUtils;
 
 /**
  * Imports a GPX file.
@@ -96,7 +94,7 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
     private final ArrayList<Marker> markers = new ArrayList<>();
 
     // The current element content
-    private String content = "";
+    private final ContentBuffer content = new ContentBuffer();
 
     private String name;
     private String description;
@@ -104,28 +102,35 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
     private String activityTypeLocalized;
     private String latitude;
     private String longitude;
-    private String altitude;
-    private String time;
-    private String speed;
-    private String heartrate;
-    private String cadence;
-    private String power;
     private String markerType;
     private Uri photoUrl;
     private String uuid;
-    private String gain;
-    private String loss;
-    private String sensorDistance;
-    private String accuracyHorizontal;
-    private String accuracyVertical;
 
-    private final LinkedList<TrackPoint> currentSegment = new LinkedList<>();
+    // Inside a trkpt or wpt: only there, the values of the TrackPoint are parsed (e.g., not <metadata><time>).
+    private boolean insidePoint;
+
+    // Values of the current TrackPoint; NaN if not present.
+    private Instant time;
+    private ZoneOffset timeZoneOffset;
+    private double altitude;
+    private float speed;
+    private float heartrate;
+    private float cadence;
+    private float power;
+    private float gain;
+    private float loss;
+    private float sensorDistance;
+    private float accuracyHorizontal;
+    private float accuracyVertical;
+
+    private final ArrayList<TrackPoint> currentSegment = new ArrayList<>();
 
     private final TrackImporter trackImporter;
 
     public GPXTrackImporter(Context context, TrackImporter trackImporter) {
         this.context = context;
         this.trackImporter = trackImporter;
+        resetTrackPointValues();
     }
 
     @Override
@@ -153,14 +158,17 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     @Override
     public void characters(char[] ch, int start, int length) {
-        content += new String(ch, start, length);
+        content.append(ch, start, length);
     }
 
     @Override
     public void endElement(String uri, String localName, String tag) {
         switch (tag) {
             case TAG_GPX -> onFileEnd();
-            case TAG_MARKER -> onMarkerEnd();
+            case TAG_MARKER -> {
+                insidePoint = false;
+                onMarkerEnd();
+            }
             case TAG_TRACK -> {
                 if (activityTypeLocalized == null) {
                     // Backward compatibility: up v4.9.1 as <type> contained localized content.
@@ -170,92 +178,73 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
                 zoneOffset = null;
             }
             case TAG_TRACK_SEGMENT -> onTrackSegmentEnd();
-            case TAG_TRACK_POINT -> currentSegment.add(createTrackPoint());
+            case TAG_TRACK_POINT -> {
+                insidePoint = false;
+                currentSegment.add(createTrackPoint());
+            }
             case TAG_NAME -> {
-                if (content != null) {
-                    name = content.trim();
-                }
+                name = content.toTrimmedString();
             }
             case TAG_DESCRIPTION -> {
-                if (content != null) {
-                    description = content.trim();
-                }
+                description = content.toTrimmedString();
             }
             case TAG_TYPE -> { //Track or Marker/WPT
-                if (content != null) {
-                    // In older  version this might be localized content.
-                    activityType = content.trim();
-                    markerType = content.trim();
-                }
+                // In older  version this might be localized content.
+                activityType = content.toTrimmedString();
+                markerType = activityType;
             }
             case TAG_TYPE_LOCALIZED -> {
-                if (content != null) {
-                    activityTypeLocalized = content.trim();
-                }
-            }
-            case TAG_TIME -> {
-                if (content != null) {
-                    time = content.trim();
-                }
-            }
-            case TAG_ALTITUDE -> {
-                if (content != null) {
-                    altitude = content.trim();
-                }
-            }
-            case TAG_EXTENSION_SPEED, TAG_EXTENSION_SPEED_COMPAT -> {
-                if (content != null) {
-                    speed = content.trim();
-                }
-            }
-            case TAG_EXTENSION_HEARTRATE -> {
-                if (content != null) {
-                    heartrate = content.trim();
-                }
-            }
-            case TAG_EXTENSION_CADENCE -> {
-                if (content != null) {
-                    cadence = content.trim();
-                }
-            }
-            case TAG_EXTENSION_POWER -> {
-                if (content != null) {
-                    power = content.trim();
-                }
+                activityTypeLocalized = content.toTrimmedString();
             }
             case TAG_ID -> {
-                if (content != null) {
-                    uuid = content.trim();
-                }
-            }
-            case TAG_EXTENSION_GAIN -> {
-                if (content != null) {
-                    gain = content.trim();
-                }
-            }
-            case TAG_EXTENSION_LOSS -> {
-                if (content != null) {
-                    loss = content.trim();
-                }
+                uuid = content.toTrimmedString();
+                trackImporter.checkUuid(uuid);
             }
-            case TAG_EXTENSION_DISTANCE -> {
-                if (content != null) {
-                    sensorDistance = content.trim();
+            default -> {
+                if (insidePoint) {
+                    onTrackPointValueEnd(tag);
                 }
             }
-            case TAG_EXTENSION_ACCURACY_HORIZONTAL -> {
-                if (content != null) {
-                    accuracyHorizontal = content.trim();
+        }
+
+        content.clear();
+    }
+
+    private void onTrackPointValueEnd(String tag) {
+        switch (tag) {
+            case TAG_TIME -> {
+                try {
+                    time = content.parseTime();
+                    timeZoneOffset = zoneOffset == null ? content.parseZoneOffset() : null;
+                } catch (Exception e) {
+                    throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", content.toTrimmedString())), e);
                 }
             }
-            case TAG_EXTENSION_ACCURACY_VERTICAL -> {
-                if (content != null) {
-                    accuracyVertical = content.trim();
+            case TAG_ALTITUDE -> {
+                try {
+                    altitude = content.parseDouble();
+                } catch (NumberFormatException e) {
+                    throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude: %s", content.toTrimmedString())), e);
                 }
             }
+            case TAG_EXTENSION_SPEED, TAG_EXTENSION_SPEED_COMPAT -> speed = parseFloat("speed");
+            case TAG_EXTENSION_HEARTRATE -> heartrate = parseFloat("heart rate");
+            case TAG_EXTENSION_CADENCE -> cadence = parseFloat("cadence");
+            case TAG_EXTENSION_POWER -> power = parseFloat("power");
+            case TAG_EXTENSION_GAIN -> gain = parseFloat("altitude gain");
+            case TAG_EXTENSION_LOSS -> loss = parseFloat("altitude loss");
+            case TAG_EXTENSION_DISTANCE -> sensorDistance = parseFloat("distance");
+            case TAG_EXTENSION_ACCURACY_HORIZONTAL -> accuracyHorizontal = parseFloat("accuracy_horizontal");
+            case TAG_EXTENSION_ACCURACY_VERTICAL -> accuracyVertical = parseFloat("accuracy_vertical");
         }
+    }
 
-        content = "";
+    private float parseFloat(String label) {
+        try {
+            return content.parseFloat();
+        } catch (NumberFormatException e) {
+            throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse %s: %s", label, content.toTrimmedString())), e);
+        }
     }
 
     private void onTrackSegmentEnd() {
@@ -264,7 +253,7 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
             return;
         }
 
-        TrackPoint first = currentSegment.getFirst();
+        TrackPoint first = currentSegment.get(0);
         first.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
 
         trackImporter.addTrackPoints(currentSegment);
@@ -273,121 +262,56 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
 
     private TrackPoint createTrackPoint() throws ParsingException {
-        OffsetDateTime parsedTime;
-        try {
-            parsedTime = StringUtils.parseTime(time);
-            if (zoneOffset == null) {
-                zoneOffset = parsedTime.getOffset();
-            }
-        } catch (Exception e) {
-            throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", time)), e);
+        if (time == null) {
+            throw new ParsingException(createErrorMessage("Unable to parse time: null"));
+        }
+        if (zoneOffset == null) {
+            zoneOffset = timeZoneOffset;
         }
 
         if (latitude == null || longitude == null) {
-            return new TrackPoint(TrackPoint.Type.TRACKPOINT, parsedTime.toInstant());
+            return new TrackPoint(TrackPoint.Type.TRACKPOINT, time);
         }
 
         double latitudeParsed;
         double longitudeParsed;
-        Distance accuracyHorizontalParsed = null;
-        Altitude.WGS84 altitudeParsed = null;
-        Distance accuracyVerticalParsed = null;
-        Speed speedParsed = null;
-
         try {
-            latitudeParsed = Double.parseDouble(latitude);
-            longitudeParsed = Double.parseDouble(longitude);
+            latitudeParsed = CharSequenceParser.parseDouble(latitude);
+            longitudeParsed = CharSequenceParser.parseDouble(longitude);
         } catch (NumberFormatException e) {
             throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse latitude longitude: %s %s", latitude, longitude)), e);
         }
-        if (accuracyHorizontal != null) {
-            try {
-                accuracyHorizontalParsed = Distance.of(accuracyHorizontal);
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse accuracy_horizontal: %s", sensorDistance)), e);
-            }
-        }
-
-        if (altitude != null) {
-            try {
-                altitudeParsed = Altitude.WGS84.of(Double.parseDouble(altitude));
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude: %s", altitude)), e);
-            }
-        }
-        if (accuracyVertical != null) {
-            try {
-                accuracyVerticalParsed = Distance.of(accuracyVertical);
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse accuracy_vertical: %s", accuracyVertical)), e);
-            }
-        }
-
-        if (speed != null) {
-            try {
-                speedParsed = Speed.of(speed);
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse speed: %s", speed)), e);
-            }
-        }
 
         TrackPoint trackPoint = new TrackPoint(
                 TrackPoint.Type.TRACKPOINT,
                 new Position(
-                parsedTime.toInstant(),
-                latitudeParsed,
-                longitudeParsed,
-                accuracyHorizontalParsed,
-                altitudeParsed,
-                accuracyVerticalParsed,
-                null,
-                speedParsed
-        ));
-
-        if (heartrate != null) {
-            try {
-                trackPoint.setHeartRate(Float.parseFloat(heartrate));
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse heart rate: %s", heartrate)), e);
-            }
+                        time,
+                        latitudeParsed,
+                        longitudeParsed,
+                        Float.isNaN(accuracyHorizontal) ? null : Distance.of(accuracyHorizontal),
+                        Double.isNaN(altitude) ? null : Altitude.WGS84.of(altitude),
+                        Float.isNaN(accuracyVertical) ? null : Distance.of(accuracyVertical),
+                        null,
+                        Float.isNaN(speed) ? null : Speed.of(speed)
+                ));
+
+        if (!Float.isNaN(heartrate)) {
+            trackPoint.setHeartRate(heartrate);
         }
-
-        if (cadence != null) {
-            try {
-                trackPoint.setCadence(Float.parseFloat(cadence));
-            } catch (Exception e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse cadence: %s", cadence)), e);
-            }
+        if (!Float.isNaN(cadence)) {
+            trackPoint.setCadence(cadence);
         }
-
-        if (power != null) {
-            try {
-                trackPoint.setPower(Float.parseFloat(power));
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse power: %s", power)), e);
-            }
+        if (!Float.isNaN(power)) {
+            trackPoint.setPower(power);
         }
-
-        if (gain != null) {
-            try {
-                trackPoint.setAltitudeGain(Float.parseFloat(gain));
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude gain: %s", gain)), e);
-            }
+        if (!Float.isNaN(gain)) {
+            trackPoint.setAltitudeGain(gain);
         }
-        if (loss != null) {
-            try {
-                trackPoint.setAltitudeLoss(Float.parseFloat(loss));
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude loss: %s", loss)), e);
-            }
+        if (!Float.isNaN(loss)) {
+            trackPoint.setAltitudeLoss(loss);
         }
-        if (sensorDistance != null) {
-            try {
-                trackPoint.setSensorDistance(Distance.of(sensorDistance));
-            } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse distance: %s", sensorDistance)), e);
-            }
+        if (!Float.isNaN(sensorDistance)) {
+            trackPoint.setSensorDistance(Distance.of(sensorDistance));
         }
 
         return trackPoint;
@@ -396,19 +320,25 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
     private void onTrackPointStart(Attributes attributes) {
         latitude = attributes.getValue(ATTRIBUTE_LAT);
         longitude = attributes.getValue(ATTRIBUTE_LON);
-        altitude = null;
-        time = null;
-        speed = null;
-
-        gain = null;
-        loss = null;
+        resetTrackPointValues();
+        insidePoint = true;
+    }
 
-        sensorDistance = null;
-        accuracyHorizontal = null;
-        accuracyVertical = null;
-        power = null;
-        heartrate = null;
-        cadence = null;
+    private void resetTrackPointValues() {
+        time = null;
+        timeZoneOffset = null;
+        altitude = Double.NaN;
+        speed = Float.NaN;
+
+        gain = Float.NaN;
+        loss = Float.NaN;
+
+        sensorDistance = Float.NaN;
+        accuracyHorizontal = Float.NaN;
+        accuracyVertical = Float.NaN;
+        power = Float.NaN;
+        heartrate = Float.NaN;
+        cadence = Float.NaN;
     }
 
     private void onMarkerStart(Attributes attributes) {
@@ -417,9 +347,9 @@ public class GPXTrackImporter extends DefaultHandler implements XMLImporter.Trac
         photoUrl = null;
         latitude = attributes.getValue(ATTRIBUTE_LAT);
         longitude = attributes.getValue(ATTRIBUTE_LON);
-        altitude = null;
-        time = null;
+        resetTrackPointValues();
         markerType = null;
+        insidePoint = true;
     }
 
     private void onMarkerEnd() {
@@ -12,86 +12,88 @@ import androidx.annotation.NonNull;
 import androidx.core.app.JobIntentService;
 import androidx.documentfile.provider.DocumentFile;
 
-import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
-import de.dennisguse.opentracks.R;
-import de.dennisguse.opentracks.data.ContentProviderUtils;
-import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
-import de.dennisguse.opentracks.io.file.TrackFileFormat;
-import de.dennisguse.opentracks.settings.PreferencesUtils;
-import de.dennisguse.opentracks.util.FileUtils;
 
+/**
+ * Imports files with a {@link BulkImporter}; the result of each file is sent to the {@link ImportServiceResultReceiver}.
+ * The import continues if the {@link ImportActivity} is closed.
+ */
 public class ImportService extends JobIntentService {
 
     private static final String TAG = ImportService.class.getSimpleName();
 
     private static final int JOB_ID = 2;
 
+    // Keeps the Intents small; larger imports are split into multiple works.
+    private static final int MAX_FILES_PER_WORK = 100;
+
     private static final String EXTRA_RECEIVER = "extra_receiver";
-    private static final String EXTRA_URI = "extra_uri";
+    private static final String EXTRA_URIS = "extra_uris";
 
-    private ResultReceiver resultReceiver;
+    private volatile ResultReceiver resultReceiver;
+    private volatile BulkImporter bulkImporter;
 
-    public static void enqueue(Context context, ImportServiceResultReceiver receiver, Uri uri) {
-        Intent intent = new Intent(context, JobService.class);
-        intent.putExtra(EXTRA_RECEIVER, receiver);
-        intent.putExtra(EXTRA_URI, uri);
-        enqueueWork(context, ImportService.class, JOB_ID, intent);
+    public static void enqueue(Context context, ResultReceiver receiver, List<Uri> uris) {
+        for (int i = 0; i < uris.size(); i += MAX_FILES_PER_WORK) {
+            Intent intent = new Intent(context, JobService.class);
+            intent.putExtra(EXTRA_RECEIVER, receiver);
+            intent.putParcelableArrayListExtra(EXTRA_URIS, new ArrayList<>(uris.subList(i, Math.min(i + MAX_FILES_PER_WORK, uris.size()))));
+            enqueueWork(context, ImportService.class, JOB_ID, intent);
+        }
     }
 
     @Override
     protected void onHandleWork(@NonNull Intent intent) {
-        resultReceiver = intent.getParcelableExtra(EXTRA_RECEIVER);
-        Uri uri = intent.getParcelableExtra(EXTRA_URI);
-        importFile(DocumentFile.fromSingleUri(this, uri));
+        ResultReceiver receiver = intent.getParcelableExtra(EXTRA_RECEIVER);
+        ArrayList<Uri> uris = intent.getParcelableArrayListExtra(EXTRA_URIS);
+        List<DocumentFile> files = uris.stream()
+                .map(uri -> DocumentFile.fromSingleUri(this, uri))
+                .collect(Collectors.toList());
+
+        resultReceiver = receiver;
+        bulkImporter = new BulkImporter(this, (file, resultCode, trackIds, message) -> sendResult(receiver, file, resultCode, trackIds, message));
+        bulkImporter.importFiles(files);
+        try {
+            bulkImporter.awaitTermination();
+        } catch (InterruptedException e) {
+            Log.w(TAG, "Interrupted while importing.", e);
+            Thread.currentThread().interrupt();
+        } finally {
+            bulkImporter = null;
+        }
     }
 
-    private void importFile(DocumentFile file) {
-        ArrayList<Track.Id> trackIds = new ArrayList<>();
-
-        String fileExtension = FileUtils.getExtension(file);
-        try {
-            Distance maxRecordingDistance = PreferencesUtils.getMaxRecordingDistance();
-            boolean preventReimport = PreferencesUtils.getPreventReimportTracks();
-
-            TrackImporter trackImporter = new TrackImporter(this, new ContentProviderUtils(this), maxRecordingDistance, preventReimport);
-
-            if (TrackFileFormat.GPX.getExtension().equals(fileExtension)) {
-                trackIds.addAll(new XMLImporter(new GPXTrackImporter(this, trackImporter)).importFile(this, file.getUri()));
-            } else if (TrackFileFormat.KML_WITH_TRACKDETAIL_AND_SENSORDATA.getExtension().equals(fileExtension)) {
-                trackIds.addAll(new XMLImporter(new KMLTrackImporter(this, trackImporter)).importFile(this, file.getUri()));
-            } else if (TrackFileFormat.KMZ_WITH_TRACKDETAIL_AND_SENSORDATA_AND_PICTURES.getExtension().equals(fileExtension)) {
-                trackIds.addAll(new KMZTrackImporter(this, trackImporter).importFile(file.getUri()));
-            } else {
-                Log.d(TAG, "Unsupported file format.");
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unsupported_format));
-                return;
-            }
-
-            if (!trackIds.isEmpty()) {
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_IMPORTED, trackIds, file, getString(R.string.import_file_imported, file.getName()));
-            } else {
-                sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, trackIds, file, getString(R.string.import_unable_to_import_file, file.getName()));
-            }
-        } catch (IOException e) {
-            Log.d(TAG, "Unable to import file", e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_unable_to_import_file, e.getMessage()));
-        } catch (ImportParserException e) {
-            Log.d(TAG, "Parser error: " + e.getMessage(), e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ERROR, null, file, getString(R.string.import_parser_error, e.getMessage()));
-        } catch (ImportAlreadyExistsException e) {
-            Log.d(TAG, "Track already exists: " + e.getMessage(), e);
-            sendResult(ImportServiceResultReceiver.RESULT_CODE_ALREADY_EXISTS, null, file, e.getMessage());
+    @Override
+    public boolean onStopCurrentWork() {
+        BulkImporter currentBulkImporter = bulkImporter;
+        if (currentBulkImporter == null) {
+            return true;
         }
+
+        // Redelivering the work would import its finished files again.
+        List<Uri> skippedUris = currentBulkImporter.cancel().stream()
+                .map(DocumentFile::getUri)
+                .collect(Collectors.toList());
+        Log.i(TAG, "Stopped; enqueuing " + skippedUris.size() + " files again.");
+        enqueue(this, resultReceiver, skippedUris);
+        return false;
     }
 
-    private void sendResult(int resultCode, ArrayList<Track.Id> trackId, DocumentFile file, String message) {
+    private static void sendResult(ResultReceiver receiver, DocumentFile file, BulkImporter.ResultCode resultCode, List<Track.Id> trackIds, String message) {
+        int code = switch (resultCode) {
+            case IMPORTED -> ImportServiceResultReceiver.RESULT_CODE_IMPORTED;
+            case ALREADY_EXISTS -> ImportServiceResultReceiver.RESULT_CODE_ALREADY_EXISTS;
+            case ERROR -> ImportServiceResultReceiver.RESULT_CODE_ERROR;
+        };
+
         Bundle bundle = new Bundle();
-        bundle.putParcelableArrayList(ImportServiceResultReceiver.RESULT_EXTRA_LIST_TRACK_ID, trackId);
+        bundle.putParcelableArrayList(ImportServiceResultReceiver.RESULT_EXTRA_LIST_TRACK_ID, new ArrayList<>(trackIds));
         bundle.putString(ImportServiceResultReceiver.RESULT_EXTRA_FILENAME, file.getName());
         bundle.putString(ImportServiceResultReceiver.RESULT_EXTRA_MESSAGE, message);
-        resultReceiver.send(resultCode, bundle);
+        receiver.send(code, bundle);
     }
 }
@@ -1,8 +1,10 @@
 package de.dennisguse.opentracks.io.file.importer;
 
 import android.app.Application;
+import android.net.Uri;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.Looper;
 
 import androidx.annotation.NonNull;
 import androidx.documentfile.provider.DocumentFile;
@@ -25,12 +27,10 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
     private MutableLiveData<Summary> importData;
     private final ImportServiceResultReceiver resultReceiver;
     private final Summary summary;
-    private boolean cancel = false;
-    private final List<DocumentFile> filesToImport = new ArrayList<>();
 
     public ImportViewModel(@NonNull Application application) {
         super(application);
-        resultReceiver = new ImportServiceResultReceiver(new Handler(), this);
+        resultReceiver = new ImportServiceResultReceiver(new Handler(Looper.getMainLooper()), this);
         summary = new Summary();
     }
 
@@ -42,10 +42,6 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
         return importData;
     }
 
-    void cancel() {
-        cancel = true;
-    }
-
     private void loadData(List<DocumentFile> documentFiles) {
         List<ArrayList<DocumentFile>> nestedFileList = documentFiles.stream()
                 .map(FileUtils::getFiles)
@@ -55,16 +51,8 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
         nestedFileList.forEach(fileList::addAll);
 
         summary.totalCount = fileList.size();
-        filesToImport.addAll(fileList);
-        importNextFile();
-    }
-
-    private void importNextFile() {
-        if (cancel || filesToImport.isEmpty()) {
-            return;
-        }
-        ImportService.enqueue(getApplication(), resultReceiver, filesToImport.get(0).getUri());
-        filesToImport.remove(0);
+        List<Uri> uris = fileList.stream().map(DocumentFile::getUri).collect(Collectors.toList());
+        ImportService.enqueue(getApplication(), resultReceiver, uris);
     }
 
     @Override
@@ -91,8 +79,7 @@ public class ImportViewModel extends AndroidViewModel implements ImportServiceRe
                     throw new RuntimeException(TAG + ": import service result code invalid: " + resultCode);
         }
 
-        importData.postValue(summary);
-        importNextFile();
+        importData.setValue(summary);
     }
 
     static class Summary {
@@ -17,7 +17,6 @@
 package de.dennisguse.opentracks.io.file.importer;
 
 import android.content.Context;
-import android.location.Location;
 import android.net.Uri;
 import android.util.Log;
 
@@ -27,12 +26,12 @@ import org.xml.sax.SAXException;
 import org.xml.sax.helpers.DefaultHandler;
 
 import java.time.Instant;
-import java.time.OffsetDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Locale;
 
+import de.dennisguse.opentracks.data.models.Altitude;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Marker;
 import de.dennisguse.opentracks.data.models.Position;
@@ -40,7 +39,6 @@ import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.io.file.exporter.KMLTrackExporter;
-import de.dennisguse.opentracks.util.StringUtils;
 
 /**
  * Imports a KML file; preferred version: KML2.3, but also supports KML2.2.
@@ -113,15 +111,18 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
     private final ArrayList<Marker> markers = new ArrayList<>();
 
     // The current element content
-    private String content = "";
+    private final ContentBuffer content = new ContentBuffer();
+    // Bounds of the coordinates' tokens within content.
+    private final int[] coordinateBounds = new int[6];
 
     private String name;
     private String description;
     private String activityType;
     private String activityTypeLocalized;
-    private String latitude;
-    private String longitude;
-    private String altitude;
+    // NaN if not present.
+    private double latitude = Double.NaN;
+    private double longitude = Double.NaN;
+    private double altitude = Double.NaN;
     private String markerType;
     private Uri photoUrl;
     private String uuid;
@@ -158,7 +159,7 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
     @Override
     public void characters(char[] ch, int start, int length) {
-        content += new String(ch, start, length);
+        content.append(ch, start, length);
     }
 
     @Override
@@ -178,60 +179,44 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
             case TAG_VALUE, TAG_KML22_VALUE -> {
                 switch (dataType) {
                     case KMLTrackExporter.EXTENDED_DATA_ACTIVITY_TYPE -> {
-                        if (content != null) {
-                            activityType = content.trim();
-                        }
+                        activityType = content.toTrimmedString();
                     }
                     case KMLTrackExporter.EXTENDED_DATA_TYPE_LOCALIZED -> {
-                        if (content != null) {
-                            activityTypeLocalized = content.trim();
-                        }
+                        activityTypeLocalized = content.toTrimmedString();
                     }
                     default -> onExtendedDataValueEnd();
                 }
             }
             case TAG_NAME -> {
-                if (content != null) {
-                    name = content.trim();
-                }
+                name = content.toTrimmedString();
             }
             case TAG_UUID -> {
-                if (content != null) {
-                    uuid = content.trim();
-                }
+                uuid = content.toTrimmedString();
+                trackImporter.checkUuid(uuid);
             }
             case TAG_DESCRIPTION -> {
-                if (content != null) {
-                    description = content.trim();
-                }
+                description = content.toTrimmedString();
             }
             case TAG_WHEN -> {
-                if (content != null) {
-                    try {
-                        OffsetDateTime time = StringUtils.parseTime(content.trim());
-                        if (zoneOffset == null) {
-                            zoneOffset = time.getOffset();
-                        }
-                        whenList.add(time.toInstant());
-                    } catch (Exception e) {
-                        throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", content.trim())), e);
+                try {
+                    whenList.add(content.parseTime());
+                    if (zoneOffset == null) {
+                        zoneOffset = content.parseZoneOffset();
                     }
+                } catch (Exception e) {
+                    throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse time: %s", content.toTrimmedString())), e);
                 }
             }
             case TAG_STYLE_URL -> {
-                if (content != null) {
-                    markerType = content.trim();
-                }
+                markerType = content.toTrimmedString();
             }
             case TAG_HREF -> {
-                if (content != null) {
-                    photoUrl = Uri.parse(content.trim());
-                }
+                photoUrl = Uri.parse(content.toTrimmedString());
             }
         }
 
         // Reset element content
-        content = "";
+        content.clear();
     }
 
     private void onMarkerStart() {
@@ -240,9 +225,9 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
         description = null;
         activityTypeLocalized = null;
         photoUrl = null;
-        latitude = null;
-        longitude = null;
-        altitude = null;
+        latitude = Double.NaN;
+        longitude = Double.NaN;
+        altitude = Double.NaN;
         markerType = null;
     }
 
@@ -258,7 +243,7 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
 
         Position position = createPosition(latitude, longitude, altitude);
         if (position == null) {
-            Log.w(TAG, "Marker with invalid coordinates ignored: " + latitude + " " + longitude);
+            Log.w(TAG, "Marker without coordinates ignored.");
             return;
         }
         position = position.with(whenList.get(0));
@@ -278,15 +263,7 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
     }
 
     private void onMarkerLocationEnd() {
-        if (content != null) {
-            String[] parts = content.trim().split(",");
-            if (parts.length != 2 && parts.length != 3) {
-                return;
-            }
-            longitude = parts[0];
-            latitude = parts[1];
-            altitude = parts.length == 3 ? parts[2] : null;
-        }
+        parseCoordinates(',');
     }
 
     private void onTrackSegmentStart() {
@@ -375,57 +352,68 @@ public class KMLTrackImporter extends DefaultHandler implements XMLImporter.Trac
     }
 
     private void onCoordEnded() {
-        String[] parts = content.trim().split(" ");
-        if (parts.length == 2 || parts.length == 3) {
-            longitude = parts[0];
-            latitude = parts[1];
-            altitude = parts.length == 3 ? parts[2] : null;
-        }
+        parseCoordinates(' ');
 
         positionList.add(createPosition(latitude, longitude, altitude));
 
-        longitude = null;
-        latitude = null;
-        altitude = null;
+        longitude = Double.NaN;
+        latitude = Double.NaN;
+        altitude = Double.NaN;
     }
 
-    private Position createPosition(String latitude, String longitude, String altitude) {
-        if (longitude != null && latitude != null) {
-            Location location = new Location("import");
+    /**
+     * Parses longitude, latitude, and optionally altitude; ignored if not 2 or 3 values.
+     */
+    private void parseCoordinates(char separator) {
+        int count = content.split(separator, coordinateBounds);
+        if (count != 2 && count != 3) {
+            return;
+        }
+
+        try {
+            longitude = CharSequenceParser.parseDouble(content, coordinateBounds[0], coordinateBounds[1]);
+            latitude = CharSequenceParser.parseDouble(content, coordinateBounds[2], coordinateBounds[3]);
+        } catch (NumberFormatException e) {
+            throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse latitude longitude: %s", content.toTrimmedString())), e);
+        }
+
+        if (count == 3) {
             try {
-                location.setLatitude(Double.parseDouble(latitude));
-                location.setLongitude(Double.parseDouble(longitude));
+                altitude = CharSequenceParser.parseDouble(content, coordinateBounds[4], coordinateBounds[5]);
             } catch (NumberFormatException e) {
-                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse latitude longitude: %s %s", latitude, longitude)), e);
+                throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude: %s", content.subSequence(coordinateBounds[4], coordinateBounds[5]))), e);
             }
+        }
+    }
 
-            if (altitude != null) {
-                try {
-                    location.setAltitude(Double.parseDouble(altitude));
-                } catch (NumberFormatException e) {
-                    throw new ParsingException(createErrorMessage(String.format(Locale.US, "Unable to parse altitude: %s", altitude)), e);
-                }
-            }
-            return Position.of(location, null);
+    private Position createPosition(double latitude, double longitude, double altitude) {
+        if (Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return null;
         }
 
-        return null;
+        return new Position(
+                null,
+                latitude,
+                longitude,
+                null,
+                Double.isNaN(altitude) ? null : Altitude.WGS84.of(altitude),
+                null,
+                null,
+                null
+        );
     }
 
     private void onExtendedDataValueEnd() throws SAXException {
         if (dataType.equals(KMLTrackExporter.EXTENDED_DATA_TYPE_TRACKPOINT)) {
-            trackpointTypeList.add(content != null ? content.trim() : null);
+            trackpointTypeList.add(content.toTrimmedString());
             return;
         }
         Float value = null;
-        if (content != null) {
-            content = content.trim();
-            if (!content.isEmpty()) {
-                try {
-                    value = Float.parseFloat(content);
-                } catch (NumberFormatException e) {
-                    throw new SAXException(createErrorMessage("Unable to parse value:" + content), e);
-                }
+        if (!content.isBlank()) {
+            try {
+                value = content.parseFloat();
+            } catch (NumberFormatException e) {
+                throw new SAXException(createErrorMessage("Unable to parse value:" + content.toTrimmedString()), e);
             }
         }
         switch (dataType) {
@@ -28,8 +28,13 @@ import java.io.FileOutputStream;
 import java.io.FilterInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.UUID;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 
@@ -41,6 +46,9 @@ import de.dennisguse.opentracks.util.FileUtils;
 
 /**
  * Imports a KMZ file.
+ * <p>
+ * The KMZ is read once: the KML is parsed and the images are extracted into a staging directory in the same traversal (images may be stored before or after the KML).
+ * Afterwards, the images referenced by the markers are moved into the photo directory of their track; all others are discarded.
  *
  * @author Jimmy Shih
  */
@@ -52,6 +60,8 @@ public class KMZTrackImporter {
 
     private static final List<String> KMZ_IMAGES_EXT = List.of("jpeg", "jpg", "png");
 
+    private static final String STAGING_DIR_PREFIX = "import-";
+
     private final Context context;
     private final TrackImporter trackImporter;
 
@@ -62,47 +72,14 @@ public class KMZTrackImporter {
 
     @NonNull
     public List<Track.Id> importFile(Uri fileUri) throws IOException {
-        List<Track.Id> trackIds = findAndParseKmlFile(fileUri);
-
-        List<Track.Id> trackIdsWithImages = new ArrayList<>();
-
-        for (Track.Id trackId : trackIds) {
-            if (copyKmzImages(fileUri, trackId)) {
-                trackIdsWithImages.add(trackId);
-                deleteOrphanImages(trackId);
-            } else {
-                return new ArrayList<>();
-            }
-        }
-
-        return trackIdsWithImages;
-    }
-
-    /**
-     * Copies all images that are inside KMZ to OpenTracks external storage.
-     *
-     * @return false if there are errors or true otherwise.
-     */
-    private boolean copyKmzImages(Uri uri, Track.Id trackId) throws IOException {
-        try (InputStream inputStream = context.getContentResolver().openInputStream(uri);
-             ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
-            ZipEntry zipEntry;
-
-            while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-                if (Thread.interrupted()) {
-                    Log.d(TAG, "Thread interrupted");
-                    return false;
-                }
-
-                String fileName = zipEntry.getName();
-                if (hasImageExtension(fileName)) {
-                    readAndSaveImageFile(zipInputStream, trackId, importNameForFilename(fileName));
-                }
-
-                zipInputStream.closeEntry();
-            }
-
-            return true;
+        // Same file system as the photo directories of the tracks, so images can be moved.
+        File stagingDir = new File(FileUtils.getPhotoDir(context), STAGING_DIR_PREFIX + UUID.randomUUID());
+        try {
+            List<Track.Id> trackIds = readKmz(fileUri, stagingDir);
+            moveImages(stagingDir, trackIds);
+            return trackIds;
+        } finally {
+            FileUtils.deleteDirectoryRecurse(stagingDir);
         }
     }
 
@@ -144,7 +121,10 @@ public class KMZTrackImporter {
         return KMZ_IMAGES_EXT.contains(fileExt);
     }
 
-    private List<Track.Id> findAndParseKmlFile(Uri uri) throws IOException {
+    /**
+     * Parses the KML and extracts all images into stagingDir.
+     */
+    private List<Track.Id> readKmz(Uri uri, File stagingDir) throws IOException {
         try (InputStream inputStream = context.getContentResolver().openInputStream(uri);
              ZipInputStream zipInputStream = new ZipInputStream(inputStream)) {
             ZipEntry zipEntry;
@@ -164,6 +144,8 @@ public class KMZTrackImporter {
                         throw new ImportParserException(context.getString(R.string.import_unable_to_import_file, fileName));
                     }
                     trackIds.addAll(trackId);
+                } else if (hasImageExtension(fileName)) {
+                    readAndSaveImageFile(zipInputStream, stagingDir, importNameForFilename(fileName));
                 }
 
                 zipInputStream.closeEntry();
@@ -180,32 +162,39 @@ public class KMZTrackImporter {
     }
 
     /**
-     * Deletes all images that remained in external storage that doesn't have a marker associated.
-     *
-     * @param trackId the id of the Track.
+     * Moves the images referenced by the markers of the tracks from stagingDir into the photo directory of each track.
+     * An image referenced by multiple tracks is copied.
      */
-    private void deleteOrphanImages(Track.Id trackId) {
-        // 1.- Gets all photo names in the markers of the track identified by id.
+    private void moveImages(File stagingDir, List<Track.Id> trackIds) throws IOException {
+        // 1.- Gets all photo names in the markers of the tracks.
         ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
-        List<Marker> markers = contentProviderUtils.getMarkers(trackId);
-        List<String> photosName = new ArrayList<>();
-        for (Marker marker : markers) {
-            if (marker.hasPhoto()) {
-                String photoUrl = Uri.decode(marker.getPhotoUrl().toString()); //TODO Why Uri.decode()?
-                photosName.add(photoUrl.substring(photoUrl.lastIndexOf(File.separatorChar) + 1));
+        Map<String, List<Track.Id>> trackIdsByPhotoName = new LinkedHashMap<>();
+        for (Track.Id trackId : trackIds) {
+            for (Marker marker : contentProviderUtils.getMarkers(trackId)) {
+                if (marker.hasPhoto()) {
+                    String photoUrl = Uri.decode(marker.getPhotoUrl().toString()); //TODO Why Uri.decode()?
+                    String photoName = photoUrl.substring(photoUrl.lastIndexOf(File.separatorChar) + 1);
+                    trackIdsByPhotoName.computeIfAbsent(photoName, k -> new ArrayList<>()).add(trackId);
+                }
             }
         }
 
-        // 2.- Deletes all orphan photos from external storage.
-        File dir = FileUtils.getPhotoDir(context, trackId);
-        if (dir.exists() && dir.isDirectory()) {
-            for (File file : dir.listFiles()) {
-                if (!photosName.contains(file.getName())) {
-                    file.delete();
-                }
+        // 2.- Moves the photos; the last track referencing a photo gets the staged file.
+        for (Map.Entry<String, List<Track.Id>> entry : trackIdsByPhotoName.entrySet()) {
+            File source = new File(stagingDir, entry.getKey());
+            if (!source.isFile()) {
+                Log.w(TAG, "Photo not found in kmz: " + entry.getKey());
+                continue;
             }
-            if (dir.listFiles().length == 0) {
-                dir.delete();
+
+            List<Track.Id> photoTrackIds = entry.getValue();
+            for (int i = 0; i < photoTrackIds.size(); i++) {
+                File target = new File(FileUtils.getPhotoDir(context, photoTrackIds.get(i)), entry.getKey());
+                if (i < photoTrackIds.size() - 1) {
+                    Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                } else {
+                    Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
             }
         }
     }
@@ -224,18 +213,20 @@ public class KMZTrackImporter {
     }
 
     /**
-     * Reads an image file (zipInputStream) and save it in a file called fileName inside photo folder.
+     * Reads an image file (zipInputStream) and save it in a file called fileName inside dir.
      *
      * @param zipInputStream the zip input stream
-     * @param trackId        the track's id which image belongs to.
+     * @param dir            the directory; created if needed.
      * @param fileName       the file name
      */
-    private void readAndSaveImageFile(ZipInputStream zipInputStream, Track.Id trackId, String fileName) throws IOException {
-        if (trackId == null || "".equals(fileName)) {
+    private void readAndSaveImageFile(ZipInputStream zipInputStream, File dir, String fileName) throws IOException {
+        if ("".equals(fileName)) {
             return;
         }
 
-        File dir = FileUtils.getPhotoDir(context, trackId);
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Could not create directory " + dir);
+        }
         File file = new File(dir, fileName);
 
         try (FileOutputStream fileOutputStream = new FileOutputStream(file)) {
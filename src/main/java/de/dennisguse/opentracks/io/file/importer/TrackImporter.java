@@ -6,6 +6,7 @@ import android.util.Log;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 
 import java.io.File;
 import java.time.Duration;
@@ -19,6 +20,8 @@ import java.util.UUID;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.TrackFingerprint;
+import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.ActivityType;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Marker;
@@ -38,6 +41,12 @@ import de.dennisguse.opentracks.util.FileUtils;
  * 5. if needed go to 1.
  * 6. finish()
  * <p>
+ * TrackPoints are streamed into the database in chunks (memory usage does not depend on the track's size).
+ * Therefore, the track is stored with the first chunk (hidden until finished; see {@link ContentProviderUtils#insertIncompleteTrack()}) and its metadata as well as statistics are updated when finished.
+ * If the TrackPoints are not ordered by time, they are stored as is and re-inserted ordered by time when finished.
+ * If the import fails, the partially imported track is deleted.
+ * Re-imports are detected by UUID (as soon as it is parsed) and by content (see {@link TrackFingerprint}).
+ * <p>
  * NOTE: This class modifies the parameter.
  * Do not re-use these objects anywhere else.
  */
@@ -45,6 +54,11 @@ public class TrackImporter {
 
     private static final String TAG = TrackImporter.class.getSimpleName();
 
+    @VisibleForTesting
+    static final int CHUNK_SIZE = 1000;
+
+    private static final Object STORE_LOCK = new Object();
+
     private final Context context;
     private final ContentProviderUtils contentProviderUtils;
 
@@ -55,14 +69,24 @@ public class TrackImporter {
 
     // Current track
     private Track track;
-    private final List<TrackPoint> trackPoints = new LinkedList<>();
     private final List<Marker> markers = new LinkedList<>();
 
+    // Current track in the database (stored with the first chunk)
+    private Track.Id trackId;
+    private final List<TrackPoint> chunk = new ArrayList<>(CHUNK_SIZE);
+    private int trackPointCount;
+    private Instant lastTime;
+    private boolean orderedByTime;
+    // Last stored TrackPoint; only if orderedByTime.
+    private TrackPoint previous;
+    private TrackStatisticsUpdater trackStatisticsUpdater;
+
     public TrackImporter(Context context, ContentProviderUtils contentProviderUtils, Distance maxRecordingDistance, boolean preventReimport) {
         this.context = context;
         this.contentProviderUtils = contentProviderUtils;
         this.maxRecordingDistance = maxRecordingDistance;
         this.preventReimport = preventReimport;
+        resetTrackPoints();
     }
 
     void newTrack() {
@@ -70,33 +94,59 @@ public class TrackImporter {
             finishTrack();
         }
 
+        // TrackPoints without a track are discarded.
+        deleteCurrentTrack();
+
         track = null;
-        trackPoints.clear();
         markers.clear();
+        resetTrackPoints();
     }
 
     void addTrackPoint(TrackPoint trackPoint) {
-        this.trackPoints.add(trackPoint);
+        if (lastTime != null && trackPoint.getTime().isBefore(lastTime)) {
+            if (orderedByTime) {
+                Log.i(TAG, "TrackPoints are not ordered by time; will be sorted when finished.");
+            }
+            orderedByTime = false;
+        } else {
+            lastTime = trackPoint.getTime();
+        }
+
+        chunk.add(trackPoint);
+        if (chunk.size() >= CHUNK_SIZE) {
+            storeChunk();
+        }
     }
 
     void addTrackPoints(List<TrackPoint> trackPoints) {
-        this.trackPoints.addAll(trackPoints);
+        trackPoints.forEach(this::addTrackPoint);
     }
 
     void addMarkers(List<Marker> markers) {
         this.markers.addAll(markers);
     }
 
+    /**
+     * Rejects a re-import as soon as the track's UUID is parsed (i.e., before its TrackPoints are stored).
+     */
+    void checkUuid(String uuid) {
+        UUID trackUuid = parseUuid(uuid);
+        if (preventReimport && trackUuid != null && contentProviderUtils.getTrack(trackUuid) != null) {
+            deleteCurrentTrack();
+            throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+        }
+    }
+
     void setTrack(Context context, String name, String uuid, String description, String activityTypeLocalized, String activityTypeId, @Nullable ZoneOffset zoneOffset) {
         track = new Track(zoneOffset != null ? zoneOffset : ZoneOffset.UTC);
         track.setName(name != null ? name : "");
 
-        try {
-            track.setUuid(UUID.fromString(uuid));
-        } catch (IllegalArgumentException | NullPointerException e) {
+        UUID trackUuid = parseUuid(uuid);
+        if (trackUuid == null) {
             Log.w(TAG, "could not parse Track UUID, generating a new one.");
-            track.setUuid(UUID.randomUUID());
+            trackUuid = UUID.randomUUID();
         }
+        track.setUuid(trackUuid);
 
         track.setDescription(description != null ? description : "");
 
@@ -112,47 +162,63 @@ public class TrackImporter {
         track.setActivityType(activityType);
     }
 
+    @Nullable
+    private static UUID parseUuid(String uuid) {
+        try {
+            return UUID.fromString(uuid);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            return null;
+        }
+    }
+
     void finish() {
         if (track != null) {
             finishTrack();
+        } else {
+            deleteCurrentTrack();
         }
     }
 
     private void finishTrack() {
-        if (trackPoints.isEmpty()) {
+        storeChunk();
+
+        if (trackPointCount == 0) {
             throw new ImportParserException("Cannot import track without any locations.");
         }
 
-        // Store Track
-        if (contentProviderUtils.getTrack(track.getUuid()) != null) {
-            if (preventReimport) {
-                throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
-            }
-
-            //TODO This is a workaround until we have proper UI.
-            track.setUuid(UUID.randomUUID());
+        if (!orderedByTime) {
+            storeOrderedByTime();
         }
 
-        trackPoints.sort((o1, o2) -> {
-            if (o1.getTime().isBefore(o2.getTime())) {
-                return -1;
-            }
-            if (o1.getTime().isAfter(o2.getTime())) {
-                return 1;
-            }
-            return 0;
-        });
+        // Files may be imported concurrently (see BulkImporter): detecting re-imports and storing the track must not interleave.
+        synchronized (STORE_LOCK) {
+            long fingerprint = contentProviderUtils.computeFingerprint(trackId);
 
-        adjustTrackPoints();
+            if (contentProviderUtils.getTrack(track.getUuid()) != null) {
+                if (preventReimport) {
+                    deleteCurrentTrack();
+                    throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+                }
 
-        TrackStatisticsUpdater updater = new TrackStatisticsUpdater();
-        updater.addTrackPoints(trackPoints);
-        track.setTrackStatistics(updater.getTrackStatistics());
+                //TODO This is a workaround until we have proper UI.
+                track.setUuid(UUID.randomUUID());
+            }
 
-        Track.Id trackId = contentProviderUtils.insertTrack(track);
+            // Same activity with another UUID (e.g., exported by another app)?
+            if (preventReimport && fingerprint != TrackFingerprint.NONE) {
+                contentProviderUtils.updateMissingFingerprints(trackId);
+                if (contentProviderUtils.getTrackIds(fingerprint).stream().anyMatch(it -> !it.equals(trackId))) {
+                    deleteCurrentTrack();
+                    throw new ImportAlreadyExistsException(context.getString(R.string.import_prevent_reimport));
+                }
+            }
 
-        // Store TrackPoints
-        contentProviderUtils.bulkInsertTrackPoint(trackPoints, trackId);
+            // Store Track
+            track.setId(trackId);
+            track.setTrackStatistics(trackStatisticsUpdater.getTrackStatistics());
+            contentProviderUtils.updateTrack(track);
+            contentProviderUtils.updateFingerprint(trackId, fingerprint);
+        }
 
         // Store Markers
         updateMarkers(trackId);
@@ -161,18 +227,87 @@ public class TrackImporter {
 
         contentProviderUtils.bulkInsertMarkers(markers, trackId);
 
+        trackIds.add(trackId);
+
         //Clear up.
-        trackPoints.clear();
+        trackId = null;
         markers.clear();
+        resetTrackPoints();
+    }
 
-        trackIds.add(trackId);
+    private void resetTrackPoints() {
+        chunk.clear();
+        trackPointCount = 0;
+        lastTime = null;
+        orderedByTime = true;
+        previous = null;
+        trackStatisticsUpdater = new TrackStatisticsUpdater();
+    }
+
+    /**
+     * Stores the current chunk; the track is stored with the first chunk.
+     * If ordered by time: TrackPoints are adjusted and statistics are computed beforehand.
+     */
+    private void storeChunk() {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        if (trackId == null) {
+            trackId = contentProviderUtils.insertIncompleteTrack();
+        }
+
+        try {
+            if (orderedByTime) {
+                adjustTrackPoints(chunk);
+                trackStatisticsUpdater.addTrackPoints(chunk);
+            }
+            contentProviderUtils.bulkInsertTrackPoint(chunk, trackId);
+        } catch (RuntimeException e) {
+            deleteCurrentTrack();
+            throw e;
+        }
+
+        trackPointCount += chunk.size();
+        chunk.clear();
+    }
+
+    /**
+     * Re-inserts the TrackPoints of the current track ordered by time into a new track; uses the database instead of memory for sorting.
+     */
+    private void storeOrderedByTime() {
+        Track.Id unorderedTrackId = trackId;
+        trackId = null;
+        trackPointCount = 0;
+        orderedByTime = true;
+        previous = null;
+        trackStatisticsUpdater = new TrackStatisticsUpdater();
+
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIteratorOrderedByTime(unorderedTrackId)) {
+            while (trackPointIterator.hasNext()) {
+                chunk.add(trackPointIterator.next());
+                if (chunk.size() >= CHUNK_SIZE) {
+                    storeChunk();
+                }
+            }
+            storeChunk();
+        } finally {
+            contentProviderUtils.deleteTrack(context, unorderedTrackId);
+        }
+    }
+
+    private void deleteCurrentTrack() {
+        if (trackId != null) {
+            contentProviderUtils.deleteTrack(context, trackId);
+            trackId = null;
+        }
     }
 
     /**
      * If not present: calculate data from the previous trackPoint (if present)
      * NOTE: Modifies content of trackPoints.
      */
-    private void adjustTrackPoints() {
+    private void adjustTrackPoints(List<TrackPoint> trackPoints) {
         for (int i = 0; i < trackPoints.size(); i++) {
             TrackPoint current = trackPoints.get(i);
 
@@ -191,9 +326,11 @@ public class TrackImporter {
             }
         }
 
-        for (int i = 1; i < trackPoints.size(); i++) {
-            TrackPoint previous = trackPoints.get(i - 1);
-            TrackPoint current = trackPoints.get(i);
+        for (TrackPoint current : trackPoints) {
+            if (previous == null) {
+                previous = current;
+                continue;
+            }
 
             if (current.hasSensorDistance() || (previous.hasLocation() && current.hasLocation())) {
                 Distance distanceToPrevious = current.distanceToPrevious(previous);
@@ -211,6 +348,7 @@ public class TrackImporter {
                     current.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
                 }
             }
+            previous = current;
         }
     }
 
@@ -247,6 +385,7 @@ public class TrackImporter {
     }
 
     public void cleanImport() {
+        deleteCurrentTrack();
         contentProviderUtils.deleteTracks(context, trackIds);
     }
 
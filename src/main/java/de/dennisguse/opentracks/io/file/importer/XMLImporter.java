@@ -47,9 +47,8 @@ public class XMLImporter {
             return parser.getImportTrackIds();
         } catch (SAXException | ParserConfigurationException | ParsingException e) {
             Log.e(TAG, "Unable to import file", e);
-            if (!parser.getImportTrackIds().isEmpty()) {
-                parser.cleanImport();
-            }
+            // Also deletes a partially imported track.
+            parser.cleanImport();
             throw new ImportParserException(e);
         } catch (SQLiteConstraintException e) {
             Log.e(TAG, "Unable to import file", e);
@@ -5,17 +5,25 @@ import android.content.SharedPreferences;
 import android.os.Handler;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.time.Duration;
 import java.time.Instant;
 
+import de.dennisguse.opentracks.data.models.Position;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.sensors.sensorData.Aggregator;
 import de.dennisguse.opentracks.sensors.sensorData.Raw;
 import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
 import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
 
+/**
+ * Fuses the data of all sensors.
+ * <p>
+ * Sensor notifications (e.g., a 4Hz power meter) only update the {@link SensorDataSet}; a TrackPoint is created at most once per fusion interval or immediately for a new GPS location.
+ */
 public class SensorManager implements SharedPreferences.OnSharedPreferenceChangeListener {
 
     private static final String TAG = SensorManager.class.getSimpleName();
@@ -26,6 +34,12 @@ public class SensorManager implements SharedPreferences.OnSharedPreferenceChange
 
     private final TrackPointCreator observer;
 
+    private final Runnable FUSE = this::fuse;
+
+    private Handler handler;
+    private Duration fusionInterval = Duration.ZERO;
+    private boolean fusionScheduled = false;
+
     private final SensorDataChangedObserver listener = new SensorDataChangedObserver() {
 
         @Override
@@ -36,7 +50,11 @@ public class SensorManager implements SharedPreferences.OnSharedPreferenceChange
         @Override
         public void onChange(Raw<?> data) {
             sensorDataSet.update(data);
-            observer.onChange(new SensorDataSet(sensorDataSet));
+            if (data.value() instanceof Position || fusionInterval.isZero()) {
+                fuse();
+            } else {
+                scheduleFusion();
+            }
         }
 
         @Override
@@ -70,6 +88,7 @@ public class SensorManager implements SharedPreferences.OnSharedPreferenceChange
         if (gpsManager != null) {
             throw new RuntimeException("SensorManager cannot be started twice; stop first.");
         }
+        this.handler = handler;
 
         gpsManager = new GpsManager(observer, listener);
         altitudeSumManager = new GainManager(listener);
@@ -83,6 +102,14 @@ public class SensorManager implements SharedPreferences.OnSharedPreferenceChange
     }
 
     public void stop(Context context) {
+        synchronized (this) {
+            if (handler != null) {
+                handler.removeCallbacks(FUSE);
+            }
+            fusionScheduled = false;
+            handler = null;
+        }
+
         bluetoothSensorManager.stop(context);
         bluetoothSensorManager = null;
 
@@ -95,17 +122,49 @@ public class SensorManager implements SharedPreferences.OnSharedPreferenceChange
         sensorDataSet.clear();
     }
 
+    private synchronized void scheduleFusion() {
+        if (fusionScheduled || handler == null) {
+            return;
+        }
+        fusionScheduled = true;
+        handler.postDelayed(FUSE, fusionInterval.toMillis());
+    }
+
+    /**
+     * Creates a TrackPoint from the current sensor data (replaces a scheduled fusion).
+     */
+    @VisibleForTesting
+    public void fuse() {
+        synchronized (this) {
+            if (fusionScheduled) {
+                handler.removeCallbacks(FUSE);
+                fusionScheduled = false;
+            }
+        }
+        observer.onChange();
+    }
+
+    /**
+     * @param fusionInterval maximal delay between a sensor notification and the TrackPoint containing it; zero: a TrackPoint for every notification (see {@link de.dennisguse.opentracks.settings.RecordingConfig#sensorFusionInterval()}).
+     */
+    public synchronized void setFusionInterval(Duration fusionInterval) {
+        this.fusionInterval = fusionInterval;
+    }
+
     public SensorDataSet fill(TrackPoint trackPoint) {
         sensorDataSet.fillTrackPoint(trackPoint);
         return new SensorDataSet(sensorDataSet);
     }
 
-    public void reset() {
+    /**
+     * @param time the time of the stored TrackPoint (see {@link SensorDataSet#reset(Instant)}).
+     */
+    public void reset(@NonNull Instant time) {
         if (bluetoothSensorManager == null || altitudeSumManager == null) {
             Log.d(TAG, "No recording running and no reset necessary.");
             return;
         }
-        sensorDataSet.reset();
+        sensorDataSet.reset(time);
     }
 
     @VisibleForTesting
@@ -72,8 +72,10 @@ public abstract class Aggregator<Input, Output> {
 
     /**
      * Reset long-term (i.e., aggregated) values (more than derived from previous SensorData) like overall distance.
+     *
+     * @param time the end of the aggregation (i.e., the time of the stored TrackPoint).
      */
-    public abstract void resetAggregated();
+    public abstract void resetAggregated(@NonNull Instant time);
 
     /**
      * Is the data recent considering the current time.
@@ -2,6 +2,8 @@ package de.dennisguse.opentracks.sensors.sensorData;
 
 import androidx.annotation.NonNull;
 
+import java.time.Instant;
+
 import de.dennisguse.opentracks.data.models.Altitude;
 import de.dennisguse.opentracks.data.models.AltitudeGainLoss;
 import de.dennisguse.opentracks.data.models.AtmosphericPressure;
@@ -36,7 +38,7 @@ public class AggregatorBarometer extends Aggregator<AtmosphericPressure, Altitud
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
         aggregatedValue = getNoneValue();
     }
 
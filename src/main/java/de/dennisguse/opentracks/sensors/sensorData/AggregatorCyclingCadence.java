@@ -5,15 +5,23 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import java.time.Duration;
+import java.time.Instant;
 
 import de.dennisguse.opentracks.data.models.Cadence;
 import de.dennisguse.opentracks.sensors.BluetoothHandlerCyclingCadence;
 import de.dennisguse.opentracks.sensors.UintUtils;
 
+/**
+ * Provides the time-weighted mean cadence since the last stored TrackPoint.
+ */
 public class AggregatorCyclingCadence extends Aggregator<BluetoothHandlerCyclingCadence.CrankData, Cadence> {
 
     private final String TAG = AggregatorCyclingCadence.class.getSimpleName();
 
+    private static final float MINUTE_MS = Duration.ofMinutes(1).toMillis();
+
+    private final TimeWeightedMean mean = new TimeWeightedMean();
+
     public AggregatorCyclingCadence(String sensorAddress, String sensorName) {
         super(sensorAddress, sensorName);
     }
@@ -24,15 +32,15 @@ public class AggregatorCyclingCadence extends Aggregator<BluetoothHandlerCycling
             return;
         }
 
-        float timeDiff_ms = UintUtils.diff(current.value().crankRevolutionsTime(), previous.value().crankRevolutionsTime(), UintUtils.UINT16_MAX) / 1024f * 1000;
-        Duration timeDiff = Duration.ofMillis((long) timeDiff_ms);
+        long timeDiff_ms = (long) (UintUtils.diff(current.value().crankRevolutionsTime(), previous.value().crankRevolutionsTime(), UintUtils.UINT16_MAX) / 1024f * 1000);
 
-        if (timeDiff.isZero()) {
+        if (timeDiff_ms == 0) {
             return;
         }
-        if (timeDiff.isNegative()) {
+        if (timeDiff_ms < 0) {
             Log.e(TAG, "Timestamps difference is invalid: cannot compute cadence.");
             aggregatedValue = null;
+            mean.clear();
             return;
         }
 
@@ -43,16 +51,31 @@ public class AggregatorCyclingCadence extends Aggregator<BluetoothHandlerCycling
         }
 
         long crankDiff = UintUtils.diff(current.value().crankRevolutionsCount(), previous.value().crankRevolutionsCount(), UintUtils.UINT32_MAX);
-        aggregatedValue = Cadence.of(crankDiff, timeDiff);
+        // Same as Cadence.of(crankDiff, timeDiff) without allocating.
+        float cadence_rpm = crankDiff / (timeDiff_ms / MINUTE_MS);
+        mean.add(current.time(), cadence_rpm);
+        aggregatedValue = Cadence.of(cadence_rpm);
+    }
+
+    @NonNull
+    @Override
+    public Cadence getAggregatedValue(Instant now) {
+        Cadence cadence = super.getAggregatedValue(now);
+        if (!mean.hasValue()) {
+            return cadence;
+        }
+        return Cadence.of(mean.getMean(now));
     }
 
     @Override
     protected void resetImmediate() {
         aggregatedValue = getNoneValue();
+        mean.clear();
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
+        mean.reset(time);
     }
 
     @NonNull
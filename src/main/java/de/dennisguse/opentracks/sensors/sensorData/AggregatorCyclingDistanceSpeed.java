@@ -5,6 +5,7 @@ import android.util.Log;
 import androidx.annotation.NonNull;
 
 import java.time.Duration;
+import java.time.Instant;
 
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Speed;
@@ -60,7 +61,7 @@ public class AggregatorCyclingDistanceSpeed extends Aggregator<BluetoothHandlerC
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
         if (aggregatedValue != null) {
             aggregatedValue = new Data(aggregatedValue.distance, Distance.of(0), aggregatedValue.speed);
         }
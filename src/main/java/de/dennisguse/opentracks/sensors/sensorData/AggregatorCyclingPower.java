@@ -2,11 +2,18 @@ package de.dennisguse.opentracks.sensors.sensorData;
 
 import androidx.annotation.NonNull;
 
+import java.time.Instant;
+
 import de.dennisguse.opentracks.data.models.Power;
 import de.dennisguse.opentracks.sensors.BluetoothHandlerManagerCyclingPower;
 
+/**
+ * Provides the time-weighted mean power since the last stored TrackPoint.
+ */
 public class AggregatorCyclingPower extends Aggregator<BluetoothHandlerManagerCyclingPower.Data, Power> {
 
+    private final TimeWeightedMean mean = new TimeWeightedMean();
+
     public AggregatorCyclingPower(String name, String address) {
         super(name, address);
     }
@@ -14,15 +21,28 @@ public class AggregatorCyclingPower extends Aggregator<BluetoothHandlerManagerCy
     @Override
     public void computeValue(Raw<BluetoothHandlerManagerCyclingPower.Data> current) {
         this.aggregatedValue = current.value().power();
+        mean.add(current.time(), aggregatedValue.getW());
+    }
+
+    @NonNull
+    @Override
+    public Power getAggregatedValue(Instant now) {
+        Power power = super.getAggregatedValue(now);
+        if (!mean.hasValue()) {
+            return power;
+        }
+        return Power.of(mean.getMean(now));
     }
 
     @Override
     protected void resetImmediate() {
         aggregatedValue = getNoneValue();
+        mean.clear();
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
+        mean.reset(time);
     }
 
     @NonNull
@@ -2,6 +2,8 @@ package de.dennisguse.opentracks.sensors.sensorData;
 
 import androidx.annotation.NonNull;
 
+import java.time.Instant;
+
 import de.dennisguse.opentracks.data.models.Position;
 
 public class AggregatorGPS extends Aggregator<Position, Position> {
@@ -22,7 +24,7 @@ public class AggregatorGPS extends Aggregator<Position, Position> {
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
         /*
          * GPS data is not an aggregated value, but for now we want to ensure to only save the data once.
          * The data is too large to save it more often than needed (i.e., duplicated values).
@@ -2,10 +2,17 @@ package de.dennisguse.opentracks.sensors.sensorData;
 
 import androidx.annotation.NonNull;
 
+import java.time.Instant;
+
 import de.dennisguse.opentracks.data.models.HeartRate;
 
+/**
+ * Provides the time-weighted mean heart rate since the last stored TrackPoint.
+ */
 public class AggregatorHeartRate extends Aggregator<HeartRate, HeartRate> {
 
+    private final TimeWeightedMean mean = new TimeWeightedMean();
+
     public AggregatorHeartRate(String name, String address) {
         super(name, address);
     }
@@ -13,15 +20,28 @@ public class AggregatorHeartRate extends Aggregator<HeartRate, HeartRate> {
     @Override
     protected void computeValue(Raw<HeartRate> current) {
         this.aggregatedValue = current.value();
+        mean.add(current.time(), aggregatedValue.getBPM());
+    }
+
+    @NonNull
+    @Override
+    public HeartRate getAggregatedValue(Instant now) {
+        HeartRate heartRate = super.getAggregatedValue(now);
+        if (!mean.hasValue()) {
+            return heartRate;
+        }
+        return HeartRate.of(mean.getMean(now));
     }
 
     @Override
     protected void resetImmediate() {
         aggregatedValue = getNoneValue();
+        mean.clear();
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
+        mean.reset(time);
     }
 
     @NonNull
@@ -2,6 +2,8 @@ package de.dennisguse.opentracks.sensors.sensorData;
 
 import androidx.annotation.NonNull;
 
+import java.time.Instant;
+
 import de.dennisguse.opentracks.data.models.Cadence;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Speed;
@@ -41,7 +43,7 @@ public final class AggregatorRunning extends Aggregator<BluetoothHandlerRunningS
     }
 
     @Override
-    public void resetAggregated() {
+    public void resetAggregated(@NonNull Instant time) {
         if (aggregatedValue != null) {
             aggregatedValue = new Data(aggregatedValue.speed, aggregatedValue.cadence, Distance.of(0));
         }
@@ -7,6 +7,8 @@ import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.annotation.VisibleForTesting;
 
+import java.time.Instant;
+
 import de.dennisguse.opentracks.data.models.AtmosphericPressure;
 import de.dennisguse.opentracks.data.models.Cadence;
 import de.dennisguse.opentracks.data.models.HeartRate;
@@ -18,7 +20,6 @@ import de.dennisguse.opentracks.sensors.BluetoothHandlerCyclingDistanceSpeed;
 import de.dennisguse.opentracks.sensors.BluetoothHandlerManagerCyclingPower;
 import de.dennisguse.opentracks.sensors.BluetoothHandlerRunningSpeedAndCadence;
 import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
-import de.dennisguse.opentracks.settings.PreferencesUtils;
 
 public class SensorDataSet {
 
@@ -115,7 +116,7 @@ public class SensorDataSet {
             return;
         }
         if (value instanceof BluetoothHandlerCyclingDistanceSpeed.WheelData ) {
-            this.cyclingDistanceSpeed.setWheelCircumference(PreferencesUtils.getWheelCircumference()); //TODO Fetch once and then listen for changes.
+            this.cyclingDistanceSpeed.setWheelCircumference(trackPointCreator.getRecordingConfig().wheelCircumference());
             this.cyclingDistanceSpeed.add((Raw<BluetoothHandlerCyclingDistanceSpeed.WheelData>) data);
             return;
         }
@@ -190,16 +191,19 @@ public class SensorDataSet {
         }
     }
 
-    public void reset() {
+    /**
+     * @param time the time of the stored TrackPoint; the aggregation of the next TrackPoint starts there.
+     */
+    public void reset(@NonNull Instant time) {
         Log.i(TAG, "Resetting data");
 
-        if (heartRate != null) heartRate.resetAggregated();
-        if (cyclingCadence != null) cyclingCadence.resetAggregated();
-        if (cyclingDistanceSpeed != null) cyclingDistanceSpeed.resetAggregated();
-        if (cyclingPower != null) cyclingPower.resetAggregated();
-        if (runningDistanceSpeedCadence != null) runningDistanceSpeedCadence.resetAggregated();
-        if (barometer != null) barometer.resetAggregated();
-        if (gps != null) gps.resetAggregated();
+        if (heartRate != null) heartRate.resetAggregated(time);
+        if (cyclingCadence != null) cyclingCadence.resetAggregated(time);
+        if (cyclingDistanceSpeed != null) cyclingDistanceSpeed.resetAggregated(time);
+        if (cyclingPower != null) cyclingPower.resetAggregated(time);
+        if (runningDistanceSpeedCadence != null) runningDistanceSpeedCadence.resetAggregated(time);
+        if (barometer != null) barometer.resetAggregated(time);
+        if (gps != null) gps.resetAggregated(time);
     }
 
     private void set(@NonNull Aggregator<?, ?> type, @Nullable Aggregator<?, ?> sensorData) {
@@ -0,0 +1,72 @@
+package de.dennisguse.opentracks.sensors.sensorData;
+
+import androidx.annotation.NonNull;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Time-weighted mean of a sensor value since the last reset (i.e., the last stored TrackPoint) without storing the samples.
+ * <p>
+ * A value is valid until the next value arrives; the last value is valid until the mean is requested.
+ * Adding a value does not allocate.
+ */
+final class TimeWeightedMean {
+
+    // Sum of value * duration (ms) since the last reset (until lastTime).
+    private double sum;
+    private long duration_ms;
+
+    private float lastValue;
+    // Since when lastValue was not yet added to sum; null if there is no value.
+    private Instant lastTime;
+
+    void add(@NonNull Instant time, float value) {
+        if (lastTime != null) {
+            long weight = Math.max(0, lastTime.until(time, ChronoUnit.MILLIS));
+            sum += lastValue * (double) weight;
+            duration_ms += weight;
+        }
+        lastValue = value;
+        if (lastTime == null || time.isAfter(lastTime)) {
+            lastTime = time;
+        }
+    }
+
+    boolean hasValue() {
+        return lastTime != null;
+    }
+
+    /**
+     * Only to be called if {@link #hasValue()}.
+     */
+    float getMean(@NonNull Instant now) {
+        long open_ms = Math.max(0, lastTime.until(now, ChronoUnit.MILLIS));
+        long total_ms = duration_ms + open_ms;
+        if (total_ms == 0) {
+            return lastValue;
+        }
+        return (float) ((sum + lastValue * (double) open_ms) / total_ms);
+    }
+
+    /**
+     * Starts a new interval at the given time (i.e., the time of the stored TrackPoint); the last value remains valid.
+     */
+    void reset(@NonNull Instant time) {
+        sum = 0;
+        duration_ms = 0;
+        if (lastTime != null && time.isAfter(lastTime)) {
+            lastTime = time;
+        }
+    }
+
+    /**
+     * Removes all values (e.g., the sensor's data is outdated).
+     */
+    void clear() {
+        sum = 0;
+        duration_ms = 0;
+        lastValue = 0;
+        lastTime = null;
+    }
+}
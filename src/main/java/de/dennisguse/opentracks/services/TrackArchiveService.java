@@ -0,0 +1,36 @@
+package de.dennisguse.opentracks.services;
+
+import android.app.job.JobService;
+import android.content.Context;
+import android.content.Intent;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.JobIntentService;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Track;
+
+/**
+ * Stores the track points of a finished track compactly (see {@link ContentProviderUtils#archiveTrackPoints(Track.Id)}).
+ * Runs independently of the {@link TrackRecordingService}, which is stopped right after the recording ended.
+ */
+public class TrackArchiveService extends JobIntentService {
+
+    private static final int JOB_ID = 4;
+
+    private static final String EXTRA_TRACK_ID = "extra_track_id";
+
+    public static void enqueue(Context context, Track.Id trackId) {
+        Intent intent = new Intent(context, JobService.class);
+        intent.putExtra(EXTRA_TRACK_ID, trackId);
+        enqueueWork(context, TrackArchiveService.class, JOB_ID, intent);
+    }
+
+    @Override
+    protected void onHandleWork(@NonNull Intent intent) {
+        Track.Id trackId = intent.getParcelableExtra(EXTRA_TRACK_ID);
+
+        // Skipped if the track is recording again.
+        new ContentProviderUtils(this).archiveTrackPoints(trackId);
+    }
+}
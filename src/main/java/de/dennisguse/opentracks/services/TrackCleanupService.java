@@ -0,0 +1,40 @@
+package de.dennisguse.opentracks.services;
+
+import android.app.job.JobService;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.JobIntentService;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+
+/**
+ * Deletes incomplete tracks left over if the app was killed while importing (see {@link ContentProviderUtils#insertIncompleteTrack()}).
+ * Enqueued on application start; tracks inserted within the grace period are kept as their import might still be running.
+ */
+public class TrackCleanupService extends JobIntentService {
+
+    private static final String TAG = TrackCleanupService.class.getSimpleName();
+
+    private static final int JOB_ID = 5;
+
+    private static final Duration INCOMPLETE_TRACK_GRACE_PERIOD = Duration.ofDays(1);
+
+    public static void enqueue(Context context) {
+        Intent intent = new Intent(context, JobService.class);
+        enqueueWork(context, TrackCleanupService.class, JOB_ID, intent);
+    }
+
+    @Override
+    protected void onHandleWork(@NonNull Intent intent) {
+        int deletedTracks = new ContentProviderUtils(this).deleteIncompleteTracks(this, Instant.now().minus(INCOMPLETE_TRACK_GRACE_PERIOD));
+        if (deletedTracks > 0) {
+            Log.w(TAG, "Deleted " + deletedTracks + " incomplete tracks.");
+        }
+    }
+}
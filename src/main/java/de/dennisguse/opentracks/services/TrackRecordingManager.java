@@ -1,7 +1,6 @@
 package de.dennisguse.opentracks.services;
 
 import android.content.Context;
-import android.content.SharedPreferences;
 import android.database.sqlite.SQLiteException;
 import android.os.Handler;
 import android.util.Log;
@@ -12,9 +11,11 @@ import androidx.annotation.VisibleForTesting;
 
 import java.time.Duration;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
 
-import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.ActivityType;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
@@ -23,11 +24,12 @@ import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
 import de.dennisguse.opentracks.services.handlers.AltitudeCorrectionManager;
 import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
+import de.dennisguse.opentracks.settings.RecordingConfig;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 import de.dennisguse.opentracks.util.TrackNameUtils;
 
-public class TrackRecordingManager implements SharedPreferences.OnSharedPreferenceChangeListener {
+public class TrackRecordingManager {
 
     private static final String TAG = TrackRecordingManager.class.getSimpleName();
 
@@ -35,17 +37,18 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
 
     private final Runnable ON_IDLE = this::onIdle;
 
+    private final Runnable FLUSH = this::flush;
+
     private final ContentProviderUtils contentProviderUtils;
     private final Context context;
     private final IdleObserver idleObserver;
+    private final TrackPointObserver trackPointObserver;
 
     private final Handler handler;
 
     private final TrackPointCreator trackPointCreator;
 
-    private Distance recordingDistanceInterval;
-    private Distance maxRecordingDistance;
-    private Duration idleDuration;
+    private volatile RecordingConfig recordingConfig;
 
     private Track.Id trackId;
     private TrackStatisticsUpdater trackStatisticsUpdater;
@@ -57,12 +60,20 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     private TrackPoint lastStoredTrackPoint;
     private TrackPoint lastStoredTrackPointWithLocation;
 
-    TrackRecordingManager(Context context, TrackPointCreator trackPointCreator, IdleObserver idleObserver, Handler handler) {
+    // Stored TrackPoints are written to the database in batches (write-behind) if either the number of TrackPoints or the delay is reached (see RecordingConfig).
+    private final List<TrackPoint> pendingTrackPoints = new ArrayList<>();
+    private int writeBehindMaxTrackPoints;
+    private Duration writeBehindMaxDelay;
+
+    TrackRecordingManager(Context context, TrackPointCreator trackPointCreator, IdleObserver idleObserver, TrackPointObserver trackPointObserver, Handler handler) {
         this.context = context;
         this.idleObserver = idleObserver;
+        this.trackPointObserver = trackPointObserver;
         this.trackPointCreator = trackPointCreator;
         this.handler = handler;
+        this.recordingConfig = trackPointCreator.getRecordingConfig();
         contentProviderUtils = new ContentProviderUtils(context);
+        setWriteBehind(recordingConfig);
     }
 
     Track.Id startNewTrack() {
@@ -74,8 +85,11 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
         track.setId(trackId);
 
         trackStatisticsUpdater = new TrackStatisticsUpdater();
+        trackStatisticsUpdater.setRecordingDistanceInterval(recordingConfig.recordingDistanceInterval());
+        trackPointObserver.onTrackStarted();
 
         onNewTrackPoint(segmentStartTrackPoint);
+        flush();
 
         String activityTypeLocalized = PreferencesUtils.getDefaultActivityTypeLocalized();
         track.setActivityTypeLocalized(activityTypeLocalized);
@@ -98,8 +112,21 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
             return false;
         }
 
+        // New TrackPoints are only stored in the track points table.
+        contentProviderUtils.restoreTrackPoints(trackId);
+
         trackStatisticsUpdater = new TrackStatisticsUpdater(track.getTrackStatistics());
+        trackStatisticsUpdater.setRecordingDistanceInterval(recordingConfig.recordingDistanceInterval());
+
+        trackPointObserver.onTrackStarted();
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, null)) {
+            while (trackPointIterator.hasNext()) {
+                trackPointObserver.onTrackPointStored(trackPointIterator.next());
+            }
+        }
+
         onNewTrackPoint(trackPointCreator.createSegmentStartManual());
+        flush();
 
         reset();
 
@@ -109,6 +136,17 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     void endCurrentTrack() {
         TrackPoint segmentEnd = trackPointCreator.createSegmentEnd();
         insertTrackPoint(segmentEnd, true);
+        flush();
+        if (!pendingTrackPoints.isEmpty()) {
+            Log.e(TAG, "Lost " + pendingTrackPoints.size() + " TrackPoints of track " + trackId.id() + " as they could not be written.");
+            pendingTrackPoints.clear();
+        }
+
+        contentProviderUtils.updateFingerprint(trackId, contentProviderUtils.computeFingerprint(trackId));
+
+        if (PreferencesUtils.shouldStoreTracksCompact()) {
+            TrackArchiveService.enqueue(context, trackId);
+        }
 
         trackId = null;
         trackStatisticsUpdater = null;
@@ -156,6 +194,7 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
 
         if (trackPoint.getType() == TrackPoint.Type.IDLE) {
             insertTrackPoint(trackPoint, true);
+            flush();
             handler.removeCallbacks(ON_IDLE);
             return true;
         }
@@ -194,7 +233,8 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
             distanceToLastStoredTrackPoint = trackPoint.distanceToPrevious(lastStoredTrackPoint);
         }
 
-        if (distanceToLastStoredTrackPoint.greaterThan(maxRecordingDistance)) {
+        RecordingConfig recordingConfig = this.recordingConfig;
+        if (distanceToLastStoredTrackPoint.greaterThan(recordingConfig.maxRecordingDistance())) {
             trackPoint.setType(TrackPoint.Type.SEGMENT_START_AUTOMATIC);
             insertTrackPoint(trackPoint, true);
 
@@ -202,7 +242,7 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
             return true;
         }
 
-        if (distanceToLastStoredTrackPoint.greaterOrEqualThan(recordingDistanceInterval)) {
+        if (distanceToLastStoredTrackPoint.greaterOrEqualThan(recordingConfig.recordingDistanceInterval())) {
             insertTrackPoint(trackPoint, false);
 
             scheduleNewIdleTimeout();
@@ -216,6 +256,7 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     }
 
     private void scheduleNewIdleTimeout() {
+        Duration idleDuration = recordingConfig.idleDuration();
         if (idleDuration.isZero()) {
             Log.d(TAG, "idle functionality is disabled");
             return;
@@ -245,23 +286,59 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     }
 
     private void insertTrackPointHelper(@NonNull TrackPoint trackPoint) {
-        try {
-            contentProviderUtils.insertTrackPoint(trackPoint, trackId);
-            trackStatisticsUpdater.addTrackPoint(trackPoint);
+        trackStatisticsUpdater.addTrackPoint(trackPoint);
+        trackPointObserver.onTrackPointStored(trackPoint);
+        pendingTrackPoints.add(trackPoint);
 
-            contentProviderUtils.updateTrackStatistics(trackId, trackStatisticsUpdater.getTrackStatistics());
-            lastStoredTrackPoint = trackPoint;
-            if (trackPoint.hasLocation()) {
-                lastStoredTrackPointWithLocation = lastStoredTrackPoint;
-            }
+        lastStoredTrackPoint = trackPoint;
+        if (trackPoint.hasLocation()) {
+            lastStoredTrackPointWithLocation = lastStoredTrackPoint;
+        }
+
+        if (pendingTrackPoints.size() >= writeBehindMaxTrackPoints) {
+            flush();
+        } else if (pendingTrackPoints.size() == 1) {
+            handler.postDelayed(FLUSH, writeBehindMaxDelay.toMillis());
+        }
+    }
+
+    /**
+     * Writes all pending TrackPoints and the current TrackStatistics to the database (one transaction).
+     */
+    synchronized void flush() {
+        handler.removeCallbacks(FLUSH);
+        if (pendingTrackPoints.isEmpty()) {
+            return;
+        }
+
+        try {
+            contentProviderUtils.insertTrackPoints(pendingTrackPoints, trackId, trackStatisticsUpdater.getTrackStatistics());
         } catch (SQLiteException e) {
-            // TODO Remove; if this is a problem; use a synchronized method.
             /*
-             * Insert failed, most likely because of SqlLite error code 5 (SQLite_BUSY).
-             * This is expected to happen extremely rarely (if our listener gets invoked twice at about the same time).
+             * Insert failed (e.g., SQLITE_BUSY or SQLITE_FULL); nothing was written as it is one transaction.
+             * Keep the TrackPoints and retry with the next flush.
              */
-            Log.w(TAG, "SQLiteException", e);
+            Log.e(TAG, "Could not write " + pendingTrackPoints.size() + " TrackPoints; retrying later.", e);
+            handler.postDelayed(FLUSH, writeBehindMaxDelay.toMillis());
+            return;
         }
+        pendingTrackPoints.clear();
+    }
+
+    private void setWriteBehind(@NonNull RecordingConfig recordingConfig) {
+        Duration maxDelay = recordingConfig.writeBehindDelay();
+        setWriteBehind(maxDelay.isZero() ? 1 : recordingConfig.writeBehindMaxTrackPoints(), maxDelay);
+    }
+
+    /**
+     * Configures the write-behind buffer; 1 TrackPoint means all TrackPoints are written immediately.
+     * Overwritten if the RecordingConfig changes.
+     */
+    @VisibleForTesting
+    public synchronized void setWriteBehind(int maxTrackPoints, @NonNull Duration maxDelay) {
+        flush();
+        this.writeBehindMaxTrackPoints = maxTrackPoints;
+        this.writeBehindMaxDelay = maxDelay;
     }
 
     private void reset() {
@@ -273,17 +350,17 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
         lastStoredTrackPointWithLocation = null;
     }
 
-    @Override
-    public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, String key) {
-        if (PreferencesUtils.isKey(R.string.recording_distance_interval_key, key)) {
-            recordingDistanceInterval = PreferencesUtils.getRecordingDistanceInterval();
-        }
-        if (PreferencesUtils.isKey(R.string.max_recording_distance_key, key)) {
-            maxRecordingDistance = PreferencesUtils.getMaxRecordingDistance();
-        }
-        if (PreferencesUtils.isKey(R.string.idle_duration_key, key)) {
-            idleDuration = PreferencesUtils.getIdleDurationTimeout();
-        }
+    /**
+     * Called if a preference of the RecordingConfig changed; the TrackStatisticsUpdater is only used on the recording thread.
+     */
+    void setRecordingConfig(@NonNull RecordingConfig recordingConfig) {
+        this.recordingConfig = recordingConfig;
+        handler.post(() -> {
+            if (trackStatisticsUpdater != null) {
+                trackStatisticsUpdater.setRecordingDistanceInterval(recordingConfig.recordingDistanceInterval());
+            }
+            setWriteBehind(recordingConfig);
+        });
     }
 
     public TrackPoint getLastStoredTrackPointWithLocation() {
@@ -293,4 +370,17 @@ public class TrackRecordingManager implements SharedPreferences.OnSharedPreferen
     public interface IdleObserver {
         void onIdle();
     }
+
+    /**
+     * Is informed about every stored TrackPoint of the recorded track (on the recording thread); allows to compute statistics without reading the database.
+     */
+    public interface TrackPointObserver {
+        /**
+         * A new track is started or an existing track is resumed.
+         * If resumed, the already stored TrackPoints are provided afterwards.
+         */
+        void onTrackStarted();
+
+        void onTrackPointStored(@NonNull TrackPoint trackPoint);
+    }
 }
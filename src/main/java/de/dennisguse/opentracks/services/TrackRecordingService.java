@@ -21,7 +21,9 @@ import android.content.Intent;
 import android.content.SharedPreferences;
 import android.content.pm.ServiceInfo;
 import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.Looper;
+import android.os.Process;
 import android.os.PowerManager.WakeLock;
 import android.util.Log;
 import android.util.Pair;
@@ -35,6 +37,9 @@ import androidx.lifecycle.MutableLiveData;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.time.Duration;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
 import de.dennisguse.opentracks.data.models.Distance;
@@ -46,6 +51,7 @@ import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
 import de.dennisguse.opentracks.services.announcement.VoiceAnnouncementManager;
 import de.dennisguse.opentracks.services.handlers.TrackPointCreator;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
+import de.dennisguse.opentracks.settings.RecordingConfig;
 import de.dennisguse.opentracks.util.SystemUtils;
 
 public class TrackRecordingService extends Service implements TrackPointCreator.Callback, SharedPreferences.OnSharedPreferenceChangeListener, TrackRecordingManager.IdleObserver {
@@ -59,7 +65,20 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
     public static final GpsStatusValue STATUS_GPS_DEFAULT = GpsStatusValue.GPS_NONE;
 
     public TrackPoint getLastStoredTrackPointWithLocation() {
-        return trackRecordingManager.getLastStoredTrackPointWithLocation();
+        return runOnRecordingThread(trackRecordingManager::getLastStoredTrackPointWithLocation);
+    }
+
+    /**
+     * Like {@link #getLastStoredTrackPointWithLocation()}, but also writes the pending TrackPoints to the database (i.e., before a marker is inserted).
+     */
+    public TrackPoint getTrackPointForMarker() {
+        return runOnRecordingThread(() -> {
+            TrackPoint trackPoint = trackRecordingManager.getLastStoredTrackPointWithLocation();
+            if (trackPoint != null) {
+                trackRecordingManager.flush();
+            }
+            return trackPoint;
+        });
     }
 
     public class Binder extends android.os.Binder {
@@ -85,13 +104,18 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
     };
 
     // The following variables are set in onCreate:
-    private RecordingStatus recordingStatus;
+    private volatile RecordingStatus recordingStatus;
     private MutableLiveData<RecordingStatus> recordingStatusObservable;
     private MutableLiveData<GpsStatusValue> gpsStatusObservable;
     private MutableLiveData<RecordingData> recordingDataObservable;
 
     // The following variables are set when recording:
     private WakeLock wakeLock; //TODO Move to SensorManager
+
+    /**
+     * Sensor callbacks, TrackPoint fusion and persistence are executed on this thread (not on the main thread).
+     */
+    private HandlerThread recordingThread;
     private Handler handler;
 
     private TrackPointCreator trackPointCreator;
@@ -105,17 +129,20 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         super.onCreate();
         Log.d(TAG, "Create");
 
-        handler = new Handler(Looper.getMainLooper());
+        recordingThread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        recordingThread.start();
+        handler = new Handler(recordingThread.getLooper());
 
         recordingStatusObservable = new MutableLiveData<>();
         updateRecordingStatus(STATUS_DEFAULT);
         gpsStatusObservable = new MutableLiveData<>(STATUS_GPS_DEFAULT);
         recordingDataObservable = new MutableLiveData<>(NOT_RECORDING);
 
+        voiceAnnouncementManager = new VoiceAnnouncementManager(this);
+
         trackPointCreator = new TrackPointCreator(this);
-        trackRecordingManager = new TrackRecordingManager(this, trackPointCreator, this, handler);
+        trackRecordingManager = new TrackRecordingManager(this, trackPointCreator, this, voiceAnnouncementManager, handler);
 
-        voiceAnnouncementManager = new VoiceAnnouncementManager(this);
         notificationManager = new TrackRecordingServiceNotificationManager(this);
 
         PreferencesUtils.registerOnSharedPreferenceChangeListener(this);
@@ -137,12 +164,14 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
 
         handler.removeCallbacksAndMessages(null); //Some tests do not finish the recording completely
         handler = null;
-
-        trackRecordingManager = null;
+        recordingThread.quitSafely();
+        recordingThread = null;
 
         // Reverse order from onCreate
         notificationManager = null;
 
+        trackRecordingManager = null;
+
         voiceAnnouncementManager = null;
 
         recordingStatusObservable = null;
@@ -171,7 +200,7 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         Log.i(TAG, "startNewTrack");
 
         // Set recording status
-        Track.Id trackId = trackRecordingManager.startNewTrack();
+        Track.Id trackId = runOnRecordingThread(trackRecordingManager::startNewTrack);
         updateRecordingStatus(RecordingStatus.record(trackId));
 
         startRecording();
@@ -179,7 +208,7 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
     }
 
     public void resumeTrack(Track.Id trackId) {
-        if (!trackRecordingManager.resumeExistingTrack(trackId)) {
+        if (!runOnRecordingThread(() -> trackRecordingManager.resumeExistingTrack(trackId))) {
             Log.w(TAG, "Cannot resume a non-existing track.");
             return;
         }
@@ -196,7 +225,10 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
 
         startSensors();
 
-        voiceAnnouncementManager.start(trackRecordingManager.getTrackStatistics());
+        runOnRecordingThread(() -> {
+            voiceAnnouncementManager.start(trackRecordingManager.getTrackStatistics());
+            return null;
+        });
     }
 
     public void tryStartSensors() {
@@ -228,17 +260,23 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         // Set recording status
         updateRecordingStatus(STATUS_DEFAULT);
 
-        trackRecordingManager.endCurrentTrack();
+        runOnRecordingThread(() -> {
+            trackRecordingManager.endCurrentTrack();
+            voiceAnnouncementManager.stop();
+            return null;
+        });
 
         stopUpdateRecordingData();
 
-        voiceAnnouncementManager.stop();
-
         stopSensors();
     }
 
     void stopSensors() {
-        trackPointCreator.stop();
+        // Sensor callbacks (i.e., TrackPointCreator.onChange()) are executed on the recording thread.
+        runOnRecordingThread(() -> {
+            trackPointCreator.stop();
+            return null;
+        });
         stopForeground(true);
         notificationManager.cancelNotification();
         wakeLock = SystemUtils.releaseWakeLock(wakeLock);
@@ -251,12 +289,44 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         }
 
         //TODO This contains some duplication to TrackRecodingActivity's Marker creation
-        TrackPoint trackPoint = trackRecordingManager.getLastStoredTrackPointWithLocation();
+        TrackPoint trackPoint = getTrackPointForMarker();
         if (trackPoint == null) {
             return null;
         }
+
         Marker marker = new Marker(recordingStatus.trackId(), trackPoint);
-        return new ContentProviderUtils(this).insertMarker(marker);
+        return runOnRecordingThread(() -> new ContentProviderUtils(this).insertMarker(marker));
+    }
+
+    /**
+     * Executes the task on the recording thread and waits for its result.
+     * Thus, all database writes of the recording are executed there and never on the main thread.
+     * Also, the state of the recording (i.e., TrackRecordingManager, TrackPointCreator, VoiceAnnouncementManager) is only accessed from there.
+     *
+     * @throws IllegalStateException if the recording thread was already stopped (i.e., the service was destroyed).
+     */
+    private <T> T runOnRecordingThread(Supplier<T> task) {
+        Handler handler = this.handler;
+        if (handler == null) {
+            throw new IllegalStateException("Recording thread was stopped.");
+        }
+        if (Looper.myLooper() == handler.getLooper()) {
+            return task.get();
+        }
+
+        FutureTask<T> future = new FutureTask<>(task::get);
+        if (!handler.post(future)) {
+            // Looper is quitting: the task would never be executed.
+            throw new IllegalStateException("Recording thread was stopped.");
+        }
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new RuntimeException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException(e);
+        }
     }
 
     @Override
@@ -300,6 +370,11 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
         return trackRecordingManager;
     }
 
+    @VisibleForTesting
+    public Looper getRecordingLooper() {
+        return handler.getLooper();
+    }
+
     public LiveData<GpsStatusValue> getGpsStatusObservable() {
         return gpsStatusObservable;
     }
@@ -352,9 +427,19 @@ public class TrackRecordingService extends Service implements TrackPointCreator.
 
     @Override
     public void onSharedPreferenceChanged(SharedPreferences sharedPreferences, @Nullable String key) {
-        voiceAnnouncementManager.onSharedPreferenceChanged(sharedPreferences, key);
-        trackRecordingManager.onSharedPreferenceChanged(sharedPreferences, key);
-        trackPointCreator.onSharedPreferenceChanged(sharedPreferences, key);
+        // No need to wait: later tasks of the recording thread are executed after this one.
+        VoiceAnnouncementManager voiceAnnouncementManager = this.voiceAnnouncementManager;
+        TrackRecordingManager trackRecordingManager = this.trackRecordingManager;
+        TrackPointCreator trackPointCreator = this.trackPointCreator;
+        handler.post(() -> {
+            voiceAnnouncementManager.onSharedPreferenceChanged(sharedPreferences, key);
+            if (RecordingConfig.isKey(key)) {
+                RecordingConfig recordingConfig = RecordingConfig.fromPreferences();
+                trackRecordingManager.setRecordingConfig(recordingConfig);
+                trackPointCreator.setRecordingConfig(recordingConfig);
+            }
+            trackPointCreator.onSharedPreferenceChanged(sharedPreferences, key);
+        });
         notificationManager.onSharedPreferenceChanged(sharedPreferences, key);
     }
 }
\ No newline at end of file
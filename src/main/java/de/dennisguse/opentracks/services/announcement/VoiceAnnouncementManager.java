@@ -28,23 +28,25 @@ import androidx.mediarouter.media.MediaRouter;
 import java.time.Duration;
 
 import de.dennisguse.opentracks.R;
-import de.dennisguse.opentracks.data.ContentProviderUtils;
-import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
+import de.dennisguse.opentracks.services.TrackRecordingManager;
 import de.dennisguse.opentracks.settings.PreferencesUtils;
-import de.dennisguse.opentracks.stats.SensorStatistics;
+import de.dennisguse.opentracks.stats.SensorStatisticsUpdater;
 import de.dennisguse.opentracks.stats.TrackStatistics;
 import de.dennisguse.opentracks.ui.intervals.IntervalStatistics;
 
 /**
  * Execute a periodic task on a time or distance schedule.
+ * <p>
+ * The statistics of the last interval and of the sensors are updated with every stored {@link TrackPoint} (see {@link TrackRecordingManager.TrackPointObserver}); so announcements do not read the database.
+ * While recording, it is only used on the recording thread.
  *
  * @author Sandor Dornbush
  */
-public class VoiceAnnouncementManager implements SharedPreferences.OnSharedPreferenceChangeListener {
+public class VoiceAnnouncementManager implements SharedPreferences.OnSharedPreferenceChangeListener, TrackRecordingManager.TrackPointObserver {
 
     private static final String TAG = VoiceAnnouncementManager.class.getSimpleName();
 
@@ -64,16 +66,13 @@ public class VoiceAnnouncementManager implements SharedPreferences.OnSharedPrefe
     @NonNull
     private Duration nextTotalTime = TOTALTIME_OFF;
 
-
-    private final ContentProviderUtils contentProviderUtils;
-    private TrackPoint.Id startTrackPointId = null;
-
+    // Updated on the recording thread.
     private IntervalStatistics intervalStatistics;
     private Distance intervalDistance;
+    private SensorStatisticsUpdater sensorStatisticsUpdater = new SensorStatisticsUpdater();
 
     public VoiceAnnouncementManager(@NonNull Context context) {
         this.context = context;
-        contentProviderUtils = new ContentProviderUtils(context);
         intervalDistance = PreferencesUtils.getVoiceAnnouncementDistance();
         intervalStatistics = new IntervalStatistics(intervalDistance);
     }
@@ -142,21 +141,28 @@ public class VoiceAnnouncementManager implements SharedPreferences.OnSharedPrefe
 
     private Spannable createAnnouncement(Track track, SensorDataSet sensorDataSet) {
         Distance currentIntervalDistance = PreferencesUtils.getVoiceAnnouncementDistance();
-        if (currentIntervalDistance != intervalDistance) {
-            intervalStatistics = new IntervalStatistics(currentIntervalDistance);
+        if (!currentIntervalDistance.equals(intervalDistance)) {
+            // Rarely happens: the intervals of the already stored TrackPoints are re-computed from their cumulative statistics.
+            intervalStatistics = intervalStatistics.withDistanceInterval(currentIntervalDistance);
             intervalDistance = currentIntervalDistance;
-            startTrackPointId = null;
         }
 
-        TrackPointIterator trackPointIterator = new TrackPointIterator(contentProviderUtils, track.getId(), startTrackPointId);
-        startTrackPointId = intervalStatistics.addTrackPoints(trackPointIterator);
         IntervalStatistics.Interval lastInterval = intervalStatistics.getLastInterval();
-        SensorStatistics sensorStatistics = null;
-        if (track.getId() != null) {
-            sensorStatistics = contentProviderUtils.getSensorStats(track.getId());
-        }
 
-        return VoiceAnnouncementUtils.createStatistics(context, track, sensorDataSet, PreferencesUtils.getUnitSystem(), PreferencesUtils.isReportSpeed(track), lastInterval, sensorStatistics);
+        return VoiceAnnouncementUtils.createStatistics(context, track, sensorDataSet, PreferencesUtils.getUnitSystem(), PreferencesUtils.isReportSpeed(track), lastInterval, sensorStatisticsUpdater.getSensorStatistics());
+    }
+
+    @Override
+    public void onTrackStarted() {
+        intervalDistance = PreferencesUtils.getVoiceAnnouncementDistance();
+        intervalStatistics = new IntervalStatistics(intervalDistance);
+        sensorStatisticsUpdater = new SensorStatisticsUpdater();
+    }
+
+    @Override
+    public void onTrackPointStored(@NonNull TrackPoint trackPoint) {
+        intervalStatistics.addTrackPoint(trackPoint);
+        sensorStatisticsUpdater.addTrackPoint(trackPoint);
     }
 
     public void stop() {
@@ -4,43 +4,119 @@ import android.content.Context;
 import android.location.Location;
 import android.util.Log;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.location.LocationCompat;
 import androidx.core.location.altitude.AltitudeConverterCompat;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import de.dennisguse.opentracks.data.models.Altitude;
 import de.dennisguse.opentracks.data.models.TrackPoint;
 
 /**
+ * Converts WGS84 altitudes to EGM2008 (MSL) altitudes.
+ * <p>
+ * The geoid undulation (WGS84 - EGM2008) only changes slowly, so it is computed once per grid cell of {@link #GRID_SIZE_DEGREE} and cached.
+ * Computation is done in one long-lived worker thread.
+ * <p>
  * More infos regarding Android 34's <a href="https://issuetracker.google.com/issues/195660815#comment1">AltitudeConverter</a>.
  */
 public class AltitudeCorrectionManager {
 
     private static final String TAG = AltitudeCorrectionManager.class.getSimpleName();
 
+    /**
+     * About 5km: the geoid undulation changes at most about a few decimeters (usually centimeters) within one cell.
+     */
+    @VisibleForTesting
+    static final double GRID_SIZE_DEGREE = 0.05;
+
+    private static final int MAX_CACHED_CELLS = 4096;
+
+    // AltitudeConverterCompat uses internally a RoomDatabase that cannot be access from main thread and thus fails on version <= 34.
+    private static final ExecutorService WORKER = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, TAG);
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final Map<Long, Double> UNDULATION_CACHE = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Entry<Long, Double> eldest) {
+            return size() > MAX_CACHED_CELLS;
+        }
+    };
+
     public void correctAltitude(Context context, TrackPoint trackPoint) {
         if (!trackPoint.hasLocation() || !trackPoint.hasAltitude()) {
             return;
         }
 
-        // TODO The following is doing IO and should not be done in main thread.
-        // AltitudeConverterCompat uses internally a RoomDatabase that cannot be access from main thread and thus fails on version <= 34.
-        Thread t = new Thread(() -> {
-            try {
-                Location loc = trackPoint.getLocation();
-                AltitudeConverterCompat.addMslAltitudeToLocation(context, loc);
-                trackPoint.setAltitude(Altitude.EGM2008.of(LocationCompat.getMslAltitudeMeters(loc)));
-            } catch (IOException e) {
-                Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
+        Double undulation_m = getUndulation(context, trackPoint.getPosition().latitude(), trackPoint.getPosition().longitude());
+        if (undulation_m == null) {
+            return;
+        }
+
+        trackPoint.setAltitude(Altitude.EGM2008.of(trackPoint.getAltitude().toM() - undulation_m));
+    }
+
+    @Nullable
+    private static Double getUndulation(@NonNull Context context, double latitude, double longitude) {
+        long latitudeIndex = (long) Math.floor(latitude / GRID_SIZE_DEGREE);
+        long longitudeIndex = (long) Math.floor(longitude / GRID_SIZE_DEGREE);
+        long cell = (latitudeIndex << 32) | (longitudeIndex & 0xFFFFFFFFL);
+
+        synchronized (UNDULATION_CACHE) {
+            Double undulation_m = UNDULATION_CACHE.get(cell);
+            if (undulation_m != null) {
+                return undulation_m;
             }
-        });
-        t.start();
+        }
 
+        double cellLatitude = (latitudeIndex + 0.5) * GRID_SIZE_DEGREE;
+        double cellLongitude = (longitudeIndex + 0.5) * GRID_SIZE_DEGREE;
+        Context applicationContext = context.getApplicationContext();
         try {
-            t.join();  // wait for thread to finish
+            Double undulation_m = WORKER.submit(() -> computeUndulation(applicationContext, cellLatitude, cellLongitude)).get();
+            if (undulation_m != null) {
+                synchronized (UNDULATION_CACHE) {
+                    UNDULATION_CACHE.put(cell, undulation_m);
+                }
+            }
+            return undulation_m;
+        } catch (ExecutionException e) {
+            Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
         } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Must not be called from main thread.
+     *
+     * @return WGS84 - EGM2008 in meters
+     */
+    @Nullable
+    private static Double computeUndulation(Context context, double latitude, double longitude) {
+        Location location = new Location("");
+        location.setLatitude(latitude);
+        location.setLongitude(longitude);
+        location.setAltitude(0);
+        try {
+            AltitudeConverterCompat.addMslAltitudeToLocation(context, location);
+            return -LocationCompat.getMslAltitudeMeters(location);
+        } catch (IOException e) {
             Log.w(TAG, "Android's AltitudeConverterCompat failed with " + e.getMessage());
+            return null;
         }
     }
-}
\ No newline at end of file
+}
@@ -19,7 +19,7 @@ import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.sensors.GpsStatusValue;
 import de.dennisguse.opentracks.sensors.SensorManager;
 import de.dennisguse.opentracks.sensors.sensorData.SensorDataSet;
-import de.dennisguse.opentracks.settings.PreferencesUtils;
+import de.dennisguse.opentracks.settings.RecordingConfig;
 
 /**
  * Creates TrackPoints while recording by fusing data from different sensors (e.g., GNSS, barometer, BLE sensors).
@@ -36,9 +36,14 @@ public class TrackPointCreator implements SharedPreferences.OnSharedPreferenceCh
     private Clock clock = new MonotonicClock();
     private final SensorManager sensorManager;
 
+    @NonNull
+    private volatile RecordingConfig recordingConfig;
+
     public TrackPointCreator(Callback service) {
         this.service = service;
         this.sensorManager = new SensorManager(this);
+        this.recordingConfig = RecordingConfig.fromPreferences();
+        this.sensorManager.setFusionInterval(recordingConfig.sensorFusionInterval());
     }
 
     public synchronized void start(@NonNull Context context, @NonNull Handler handler) {
@@ -51,8 +56,8 @@ public class TrackPointCreator implements SharedPreferences.OnSharedPreferenceCh
         return context != null;
     }
 
-    private synchronized void reset() {
-        sensorManager.reset();
+    private synchronized void reset(@NonNull Instant time) {
+        sensorManager.reset(time);
     }
 
     private SensorDataSet addSensorData(TrackPoint trackPoint) {
@@ -70,9 +75,9 @@ public class TrackPointCreator implements SharedPreferences.OnSharedPreferenceCh
     }
 
     /**
-     * Got a new TrackPoint from Bluetooth only; contains no GPS location.
+     * Sensor data changed (fused by {@link SensorManager}).
      */
-    public synchronized void onChange(@NonNull SensorDataSet unused) {
+    public synchronized void onChange() {
         onNewTrackPoint(new TrackPoint(TrackPoint.Type.TRACKPOINT, createNow()));
     }
 
@@ -80,9 +85,9 @@ public class TrackPointCreator implements SharedPreferences.OnSharedPreferenceCh
     public void onNewTrackPoint(@NonNull TrackPoint trackPoint) {
         addSensorData(trackPoint);
 
-        boolean stored = service.newTrackPoint(trackPoint, PreferencesUtils.getThresholdHorizontalAccuracy());  //TODO Cache preference for performance
+        boolean stored = service.newTrackPoint(trackPoint, recordingConfig.thresholdHorizontalAccuracy());
         if (stored) {
-            reset();
+            reset(trackPoint.getTime());
         }
     }
 
@@ -93,14 +98,14 @@ public class TrackPointCreator implements SharedPreferences.OnSharedPreferenceCh
     public synchronized TrackPoint createSegmentEnd() {
         TrackPoint segmentEnd = TrackPoint.createSegmentEndWithTime(createNow());
         addSensorData(segmentEnd);
-        reset();
+        reset(segmentEnd.getTime());
         return segmentEnd;
     }
 
     public synchronized TrackPoint createIdle() {
         TrackPoint idle = new TrackPoint(TrackPoint.Type.IDLE, createNow());
         addSensorData(idle);
-        reset();
+        reset(idle.getTime());
         return idle;
     }
 
@@ -125,6 +130,16 @@ public class TrackPointCreator implements SharedPreferences.OnSharedPreferenceCh
         return new Pair<>(currentTrackPoint, sensorDataSet);
     }
 
+    @NonNull
+    public RecordingConfig getRecordingConfig() {
+        return recordingConfig;
+    }
+
+    public void setRecordingConfig(@NonNull RecordingConfig recordingConfig) {
+        this.recordingConfig = recordingConfig;
+        sensorManager.setFusionInterval(recordingConfig.sensorFusionInterval());
+    }
+
     public Instant createNow() {
         return Instant.now(clock);
     }
@@ -663,6 +663,79 @@ public class PreferencesUtils {
         return Duration.ofSeconds(value);
     }
 
+    /**
+     * @return the maximal delay until stored TrackPoints are written to the database while recording (zero: immediately).
+     */
+    public static Duration getWriteBehindDelay() {
+        final int DEFAULT = Integer.parseInt(resources.getString(R.string.recording_write_behind_delay_default));
+        int value = getInt(R.string.recording_write_behind_delay_key, DEFAULT);
+        return Duration.ofSeconds(value);
+    }
+
+    static String[] getWriteBehindDelayEntries() {
+        String[] entryValues = resources.getStringArray(R.array.recording_write_behind_delay_values);
+        String[] entries = new String[entryValues.length];
+
+        final int writeBehindDelayDefault = Integer.parseInt(resources.getString(R.string.recording_write_behind_delay_default));
+
+        for (int i = 0; i < entryValues.length; i++) {
+            int value = Integer.parseInt(entryValues[i]);
+
+            if (value == 0) {
+                entries[i] = resources.getString(R.string.settings_recording_write_behind_delay_immediately);
+            } else if (value == writeBehindDelayDefault) {
+                entries[i] = resources.getString(R.string.value_int_seconds, value);
+            } else {
+                entries[i] = value < 60 ? resources.getString(R.string.value_integer_second, value) : resources.getString(R.string.value_integer_minute, value / 60);
+            }
+        }
+
+        return entries;
+    }
+
+    /**
+     * @return the maximal number of stored TrackPoints that are written to the database at once while recording (unless the delay is zero).
+     */
+    public static int getWriteBehindMaxTrackPoints() {
+        final int DEFAULT = Integer.parseInt(resources.getString(R.string.recording_write_behind_max_trackpoints_default));
+        return getInt(R.string.recording_write_behind_max_trackpoints_key, DEFAULT);
+    }
+
+    /**
+     * @return the maximal delay between a sensor notification and the TrackPoint containing it (zero: a TrackPoint for every notification).
+     */
+    public static Duration getSensorFusionInterval() {
+        final int DEFAULT = Integer.parseInt(resources.getString(R.string.recording_sensor_fusion_interval_default));
+        int value = getInt(R.string.recording_sensor_fusion_interval_key, DEFAULT);
+        return Duration.ofSeconds(value);
+    }
+
+    static String[] getSensorFusionIntervalEntries() {
+        String[] entryValues = resources.getStringArray(R.array.recording_sensor_fusion_interval_values);
+        String[] entries = new String[entryValues.length];
+
+        final int sensorFusionIntervalDefault = Integer.parseInt(resources.getString(R.string.recording_sensor_fusion_interval_default));
+
+        for (int i = 0; i < entryValues.length; i++) {
+            int value = Integer.parseInt(entryValues[i]);
+
+            if (value == 0) {
+                entries[i] = resources.getString(R.string.settings_recording_sensor_fusion_interval_every_update);
+            } else if (value == sensorFusionIntervalDefault) {
+                entries[i] = resources.getString(R.string.value_int_seconds, value);
+            } else {
+                entries[i] = resources.getString(R.string.value_integer_second, value);
+            }
+        }
+
+        return entries;
+    }
+
+    public static boolean shouldStoreTracksCompact() {
+        final boolean DEFAULT = resources.getBoolean(R.bool.recording_compact_storage_default);
+        return getBoolean(R.string.recording_compact_storage_key, DEFAULT);
+    }
+
     static String[] getIdleDurationEntries() {
         String[] entryValues = resources.getStringArray(R.array.idle_duration_values);
         String[] entries = new String[entryValues.length];
@@ -0,0 +1,56 @@
+package de.dennisguse.opentracks.settings;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Duration;
+
+import de.dennisguse.opentracks.R;
+import de.dennisguse.opentracks.data.models.Distance;
+
+/**
+ * Immutable snapshot of the preferences needed while recording (i.e., for every TrackPoint or sensor update).
+ * <p>
+ * Created once and replaced if one of its preferences changes (see {@link #isKey(String)}); so the recording does not read (and parse) SharedPreferences.
+ */
+public record RecordingConfig(
+        @NonNull Distance recordingDistanceInterval,
+        @NonNull Distance maxRecordingDistance,
+        @NonNull Duration idleDuration,
+        @NonNull Distance thresholdHorizontalAccuracy,
+        @NonNull Distance wheelCircumference,
+        @NonNull Duration writeBehindDelay,
+        int writeBehindMaxTrackPoints,
+        @NonNull Duration sensorFusionInterval
+) {
+
+    @NonNull
+    public static RecordingConfig fromPreferences() {
+        return new RecordingConfig(
+                PreferencesUtils.getRecordingDistanceInterval(),
+                PreferencesUtils.getMaxRecordingDistance(),
+                PreferencesUtils.getIdleDurationTimeout(),
+                PreferencesUtils.getThresholdHorizontalAccuracy(),
+                PreferencesUtils.getWheelCircumference(),
+                PreferencesUtils.getWriteBehindDelay(),
+                PreferencesUtils.getWriteBehindMaxTrackPoints(),
+                PreferencesUtils.getSensorFusionInterval()
+        );
+    }
+
+    /**
+     * @return if the changed preference (null: all) is part of the RecordingConfig.
+     */
+    public static boolean isKey(@Nullable String key) {
+        return PreferencesUtils.isKey(new int[]{
+                R.string.recording_distance_interval_key,
+                R.string.max_recording_distance_key,
+                R.string.idle_duration_key,
+                R.string.recording_gps_accuracy_key,
+                R.string.settings_sensor_bluetooth_cycling_speed_wheel_circumference_key,
+                R.string.recording_write_behind_delay_key,
+                R.string.recording_write_behind_max_trackpoints_key,
+                R.string.recording_sensor_fusion_interval_key
+        }, key);
+    }
+}
@@ -57,5 +57,11 @@ public class RecordingSettingsFragment extends PreferenceFragmentCompat {
 
         ListPreference idleDuration = findPreference(getString(R.string.idle_duration_key));
         idleDuration.setEntries(PreferencesUtils.getIdleDurationEntries());
+
+        ListPreference writeBehindDelay = findPreference(getString(R.string.recording_write_behind_delay_key));
+        writeBehindDelay.setEntries(PreferencesUtils.getWriteBehindDelayEntries());
+
+        ListPreference sensorFusionInterval = findPreference(getString(R.string.recording_sensor_fusion_interval_key));
+        sensorFusionInterval.setEntries(PreferencesUtils.getSensorFusionIntervalEntries());
     }
 }
@@ -0,0 +1,86 @@
+package de.dennisguse.opentracks.stats;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import de.dennisguse.opentracks.data.models.Cadence;
+import de.dennisguse.opentracks.data.models.HeartRate;
+import de.dennisguse.opentracks.data.models.Power;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.data.tables.SensorStatsColumns;
+
+/**
+ * Computes {@link SensorStatistics} in memory as new {@link TrackPoint}s are added.
+ * <p>
+ * Same computation as the database (see {@link SensorStatsColumns}): the value of a TrackPoint is weighted with the time until the next TrackPoint; {@link TrackPoint.Type#SEGMENT_START_MANUAL} are ignored.
+ */
+public class SensorStatisticsUpdater {
+
+    private long durationMillis;
+
+    private final Sensor heartRate = new Sensor();
+    private final Sensor cadence = new Sensor();
+    private final Sensor power = new Sensor();
+
+    // Time of the last TrackPoint; null if it was a SEGMENT_START_MANUAL.
+    private Long lastTimeMillis;
+
+    public void addTrackPoint(@NonNull TrackPoint trackPoint) {
+        boolean ignore = trackPoint.isSegmentManualStart();
+        long time = trackPoint.getTime().toEpochMilli();
+        long weight = ignore || lastTimeMillis == null ? 0 : Math.max(time, lastTimeMillis) - lastTimeMillis;
+
+        durationMillis += weight;
+        heartRate.add(trackPoint.hasHeartRate() ? trackPoint.getHeartRate().getBPM() : null, weight, ignore);
+        cadence.add(trackPoint.hasCadence() ? trackPoint.getCadence().getRPM() : null, weight, ignore);
+        power.add(trackPoint.hasPower() ? trackPoint.getPower().getW() : null, weight, ignore);
+
+        lastTimeMillis = ignore ? null : time;
+    }
+
+    @NonNull
+    public SensorStatistics getSensorStatistics() {
+        Float maxHeartRate = heartRate.max;
+        Float avgHeartRate = heartRate.getAverage(durationMillis);
+        Float maxCadence = cadence.max;
+        Float avgCadence = cadence.getAverage(durationMillis);
+        Float maxPower = power.max;
+        Float avgPower = power.getAverage(durationMillis);
+
+        return new SensorStatistics(
+                maxHeartRate != null ? HeartRate.of(maxHeartRate) : null,
+                avgHeartRate != null ? HeartRate.of(avgHeartRate) : null,
+                maxCadence != null ? Cadence.of(maxCadence) : null,
+                avgCadence != null ? Cadence.of(avgCadence) : null,
+                maxPower != null ? Power.of(maxPower) : null,
+                avgPower != null ? Power.of(avgPower) : null
+        );
+    }
+
+    private static class Sensor {
+        // Time-weighted sum; null until the first (not ignored) value.
+        private Double sum;
+        private Float max;
+        private Float last;
+
+        void add(@Nullable Float value, long weight, boolean ignore) {
+            if (!ignore && value != null && sum == null) {
+                sum = 0d;
+            }
+            if (sum != null && last != null) {
+                sum += (double) last * weight;
+            }
+            if (!ignore && value != null) {
+                max = max == null ? value : Math.max(max, value);
+            }
+            last = value;
+        }
+
+        Float getAverage(long durationMillis) {
+            if (sum == null || durationMillis == 0) {
+                return null;
+            }
+            return (float) (sum / durationMillis);
+        }
+    }
+}
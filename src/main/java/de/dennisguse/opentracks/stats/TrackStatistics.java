@@ -75,6 +75,15 @@ public class TrackStatistics {
      * @param other another statistics data object to copy from
      */
     public TrackStatistics(TrackStatistics other) {
+        set(other);
+    }
+
+    /**
+     * Overwrites all values with the ones of another object (allows re-use of instances).
+     *
+     * @param other another statistics data object to copy from
+     */
+    public void set(TrackStatistics other) {
         startTime = other.startTime;
         stopTime = other.stopTime;
         totalDistance = other.totalDistance;
@@ -355,6 +364,10 @@ public class TrackStatistics {
         }
     }
 
+    public void updateAltitudeExtremities(double altitude_m) {
+        altitudeExtremities.update(altitude_m);
+    }
+
     public void setAverageHeartRate(HeartRate heartRate) {
         if (heartRate != null) {
             avgHeartRate = heartRate;
@@ -19,9 +19,12 @@ package de.dennisguse.opentracks.stats;
 import androidx.annotation.NonNull;
 
 import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
 
+import de.dennisguse.opentracks.data.TrackPointBuffer;
 import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Geodesy;
 import de.dennisguse.opentracks.data.models.HeartRate;
 import de.dennisguse.opentracks.data.models.Power;
 import de.dennisguse.opentracks.data.models.Speed;
@@ -33,6 +36,7 @@ import de.dennisguse.opentracks.settings.PreferencesUtils;
  * For updating track {@link TrackStatistics} as new {@link TrackPoint}s are added.
  * NOTE: Some of the locations represent pause/resume separator.
  * NOTE: Has still support for segments (at the moment unused).
+ * Works on the primitives of a {@link TrackPointBuffer} (see {@link #addTrackPoints(TrackPointBuffer)}); no allocation per TrackPoint for heart rate, power, and location.
  *
  * @author Sandor Dornbush
  * @author Rodrigo Damazio
@@ -44,14 +48,24 @@ public class TrackStatisticsUpdater {
     private final TrackStatistics trackStatistics;
 
     private float averageHeartRateBPM;
-    private Duration totalHeartRateDuration = Duration.ZERO;
+    private long totalHeartRateDuration_ms;
     private float averagePowerW;
-    private Duration totalPowerDuration = Duration.ZERO;
+    private long totalPowerDuration_ms;
 
     // The current segment's statistics
     private final TrackStatistics currentSegment;
     // Current segment's last trackPoint
-    private TrackPoint lastTrackPoint;
+    private boolean hasLastTrackPoint;
+    private long lastTime_ms;
+    private boolean lastHasLocation;
+    private double lastLatitude;
+    private double lastLongitude;
+
+    // For adding a single TrackPoint.
+    private final TrackPointBuffer trackPointBuffer = new TrackPointBuffer(1);
+
+    // Needed to leave idle; read from the preferences if not set.
+    private Distance recordingDistanceInterval;
 
     public TrackStatisticsUpdater() {
         this(new TrackStatistics());
@@ -68,10 +82,26 @@ public class TrackStatisticsUpdater {
         this.currentSegment = new TrackStatistics(toCopy.currentSegment);
         this.trackStatistics = new TrackStatistics(toCopy.trackStatistics);
 
-        this.lastTrackPoint = toCopy.lastTrackPoint;
+        this.hasLastTrackPoint = toCopy.hasLastTrackPoint;
+        this.lastTime_ms = toCopy.lastTime_ms;
+        this.lastHasLocation = toCopy.lastHasLocation;
+        this.lastLatitude = toCopy.lastLatitude;
+        this.lastLongitude = toCopy.lastLongitude;
+        this.recordingDistanceInterval = toCopy.recordingDistanceInterval;
         resetAverageHeartRate();
     }
 
+    public void setRecordingDistanceInterval(@NonNull Distance recordingDistanceInterval) {
+        this.recordingDistanceInterval = recordingDistanceInterval;
+    }
+
+    private Distance getRecordingDistanceInterval() {
+        if (recordingDistanceInterval == null) {
+            recordingDistanceInterval = PreferencesUtils.getRecordingDistanceInterval();
+        }
+        return recordingDistanceInterval;
+    }
+
     public TrackStatistics getTrackStatistics() {
         // Take a snapshot - we don't want anyone messing with our trackStatistics
         TrackStatistics stats = new TrackStatistics(trackStatistics);
@@ -79,125 +109,164 @@ public class TrackStatisticsUpdater {
         return stats;
     }
 
+    /**
+     * Like {@link #getTrackStatistics()}, but fills the provided snapshot instead of allocating a new one.
+     *
+     * @param snapshot will be overwritten
+     * @return the snapshot
+     */
+    public TrackStatistics getTrackStatistics(@NonNull TrackStatistics snapshot) {
+        snapshot.set(trackStatistics);
+        snapshot.merge(currentSegment);
+        return snapshot;
+    }
+
+    public Distance getTotalDistance() {
+        return trackStatistics.getTotalDistance().plus(currentSegment.getTotalDistance());
+    }
+
+    public Duration getTotalTime() {
+        return trackStatistics.getTotalTime().plus(currentSegment.getTotalTime());
+    }
+
     public void addTrackPoints(List<TrackPoint> trackPoints) {
         trackPoints.stream().forEachOrdered(this::addTrackPoint);
     }
 
     public void addTrackPoint(TrackPoint trackPoint) {
-        if (trackPoint.isSegmentManualStart()) {
-            reset(trackPoint);
+        trackPointBuffer.clear();
+        trackPointBuffer.add(trackPoint);
+        addTrackPoint(trackPointBuffer, 0);
+    }
+
+    public void addTrackPoints(@NonNull TrackPointBuffer trackPoints) {
+        for (int i = 0; i < trackPoints.size(); i++) {
+            addTrackPoint(trackPoints, i);
+        }
+    }
+
+    public void addTrackPoint(@NonNull TrackPointBuffer trackPoints, int index) {
+        TrackPoint.Type type = trackPoints.getType(index);
+        long time_ms = trackPoints.getTime_ms(index);
+
+        if (type == TrackPoint.Type.SEGMENT_START_MANUAL) {
+            reset(time_ms);
         }
 
         if (!currentSegment.isInitialized()) {
-            currentSegment.setStartTime(trackPoint.getTime());
+            currentSegment.setStartTime(Instant.ofEpochMilli(time_ms));
         }
 
         // Always update time
-        currentSegment.setStopTime(trackPoint.getTime());
-        currentSegment.setTotalTime(Duration.between(currentSegment.getStartTime(), trackPoint.getTime()));
+        currentSegment.setStopTime(Instant.ofEpochMilli(time_ms));
+        currentSegment.setTotalTime(Duration.ofMillis(time_ms - currentSegment.getStartTime().toEpochMilli()));
 
         // Process sensor data: barometer
-        if (trackPoint.hasAltitudeGain()) {
-            currentSegment.addTotalAltitudeGain(trackPoint.getAltitudeGain());
+        if (trackPoints.hasAltitudeGain(index)) {
+            currentSegment.addTotalAltitudeGain(trackPoints.getAltitudeGain_m(index));
         }
 
-        if (trackPoint.hasAltitudeLoss()) {
-            currentSegment.addTotalAltitudeLoss(trackPoint.getAltitudeLoss());
+        if (trackPoints.hasAltitudeLoss(index)) {
+            currentSegment.addTotalAltitudeLoss(trackPoints.getAltitudeLoss_m(index));
         }
 
         //Update absolute (GPS-based) altitude
-        if (trackPoint.hasAltitude()) {
-            currentSegment.updateAltitudeExtremities(trackPoint.getAltitude());
+        if (trackPoints.hasAltitude(index)) {
+            currentSegment.updateAltitudeExtremities(trackPoints.getAltitude_m(index));
         }
 
         // Update heart rate
-        if (trackPoint.hasHeartRate() && lastTrackPoint != null) {
-            Duration trackPointDuration = Duration.between(lastTrackPoint.getTime(), trackPoint.getTime());
-            Duration newTotalDuration = totalHeartRateDuration.plus(trackPointDuration);
+        if (trackPoints.hasHeartRate(index) && hasLastTrackPoint) {
+            long trackPointDuration_ms = time_ms - lastTime_ms;
+            long newTotalDuration_ms = totalHeartRateDuration_ms + trackPointDuration_ms;
 
-            averageHeartRateBPM = (totalHeartRateDuration.toMillis() * averageHeartRateBPM + trackPointDuration.toMillis() * trackPoint.getHeartRate().getBPM()) / newTotalDuration.toMillis();
-            totalHeartRateDuration = newTotalDuration;
+            averageHeartRateBPM = (totalHeartRateDuration_ms * averageHeartRateBPM + trackPointDuration_ms * trackPoints.getHeartRate_bpm(index)) / newTotalDuration_ms;
+            totalHeartRateDuration_ms = newTotalDuration_ms;
 
             currentSegment.setAverageHeartRate(HeartRate.of(averageHeartRateBPM));
         }
 
         // Update power
-        if (trackPoint.hasPower() && lastTrackPoint != null) {
-            Duration trackPointDuration = Duration.between(lastTrackPoint.getTime(), trackPoint.getTime());
-            Duration newTotalDuration = totalPowerDuration.plus(trackPointDuration);
+        if (trackPoints.hasPower(index) && hasLastTrackPoint) {
+            long trackPointDuration_ms = time_ms - lastTime_ms;
+            long newTotalDuration_ms = totalPowerDuration_ms + trackPointDuration_ms;
 
-            averagePowerW = (totalPowerDuration.toMillis() * averagePowerW + trackPointDuration.toMillis() * trackPoint.getPower().getW()) / newTotalDuration.toMillis();
-            totalPowerDuration = newTotalDuration;
+            averagePowerW = (totalPowerDuration_ms * averagePowerW + trackPointDuration_ms * trackPoints.getPower_w(index)) / newTotalDuration_ms;
+            totalPowerDuration_ms = newTotalDuration_ms;
 
             currentSegment.setAveragePower(Power.of(averagePowerW));
         }
 
         {
             // Update total distance
-            Distance movingDistance = null;
-            if (trackPoint.hasSensorDistance()) {
-                movingDistance = trackPoint.getSensorDistance();
-            } else if (lastTrackPoint != null
-                    && lastTrackPoint.hasLocation()
-                    && trackPoint.hasLocation()) {
+            double movingDistance_m = Double.NaN;
+            if (trackPoints.hasSensorDistance(index)) {
+                movingDistance_m = trackPoints.getSensorDistance_m(index);
+            } else if (hasLastTrackPoint
+                    && lastHasLocation
+                    && trackPoints.hasLocation(index)) {
                 // GPS-based distance/speed
-                movingDistance = trackPoint.distanceToPrevious(lastTrackPoint);
+                movingDistance_m = Geodesy.distance_m(lastLatitude, lastLongitude, trackPoints.getLatitude(index), trackPoints.getLongitude(index));
             }
-            if (movingDistance != null) {
-                currentSegment.addTotalDistance(movingDistance);
+            boolean hasMovingDistance = !Double.isNaN(movingDistance_m);
+            if (hasMovingDistance) {
+                currentSegment.addTotalDistance(Distance.of(movingDistance_m));
             }
 
             if (!currentSegment.isIdle()) {
-                if (!trackPoint.isSegmentManualStart() && lastTrackPoint != null) {
-                    currentSegment.addMovingTime(trackPoint, lastTrackPoint);
+                if (type != TrackPoint.Type.SEGMENT_START_MANUAL && hasLastTrackPoint) {
+                    currentSegment.addMovingTime(Duration.ofMillis(time_ms - lastTime_ms));
                 }
             }
 
-            if (trackPoint.isIdleTriggered()) {
+            if (type == TrackPoint.Type.IDLE) {
                 currentSegment.setIdle(true);
             } else if (currentSegment.isIdle()) {
                 // Shall we switch to non-idle?
-                if (movingDistance != null
-                        && movingDistance.greaterOrEqualThan(PreferencesUtils.getRecordingDistanceInterval())) {
+                if (hasMovingDistance
+                        && movingDistance_m >= getRecordingDistanceInterval().toM()) {
                     currentSegment.setIdle(false);
                 }
             }
 
-            if (trackPoint.hasSpeed()) {
-                updateSpeed(trackPoint);
+            if (trackPoints.hasSpeed(index)) {
+                updateSpeed(trackPoints.getSpeed_mps(index));
             }
         }
 
-        if (trackPoint.isSegmentManualEnd()) {
-            reset(trackPoint);
+        if (type == TrackPoint.Type.SEGMENT_END_MANUAL) {
+            reset(time_ms);
             return;
         }
 
-        lastTrackPoint = trackPoint;
+        hasLastTrackPoint = true;
+        lastTime_ms = time_ms;
+        lastHasLocation = trackPoints.hasLocation(index);
+        lastLatitude = trackPoints.getLatitude(index);
+        lastLongitude = trackPoints.getLongitude(index);
     }
 
-    private void reset(TrackPoint trackPoint) {
+    private void reset(long time_ms) {
         if (currentSegment.isInitialized()) {
             trackStatistics.merge(currentSegment);
         }
-        currentSegment.reset(trackPoint.getTime());
+        currentSegment.reset(Instant.ofEpochMilli(time_ms));
 
-        lastTrackPoint = null;
+        hasLastTrackPoint = false;
         resetAverageHeartRate();
     }
 
     private void resetAverageHeartRate() {
         averageHeartRateBPM = 0.0f;
-        totalHeartRateDuration = Duration.ZERO;
+        totalHeartRateDuration_ms = 0;
     }
 
     /**
      * Updates a speed reading while assuming the user is moving.
      */
-    private void updateSpeed(@NonNull TrackPoint trackPoint) {
-        Speed currentSpeed = trackPoint.getSpeed();
-        if (currentSpeed.greaterThan(currentSegment.getMaxSpeed())) {
-            currentSegment.setMaxSpeed(currentSpeed);
+    private void updateSpeed(double speed_mps) {
+        if (speed_mps > currentSegment.getMaxSpeed().toMPS()) {
+            currentSegment.setMaxSpeed(Speed.of(speed_mps));
         }
     }
 
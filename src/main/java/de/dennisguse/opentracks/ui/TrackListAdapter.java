@@ -2,7 +2,6 @@ package de.dennisguse.opentracks.ui;
 
 import android.app.ActivityOptions;
 import android.content.Intent;
-import android.database.Cursor;
 import android.util.Pair;
 import android.util.SparseBooleanArray;
 import android.view.LayoutInflater;
@@ -16,19 +15,15 @@ import androidx.appcompat.app.AppCompatActivity;
 import androidx.appcompat.view.ActionMode;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.time.Duration;
-import java.time.Instant;
-import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import de.dennisguse.opentracks.R;
 import de.dennisguse.opentracks.TrackRecordedActivity;
 import de.dennisguse.opentracks.TrackRecordingActivity;
 import de.dennisguse.opentracks.data.models.ActivityType;
-import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
-import de.dennisguse.opentracks.data.tables.TracksColumns;
 import de.dennisguse.opentracks.databinding.TrackListItemBinding;
 import de.dennisguse.opentracks.services.RecordingStatus;
 import de.dennisguse.opentracks.settings.UnitSystem;
@@ -46,7 +41,9 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
     private final SparseBooleanArray selection = new SparseBooleanArray();
     private RecordingStatus recordingStatus;
     private UnitSystem unitSystem;
-    private Cursor cursor;
+    private List<TrackListModel.TrackItem> items = Collections.emptyList();
+    // Tracks that are loaded later are selected as well.
+    private boolean allSelected = false;
     private boolean selectionMode = false;
     private ActivityUtils.ContextualActionModeCallback actionModeCallback;
     private ActionMode actionMode;
@@ -74,27 +71,38 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
     public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
         ViewHolder viewHolder = (ViewHolder) holder;
 
-        cursor.moveToPosition(position);
-        viewHolder.bind(cursor);
+        viewHolder.bind(items.get(position));
     }
 
     @Override
     public long getItemId(int position) {
-        cursor.moveToPosition(position);
-        return cursor.getLong(cursor.getColumnIndexOrThrow(TracksColumns._ID));
+        return items.get(position).id().id();
     }
 
     @Override
     public int getItemCount() {
-        if (cursor == null) {
-            return 0;
-        }
-        return cursor.getCount();
+        return items.size();
     }
 
-    public void swapData(Cursor cursor) {
-        this.cursor = cursor;
-        this.notifyDataSetChanged();
+    /**
+     * If the new items only append to the current items (i.e., a further page was loaded), only the appended items are bound.
+     */
+    public void swapData(@NonNull List<TrackListModel.TrackItem> items) {
+        List<TrackListModel.TrackItem> oldItems = this.items;
+        this.items = items;
+
+        if (allSelected) {
+            for (TrackListModel.TrackItem item : items) {
+                selection.put((int) item.id().id(), true);
+            }
+        }
+
+        boolean isAppended = !oldItems.isEmpty() && items.size() > oldItems.size() && items.get(oldItems.size() - 1) == oldItems.get(oldItems.size() - 1);
+        if (isAppended) {
+            this.notifyItemRangeInserted(oldItems.size(), items.size() - oldItems.size());
+        } else {
+            this.notifyDataSetChanged();
+        }
     }
 
     public void updateRecordingStatus(RecordingStatus recordingStatus) {
@@ -139,13 +147,11 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
     }
 
     public void setAllSelected(boolean isSelected) {
+        allSelected = isSelected;
         if (isSelected) {
-            final int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
-
-            cursor.moveToFirst();
-            do {
-                selection.put((int) cursor.getLong(idIndex), true);
-            } while (cursor.moveToNext());
+            for (TrackListModel.TrackItem item : items) {
+                selection.put((int) item.id().id(), true);
+            }
         } else {
             selection.clear();
         }
@@ -184,28 +190,10 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
         }
 
 
-        public void bind(Cursor cursor) {
-            final int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
-            final int nameIndex = cursor.getColumnIndexOrThrow(TracksColumns.NAME);
-            final int descriptionIndex = cursor.getColumnIndexOrThrow(TracksColumns.DESCRIPTION);
-            final int activityTypeIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE);
-            final int activityTypeLocalizedIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE_LOCALIZED);
-            final int startTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME);
-            final int startTimeOffsetIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME_OFFSET);
-            final int totalDistanceIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALDISTANCE);
-            final int totalTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALTIME);
-            final int markerCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.MARKER_COUNT);
-
-            ActivityType activityType = ActivityType.findBy(cursor.getString(activityTypeIndex));
-            String name = cursor.getString(nameIndex);
-            int markerCount = cursor.getInt(markerCountIndex);
-            Duration totalTime = Duration.ofMillis(cursor.getLong(totalTimeIndex));
-            Distance totalDistance = Distance.of(cursor.getFloat(totalDistanceIndex));
-            Instant startTime = Instant.ofEpochMilli(cursor.getLong(startTimeIndex));
-            ZoneOffset zoneOffset = ZoneOffset.ofTotalSeconds(cursor.getInt(startTimeOffsetIndex));
-            String activityTypeLocalized = cursor.getString(activityTypeLocalizedIndex);
-            String description = cursor.getString(descriptionIndex);
-            trackId = new Track.Id(cursor.getLong(idIndex));
+        public void bind(TrackListModel.TrackItem item) {
+            ActivityType activityType = ActivityType.findBy(item.activityTypeId());
+            int markerCount = item.markerCount();
+            trackId = item.id();
 
             int iconId = activityType.getIconDrawableId();
             int iconDesc = R.string.image_track;
@@ -219,22 +207,22 @@ public class TrackListAdapter extends RecyclerView.Adapter<RecyclerView.ViewHold
             viewBinding.trackListItemIcon.setImageResource(iconId);
             viewBinding.trackListItemIcon.setContentDescription(context.getString(iconDesc));
 
-            viewBinding.trackListItemName.setText(name);
+            viewBinding.trackListItemName.setText(item.name());
 
-            String timeDistanceText = ListItemUtils.getTimeDistanceText(context, unitSystem, isRecordingThisTrackRecording, totalTime, totalDistance, markerCount);
+            String timeDistanceText = ListItemUtils.getTimeDistanceText(context, unitSystem, isRecordingThisTrackRecording, item.totalTime(), item.totalDistance(), markerCount);
             viewBinding.trackListItemTimeDistance.setText(timeDistanceText);
 
             viewBinding.trackListItemMarkerCountIcon.setVisibility(markerCount > 0 ? View.VISIBLE : View.GONE);
             viewBinding.trackListItemMarkerCount.setText(markerCount > 0 ? Integer.toString(markerCount) : null);
 
-            if (!recordingStatus.isRecording()) {
-                ListItemUtils.setDateAndTime(context, viewBinding.trackListItemDate, viewBinding.trackListItemTime, startTime, zoneOffset);
+            if (!recordingStatus.isRecording() && item.startTime() != null) {
+                ListItemUtils.setDateAndTime(context, viewBinding.trackListItemDate, viewBinding.trackListItemTime, item.startTime(), item.zoneOffset());
             } else {
                 viewBinding.trackListItemDate.setText(null);
                 viewBinding.trackListItemTime.setText(null);
             }
 
-            String categoryDescription = StringUtils.getCategoryDescription(activityTypeLocalized, description);
+            String categoryDescription = StringUtils.getCategoryDescription(item.activityTypeLocalized(), item.description());
             viewBinding.trackListItemCategoryDescription.setText(categoryDescription);
             viewBinding.trackListItemCategoryDescription.setVisibility(categoryDescription.isEmpty() ? View.GONE : View.VISIBLE);
 
@@ -0,0 +1,229 @@
+package de.dennisguse.opentracks.ui;
+
+import android.app.Application;
+import android.database.Cursor;
+import android.os.CancellationSignal;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.AndroidViewModel;
+import androidx.lifecycle.LiveData;
+import androidx.lifecycle.MutableLiveData;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.tables.TracksColumns;
+
+/**
+ * Loads the tracks for the {@link TrackListAdapter} in pages on a background thread.
+ * <p>
+ * Searching is debounced and a running query is cancelled if a new one is started; results of outdated queries are dropped.
+ * The state is only accessed on the main thread.
+ */
+public class TrackListModel extends AndroidViewModel {
+
+    private static final String TAG = TrackListModel.class.getSimpleName();
+
+    static final int PAGE_SIZE = 100;
+
+    private static final Duration SEARCH_DEBOUNCE = Duration.ofMillis(300);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private final Handler handler = new Handler(Looper.getMainLooper());
+
+    private final MutableLiveData<List<TrackItem>> tracks = new MutableLiveData<>();
+
+    private List<TrackItem> items = Collections.emptyList();
+
+    private String searchQuery;
+    private String pendingSearchQuery;
+    private final Runnable pendingSearch = () -> searchNow(pendingSearchQuery);
+
+    // Incremented for each query whose result replaces the current items.
+    private int generation = 0;
+    private CancellationSignal cancellationSignal;
+    private boolean loading = false;
+    private boolean complete = false;
+
+    public TrackListModel(@NonNull Application application) {
+        super(application);
+    }
+
+    public LiveData<List<TrackItem>> getTracks() {
+        return tracks;
+    }
+
+    @Nullable
+    public String getSearchQuery() {
+        return searchQuery;
+    }
+
+    /**
+     * Searches after the user stopped typing.
+     */
+    public void search(@Nullable String searchQuery) {
+        pendingSearchQuery = searchQuery;
+        handler.removeCallbacks(pendingSearch);
+        handler.postDelayed(pendingSearch, SEARCH_DEBOUNCE.toMillis());
+    }
+
+    public void searchNow(@Nullable String searchQuery) {
+        handler.removeCallbacks(pendingSearch);
+        if (searchQuery != null && searchQuery.isBlank()) {
+            searchQuery = null;
+        }
+        if (loading || !items.isEmpty() || complete) {
+            if (searchQuery == null ? this.searchQuery == null : searchQuery.equals(this.searchQuery)) {
+                return;
+            }
+        }
+
+        this.searchQuery = searchQuery;
+        items = Collections.emptyList();
+        reload();
+    }
+
+    /**
+     * Loads the first page again (at least as many tracks as are already loaded).
+     */
+    public void reload() {
+        cancel();
+        query(null, Math.max(PAGE_SIZE, items.size()), false);
+    }
+
+    /**
+     * Loads the next page, if not already loading or all tracks are loaded.
+     */
+    public void loadMore() {
+        if (loading || complete) {
+            return;
+        }
+        query(lastItem(), PAGE_SIZE, true);
+    }
+
+    /**
+     * Loads all remaining tracks (e.g., to select all).
+     */
+    public void loadAll() {
+        if (complete) {
+            return;
+        }
+        cancel();
+        query(lastItem(), 0, true);
+    }
+
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        handler.removeCallbacks(pendingSearch);
+        cancel();
+        executor.shutdownNow();
+    }
+
+    @Nullable
+    private TrackItem lastItem() {
+        return items.isEmpty() ? null : items.get(items.size() - 1);
+    }
+
+    private void cancel() {
+        generation++;
+        if (cancellationSignal != null) {
+            cancellationSignal.cancel();
+            cancellationSignal = null;
+        }
+    }
+
+    private void query(@Nullable TrackItem after, int limit, boolean append) {
+        final int queryGeneration = generation;
+        final String query = searchQuery;
+        final CancellationSignal signal = new CancellationSignal();
+        cancellationSignal = signal;
+        loading = true;
+
+        executor.execute(() -> {
+            List<TrackItem> page = new ArrayList<>();
+            ContentProviderUtils contentProviderUtils = new ContentProviderUtils(getApplication());
+            try (Cursor cursor = contentProviderUtils.searchTracks(query, after != null ? after.startTime() : null, after != null ? after.id() : null, limit, signal)) {
+                if (cursor != null) {
+                    TrackItem.readAll(cursor, page);
+                }
+            } catch (OperationCanceledException e) {
+                Log.d(TAG, "Query was cancelled.");
+                return;
+            }
+
+            handler.post(() -> onLoaded(queryGeneration, page, limit, append));
+        });
+    }
+
+    private void onLoaded(int queryGeneration, List<TrackItem> page, int limit, boolean append) {
+        if (queryGeneration != generation) {
+            return;
+        }
+
+        cancellationSignal = null;
+        loading = false;
+        complete = limit == 0 || page.size() < limit;
+
+        if (append) {
+            List<TrackItem> merged = new ArrayList<>(items.size() + page.size());
+            merged.addAll(items);
+            merged.addAll(page);
+            items = merged;
+        } else {
+            items = page;
+        }
+        tracks.setValue(Collections.unmodifiableList(items));
+    }
+
+    /**
+     * @param startTime null if the track has no start time.
+     */
+    public record TrackItem(Track.Id id, String name, String description, String activityTypeId,
+                            String activityTypeLocalized, @Nullable Instant startTime,
+                            ZoneOffset zoneOffset, Distance totalDistance, Duration totalTime,
+                            int markerCount) {
+
+        private static void readAll(Cursor cursor, List<TrackItem> items) {
+            final int idIndex = cursor.getColumnIndexOrThrow(TracksColumns._ID);
+            final int nameIndex = cursor.getColumnIndexOrThrow(TracksColumns.NAME);
+            final int descriptionIndex = cursor.getColumnIndexOrThrow(TracksColumns.DESCRIPTION);
+            final int activityTypeIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE);
+            final int activityTypeLocalizedIndex = cursor.getColumnIndexOrThrow(TracksColumns.ACTIVITY_TYPE_LOCALIZED);
+            final int startTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME);
+            final int startTimeOffsetIndex = cursor.getColumnIndexOrThrow(TracksColumns.STARTTIME_OFFSET);
+            final int totalDistanceIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALDISTANCE);
+            final int totalTimeIndex = cursor.getColumnIndexOrThrow(TracksColumns.TOTALTIME);
+            final int markerCountIndex = cursor.getColumnIndexOrThrow(TracksColumns.MARKER_COUNT);
+
+            while (cursor.moveToNext()) {
+                items.add(new TrackItem(
+                        new Track.Id(cursor.getLong(idIndex)),
+                        cursor.getString(nameIndex),
+                        cursor.getString(descriptionIndex),
+                        cursor.getString(activityTypeIndex),
+                        cursor.getString(activityTypeLocalizedIndex),
+                        cursor.isNull(startTimeIndex) ? null : Instant.ofEpochMilli(cursor.getLong(startTimeIndex)),
+                        ZoneOffset.ofTotalSeconds(cursor.getInt(startTimeOffsetIndex)),
+                        Distance.of(cursor.getFloat(totalDistanceIndex)),
+                        Duration.ofMillis(cursor.getLong(totalTimeIndex)),
+                        cursor.getInt(markerCountIndex)
+                ));
+            }
+        }
+    }
+}
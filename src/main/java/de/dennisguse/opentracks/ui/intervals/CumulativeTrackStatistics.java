@@ -0,0 +1,267 @@
+package de.dennisguse.opentracks.ui.intervals;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import de.dennisguse.opentracks.data.ContentProviderUtils;
+import de.dennisguse.opentracks.data.TrackPointBuffer;
+import de.dennisguse.opentracks.data.TrackPointIterator;
+import de.dennisguse.opentracks.data.models.Distance;
+import de.dennisguse.opentracks.data.models.HeartRate;
+import de.dennisguse.opentracks.data.models.Power;
+import de.dennisguse.opentracks.data.models.Track;
+import de.dennisguse.opentracks.data.models.TrackPoint;
+import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
+
+/**
+ * Cumulative statistics of a track after each of its {@link TrackPoint}s: distance, time, altitude gain and loss, and the time-integrals of heart rate and power.
+ * <p>
+ * Intervals of any length are computed from these (binary search for the interval borders; values at the borders are interpolated) without processing the TrackPoints again.
+ * New TrackPoints can be added at any time (e.g., while recording).
+ */
+final class CumulativeTrackStatistics {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
+
+    private int size = 0;
+    private double[] distance_m = new double[INITIAL_CAPACITY];
+    private double[] time_ms = new double[INITIAL_CAPACITY];
+    private double[] gain_m = new double[INITIAL_CAPACITY];
+    private double[] loss_m = new double[INITIAL_CAPACITY];
+    private double[] heartRateIntegral = new double[INITIAL_CAPACITY]; // bpm * ms
+    private double[] heartRateDuration_ms = new double[INITIAL_CAPACITY];
+    private double[] powerIntegral = new double[INITIAL_CAPACITY]; // W * ms
+    private double[] powerDuration_ms = new double[INITIAL_CAPACITY];
+
+    private boolean hasGain = false;
+    private boolean hasLoss = false;
+
+    // Time of the previous TrackPoint of the current segment; not set at the start of a segment.
+    private boolean hasLastTime = false;
+    private long lastTime_ms;
+
+    // Re-used while loading TrackPoints.
+    private final TrackPointBuffer trackPointBuffer = new TrackPointBuffer();
+
+    // Id of the last TrackPoint added from a TrackPointIterator; -1 if none.
+    private long lastTrackPointId = -1;
+
+    /**
+     * Adds the TrackPoints of the track that were stored after the last added one (e.g., while recording).
+     */
+    void addNewTrackPoints(@NonNull ContentProviderUtils contentProviderUtils, @NonNull Track.Id trackId) {
+        // Ids are integers: starting after the last id does not load it again.
+        TrackPoint.Id startTrackPointId = lastTrackPointId != -1 ? new TrackPoint.Id(lastTrackPointId + 1) : null;
+        try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointIterator(trackId, startTrackPointId, IntervalStatistics.FIELDS)) {
+            addTrackPoints(trackPointIterator);
+        }
+    }
+
+    /**
+     * The iterator must provide at least {@link IntervalStatistics#FIELDS}.
+     *
+     * @return the last track point's id; null if the iterator was empty.
+     */
+    TrackPoint.Id addTrackPoints(@NonNull TrackPointIterator trackPointIterator) {
+        long lastId = -1;
+        while (trackPointIterator.next(trackPointBuffer) > 0) {
+            for (int i = 0; i < trackPointBuffer.size(); i++) {
+                addTrackPoint(trackPointBuffer, i);
+            }
+            lastId = trackPointBuffer.getId(trackPointBuffer.size() - 1);
+        }
+        if (lastId == -1) {
+            return null;
+        }
+        lastTrackPointId = lastId;
+        return new TrackPoint.Id(lastId);
+    }
+
+    void addTrackPoint(@NonNull TrackPoint trackPoint) {
+        trackPointBuffer.clear();
+        trackPointBuffer.add(trackPoint);
+        addTrackPoint(trackPointBuffer, 0);
+    }
+
+    private void addTrackPoint(@NonNull TrackPointBuffer trackPoints, int index) {
+        ensureCapacity(size + 1);
+
+        trackStatisticsUpdater.addTrackPoint(trackPoints, index);
+        distance_m[size] = trackStatisticsUpdater.getTotalDistance().toM();
+        time_ms[size] = trackStatisticsUpdater.getTotalTime().toMillis();
+
+        double previousGain = size > 0 ? gain_m[size - 1] : 0;
+        double previousLoss = size > 0 ? loss_m[size - 1] : 0;
+        gain_m[size] = previousGain + (trackPoints.hasAltitudeGain(index) ? trackPoints.getAltitudeGain_m(index) : 0);
+        loss_m[size] = previousLoss + (trackPoints.hasAltitudeLoss(index) ? trackPoints.getAltitudeLoss_m(index) : 0);
+        hasGain |= trackPoints.hasAltitudeGain(index);
+        hasLoss |= trackPoints.hasAltitudeLoss(index);
+
+        // Same weighting as TrackStatisticsUpdater: the value is weighted with the time since the previous TrackPoint of the segment.
+        TrackPoint.Type type = trackPoints.getType(index);
+        if (type == TrackPoint.Type.SEGMENT_START_MANUAL) {
+            hasLastTime = false;
+        }
+        long time = trackPoints.getTime_ms(index);
+        long weight = hasLastTime ? time - lastTime_ms : 0;
+        heartRateIntegral[size] = (size > 0 ? heartRateIntegral[size - 1] : 0) + (trackPoints.hasHeartRate(index) ? trackPoints.getHeartRate_bpm(index) * (double) weight : 0);
+        heartRateDuration_ms[size] = (size > 0 ? heartRateDuration_ms[size - 1] : 0) + (trackPoints.hasHeartRate(index) ? weight : 0);
+        powerIntegral[size] = (size > 0 ? powerIntegral[size - 1] : 0) + (trackPoints.hasPower(index) ? trackPoints.getPower_w(index) * (double) weight : 0);
+        powerDuration_ms[size] = (size > 0 ? powerDuration_ms[size - 1] : 0) + (trackPoints.hasPower(index) ? weight : 0);
+        hasLastTime = type != TrackPoint.Type.SEGMENT_END_MANUAL;
+        lastTime_ms = time;
+
+        size++;
+    }
+
+    int size() {
+        return size;
+    }
+
+    Distance getTotalDistance() {
+        return Distance.of(size > 0 ? distance_m[size - 1] : 0);
+    }
+
+    /**
+     * @return all intervals; all but the last have the intervalDistance.
+     */
+    @NonNull
+    List<IntervalStatistics.Interval> getIntervals(@NonNull Distance intervalDistance) {
+        double totalDistance_m = getTotalDistance().toM();
+        int completed = (int) Math.floor(totalDistance_m / intervalDistance.toM());
+
+        List<IntervalStatistics.Interval> intervals = new ArrayList<>(completed + 1);
+        Border start = Border.ZERO;
+        for (int i = 1; i <= completed; i++) {
+            Border end = getBorder(intervalDistance, i);
+            intervals.add(createInterval(start, end));
+            start = end;
+        }
+
+        if (completed == 0 || start.distance_m < totalDistance_m) {
+            intervals.add(createInterval(start, getLastBorder()));
+        }
+        return intervals;
+    }
+
+    /**
+     * @return the last interval that has the intervalDistance; null if there is none.
+     */
+    @Nullable
+    IntervalStatistics.Interval getLastCompletedInterval(@NonNull Distance intervalDistance) {
+        int completed = (int) Math.floor(getTotalDistance().toM() / intervalDistance.toM());
+        if (completed == 0) {
+            return null;
+        }
+
+        Border start = completed == 1 ? Border.ZERO : getBorder(intervalDistance, completed - 1);
+        return createInterval(start, getBorder(intervalDistance, completed));
+    }
+
+    private IntervalStatistics.Interval createInterval(Border start, Border end) {
+        double heartRateDuration = end.heartRateDuration_ms - start.heartRateDuration_ms;
+        double powerDuration = end.powerDuration_ms - start.powerDuration_ms;
+
+        return new IntervalStatistics.Interval(
+                Distance.of(end.distance_m - start.distance_m),
+                // Rounding the borders (not the difference) keeps the sum of all intervals equal to the total time.
+                Duration.ofMillis(Math.round(end.time_ms) - Math.round(start.time_ms)),
+                hasGain ? (float) (end.gain_m - start.gain_m) : null,
+                hasLoss ? (float) (end.loss_m - start.loss_m) : null,
+                heartRateDuration > 0 ? HeartRate.of((float) ((end.heartRateIntegral - start.heartRateIntegral) / heartRateDuration)) : null,
+                powerDuration > 0 ? Power.of((float) ((end.powerIntegral - start.powerIntegral) / powerDuration)) : null
+        );
+    }
+
+    /**
+     * @return the cumulative values at the end of the interval with the given number (starting at 1).
+     */
+    private Border getBorder(Distance intervalDistance, int number) {
+        double distance = intervalDistance.toM() * number;
+        if (distance >= getTotalDistance().toM()) {
+            // Includes the TrackPoints after the distance was reached (e.g., while pausing).
+            return getLastBorder();
+        }
+        return getBorder(distance);
+    }
+
+    private Border getLastBorder() {
+        if (size == 0) {
+            return Border.ZERO;
+        }
+        return getBorder(size - 1, distance_m[size - 1], 1);
+    }
+
+    /**
+     * @return the cumulative values at distance (interpolated between the surrounding TrackPoints).
+     */
+    private Border getBorder(double distance) {
+        int index = lowerBound(distance);
+        double previousDistance = index > 0 ? distance_m[index - 1] : 0;
+        double factor = distance_m[index] > previousDistance ? (distance - previousDistance) / (distance_m[index] - previousDistance) : 1;
+        return getBorder(index, distance, factor);
+    }
+
+    private Border getBorder(int index, double distance, double factor) {
+        return new Border(
+                distance,
+                interpolate(time_ms, index, factor),
+                interpolate(gain_m, index, factor),
+                interpolate(loss_m, index, factor),
+                interpolate(heartRateIntegral, index, factor),
+                interpolate(heartRateDuration_ms, index, factor),
+                interpolate(powerIntegral, index, factor),
+                interpolate(powerDuration_ms, index, factor)
+        );
+    }
+
+    private static double interpolate(double[] values, int index, double factor) {
+        double previous = index > 0 ? values[index - 1] : 0;
+        return previous + factor * (values[index] - previous);
+    }
+
+    /**
+     * @return index of the first TrackPoint with a cumulative distance of at least distance; size if none.
+     */
+    private int lowerBound(double distance) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (distance_m[middle] < distance) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= distance_m.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, distance_m.length * 2);
+        distance_m = Arrays.copyOf(distance_m, newCapacity);
+        time_ms = Arrays.copyOf(time_ms, newCapacity);
+        gain_m = Arrays.copyOf(gain_m, newCapacity);
+        loss_m = Arrays.copyOf(loss_m, newCapacity);
+        heartRateIntegral = Arrays.copyOf(heartRateIntegral, newCapacity);
+        heartRateDuration_ms = Arrays.copyOf(heartRateDuration_ms, newCapacity);
+        powerIntegral = Arrays.copyOf(powerIntegral, newCapacity);
+        powerDuration_ms = Arrays.copyOf(powerDuration_ms, newCapacity);
+    }
+
+    private record Border(double distance_m, double time_ms, double gain_m, double loss_m,
+                          double heartRateIntegral, double heartRateDuration_ms,
+                          double powerIntegral, double powerDuration_ms) {
+        static final Border ZERO = new Border(0, 0, 0, 0, 0, 0, 0, 0);
+    }
+}
@@ -1,10 +1,9 @@
 package de.dennisguse.opentracks.ui.intervals;
 
-import androidx.annotation.Nullable;
-
 import java.time.Duration;
-import java.util.ArrayList;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.Distance;
@@ -12,70 +11,67 @@ import de.dennisguse.opentracks.data.models.HeartRate;
 import de.dennisguse.opentracks.data.models.Power;
 import de.dennisguse.opentracks.data.models.Speed;
 import de.dennisguse.opentracks.data.models.TrackPoint;
-import de.dennisguse.opentracks.stats.TrackStatistics;
-import de.dennisguse.opentracks.stats.TrackStatisticsUpdater;
 
 public class IntervalStatistics {
-    private TrackStatisticsUpdater trackStatisticsUpdater = new TrackStatisticsUpdater();
-    private final List<Interval> intervalList;
+
+    /**
+     * The data of the {@link TrackPoint}s that is needed to compute the intervals.
+     */
+    public static final Set<TrackPointIterator.Field> FIELDS = EnumSet.of(
+            TrackPointIterator.Field.LOCATION,
+            TrackPointIterator.Field.SENSOR_DISTANCE,
+            TrackPointIterator.Field.ALTITUDE_GAIN_LOSS,
+            TrackPointIterator.Field.HEART_RATE,
+            TrackPointIterator.Field.POWER);
+
+    private final CumulativeTrackStatistics cumulativeTrackStatistics;
     private final Distance distanceInterval;
-    private Interval interval, lastInterval;
 
     /**
      * @param distanceInterval distance of every interval.
      */
     public IntervalStatistics(Distance distanceInterval) {
+        this(new CumulativeTrackStatistics(), distanceInterval);
+    }
+
+    /**
+     * Uses the already added track points; allows to change the distance of the intervals without adding the track points again.
+     */
+    IntervalStatistics(CumulativeTrackStatistics cumulativeTrackStatistics, Distance distanceInterval) {
+        this.cumulativeTrackStatistics = cumulativeTrackStatistics;
         this.distanceInterval = distanceInterval;
+    }
 
-        interval = new Interval();
-        lastInterval = new Interval();
-        intervalList = new ArrayList<>();
-        intervalList.add(lastInterval);
+    /**
+     * @return the intervals of the already added track points with another distance (without adding the track points again); track points added afterwards are added to both.
+     */
+    public IntervalStatistics withDistanceInterval(Distance distanceInterval) {
+        return new IntervalStatistics(cumulativeTrackStatistics, distanceInterval);
     }
 
     /**
      * Complete intervals with the tracks points from the iterator.
+     * The iterator must provide at least {@link #FIELDS}.
      *
      * @return the last track point's id used to compute the intervals.
      */
     public TrackPoint.Id addTrackPoints(TrackPointIterator trackPointIterator) {
-        boolean newIntervalAdded = false;
-        TrackPoint trackPoint = null;
-
-        while (trackPointIterator.hasNext()) {
-            trackPoint = trackPointIterator.next();
-            trackStatisticsUpdater.addTrackPoint(trackPoint);
-
-            if (trackStatisticsUpdater.getTrackStatistics().getTotalDistance().plus(interval.distance).greaterOrEqualThan(distanceInterval)) {
-                interval.add(trackStatisticsUpdater.getTrackStatistics(), trackPoint);
-
-                double adjustFactor = distanceInterval.dividedBy(interval.distance);
-                Interval adjustedInterval = new Interval(interval, adjustFactor);
-
-                intervalList.set(intervalList.size() - 1, adjustedInterval);
-
-                interval = new Interval(interval.distance.minus(adjustedInterval.distance), interval.time.minus(adjustedInterval.time));
-                trackStatisticsUpdater = new TrackStatisticsUpdater();
-                trackStatisticsUpdater.addTrackPoint(trackPoint);
-
-                lastInterval = new Interval(interval);
-                intervalList.add(lastInterval);
-
-                newIntervalAdded = true;
-            }
-        }
-
-        if (newIntervalAdded) {
-            lastInterval.add(trackStatisticsUpdater.getTrackStatistics(), null);
-        } else {
-            lastInterval.set(trackStatisticsUpdater.getTrackStatistics());
-        }
+        return cumulativeTrackStatistics.addTrackPoints(trackPointIterator);
+    }
 
-        return trackPoint != null ? trackPoint.getId() : null;
+    /**
+     * Complete intervals with one track point (e.g., while recording).
+     * The track point must provide at least {@link #FIELDS}.
+     */
+    public void addTrackPoint(TrackPoint trackPoint) {
+        cumulativeTrackStatistics.addTrackPoint(trackPoint);
     }
 
+    /**
+     * @return all intervals; only the last one may be shorter than the distance of the intervals.
+     */
     public List<Interval> getIntervalList() {
-        return intervalList;
+        return cumulativeTrackStatistics.getIntervals(distanceInterval);
     }
 
     /**
@@ -85,51 +81,24 @@ public class IntervalStatistics {
      * @return the interval object or null if any interval is completed.
      */
     public Interval getLastInterval() {
-        if (intervalList.size() == 1 && intervalList.get(0).getDistance().lessThan(distanceInterval)) {
-            return null;
-        }
-
-        for (int i = intervalList.size() - 1; i >= 0; i--) {
-            if (intervalList.get(i).getDistance().greaterOrEqualThan(distanceInterval)) {
-                return this.intervalList.get(i);
-            }
-        }
-
-        return null;
+        return cumulativeTrackStatistics.getLastCompletedInterval(distanceInterval);
     }
 
     public static class Interval {
-        private Distance distance = Distance.of(0);
-        private Duration time = Duration.ofSeconds(0);
-        private Float gain_m;
-        private Float loss_m;
-        private HeartRate avgHeartRate;
-        private Power avgPower;
-
-        public Interval() {
-        }
-
-        public Interval(Distance distance, Duration time) {
+        private final Distance distance;
+        private final Duration time;
+        private final Float gain_m;
+        private final Float loss_m;
+        private final HeartRate avgHeartRate;
+        private final Power avgPower;
+
+        public Interval(Distance distance, Duration time, Float gain_m, Float loss_m, HeartRate avgHeartRate, Power avgPower) {
             this.distance = distance;
             this.time = time;
-        }
-
-        public Interval(Interval i, double adjustFactor) {
-            distance = i.distance.multipliedBy(adjustFactor);
-            time = Duration.ofMillis((long) (i.time.toMillis() * adjustFactor));
-            gain_m = i.gain_m;
-            loss_m = i.loss_m;
-            avgHeartRate = i.avgHeartRate;
-            avgPower = i.avgPower;
-        }
-
-        public Interval(Interval i) {
-            distance = i.distance;
-            time = i.time;
-            gain_m = i.gain_m;
-            loss_m = i.loss_m;
-            avgHeartRate = i.avgHeartRate;
-            avgPower = i.avgPower;
+            this.gain_m = gain_m;
+            this.loss_m = loss_m;
+            this.avgHeartRate = avgHeartRate;
+            this.avgPower = avgPower;
         }
 
         public Distance getDistance() {
@@ -171,32 +140,5 @@ public class IntervalStatistics {
         public Power getAveragePower() {
             return avgPower;
         }
-
-        private void add(TrackStatistics trackStatistics, @Nullable TrackPoint lastTrackPoint) {
-            distance = distance.plus(trackStatistics.getTotalDistance());
-            time = time.plus(trackStatistics.getTotalTime());
-            gain_m = trackStatistics.hasTotalAltitudeGain() ? trackStatistics.getTotalAltitudeGain() : gain_m;
-            loss_m = trackStatistics.hasTotalAltitudeLoss() ? trackStatistics.getTotalAltitudeLoss() : loss_m;
-            avgHeartRate = trackStatistics.getAverageHeartRate();
-            avgPower = trackStatistics.getAveragePower();
-            if (lastTrackPoint == null) {
-                return;
-            }
-            if (hasGain() && lastTrackPoint.hasAltitudeGain()) {
-                gain_m = gain_m - lastTrackPoint.getAltitudeGain();
-            }
-            if (hasLoss() && lastTrackPoint.hasAltitudeLoss()) {
-                loss_m = loss_m - lastTrackPoint.getAltitudeLoss();
-            }
-        }
-
-        private void set(TrackStatistics trackStatistics) {
-            distance = trackStatistics.getTotalDistance();
-            time = trackStatistics.getTotalTime();
-            gain_m = trackStatistics.hasTotalAltitudeGain() ? trackStatistics.getTotalAltitudeGain() : gain_m;
-            loss_m = trackStatistics.hasTotalAltitudeLoss() ? trackStatistics.getTotalAltitudeLoss() : loss_m;
-            avgHeartRate = trackStatistics.getAverageHeartRate();
-            avgPower = trackStatistics.getAveragePower();
-        }
     }
 }
@@ -17,27 +17,27 @@ import java.util.concurrent.Executor;
 import java.util.concurrent.Executors;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
-import de.dennisguse.opentracks.data.TrackPointIterator;
 import de.dennisguse.opentracks.data.models.Distance;
 import de.dennisguse.opentracks.data.models.Track;
-import de.dennisguse.opentracks.data.models.TrackPoint;
 import de.dennisguse.opentracks.data.tables.TrackPointsColumns;
 import de.dennisguse.opentracks.settings.UnitSystem;
 
 /**
  * This model is used to load intervals for a track.
  * It uses a default interval but it can be set from outside to manage the interval length.
+ * <p>
+ * The track points are only loaded once (and new ones while recording); changing the interval length does not load them again (see {@link CumulativeTrackStatistics}).
  */
 public class IntervalStatisticsModel extends AndroidViewModel {
 
     private static final String TAG = IntervalStatisticsModel.class.getSimpleName();
 
     private MutableLiveData<List<IntervalStatistics.Interval>> intervalsLiveData;
-    private IntervalStatistics intervalStatistics;
-    private Distance distanceInterval;
+    // Only accessed by the executor.
+    private final CumulativeTrackStatistics cumulativeTrackStatistics = new CumulativeTrackStatistics();
+    private volatile Distance distanceInterval;
     private final ContentResolver contentResolver;
     private ContentObserver trackPointsTableObserver;
-    private TrackPoint.Id lastTrackPointId;
 
     private final Executor executor = Executors.newSingleThreadExecutor();
     private HandlerThread handlerThread;
@@ -73,7 +73,6 @@ public class IntervalStatisticsModel extends AndroidViewModel {
 
             intervalsLiveData = new MutableLiveData<>();
             distanceInterval = interval.getDistance(unitSystem);
-            intervalStatistics = new IntervalStatistics(distanceInterval);
 
             loadIntervalStatistics(trackId);
         }
@@ -91,11 +90,8 @@ public class IntervalStatisticsModel extends AndroidViewModel {
 
     private void loadIntervalStatistics(Track.Id trackId) {
         executor.execute(() -> {
-            ContentProviderUtils contentProviderUtils = new ContentProviderUtils(getApplication());
-            try (TrackPointIterator trackPointIterator = contentProviderUtils.getTrackPointLocationIterator(trackId, lastTrackPointId)) {
-                lastTrackPointId = intervalStatistics.addTrackPoints(trackPointIterator);
-                intervalsLiveData.postValue(intervalStatistics.getIntervalList());
-            }
+            cumulativeTrackStatistics.addNewTrackPoints(new ContentProviderUtils(getApplication()), trackId);
+            intervalsLiveData.postValue(cumulativeTrackStatistics.getIntervals(distanceInterval));
         });
     }
 
@@ -110,10 +106,8 @@ public class IntervalStatisticsModel extends AndroidViewModel {
             interval = IntervalOption.DEFAULT;
         }
 
-        lastTrackPointId = null;
         distanceInterval = interval.getDistance(unitSystem);
-        intervalStatistics = new IntervalStatistics(distanceInterval);
-        loadIntervalStatistics(trackId);
+        executor.execute(() -> intervalsLiveData.postValue(cumulativeTrackStatistics.getIntervals(distanceInterval)));
     }
 
     /**
@@ -9,13 +9,15 @@ import android.os.Handler;
 import android.provider.DocumentsContract;
 import android.util.Log;
 
+import androidx.annotation.Nullable;
 import androidx.documentfile.provider.DocumentFile;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import de.dennisguse.opentracks.data.ContentProviderUtils;
@@ -52,15 +54,28 @@ public class ExportUtils {
         }
     }
 
-    public static void exportTrack(Context context, DocumentFile directory, ExportTask exportTask) {
+    /**
+     * Exports into the file with the export filename; the file is created if it does not exist.
+     *
+     * @return the written file.
+     */
+    public static Uri exportTrack(Context context, DocumentFile directory, ExportTask exportTask) {
+        ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
+        return exportTrack(context, directory, exportTask, getAllFiles(context, directory.getUri()).get(getExportFilename(contentProviderUtils, exportTask)));
+    }
+
+    /**
+     * @param exportDocumentFileUri the file to overwrite; null to create a new file (e.g., if it is known from a directory listing that it does not exist).
+     * @return the written file; if created, its name may differ from the export filename (e.g., if the name was taken meanwhile).
+     */
+    public static Uri exportTrack(Context context, DocumentFile directory, ExportTask exportTask, @Nullable Uri exportDocumentFileUri) {
         ContentProviderUtils contentProviderUtils = new ContentProviderUtils(context);
         List<Track> tracks = exportTask.getTrackIds().stream().map(contentProviderUtils::getTrack).collect(Collectors.toList());
-        Uri exportDocumentFileUri;
-        if (tracks.size() == 1) {
-            exportDocumentFileUri = getExportDocumentFileUri(context, tracks.get(0), exportTask.getTrackFileFormat(), directory);
-        } else {
-            String filename = TrackFilenameGenerator.format(exportTask.getFilename(), exportTask.getTrackFileFormat());
-            exportDocumentFileUri = getExportDocumentFileUri(context, filename, exportTask.getTrackFileFormat(), directory);
+        if (exportDocumentFileUri == null) {
+            DocumentFile file = directory.createFile(exportTask.getTrackFileFormat().getMimeType(), getExportFilename(contentProviderUtils, exportTask));
+            if (file != null) {
+                exportDocumentFileUri = file.getUri();
+            }
         }
 
         if (exportDocumentFileUri == null) {
@@ -80,57 +95,38 @@ public class ExportUtils {
         } catch (IOException e) {
             throw new RuntimeException("Unable to close exportDocumentFile output stream", e);
         }
+        return exportDocumentFileUri;
     }
 
-    public static List<String> getAllFiles(Context context, Uri directoryUri) {
-        List<String> fileNames = new ArrayList<>();
-        final ContentResolver resolver = context.getContentResolver();
-        final Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(directoryUri, DocumentsContract.getDocumentId(directoryUri));
-
-        try (Cursor c = resolver.query(childrenUri, new String[]{DocumentsContract.Document.COLUMN_DISPLAY_NAME}, null, null, null)) {
-            while (c.moveToNext()) {
-                fileNames.add(c.getString(0));
-            }
-        } catch (Exception e) {
-            Log.w(TAG, "Failed query: " + e);
+    public static String getExportFilename(ContentProviderUtils contentProviderUtils, ExportTask exportTask) {
+        if (exportTask.isMultiExport()) {
+            return TrackFilenameGenerator.format(exportTask.getFilename(), exportTask.getTrackFileFormat());
         }
-
-        return fileNames;
+        return getExportFilename(contentProviderUtils.getTrack(exportTask.getTrackIds().get(0)), exportTask.getTrackFileFormat());
     }
 
-    private static Uri getExportDocumentFileUri(Context context, Track track, TrackFileFormat trackFileFormat, DocumentFile directory) {
-        String exportFileName = PreferencesUtils.getTrackFileformatGenerator().format(track, trackFileFormat);
-        return getExportDocumentFileUri(context, exportFileName, trackFileFormat, directory);
+    public static String getExportFilename(Track track, TrackFileFormat trackFileFormat) {
+        return PreferencesUtils.getTrackFileformatGenerator().format(track, trackFileFormat);
     }
 
-    private static Uri getExportDocumentFileUri(Context context, String exportFileName, TrackFileFormat trackFileFormat, DocumentFile directory) {
-        Uri exportDocumentFileUri = findFile(context, directory.getUri(), exportFileName);
-        if (exportDocumentFileUri == null) {
-            final DocumentFile file = directory.createFile(trackFileFormat.getMimeType(), exportFileName);
-            if (file != null) {
-                exportDocumentFileUri = file.getUri();
-            }
-        }
-        return exportDocumentFileUri;
-    }
-
-    private static Uri findFile(Context context, Uri directoryUri, String exportFileName) {
+    /**
+     * Lists the directory with one query.
+     *
+     * @return the files by their name.
+     */
+    public static Map<String, Uri> getAllFiles(Context context, Uri directoryUri) {
+        Map<String, Uri> files = new HashMap<>();
         final ContentResolver resolver = context.getContentResolver();
         final Uri childrenUri = DocumentsContract.buildChildDocumentsUriUsingTree(directoryUri, DocumentsContract.getDocumentId(directoryUri));
 
         try (Cursor c = resolver.query(childrenUri, new String[]{DocumentsContract.Document.COLUMN_DOCUMENT_ID, DocumentsContract.Document.COLUMN_DISPLAY_NAME}, null, null, null)) {
-
             while (c.moveToNext()) {
-                final String documentId = c.getString(0);
-                final String documentName = c.getString(1);
-                if (documentName.equals(exportFileName)) {
-                    return DocumentsContract.buildDocumentUriUsingTree(directoryUri, documentId);
-                }
+                files.put(c.getString(1), DocumentsContract.buildDocumentUriUsingTree(directoryUri, c.getString(0)));
             }
         } catch (Exception e) {
-            Log.w(TAG, "Find file error: failed query: " + e);
+            Log.w(TAG, "Failed query: " + e);
         }
 
-        return null;
+        return files;
     }
 }